@@ -752,6 +752,40 @@ public class Const {
    */
   public static final String KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO = "KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO";
 
+  /**
+   * Set this variable to N to evaluate the conditions of the Filter Rows step by walking the condition tree for every
+   * row instead of compiling them into Java classes. The default value is Y. Can be set per transformation.
+   */
+  public static final String KETTLE_COMPILE_CONDITIONS = "KETTLE_COMPILE_CONDITIONS";
+
+  /**
+   * Set this variable to N to perform the calculations of the Calculator step one by one for every row instead of
+   * compiling the supported ones into a Java class. The default value is Y. Can be set per transformation.
+   */
+  public static final String KETTLE_COMPILE_CALCULATIONS = "KETTLE_COMPILE_CALCULATIONS";
+
+  /**
+   * Set this variable to N to evaluate all the formulas of the Formula step with the formula library instead of
+   * compiling the ones using common functions and operators into Java classes. The default value is Y. Can be set per
+   * transformation.
+   */
+  public static final String KETTLE_COMPILE_FORMULAS = "KETTLE_COMPILE_FORMULAS";
+
+  /**
+   * The number of groups of rows for which the Transformation Executor step runs its transformation at the same time.
+   * The results are still passed on in the order of the groups. The default value is 1: the transformation of a group
+   * is finished before the next group is started. Every group that runs at the same time uses a copy of the
+   * transformation of its own. Transformations that use unique connections always run one group at a time.
+   */
+  public static final String KETTLE_TRANS_EXECUTOR_CONCURRENT_GROUPS = "KETTLE_TRANS_EXECUTOR_CONCURRENT_GROUPS";
+
+  /**
+   * Set this variable to Y to hand the string, integer, number and boolean fields to the scripts of the Modified
+   * JavaScript Value step as JavaScript primitives instead of wrapping them in objects for every row. Scripts testing
+   * the type of a field or using an empty string or zero as a condition can behave differently. The default value is N.
+   */
+  public static final String KETTLE_JAVASCRIPT_PRIMITIVE_VALUES = "KETTLE_JAVASCRIPT_PRIMITIVE_VALUES";
+
   /**
    * This flag will prevent Kettle from converting {@code null} strings to empty strings in {@link org.pentaho.di.core.row.value.ValueMetaBase}
    * The default value is {@code false}.
@@ -776,6 +810,13 @@ public class Const {
    */
   public static final String KETTLE_XML_MISSING_TAG_YIELDS_NULL_VALUE = "KETTLE_XML_MISSING_TAG_YIELDS_NULL_VALUE";
 
+  /**
+   * When set to "Y", the "Get XML data" step evaluates the loop and field XPaths while streaming through the files
+   * instead of building a document in memory. Only used for simple paths such as /orders/order with fields like
+   * customer/name, line/@id or ../@batch. Can be set per transformation.
+   */
+  public static final String KETTLE_GET_XML_DATA_STREAMING = "KETTLE_GET_XML_DATA_STREAMING";
+
   /**
    * System wide flag to allow non-strict string to number conversion for backward compatibility. If this setting is set
    * to "Y", an string starting with digits will be converted successfully into a number. (example: 192.168.1.1 will be
@@ -932,6 +973,18 @@ public class Const {
    */
   public static final String KETTLE_PLUGIN_PACKAGES = "KETTLE_PLUGIN_PACKAGES";
 
+  /**
+   * Name of the variable to set to N to scan all the plugin jar files at startup instead of reusing the plugin index of
+   * the previous start for the jar files that didn't change
+   */
+  public static final String KETTLE_PLUGIN_INDEX = "KETTLE_PLUGIN_INDEX";
+
+  /**
+   * Name of the variable to set to Y to search the plugins of the plugin types in parallel at startup and to register
+   * the plugins from the plugin index without loading their classes until they are used
+   */
+  public static final String KETTLE_FAST_STARTUP = "KETTLE_FAST_STARTUP";
+
   /**
    * Name of the environment variable that contains the size of the transformation rowset size. This overwrites values
    * that you set transformation settings.
@@ -1052,6 +1105,23 @@ public class Const {
    */
   public static final String KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE = "KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE";
 
+  /**
+   * The size in bytes of the write buffer of each file opened by the Text File Output step. (default = 5000)
+   */
+  public static final String KETTLE_FILE_OUTPUT_BUFFER_SIZE = "KETTLE_FILE_OUTPUT_BUFFER_SIZE";
+
+  /**
+   * Set this variable to Y to have the Text File Output step write full buffers to the file on a separate thread.
+   * (default = N)
+   */
+  public static final String KETTLE_FILE_OUTPUT_ASYNC_FLUSH = "KETTLE_FILE_OUTPUT_ASYNC_FLUSH";
+
+  /**
+   * Set this variable to Y to have the Text File Output step encode integer and date fields with simple numeric
+   * formats directly to bytes, bypassing the String conversion of the field metadata. (default = N)
+   */
+  public static final String KETTLE_FILE_OUTPUT_FAST_ENCODING = "KETTLE_FILE_OUTPUT_FAST_ENCODING";
+
   /**
    * Set this variable to Y to disable standard Kettle logging to the console. (stdout)
    */
@@ -1093,6 +1163,11 @@ public class Const {
    */
   public static final String XML_FILE_KETTLE_COMPRESSION_PROVIDERS = "kettle-compression-providers.xml";
 
+  /**
+   * The XML file that contains the list of native Kettle row distributions (Least loaded, Power of two choices)
+   */
+  public static final String XML_FILE_KETTLE_ROW_DISTRIBUTIONS = "kettle-row-distributions.xml";
+
   /**
    * The XML file that contains the list of native Kettle compression providers (None, ZIP, GZip, etc.)
    */
@@ -1215,6 +1290,45 @@ public class Const {
   // See PDI-19138 for details
   public static final String KETTLE_JSON_INPUT_INCLUDE_NULLS = "KETTLE_JSON_INPUT_INCLUDE_NULLS";
 
+  /**
+   * When set to Y, JSON Input streams through the input and emits the rows record by record instead of parsing whole
+   * documents in memory. Only used when all field paths select the same records with a simple path and a single
+   * wildcard or filter, such as $.data[*].name, and missing values default to null. Can be set per transformation.
+   */
+  public static final String KETTLE_JSON_INPUT_STREAMING = "KETTLE_JSON_INPUT_STREAMING";
+
+  /**
+   * When set to Y, the streaming Excel Input engine decodes the sheets on worker threads ahead of the step, and the
+   * copies of the step split the sheets of each workbook between them. Can be set per transformation.
+   */
+  public static final String KETTLE_EXCEL_STREAMING_PARALLEL_SHEETS = "KETTLE_EXCEL_STREAMING_PARALLEL_SHEETS";
+
+  /**
+   * The number of bytes of shared strings the streaming Excel Input engine keeps in memory before moving them to a
+   * temporary file. Empty or -1 keeps the shared strings table of POI, unless the sheets are decoded in parallel. Can be
+   * set per transformation.
+   */
+  public static final String KETTLE_EXCEL_STREAMING_SHARED_STRINGS_MEMORY =
+    "KETTLE_EXCEL_STREAMING_SHARED_STRINGS_MEMORY";
+
+  /**
+   * The number of rows the remote steps of a clustered transformation send per batch, encoded column by column. Empty
+   * or 0 sends the rows one by one. Read on the master when the transformation is split.
+   */
+  public static final String KETTLE_REMOTE_STEP_BATCH_ROWS = "KETTLE_REMOTE_STEP_BATCH_ROWS";
+
+  /**
+   * Set this variable to Y to let the slave servers of a clustered transformation aggregate their rows before a Memory
+   * Group By step on the master merges them. Read on the master when the transformation is split.
+   */
+  public static final String KETTLE_CLUSTER_PARTIAL_AGGREGATION = "KETTLE_CLUSTER_PARTIAL_AGGREGATION";
+
+  /**
+   * The number of milliseconds during which Carte sends the same status of the server or of a transformation to all
+   * the clients polling it. Empty or 0 builds the status for every request.
+   */
+  public static final String KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL = "KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL";
+
   // See PDI-17309 for details
   public static final String KETTLE_COMPATIBILITY_CONCAT_FIELDS_SPLIT_ROWS_HEADER_OFFSET = "KETTLE_COMPATIBILITY_CONCAT_FIELDS_SPLIT_ROWS_HEADER_OFFSET";
 
@@ -1268,6 +1382,36 @@ public class Const {
    */
   public static final String KETTLE_CARTE_JETTY_RES_MAX_IDLE_TIME = "KETTLE_CARTE_JETTY_RES_MAX_IDLE_TIME";
 
+  /**
+   * A variable to configure the number of threads that execute the requests of each Carte servlet. Empty or 0 executes
+   * them on the threads of Jetty.
+   */
+  public static final String KETTLE_CARTE_REQUEST_THREADS = "KETTLE_CARTE_REQUEST_THREADS";
+
+  /**
+   * A variable to configure the number of requests that can wait for a thread of a Carte servlet before new ones are
+   * refused
+   */
+  public static final String KETTLE_CARTE_REQUEST_QUEUE_SIZE = "KETTLE_CARTE_REQUEST_QUEUE_SIZE";
+
+  /**
+   * A variable to configure a comma separated list of transformations (file names or repository paths) that the Carte
+   * execution servlets keep parsed and prepared for execution ahead of the requests
+   */
+  public static final String KETTLE_CARTE_PREPARED_TRANSFORMATIONS = "KETTLE_CARTE_PREPARED_TRANSFORMATIONS";
+
+  /**
+   * A variable to configure the number of prepared copies that Carte keeps of every transformation in
+   * KETTLE_CARTE_PREPARED_TRANSFORMATIONS
+   */
+  public static final String KETTLE_CARTE_PREPARED_TRANS_POOL_SIZE = "KETTLE_CARTE_PREPARED_TRANS_POOL_SIZE";
+
+  /**
+   * A variable to configure the number of seconds Carte keeps a prepared transformation that isn't used before it is
+   * cleaned up and its database connections are closed
+   */
+  public static final String KETTLE_CARTE_PREPARED_TRANS_MAX_IDLE = "KETTLE_CARTE_PREPARED_TRANS_MAX_IDLE";
+
   /**
    * A variable to configure refresh for carte job/trans status page
    */
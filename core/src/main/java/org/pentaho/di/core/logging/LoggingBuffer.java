@@ -73,6 +73,18 @@ public class LoggingBuffer {
     }
   }
 
+  /**
+   * @return the number of the oldest log line still in the buffer. If no records are present in the buffer, 0 is
+   * returned.
+   */
+  public int getFirstBufferLineNr() {
+    try {
+      return buffer.firstKey();
+    } catch ( NoSuchElementException e ) {
+      return 0;
+    }
+  }
+
   /**
    * @param channelId      channel IDs to grab
    * @param includeGeneral include general log lines
@@ -109,14 +121,7 @@ public class LoggingBuffer {
     //  "****" + channelId.get( 0 ) + "   size:" + channelId.size() + "  general:" + includeGeneral + "  from:" + from
     //    + "  to:" + to + "  tailLines: " + tailLines );
 
-    Stream<BufferLine> bufferStream = buffer.subMap( from, true, to, true ).values().stream();
-    if ( !Utils.isEmpty( channelId ) ) {
-      bufferStream = bufferStream.filter( line -> {
-        String logChannelId = getLogChId( line );
-        return includeGeneral ? isGeneral( logChannelId ) || channelId.contains( logChannelId )
-          : channelId.contains( logChannelId );
-      } );
-    }
+    Stream<BufferLine> bufferStream = getBufferLines( channelId, includeGeneral, from, to );
 
     if ( tailLines > 0 ) {
       //We have to make a list so we can get the line number since we can't tap a stream twice
@@ -133,6 +138,35 @@ public class LoggingBuffer {
 
   }
 
+  /**
+   * Same as {@link #getLogBufferFromTo(List, boolean, int, int)} but keeps the line numbers, so that a reader can
+   * continue from the last line it has seen.
+   *
+   * @param channelId      channel IDs to grab
+   * @param includeGeneral include general log lines
+   * @param from
+   * @param to
+   * @return
+   */
+  public List<BufferLine> getBufferLinesFromTo( List<String> channelId, boolean includeGeneral, int from, int to ) {
+    if ( from > to ) {
+      return Collections.<BufferLine>emptyList();
+    }
+    return getBufferLines( channelId, includeGeneral, from, to ).collect( Collectors.toList() );
+  }
+
+  private Stream<BufferLine> getBufferLines( List<String> channelId, boolean includeGeneral, int from, int to ) {
+    Stream<BufferLine> bufferStream = buffer.subMap( from, true, to, true ).values().stream();
+    if ( !Utils.isEmpty( channelId ) ) {
+      bufferStream = bufferStream.filter( line -> {
+        String logChannelId = getLogChId( line );
+        return includeGeneral ? isGeneral( logChannelId ) || channelId.contains( logChannelId )
+          : channelId.contains( logChannelId );
+      } );
+    }
+    return bufferStream;
+  }
+
   /**
    * @param parentLogChannelId the parent log channel ID to grab
    * @param includeGeneral     include general log lines
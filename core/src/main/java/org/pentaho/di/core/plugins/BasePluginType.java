@@ -38,6 +38,7 @@ import org.apache.commons.vfs2.FileSelectInfo;
 import org.apache.commons.vfs2.FileSelector;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.logging.DefaultLogLevel;
@@ -47,6 +48,7 @@ import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.i18n.GlobalMessageUtil;
+import org.pentaho.di.i18n.LanguageChoice;
 import org.scannotation.AnnotationDB;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -66,6 +68,9 @@ public abstract class BasePluginType implements PluginTypeInterface {
 
   protected boolean searchLibDir;
 
+  /** The jar file of the annotated plugin class being registered, to keep the plugin in the index */
+  private URL indexedJarFile;
+
   Class<? extends java.lang.annotation.Annotation> pluginClass;
 
   public BasePluginType( Class<? extends java.lang.annotation.Annotation> pluginClass ) {
@@ -388,6 +393,8 @@ public abstract class BasePluginType implements PluginTypeInterface {
         }
 
         if ( fileObjects != null ) {
+          jarFileCache.scanArchives( fileObjects );
+
           for ( FileObject fileObject : fileObjects ) {
             // These are the jar files : find annotations in it...
             //
@@ -691,7 +698,11 @@ public abstract class BasePluginType implements PluginTypeInterface {
 
   protected void registerPluginJars() throws KettlePluginException {
     List<JarFileAnnotationPlugin> jarFilePlugins = findAnnotatedClassFiles( pluginClass.getName() );
+    boolean lazy = "Y".equalsIgnoreCase( EnvUtil.getSystemProperty( Const.KETTLE_FAST_STARTUP ) );
     for ( JarFileAnnotationPlugin jarFilePlugin : jarFilePlugins ) {
+      if ( lazy && registerIndexedPlugin( jarFilePlugin ) ) {
+        continue;
+      }
 
       URLClassLoader urlClassLoader =
         createUrlClassLoader( jarFilePlugin.getJarFile(), getClass().getClassLoader() );
@@ -706,12 +717,14 @@ public abstract class BasePluginType implements PluginTypeInterface {
           .collect( Collectors.toList() );
         Annotation annotation = clazz.getAnnotation( pluginClass );
 
+        indexedJarFile = jarFilePlugin.getJarFile();
         handlePluginAnnotation( clazz, annotation, libraries, false, jarFilePlugin.getPluginFolder() );
       } catch ( Exception e ) {
         // Ignore for now, don't know if it's even possible.
         LogChannel.GENERAL.logError(
           "Unexpected error registering jar plugin file: " + jarFilePlugin.getJarFile(), e );
       } finally {
+        indexedJarFile = null;
         if ( urlClassLoader instanceof KettleURLClassLoader ) {
           ( (KettleURLClassLoader) urlClassLoader ).closeClassLoader();
         }
@@ -719,6 +732,54 @@ public abstract class BasePluginType implements PluginTypeInterface {
     }
   }
 
+  /**
+   * Registers a plugin the way it was registered at a previous start, without loading the class or creating a class
+   * loader. Those are only needed once the plugin is used.
+   *
+   * @return false if the plugin has to be registered the usual way
+   */
+  private boolean registerIndexedPlugin( JarFileAnnotationPlugin jarFilePlugin ) {
+    if ( isFragment() ) {
+      return false;
+    }
+    IndexedPlugin indexedPlugin = JarFileCache.getInstance().getIndexedPlugin( jarFilePlugin.getJarFile(),
+      getIndexKey(), jarFilePlugin.getClassName() );
+    if ( indexedPlugin == null || !indexedPlugin.isValid( getLibFolderModified( jarFilePlugin.getJarFile() ) ) ) {
+      return false;
+    }
+    try {
+      PluginInterface plugin = indexedPlugin.createPlugin( this.getClass() );
+      if ( indexedPlugin.getParentFirstPatterns() != null ) {
+        registry.addParentClassLoaderPatterns( plugin, indexedPlugin.getParentFirstPatterns() );
+      }
+      registry.registerPlugin( this.getClass(), plugin );
+      return true;
+    } catch ( Exception e ) {
+      LogChannel.GENERAL.logDebug( "Unable to register plugin " + jarFilePlugin.getClassName()
+        + " from the plugin index", e );
+      return false;
+    }
+  }
+
+  /**
+   * Translations are part of the indexed plugins, so they are kept by locale.
+   */
+  private String getIndexKey() {
+    return getClass().getName() + "|" + LanguageChoice.getInstance().getDefaultLocale();
+  }
+
+  /**
+   * @return the modification date of the lib folder next to the jar file, 0 if there is none
+   */
+  private static long getLibFolderModified( URL jarFileUrl ) {
+    try {
+      return new File( new File( URLDecoder.decode( jarFileUrl.getFile(), "UTF-8" ) ).getParent(), "lib" )
+        .lastModified();
+    } catch ( Exception e ) {
+      return 0L;
+    }
+  }
+
   /**
    * Handle an annotated plugin
    *
@@ -779,6 +840,15 @@ public abstract class BasePluginType implements PluginTypeInterface {
     if ( parentFirstAnnotation != null ) {
       registry.addParentClassLoaderPatterns( plugin, parentFirstAnnotation.patterns() );
     }
+
+    // Keep the plugin as it is now, before fragments are merged into it
+    //
+    if ( indexedJarFile != null && !isFragment() ) {
+      long libFolderModified = getLibFolderModified( indexedJarFile );
+      JarFileCache.getInstance().putIndexedPlugin( indexedJarFile, getIndexKey(), clazz.getName(),
+        new IndexedPlugin( plugin, parentFirstAnnotation == null ? null : parentFirstAnnotation.patterns(),
+          libFolderModified ), libFolderModified );
+    }
     registry.registerPlugin( this.getClass(), plugin );
 
     if ( libraries != null && !libraries.isEmpty() ) {
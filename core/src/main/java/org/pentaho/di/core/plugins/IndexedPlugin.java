@@ -0,0 +1,204 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.plugins;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a plugin type registered for an annotated class in a plugin jar file, kept in the index of the
+ * {@link JarFileCache}. It allows the plugin to be registered again without loading the class.
+ */
+class IndexedPlugin {
+
+  private final String[] ids;
+  private final String mainType;
+  private final String category;
+  private final String name;
+  private final String description;
+  private final String imageFile;
+  private final boolean separateClassLoaderNeeded;
+  private final String classLoaderGroup;
+  private final Map<String, String> classMap;
+  private final List<String> libraries;
+  private final String pluginFolder;
+  private final String documentationUrl;
+  private final String casesUrl;
+  private final String forumUrl;
+  private final String suggestion;
+  private final String[] parentFirstPatterns;
+  private final long libFolderModified;
+
+  IndexedPlugin( PluginInterface plugin, String[] parentFirstPatterns, long libFolderModified ) {
+    this.ids = plugin.getIds();
+    this.mainType = plugin.getMainType().getName();
+    this.category = plugin.getCategory();
+    this.name = plugin.getName();
+    this.description = plugin.getDescription();
+    this.imageFile = plugin.getImageFile();
+    this.separateClassLoaderNeeded = plugin.isSeparateClassLoaderNeeded();
+    this.classLoaderGroup = plugin.getClassLoaderGroup();
+    this.classMap = new HashMap<>();
+    for ( Map.Entry<Class<?>, String> entry : plugin.getClassMap().entrySet() ) {
+      classMap.put( entry.getKey().getName(), entry.getValue() );
+    }
+    this.libraries = plugin.getLibraries() == null ? new ArrayList<>() : new ArrayList<>( plugin.getLibraries() );
+    this.pluginFolder = plugin.getPluginDirectory() == null ? null : plugin.getPluginDirectory().toString();
+    this.documentationUrl = plugin.getDocumentationUrl();
+    this.casesUrl = plugin.getCasesUrl();
+    this.forumUrl = plugin.getForumUrl();
+    this.suggestion = plugin.getSuggestion();
+    this.parentFirstPatterns = parentFirstPatterns;
+    this.libFolderModified = libFolderModified;
+  }
+
+  IndexedPlugin( DataInputStream dis ) throws IOException {
+    ids = readStrings( dis );
+    mainType = dis.readUTF();
+    category = readString( dis );
+    name = readString( dis );
+    description = readString( dis );
+    imageFile = readString( dis );
+    separateClassLoaderNeeded = dis.readBoolean();
+    classLoaderGroup = readString( dis );
+    classMap = new HashMap<>();
+    int nrClasses = dis.readInt();
+    for ( int i = 0; i < nrClasses; i++ ) {
+      classMap.put( dis.readUTF(), dis.readUTF() );
+    }
+    libraries = new ArrayList<>();
+    int nrLibraries = dis.readInt();
+    for ( int i = 0; i < nrLibraries; i++ ) {
+      libraries.add( dis.readUTF() );
+    }
+    pluginFolder = readString( dis );
+    documentationUrl = readString( dis );
+    casesUrl = readString( dis );
+    forumUrl = readString( dis );
+    suggestion = readString( dis );
+    parentFirstPatterns = readStrings( dis );
+    libFolderModified = dis.readLong();
+  }
+
+  void write( DataOutputStream dos ) throws IOException {
+    writeStrings( dos, ids );
+    dos.writeUTF( mainType );
+    writeString( dos, category );
+    writeString( dos, name );
+    writeString( dos, description );
+    writeString( dos, imageFile );
+    dos.writeBoolean( separateClassLoaderNeeded );
+    writeString( dos, classLoaderGroup );
+    dos.writeInt( classMap.size() );
+    for ( Map.Entry<String, String> entry : classMap.entrySet() ) {
+      dos.writeUTF( entry.getKey() );
+      dos.writeUTF( entry.getValue() );
+    }
+    dos.writeInt( libraries.size() );
+    for ( String library : libraries ) {
+      dos.writeUTF( library );
+    }
+    writeString( dos, pluginFolder );
+    writeString( dos, documentationUrl );
+    writeString( dos, casesUrl );
+    writeString( dos, forumUrl );
+    writeString( dos, suggestion );
+    writeStrings( dos, parentFirstPatterns );
+    dos.writeLong( libFolderModified );
+  }
+
+  /**
+   * @param currentLibFolderModified
+   *          the modification date of the lib folder next to the jar file now
+   * @return false if libraries were added to or removed from the lib folder since the plugin was registered
+   */
+  boolean isValid( long currentLibFolderModified ) {
+    if ( currentLibFolderModified != libFolderModified ) {
+      return false;
+    }
+    try {
+      for ( String library : libraries ) {
+        if ( !new File( URLDecoder.decode( library, "UTF-8" ) ).exists() ) {
+          return false;
+        }
+      }
+    } catch ( UnsupportedEncodingException e ) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param pluginType
+   *          the plugin type that registered the plugin
+   * @return the plugin, using the class loader of the plugin type to find the plugin interfaces
+   */
+  PluginInterface createPlugin( Class<? extends PluginTypeInterface> pluginType ) throws ClassNotFoundException,
+    IOException {
+    ClassLoader classLoader = pluginType.getClassLoader();
+    Map<Class<?>, String> pluginClassMap = new HashMap<>();
+    for ( Map.Entry<String, String> entry : classMap.entrySet() ) {
+      pluginClassMap.put( Class.forName( entry.getKey(), false, classLoader ), entry.getValue() );
+    }
+    return new Plugin( ids, pluginType, Class.forName( mainType, false, classLoader ), category, name, description,
+      imageFile, separateClassLoaderNeeded, classLoaderGroup, false, pluginClassMap, new ArrayList<>( libraries ),
+      null, pluginFolder == null ? null : new URL( pluginFolder ), documentationUrl, casesUrl, forumUrl,
+      suggestion );
+  }
+
+  String[] getParentFirstPatterns() {
+    return parentFirstPatterns;
+  }
+
+  private static String readString( DataInputStream dis ) throws IOException {
+    return dis.readBoolean() ? dis.readUTF() : null;
+  }
+
+  private static void writeString( DataOutputStream dos, String string ) throws IOException {
+    dos.writeBoolean( string != null );
+    if ( string != null ) {
+      dos.writeUTF( string );
+    }
+  }
+
+  private static String[] readStrings( DataInputStream dis ) throws IOException {
+    int length = dis.readInt();
+    if ( length < 0 ) {
+      return null;
+    }
+    String[] strings = new String[ length ];
+    for ( int i = 0; i < length; i++ ) {
+      strings[ i ] = readString( dis );
+    }
+    return strings;
+  }
+
+  private static void writeStrings( DataOutputStream dos, String[] strings ) throws IOException {
+    dos.writeInt( strings == null ? -1 : strings.length );
+    if ( strings != null ) {
+      for ( String string : strings ) {
+        writeString( dos, string );
+      }
+    }
+  }
+}
@@ -13,28 +13,85 @@
 
 package org.pentaho.di.core.plugins;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.version.BuildVersion;
 import org.scannotation.AnnotationDB;
 
+/**
+ * Caches the jar files in the plugin folders and the annotations found in them.<br>
+ * <br>
+ * The annotations are also kept in an index file in the Kettle home directory, so that the next start only has to scan
+ * the jar files with a different size or modification date. Those are scanned in parallel. Next to the annotations the
+ * index keeps the plugins registered for them, see {@link IndexedPlugin}.
+ */
 public class JarFileCache {
 
+  private static final int INDEX_VERSION = 2;
+
   private static JarFileCache cache;
 
   private final Map<PluginFolderInterface, FileObject[]> folderMap;
 
   private final Map<FileObject, AnnotationDB> annotationMap;
 
+  /** The index written by the previous start, by jar file URL */
+  private Map<String, IndexEntry> index;
+
+  /** The index entries of the jar files used since, to write back */
+  private final Map<String, IndexEntry> usedIndex;
+
+  private volatile boolean indexChanged;
+
+  private final Object scanLock = new Object();
+
+  private static class IndexEntry {
+    private final long size;
+    private final long lastModified;
+    private final Map<String, Set<String>> annotationIndex;
+    /** The plugins registered for the annotated classes by index key and class name */
+    private final Map<String, Map<String, IndexedPlugin>> plugins = new ConcurrentHashMap<>();
+
+    private IndexEntry( long size, long lastModified, Map<String, Set<String>> annotationIndex ) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.annotationIndex = annotationIndex;
+    }
+  }
+
   private JarFileCache() {
-    annotationMap = new HashMap<>();
-    folderMap = new HashMap<>();
+    annotationMap = new ConcurrentHashMap<>();
+    folderMap = new ConcurrentHashMap<>();
+    usedIndex = new ConcurrentHashMap<>();
   }
 
-  public static JarFileCache getInstance() {
+  public static synchronized JarFileCache getInstance() {
     if ( cache == null ) {
       cache = new JarFileCache();
     }
@@ -44,24 +101,260 @@ public class JarFileCache {
   public AnnotationDB getAnnotationDB( FileObject fileObject ) throws IOException {
     AnnotationDB result = annotationMap.get( fileObject );
     if ( result == null ) {
-      result = new AnnotationDB();
-      result.scanArchives( fileObject.getURL() );
+      result = loadAnnotationDB( fileObject );
       annotationMap.put( fileObject, result );
     }
     return result;
   }
 
+  private AnnotationDB loadAnnotationDB( FileObject fileObject ) throws IOException {
+    if ( !isIndexEnabled() ) {
+      return scanArchive( fileObject );
+    }
+
+    String url = fileObject.getURL().toString();
+    FileContent content = fileObject.getContent();
+    long size = content.getSize();
+    long lastModified = content.getLastModifiedTime();
+
+    AnnotationDB result;
+    IndexEntry entry = getIndex().get( url );
+    if ( entry != null && entry.size == size && entry.lastModified == lastModified ) {
+      result = new AnnotationDB();
+      result.getAnnotationIndex().putAll( entry.annotationIndex );
+    } else {
+      result = scanArchive( fileObject );
+      entry = new IndexEntry( size, lastModified, result.getAnnotationIndex() );
+      indexChanged = true;
+    }
+    usedIndex.put( url, entry );
+    return result;
+  }
+
+  /**
+   * Plugins are always annotated classes, so the annotations of methods, fields and parameters are skipped.
+   */
+  private static AnnotationDB scanArchive( FileObject fileObject ) throws IOException {
+    AnnotationDB annotationDB = new AnnotationDB();
+    annotationDB.setScanMethodAnnotations( false );
+    annotationDB.setScanFieldAnnotations( false );
+    annotationDB.setScanParameterAnnotations( false );
+    annotationDB.scanArchives( fileObject.getURL() );
+    return annotationDB;
+  }
+
+  /**
+   * Looks up the annotations of the given jar files that are not cached yet in parallel, so that the following calls
+   * to {@link #getAnnotationDB(FileObject)} find them in the cache. Jar files that can't be scanned are left for those
+   * calls to report.
+   *
+   * @param fileObjects
+   *          the jar files in a plugin folder
+   */
+  public void scanArchives( FileObject[] fileObjects ) {
+    // Plugin types searching the same folder at the same time wait for the first one to scan it
+    synchronized ( scanLock ) {
+      scanMissingArchives( fileObjects );
+    }
+  }
+
+  private void scanMissingArchives( FileObject[] fileObjects ) {
+    List<FileObject> missing = new ArrayList<>();
+    for ( FileObject fileObject : fileObjects ) {
+      if ( !annotationMap.containsKey( fileObject ) ) {
+        missing.add( fileObject );
+      }
+    }
+    int threads = Math.min( missing.size(), Runtime.getRuntime().availableProcessors() );
+    if ( threads < 2 ) {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool( threads, runnable -> {
+      Thread thread = new Thread( runnable, "Plugin jar scan" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    try {
+      List<Future<AnnotationDB>> futures = new ArrayList<>();
+      for ( FileObject fileObject : missing ) {
+        futures.add( executor.submit( () -> getAnnotationDB( fileObject ) ) );
+      }
+      for ( Future<AnnotationDB> future : futures ) {
+        try {
+          future.get();
+        } catch ( ExecutionException e ) {
+          // Reported when the jar file is looked up again
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   public FileObject[] getFileObjects( PluginFolderInterface pluginFolderInterface ) throws KettleFileException {
     FileObject[] result = folderMap.get( pluginFolderInterface );
     if ( result == null ) {
       result = pluginFolderInterface.findJarFiles();
-      folderMap.put( pluginFolderInterface, result );
+      if ( result != null ) {
+        folderMap.put( pluginFolderInterface, result );
+      }
     }
     return result;
   }
 
+  /**
+   * @return the plugin registered for an annotated class of a jar file the last time, or null if there is none
+   */
+  IndexedPlugin getIndexedPlugin( URL jarFile, String key, String className ) {
+    IndexEntry entry = usedIndex.get( jarFile.toString() );
+    if ( entry == null ) {
+      return null;
+    }
+    Map<String, IndexedPlugin> plugins = entry.plugins.get( key );
+    return plugins == null ? null : plugins.get( className );
+  }
+
+  /**
+   * Keeps the plugin registered for an annotated class of a jar file for the next start.
+   */
+  void putIndexedPlugin( URL jarFile, String key, String className, IndexedPlugin plugin, long libFolderModified ) {
+    IndexEntry entry = usedIndex.get( jarFile.toString() );
+    if ( entry == null ) {
+      return;
+    }
+    Map<String, IndexedPlugin> plugins = entry.plugins.computeIfAbsent( key, k -> new ConcurrentHashMap<>() );
+    IndexedPlugin previous = plugins.get( className );
+    if ( previous == null || !previous.isValid( libFolderModified ) ) {
+      plugins.put( className, plugin );
+      indexChanged = true;
+    }
+  }
+
+  private static boolean isIndexEnabled() {
+    return !"N".equalsIgnoreCase( EnvUtil.getSystemProperty( Const.KETTLE_PLUGIN_INDEX ) );
+  }
+
+  public static String getIndexFilename() {
+    return Const.getKettleDirectory()
+      + Const.FILE_SEPARATOR + "plugin-index-" + BuildVersion.getInstance().getVersion();
+  }
+
+  private synchronized Map<String, IndexEntry> getIndex() {
+    if ( index == null ) {
+      index = readIndex( new File( getIndexFilename() ) );
+    }
+    return index;
+  }
+
+  private static Map<String, IndexEntry> readIndex( File file ) {
+    Map<String, IndexEntry> result = new HashMap<>();
+    if ( !file.exists() ) {
+      return result;
+    }
+    try ( DataInputStream dis = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+      if ( dis.readInt() != INDEX_VERSION ) {
+        return result;
+      }
+      int nrJarFiles = dis.readInt();
+      for ( int i = 0; i < nrJarFiles; i++ ) {
+        String url = dis.readUTF();
+        long size = dis.readLong();
+        long lastModified = dis.readLong();
+        int nrAnnotations = dis.readInt();
+        Map<String, Set<String>> annotationIndex = new HashMap<>();
+        for ( int a = 0; a < nrAnnotations; a++ ) {
+          String annotation = dis.readUTF();
+          int nrClasses = dis.readInt();
+          Set<String> classes = new HashSet<>();
+          for ( int c = 0; c < nrClasses; c++ ) {
+            classes.add( dis.readUTF() );
+          }
+          annotationIndex.put( annotation, classes );
+        }
+        IndexEntry entry = new IndexEntry( size, lastModified, annotationIndex );
+        int nrKeys = dis.readInt();
+        for ( int k = 0; k < nrKeys; k++ ) {
+          String key = dis.readUTF();
+          int nrPlugins = dis.readInt();
+          Map<String, IndexedPlugin> plugins = new ConcurrentHashMap<>();
+          for ( int p = 0; p < nrPlugins; p++ ) {
+            plugins.put( dis.readUTF(), new IndexedPlugin( dis ) );
+          }
+          entry.plugins.put( key, plugins );
+        }
+        result.put( url, entry );
+      }
+      return result;
+    } catch ( IOException e ) {
+      // A damaged index is simply built again
+      return new HashMap<>();
+    }
+  }
+
+  /**
+   * Writes the index of the jar files used since the last {@link #clear()} if anything changed. The index is written
+   * to a new file that replaces the old one, so a concurrent start reads either the old or the new version.
+   */
+  public void saveIndex() {
+    if ( !isIndexEnabled() || usedIndex.isEmpty()
+      || ( !indexChanged && usedIndex.keySet().equals( getIndex().keySet() ) ) ) {
+      return;
+    }
+
+    File file = new File( getIndexFilename() ).getAbsoluteFile();
+    Path tempFile = null;
+    try {
+      // A unique file in the same directory, so that processes sharing the index don't write to the same temporary
+      // file and the move stays on the same file system
+      tempFile = Files.createTempFile( file.getParentFile().toPath(), file.getName(), ".tmp" );
+      try ( DataOutputStream dos =
+              new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( tempFile ), 10000 ) ) ) {
+        dos.writeInt( INDEX_VERSION );
+        dos.writeInt( usedIndex.size() );
+        for ( Map.Entry<String, IndexEntry> jarFile : usedIndex.entrySet() ) {
+          IndexEntry entry = jarFile.getValue();
+          dos.writeUTF( jarFile.getKey() );
+          dos.writeLong( entry.size );
+          dos.writeLong( entry.lastModified );
+          dos.writeInt( entry.annotationIndex.size() );
+          for ( Map.Entry<String, Set<String>> annotation : entry.annotationIndex.entrySet() ) {
+            dos.writeUTF( annotation.getKey() );
+            dos.writeInt( annotation.getValue().size() );
+            for ( String className : annotation.getValue() ) {
+              dos.writeUTF( className );
+            }
+          }
+          dos.writeInt( entry.plugins.size() );
+          for ( Map.Entry<String, Map<String, IndexedPlugin>> key : entry.plugins.entrySet() ) {
+            dos.writeUTF( key.getKey() );
+            dos.writeInt( key.getValue().size() );
+            for ( Map.Entry<String, IndexedPlugin> plugin : key.getValue().entrySet() ) {
+              dos.writeUTF( plugin.getKey() );
+              plugin.getValue().write( dos );
+            }
+          }
+        }
+      }
+      Files.move( tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+      indexChanged = false;
+    } catch ( IOException e ) {
+      // The index only speeds up the next start, it's not a problem if we can't write it
+      if ( tempFile != null ) {
+        tempFile.toFile().delete();
+      }
+    }
+  }
+
   public void clear() {
     annotationMap.clear();
     folderMap.clear();
+    usedIndex.clear();
+    synchronized ( this ) {
+      index = null;
+    }
+    indexChanged = false;
   }
 }
@@ -51,6 +51,10 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
@@ -87,7 +91,8 @@ public class PluginRegistry {
   private final Map<Class<? extends PluginTypeInterface>, Set<String>> categoryMap = new HashMap<>();
   private final Map<PluginInterface, String[]> parentClassloaderPatternMap = new HashMap<>();
 
-  private final Map<Class<? extends PluginTypeInterface>, Set<PluginTypeListener>> listeners = new HashMap<>();
+  private final Map<Class<? extends PluginTypeInterface>, Set<PluginTypeListener>> listeners =
+    new ConcurrentHashMap<>();
 
   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
   private static final int WAIT_FOR_PLUGIN_TO_BE_AVAILABLE_LIMIT = 3000;
@@ -563,10 +568,14 @@ public class PluginRegistry {
     log.snap( Metrics.METRIC_PLUGIN_REGISTRY_REGISTER_EXTENSIONS_STOP );
 
     log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_REGISTRATION_START );
-    for ( final PluginTypeInterface pluginType : pluginTypes ) {
-      log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_TYPE_REGISTRATION_START, pluginType.getName() );
-      registry.registerType( pluginType );
-      log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_TYPE_REGISTRATION_STOP, pluginType.getName() );
+    if ( "Y".equalsIgnoreCase( EnvUtil.getSystemProperty( Const.KETTLE_FAST_STARTUP ) ) ) {
+      registry.registerTypesInParallel( new ArrayList<>( pluginTypes ) );
+    } else {
+      for ( final PluginTypeInterface pluginType : pluginTypes ) {
+        log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_TYPE_REGISTRATION_START, pluginType.getName() );
+        registry.registerType( pluginType );
+        log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_TYPE_REGISTRATION_STOP, pluginType.getName() );
+      }
     }
     log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_REGISTRATION_STOP );
 
@@ -580,6 +589,10 @@ public class PluginRegistry {
      * System.out.println("   - "+duration.toString()+"          Total="+total); }
      */
 
+    // Keep the annotations found in the jar files for the next start
+    //
+    JarFileCache.getInstance().saveIndex();
+
     // Clear the jar file cache so that we don't waste memory...
     //
     if ( !keepCache ) {
@@ -587,6 +600,44 @@ public class PluginRegistry {
     }
   }
 
+  /**
+   * Searches the plugins of the given types at the same time, a thread per processor.
+   */
+  private void registerTypesInParallel( List<PluginTypeInterface> types ) throws KettlePluginException {
+    int threads = Math.max( 1, Math.min( types.size(), Runtime.getRuntime().availableProcessors() ) );
+    ExecutorService executor = Executors.newFixedThreadPool( threads, runnable -> {
+      Thread thread = new Thread( runnable, "Plugin type registration" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for ( final PluginTypeInterface pluginType : types ) {
+        futures.add( executor.submit( () -> {
+          log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_TYPE_REGISTRATION_START, pluginType.getName() );
+          registerType( pluginType );
+          log.snap( Metrics.METRIC_PLUGIN_REGISTRY_PLUGIN_TYPE_REGISTRATION_STOP, pluginType.getName() );
+          return null;
+        } ) );
+      }
+      for ( Future<Void> future : futures ) {
+        try {
+          future.get();
+        } catch ( ExecutionException e ) {
+          if ( e.getCause() instanceof KettlePluginException ) {
+            throw (KettlePluginException) e.getCause();
+          }
+          throw new KettlePluginException( e.getCause() );
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettlePluginException( e );
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private void registerType( PluginTypeInterface pluginType ) throws KettlePluginException {
     registerPluginType( pluginType.getClass() );
 
@@ -989,7 +1040,7 @@ public class PluginRegistry {
   public <T extends PluginTypeInterface> void addPluginListener( Class<T> typeToTrack, PluginTypeListener listener ) {
     lock.writeLock().lock();
     try {
-      Set<PluginTypeListener> list = listeners.computeIfAbsent( typeToTrack, k -> new HashSet<>() );
+      Set<PluginTypeListener> list = listeners.computeIfAbsent( typeToTrack, k -> ConcurrentHashMap.newKeySet() );
       list.add( listener );
     } finally {
       lock.writeLock().unlock();
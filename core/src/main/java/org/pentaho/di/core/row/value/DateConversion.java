@@ -0,0 +1,326 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lock-free date to string conversion (and back) based on immutable java.time formatters.<br>
+ * <br>
+ * SimpleDateFormat is slow and not thread-safe, which forces ValueMetaBase to serialize all conversions of a value
+ * metadata object. For the masks that only contain numeric fields (yyyy/MM/dd HH:mm:ss.SSS and the like) this class
+ * produces exactly the same results as SimpleDateFormat without any locking. Whenever a value can't be handled with
+ * certainty (dates before the Gregorian cutover, local times in a DST gap or overlap, input that doesn't strictly
+ * follow the mask, ...) null is returned and the caller uses the SimpleDateFormat instead.<br>
+ * <br>
+ * Instances are immutable and cached per mask, locale and time zone.
+ */
+final class DateConversion {
+
+  /**
+   * 1582-10-15T00:00:00Z, before this date SimpleDateFormat uses the Julian calendar.
+   */
+  private static final long GREGORIAN_CUTOVER = -12219292800000L;
+
+  private static final int MAX_CACHE_SIZE = 1000;
+
+  private static final long MILLIS_PER_DAY = 86400000L;
+
+  private static final DateConversion UNSUPPORTED = new DateConversion( null, null, null );
+
+  private static final Map<String, DateConversion> cache = new ConcurrentHashMap<>();
+
+  private final DateTimeFormatter formatter;
+  private final DateTimeFormatter parser;
+  private final TimeZone timeZone;
+
+  private DateConversion( DateTimeFormatter formatter, DateTimeFormatter parser, TimeZone timeZone ) {
+    this.formatter = formatter;
+    this.parser = parser;
+    this.timeZone = timeZone;
+  }
+
+  /**
+   * Gets the conversion for the given SimpleDateFormat settings.
+   *
+   * @param pattern the (non-localized) SimpleDateFormat pattern
+   * @param locale the locale of the date format
+   * @param timeZone the time zone of the date format
+   * @param lenient true if the date format is lenient. Only strict parsing is supported.
+   * @return the conversion or null if the pattern or locale isn't supported
+   */
+  static DateConversion getInstance( String pattern, Locale locale, TimeZone timeZone, boolean lenient ) {
+    if ( pattern == null || locale == null || timeZone == null ) {
+      return null;
+    }
+    // Time zones with custom rules can't be identified by their ID
+    //
+    boolean cacheable = TimeZone.getTimeZone( timeZone.getID() ).hasSameRules( timeZone );
+    if ( !cacheable ) {
+      return unwrap( create( pattern, locale, timeZone, lenient ) );
+    }
+    String key = pattern + '\u0000' + locale + '\u0000' + timeZone.getID() + '\u0000' + lenient;
+    DateConversion conversion = cache.get( key );
+    if ( conversion == null ) {
+      conversion = create( pattern, locale, timeZone, lenient );
+      if ( cache.size() < MAX_CACHE_SIZE ) {
+        cache.putIfAbsent( key, conversion );
+      }
+    }
+    return unwrap( conversion );
+  }
+
+  private static DateConversion unwrap( DateConversion conversion ) {
+    return conversion == UNSUPPORTED ? null : conversion;
+  }
+
+  private static DateConversion create( String pattern, Locale locale, TimeZone timeZone, boolean lenient ) {
+    // Non-Gregorian calendars (Buddhist, Japanese imperial) and native digits are left to SimpleDateFormat
+    //
+    if ( !"gregory".equals( Calendar.getInstance( timeZone, locale ).getCalendarType() )
+      || DecimalFormatSymbols.getInstance( locale ).getZeroDigit() != '0' ) {
+      return UNSUPPORTED;
+    }
+
+    List<Object> tokens = tokenize( pattern );
+    if ( tokens == null ) {
+      return UNSUPPORTED;
+    }
+
+    DateTimeFormatterBuilder format = new DateTimeFormatterBuilder();
+    DateTimeFormatterBuilder parse = new DateTimeFormatterBuilder();
+    boolean parseable = !lenient;
+
+    for ( int i = 0; i < tokens.size(); i++ ) {
+      Object token = tokens.get( i );
+      if ( token instanceof String ) {
+        format.appendLiteral( (String) token );
+        parse.appendLiteral( (String) token );
+        continue;
+      }
+      char letter = ( (Field) token ).letter;
+      int count = ( (Field) token ).count;
+      ChronoField field = getField( letter );
+
+      if ( letter == 'y' && count == 2 ) {
+        format.appendValueReduced( field, 2, 2, 2000 );
+      } else {
+        format.appendValue( field, count, 19, letter == 'y' ? SignStyle.NORMAL : SignStyle.NOT_NEGATIVE );
+      }
+
+      // SimpleDateFormat applies a century window to years parsed with y or yy
+      //
+      if ( letter == 'y' && count <= 2 ) {
+        parseable = false;
+      }
+      // SimpleDateFormat only limits the number of digits when the next field is numeric as well ("abutting")
+      //
+      boolean abutting = i + 1 < tokens.size() && tokens.get( i + 1 ) instanceof Field;
+      if ( abutting ) {
+        parse.appendValue( field, count );
+      } else {
+        parse.appendValue( field, 1, 19, SignStyle.NOT_NEGATIVE );
+      }
+    }
+
+    DateTimeFormatter formatter = format.toFormatter( locale );
+    DateTimeFormatter parser = null;
+    if ( parseable ) {
+      parser = parse
+        .parseDefaulting( ChronoField.YEAR, 1970 )
+        .parseDefaulting( ChronoField.MONTH_OF_YEAR, 1 )
+        .parseDefaulting( ChronoField.DAY_OF_MONTH, 1 )
+        .parseDefaulting( ChronoField.HOUR_OF_DAY, 0 )
+        .parseDefaulting( ChronoField.MINUTE_OF_HOUR, 0 )
+        .parseDefaulting( ChronoField.SECOND_OF_MINUTE, 0 )
+        .parseDefaulting( ChronoField.MILLI_OF_SECOND, 0 )
+        .toFormatter( locale )
+        .withResolverStyle( ResolverStyle.STRICT );
+    }
+    // The offsets come from the TimeZone itself, the tzdb rules of java.time differ for historical dates
+    //
+    return new DateConversion( formatter, parser, (TimeZone) timeZone.clone() );
+  }
+
+  /**
+   * Splits a SimpleDateFormat pattern in literal Strings and numeric fields.
+   *
+   * @return the tokens or null if the pattern contains non-numeric fields
+   */
+  private static List<Object> tokenize( String pattern ) {
+    List<Object> tokens = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while ( i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      if ( c == '\'' ) {
+        // Quoted text, '' is a single quote both inside and outside of quoted text
+        //
+        if ( i + 1 < pattern.length() && pattern.charAt( i + 1 ) == '\'' ) {
+          literal.append( '\'' );
+          i += 2;
+          continue;
+        }
+        i++;
+        while ( true ) {
+          if ( i >= pattern.length() ) {
+            return null;
+          }
+          if ( pattern.charAt( i ) == '\'' ) {
+            if ( i + 1 < pattern.length() && pattern.charAt( i + 1 ) == '\'' ) {
+              literal.append( '\'' );
+              i += 2;
+              continue;
+            }
+            i++;
+            break;
+          }
+          literal.append( pattern.charAt( i++ ) );
+        }
+      } else if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) {
+        int count = 1;
+        while ( i + count < pattern.length() && pattern.charAt( i + count ) == c ) {
+          count++;
+        }
+        // Month names, AM/PM markers, time zones, week based fields, ... aren't supported
+        //
+        if ( getField( c ) == null || ( c == 'M' && count > 2 ) || count > 19 ) {
+          return null;
+        }
+        if ( literal.length() > 0 ) {
+          tokens.add( literal.toString() );
+          literal.setLength( 0 );
+        }
+        tokens.add( new Field( c, count ) );
+        i += count;
+      } else {
+        literal.append( c );
+        i++;
+      }
+    }
+    if ( literal.length() > 0 ) {
+      tokens.add( literal.toString() );
+    }
+    return tokens;
+  }
+
+  private static ChronoField getField( char letter ) {
+    switch ( letter ) {
+      case 'y':
+        return ChronoField.YEAR;
+      case 'M':
+        return ChronoField.MONTH_OF_YEAR;
+      case 'd':
+        return ChronoField.DAY_OF_MONTH;
+      case 'H':
+        return ChronoField.HOUR_OF_DAY;
+      case 'm':
+        return ChronoField.MINUTE_OF_HOUR;
+      case 's':
+        return ChronoField.SECOND_OF_MINUTE;
+      case 'S':
+        return ChronoField.MILLI_OF_SECOND;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param date the date to format
+   * @return the formatted date or null if the date needs to be formatted with SimpleDateFormat
+   */
+  String format( Date date ) {
+    long millis = date.getTime();
+    if ( millis < GREGORIAN_CUTOVER ) {
+      return null;
+    }
+    long local = millis + timeZone.getOffset( millis );
+    return formatter.format( LocalDateTime.ofEpochSecond( Math.floorDiv( local, 1000L ),
+      (int) Math.floorMod( local, 1000L ) * 1000000, ZoneOffset.UTC ) );
+  }
+
+  /**
+   * @param string the (trimmed, non-empty) string to parse
+   * @return the date or null if the string needs to be parsed with SimpleDateFormat
+   */
+  Date parse( String string ) {
+    if ( parser == null ) {
+      return null;
+    }
+    try {
+      TemporalAccessor parsed = parser.parse( string, new ParsePosition( 0 ) );
+      LocalDateTime local = LocalDateTime.of(
+        parsed.get( ChronoField.YEAR ), parsed.get( ChronoField.MONTH_OF_YEAR ), parsed.get( ChronoField.DAY_OF_MONTH ),
+        parsed.get( ChronoField.HOUR_OF_DAY ), parsed.get( ChronoField.MINUTE_OF_HOUR ),
+        parsed.get( ChronoField.SECOND_OF_MINUTE ), parsed.get( ChronoField.MILLI_OF_SECOND ) * 1000000 );
+
+      long localMillis = local.toInstant( ZoneOffset.UTC ).toEpochMilli();
+      long millis = toUtc( localMillis );
+      return millis < GREGORIAN_CUTOVER || millis == Long.MIN_VALUE ? null : new Date( millis );
+    } catch ( DateTimeException | ArithmeticException e ) {
+      return null;
+    }
+  }
+
+  /**
+   * Finds the one instant that corresponds to the given local time. A strict SimpleDateFormat rejects local times in
+   * a DST gap and picks standard time in an overlap, both are left to SimpleDateFormat.
+   *
+   * @return the UTC time or Long.MIN_VALUE if there are no or several matching instants
+   */
+  private long toUtc( long localMillis ) {
+    int[] offsets = { timeZone.getOffset( localMillis - timeZone.getRawOffset() ),
+      timeZone.getOffset( localMillis - MILLIS_PER_DAY ), timeZone.getOffset( localMillis + MILLIS_PER_DAY ) };
+    long result = Long.MIN_VALUE;
+    for ( int i = 0; i < offsets.length; i++ ) {
+      long candidate = localMillis - offsets[ i ];
+      if ( timeZone.getOffset( candidate ) != offsets[ i ] || candidate == result ) {
+        continue;
+      }
+      if ( result != Long.MIN_VALUE ) {
+        return Long.MIN_VALUE;
+      }
+      result = candidate;
+    }
+    return result;
+  }
+
+  private static final class Field {
+    private final char letter;
+    private final int count;
+
+    private Field( char letter, int count ) {
+      this.letter = letter;
+      this.count = count;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Lock-free conversion of plain numbers, without going through the (synchronized) DecimalFormat of the value
+ * metadata.<br>
+ * <br>
+ * Only the DecimalFormat settings for which the result is guaranteed to be identical are supported: no prefix or
+ * suffix other than the minus sign, no multiplier (percent, per mille) and no exponent. Integers can be formatted if
+ * the format has no grouping, decimals or leading zeros. Strings are parsed if they consist of an optional minus sign
+ * and digits with an optional decimal separator. For everything else null is returned and the caller uses the
+ * DecimalFormat instead.<br>
+ * <br>
+ * Instances are immutable.
+ */
+final class NumberConversion {
+
+  /**
+   * Keeps the parsed values well within the exact range of long and double.
+   */
+  private static final int MAX_INTEGER_DIGITS = 18;
+  private static final int MAX_NUMBER_DIGITS = 15;
+
+  private final boolean formatIntegers;
+  private final char decimalSeparator;
+
+  private NumberConversion( boolean formatIntegers, char decimalSeparator ) {
+    this.formatIntegers = formatIntegers;
+    this.decimalSeparator = decimalSeparator;
+  }
+
+  /**
+   * Analyzes the given (fully configured) decimal format.
+   *
+   * @param format the decimal format of the value metadata
+   * @return the conversion or null if neither formatting nor parsing can be done without the decimal format
+   */
+  static NumberConversion getInstance( DecimalFormat format ) {
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    char decimalSeparator = symbols.getDecimalSeparator();
+    if ( symbols.getZeroDigit() != '0' || symbols.getMinusSign() != '-' || Character.isDigit( decimalSeparator )
+      || decimalSeparator == '-' || format.getMultiplier() != 1 || format.toPattern().indexOf( 'E' ) >= 0
+      || !format.getPositivePrefix().isEmpty() || !format.getPositiveSuffix().isEmpty()
+      || !"-".equals( format.getNegativePrefix() ) || !format.getNegativeSuffix().isEmpty() ) {
+      return null;
+    }
+    boolean formatIntegers = !format.isGroupingUsed() && format.getMinimumIntegerDigits() <= 1
+      && format.getMaximumIntegerDigits() >= 19 && format.getMinimumFractionDigits() == 0
+      && !format.isDecimalSeparatorAlwaysShown();
+
+    return new NumberConversion( formatIntegers, decimalSeparator );
+  }
+
+  /**
+   * @return the formatted integer or null if it needs to be formatted with the decimal format
+   */
+  String formatInteger( long value ) {
+    return formatIntegers ? Long.toString( value ) : null;
+  }
+
+  /**
+   * @param string the (trimmed, non-empty) string to parse
+   * @return the integer or null if the string needs to be parsed with the decimal format
+   */
+  Long parseInteger( String string ) {
+    int start = string.charAt( 0 ) == '-' ? 1 : 0;
+    int digits = string.length() - start;
+    if ( digits == 0 || digits > MAX_INTEGER_DIGITS ) {
+      return null;
+    }
+    long value = 0;
+    for ( int i = start; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c < '0' || c > '9' ) {
+        return null;
+      }
+      value = value * 10 + ( c - '0' );
+    }
+    return start == 0 ? value : -value;
+  }
+
+  /**
+   * @param string the (trimmed, non-empty) string to parse
+   * @return the number or null if the string needs to be parsed with the decimal format
+   */
+  Double parseNumber( String string ) {
+    int start = string.charAt( 0 ) == '-' ? 1 : 0;
+    int length = string.length();
+    if ( length - start == 0 || length - start > MAX_NUMBER_DIGITS + 1 ) {
+      return null;
+    }
+    int separator = -1;
+    for ( int i = start; i < length; i++ ) {
+      char c = string.charAt( i );
+      if ( c == decimalSeparator && separator < 0 && i > start && i < length - 1 ) {
+        separator = i;
+      } else if ( c < '0' || c > '9' ) {
+        return null;
+      }
+    }
+    if ( separator < 0 ) {
+      if ( length - start > MAX_NUMBER_DIGITS ) {
+        return null;
+      }
+      return Double.parseDouble( string );
+    }
+    return Double.parseDouble( string.substring( 0, separator ) + '.' + string.substring( separator + 1 ) );
+  }
+}
@@ -151,6 +151,13 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  /**
+   * Lock-free conversions for the common masks, rebuilt together with dateFormat and decimalFormat. Null if the
+   * current format isn't supported.
+   */
+  private volatile DateConversion dateConversion;
+  private volatile NumberConversion numberConversion;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -430,6 +437,8 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.dateConversion = null;
+      valueMeta.numberConversion = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -891,24 +900,42 @@ public class ValueMetaBase implements ValueMetaInterface {
 
   // DATE + STRING
 
-  protected synchronized String convertDateToString( Date date ) {
+  protected String convertDateToString( Date date ) {
     if ( date == null ) {
       return null;
     }
 
+    DateConversion conversion = getDateConversion( getType() );
+    String string = conversion == null ? null : conversion.format( date );
+    return string != null ? string : formatDate( date );
+  }
+
+  private synchronized String formatDate( Date date ) {
     return getDateFormat().format( date );
   }
 
   protected static SimpleDateFormat compatibleDateFormat = new SimpleDateFormat( COMPATIBLE_DATE_FORMAT_PATTERN );
 
-  protected synchronized String convertDateToCompatibleString( Date date ) {
+  private static final DateConversion compatibleDateConversion = DateConversion.getInstance(
+    COMPATIBLE_DATE_FORMAT_PATTERN, Locale.getDefault( Locale.Category.FORMAT ), compatibleDateFormat.getTimeZone(),
+    compatibleDateFormat.isLenient() );
+
+  protected String convertDateToCompatibleString( Date date ) {
     if ( date == null ) {
       return null;
     }
-    return compatibleDateFormat.format( date );
+    String string = compatibleDateConversion == null ? null : compatibleDateConversion.format( date );
+    if ( string != null ) {
+      return string;
+    }
+    // The compatible date format is shared by all value metadata objects
+    //
+    synchronized ( compatibleDateFormat ) {
+      return compatibleDateFormat.format( date );
+    }
   }
 
-  protected synchronized Date convertStringToDate( String string ) throws KettleValueException {
+  protected Date convertStringToDate( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -917,6 +944,12 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    DateConversion conversion = getDateConversion( TYPE_DATE );
+    Date date = conversion == null ? null : conversion.parse( string );
+    return date != null ? date : parseDate( string );
+  }
+
+  private synchronized Date parseDate( String string ) throws KettleValueException {
     try {
       ParsePosition pp = new ParsePosition( 0 );
       Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
@@ -997,14 +1030,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
-  protected synchronized String convertNumberToCompatibleString( Double number ) throws KettleValueException {
+  protected String convertNumberToCompatibleString( Double number ) throws KettleValueException {
     if ( number == null ) {
       return null;
     }
     return Double.toString( number );
   }
 
-  protected synchronized Double convertStringToNumber( String string ) throws KettleValueException {
+  protected Double convertStringToNumber( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1013,6 +1046,12 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    NumberConversion conversion = getNumberConversion();
+    Double number = conversion == null ? null : conversion.parseNumber( string );
+    return number != null ? number : parseNumber( string );
+  }
+
+  private synchronized Double parseNumber( String string ) throws KettleValueException {
     try {
       DecimalFormat format = getDecimalFormat( false );
       Number number;
@@ -1084,11 +1123,34 @@ public class ValueMetaBase implements ValueMetaInterface {
       dateFormat.setLenient( dateFormatLenient );
 
       dateFormatChanged = false;
+
+      Locale locale = dateFormatLocale == null || dateFormatLocale.equals( Locale.getDefault() )
+        ? Locale.getDefault( Locale.Category.FORMAT ) : dateFormatLocale;
+      dateConversion = DateConversion.getInstance( dateFormat.toPattern(), locale, dateFormat.getTimeZone(),
+        dateFormat.isLenient() );
     }
 
     return dateFormat;
   }
 
+  /**
+   * @param valueMetaType the type to take the mask from when the date format needs to be (re)built
+   * @return the lock-free date conversion for the current format or null if the date format needs to be used
+   */
+  private DateConversion getDateConversion( int valueMetaType ) {
+    // Timestamps have a date format of their own
+    //
+    if ( conversionMetadata != null || getType() == TYPE_TIMESTAMP ) {
+      return null;
+    }
+    DateConversion conversion = dateConversion;
+    if ( dateFormat == null || dateFormatChanged ) {
+      getDateFormat( valueMetaType );
+      conversion = dateConversion;
+    }
+    return conversion;
+  }
+
   @Override
   public synchronized DecimalFormat getDecimalFormat() {
     return getDecimalFormat( false );
@@ -1133,11 +1195,27 @@ public class ValueMetaBase implements ValueMetaInterface {
       }
 
       decimalFormatChanged = false;
+      numberConversion = NumberConversion.getInstance( decimalFormat );
     }
 
     return decimalFormat;
   }
 
+  /**
+   * @return the lock-free number conversion for the current format or null if the decimal format needs to be used
+   */
+  private NumberConversion getNumberConversion() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    NumberConversion conversion = numberConversion;
+    if ( decimalFormat == null || decimalFormatChanged ) {
+      getDecimalFormat( false );
+      conversion = numberConversion;
+    }
+    return conversion;
+  }
+
   @Override
   public String getFormatMask() {
     return getMask( getType() );
@@ -1285,7 +1363,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return numberPattern.toString();
   }
 
-  protected synchronized String convertIntegerToString( Long integer ) throws KettleValueException {
+  protected String convertIntegerToString( Long integer ) throws KettleValueException {
     if ( integer == null ) {
       if ( !outputPaddingEnabled || length < 1 ) {
         return null;
@@ -1303,6 +1381,12 @@ public class ValueMetaBase implements ValueMetaInterface {
       }
     }
 
+    NumberConversion conversion = getNumberConversion();
+    String string = conversion == null ? null : conversion.formatInteger( integer );
+    return string != null ? string : formatInteger( integer );
+  }
+
+  private synchronized String formatInteger( Long integer ) throws KettleValueException {
     try {
       return getDecimalFormat( false ).format( integer );
     } catch ( Exception e ) {
@@ -1310,14 +1394,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
-  protected synchronized String convertIntegerToCompatibleString( Long integer ) throws KettleValueException {
+  protected String convertIntegerToCompatibleString( Long integer ) throws KettleValueException {
     if ( integer == null ) {
       return null;
     }
     return Long.toString( integer );
   }
 
-  protected synchronized Long convertStringToInteger( String string ) throws KettleValueException {
+  protected Long convertStringToInteger( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1326,6 +1410,12 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    NumberConversion conversion = getNumberConversion();
+    Long integer = conversion == null ? null : conversion.parseInteger( string );
+    return integer != null ? integer : parseInteger( string );
+  }
+
+  private synchronized Long parseInteger( String string ) throws KettleValueException {
     try {
       Number number;
       if ( lenientStringToNumber ) {
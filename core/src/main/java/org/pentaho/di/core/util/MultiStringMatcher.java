@@ -0,0 +1,277 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds a set of literal strings in a text with a single pass over the text (Aho-Corasick automaton), instead of
+ * searching every string in turn.<br>
+ * <br>
+ * When the matcher ignores case only the ASCII letters are folded, like a {@link java.util.regex.Pattern} compiled
+ * with CASE_INSENSITIVE and without UNICODE_CASE. A matcher has no state of its own once built, it can be used by
+ * several threads at the same time.
+ */
+public class MultiStringMatcher {
+
+  private static final int ROOT = 0;
+
+  private final String[] patterns;
+
+  private final boolean ignoreCase;
+
+  /** The characters leaving every state, sorted */
+  private final char[][] labels;
+
+  /** The states reached with the characters in labels */
+  private final int[][] targets;
+
+  /** The state of the longest proper suffix of every state that is a prefix of a pattern */
+  private final int[] failures;
+
+  /** The length of the prefix every state stands for */
+  private final int[] depths;
+
+  /** The longest pattern ending in every state, -1 if none */
+  private final int[] longest;
+
+  /** The first pattern (lowest index) ending in every state, -1 if none */
+  private final int[] first;
+
+  /**
+   * @param patterns
+   *          the strings to look for, when a string is given twice its first index is reported
+   * @param ignoreCase
+   *          true to fold the ASCII letters
+   */
+  public MultiStringMatcher( List<String> patterns, boolean ignoreCase ) {
+    this.patterns = patterns.toArray( new String[ patterns.size() ] );
+    this.ignoreCase = ignoreCase;
+
+    List<Map<Character, Integer>> gotos = new ArrayList<>();
+    List<Integer> stateDepths = new ArrayList<>();
+    List<Integer> ends = new ArrayList<>();
+    gotos.add( new TreeMap<Character, Integer>() );
+    stateDepths.add( 0 );
+    ends.add( -1 );
+
+    for ( int p = 0; p < this.patterns.length; p++ ) {
+      String pattern = this.patterns[p];
+      int state = ROOT;
+      for ( int i = 0; i < pattern.length(); i++ ) {
+        char c = fold( pattern.charAt( i ) );
+        Integer next = gotos.get( state ).get( c );
+        if ( next == null ) {
+          next = gotos.size();
+          gotos.add( new TreeMap<Character, Integer>() );
+          stateDepths.add( i + 1 );
+          ends.add( -1 );
+          gotos.get( state ).put( c, next );
+        }
+        state = next;
+      }
+      if ( ends.get( state ) < 0 ) {
+        ends.set( state, p );
+      }
+    }
+
+    int states = gotos.size();
+    labels = new char[ states ][];
+    targets = new int[ states ][];
+    failures = new int[ states ];
+    depths = new int[ states ];
+    longest = new int[ states ];
+    first = new int[ states ];
+    for ( int s = 0; s < states; s++ ) {
+      Map<Character, Integer> transitions = gotos.get( s );
+      labels[s] = new char[ transitions.size() ];
+      targets[s] = new int[ transitions.size() ];
+      int t = 0;
+      for ( Map.Entry<Character, Integer> transition : transitions.entrySet() ) {
+        labels[s][t] = transition.getKey();
+        targets[s][t++] = transition.getValue();
+      }
+      depths[s] = stateDepths.get( s );
+    }
+
+    // Breadth first, so that the failure of a state is known before the states below it
+    //
+    longest[ROOT] = -1;
+    first[ROOT] = ends.get( ROOT );
+    Deque<Integer> queue = new ArrayDeque<>();
+    queue.add( ROOT );
+    while ( !queue.isEmpty() ) {
+      int state = queue.poll();
+      for ( int t = 0; t < labels[state].length; t++ ) {
+        int target = targets[state][t];
+        failures[target] = state == ROOT ? ROOT : next( failures[state], labels[state][t] );
+        int end = ends.get( target );
+        int failure = failures[target];
+        longest[target] = end >= 0 ? end : longest[failure];
+        first[target] = end >= 0 && ( first[failure] < 0 || end < first[failure] ) ? end : first[failure];
+        queue.add( target );
+      }
+    }
+  }
+
+  private char fold( char c ) {
+    return ignoreCase && c >= 'A' && c <= 'Z' ? (char) ( c + ( 'a' - 'A' ) ) : c;
+  }
+
+  private int step( int state, char c ) {
+    char[] stateLabels = labels[state];
+    int low = 0;
+    int high = stateLabels.length - 1;
+    while ( low <= high ) {
+      int middle = ( low + high ) >>> 1;
+      if ( stateLabels[middle] < c ) {
+        low = middle + 1;
+      } else if ( stateLabels[middle] > c ) {
+        high = middle - 1;
+      } else {
+        return targets[state][middle];
+      }
+    }
+    return -1;
+  }
+
+  private int next( int state, char c ) {
+    while ( true ) {
+      int target = step( state, c );
+      if ( target >= 0 ) {
+        return target;
+      }
+      if ( state == ROOT ) {
+        return ROOT;
+      }
+      state = failures[state];
+    }
+  }
+
+  /**
+   * @param text
+   *          the text to search
+   * @return the index of the first pattern occurring in the text, -1 if none does
+   */
+  public int indexOfFirstContained( CharSequence text ) {
+    int found = first[ROOT];
+    int state = ROOT;
+    for ( int i = 0; i < text.length() && found != 0; i++ ) {
+      state = next( state, fold( text.charAt( i ) ) );
+      int pattern = first[state];
+      if ( pattern >= 0 && ( found < 0 || pattern < found ) ) {
+        found = pattern;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Replaces the occurrences of the patterns from left to right. When several occurrences overlap the leftmost one is
+   * replaced, the longest when they start at the same position. The replacements are not searched again, and empty
+   * patterns are never replaced.
+   *
+   * @param text
+   *          the text to search, can be null
+   * @param replacements
+   *          the replacement of every pattern, taken literally
+   * @return the text with the occurrences replaced, the text itself if there are none
+   */
+  public String replaceAll( String text, String[] replacements ) {
+    if ( text == null ) {
+      return null;
+    }
+    StringBuilder result = null;
+    int copied = 0;
+    int state = ROOT;
+    int matchStart = -1;
+    int matchEnd = -1;
+    int match = -1;
+    int i = 0;
+    while ( i < text.length() || match >= 0 ) {
+      if ( i < text.length() ) {
+        state = next( state, fold( text.charAt( i++ ) ) );
+        int pattern = longest[state];
+        if ( pattern >= 0 ) {
+          int start = i - patterns[pattern].length();
+          if ( match < 0 || start <= matchStart ) {
+            matchStart = start;
+            matchEnd = i;
+            match = pattern;
+          }
+        }
+        // Wait as long as a longer or an earlier occurrence can still come out of the current state
+        //
+        if ( match < 0 || i - depths[state] <= matchStart ) {
+          continue;
+        }
+      }
+      if ( result == null ) {
+        result = new StringBuilder( text.length() + 16 );
+      }
+      result.append( text, copied, matchStart ).append( replacements[match] );
+      copied = matchEnd;
+      i = matchEnd;
+      state = ROOT;
+      match = -1;
+    }
+    if ( result == null ) {
+      return text;
+    }
+    return result.append( text, copied, text.length() ).toString();
+  }
+
+  /**
+   * Tells whether an occurrence of one string can share characters with an occurrence of the other one in some text,
+   * either because one contains the other or because the end of one is the start of the other.
+   *
+   * @param one
+   *          the first string
+   * @param other
+   *          the second string
+   * @param ignoreCase
+   *          true to fold the ASCII letters
+   * @return true if the occurrences can overlap
+   */
+  public static boolean canOverlap( String one, String other, boolean ignoreCase ) {
+    if ( ignoreCase ) {
+      one = foldAscii( one );
+      other = foldAscii( other );
+    }
+    if ( one.contains( other ) || other.contains( one ) ) {
+      return true;
+    }
+    for ( int length = 1; length < Math.min( one.length(), other.length() ); length++ ) {
+      if ( one.endsWith( other.substring( 0, length ) ) || other.endsWith( one.substring( 0, length ) ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String foldAscii( String string ) {
+    char[] chars = string.toCharArray();
+    for ( int i = 0; i < chars.length; i++ ) {
+      if ( chars[i] >= 'A' && chars[i] <= 'Z' ) {
+        chars[i] += 'a' - 'A';
+      }
+    }
+    return new String( chars );
+  }
+}
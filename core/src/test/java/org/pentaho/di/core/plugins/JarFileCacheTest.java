@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+public class JarFileCacheTest {
+
+  @Retention( RetentionPolicy.RUNTIME )
+  public @interface Marker {
+  }
+
+  @Marker
+  public static class Annotated {
+  }
+
+  @DatabaseMetaPlugin( type = "JARFILECACHETEST", typeDescription = "Jar file cache test" )
+  public static class TestDatabaseMeta {
+  }
+
+  private String kettleHome;
+  private File folder;
+  private JarFileCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    kettleHome = System.getProperty( "KETTLE_HOME" );
+    folder = Files.createTempDirectory( "jarfilecache" ).toFile();
+    System.setProperty( "KETTLE_HOME", folder.getAbsolutePath() );
+    new File( Const.getKettleDirectory() ).mkdirs();
+    cache = JarFileCache.getInstance();
+    cache.clear();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    cache.clear();
+    if ( kettleHome == null ) {
+      System.clearProperty( "KETTLE_HOME" );
+    } else {
+      System.setProperty( "KETTLE_HOME", kettleHome );
+    }
+    FileUtils.deleteDirectory( folder );
+  }
+
+  private File writeJar( String name, boolean withClass ) throws Exception {
+    return writeJar( name, withClass ? Annotated.class : null );
+  }
+
+  private File writeJar( String name, Class<?> clazz ) throws Exception {
+    File jar = new File( folder, name );
+    try ( JarOutputStream jos = new JarOutputStream( new FileOutputStream( jar ) ) ) {
+      String classFile = clazz == null ? "empty.txt" : clazz.getName().replace( '.', '/' ) + ".class";
+      jos.putNextEntry( new ZipEntry( classFile ) );
+      if ( clazz != null ) {
+        try ( InputStream is = clazz.getClassLoader().getResourceAsStream( classFile ) ) {
+          IOUtils.copy( is, jos );
+        }
+      }
+      jos.closeEntry();
+    }
+    return jar;
+  }
+
+  private static void overwriteKeepingSizeAndDate( File jar ) throws Exception {
+    long lastModified = jar.lastModified();
+    Files.write( jar.toPath(), new byte[ (int) jar.length() ] );
+    jar.setLastModified( lastModified );
+  }
+
+  private Set<String> getAnnotated( File jar ) throws Exception {
+    FileObject fileObject = KettleVFS.getFileObject( jar.getAbsolutePath() );
+    return cache.getAnnotationDB( fileObject ).getAnnotationIndex().get( Marker.class.getName() );
+  }
+
+  @Test
+  public void testAnnotationsAreFound() throws Exception {
+    File jar = writeJar( "plugin.jar", true );
+
+    Set<String> classes = getAnnotated( jar );
+    assertEquals( 1, classes.size() );
+    assertTrue( classes.contains( Annotated.class.getName() ) );
+  }
+
+  @Test
+  public void testUnchangedJarIsNotScannedAgain() throws Exception {
+    File jar = writeJar( "plugin.jar", true );
+    getAnnotated( jar );
+    cache.saveIndex();
+    assertTrue( new File( JarFileCache.getIndexFilename() ).exists() );
+    cache.clear();
+
+    // Same size and date but garbage content: the index must be used
+    overwriteKeepingSizeAndDate( jar );
+
+    assertTrue( getAnnotated( jar ).contains( Annotated.class.getName() ) );
+  }
+
+  @Test
+  public void testIndexIsSavedNextToTheTemporaryFileOfAnotherProcess() throws Exception {
+    File index = new File( JarFileCache.getIndexFilename() );
+    // Another process writing its index from its main thread
+    File otherTempFile = new File( index.getPath() + "." + Thread.currentThread().getId() + ".tmp" );
+    assertTrue( otherTempFile.mkdir() );
+
+    getAnnotated( writeJar( "plugin.jar", true ) );
+    cache.saveIndex();
+
+    assertTrue( index.isFile() );
+    assertTrue( otherTempFile.isDirectory() );
+    File[] tempFiles = index.getParentFile().listFiles( ( dir, name ) -> name.endsWith( ".tmp" ) );
+    assertEquals( 1, tempFiles.length );
+  }
+
+  @Test
+  public void testChangedJarIsScannedAgain() throws Exception {
+    File jar = writeJar( "plugin.jar", true );
+    getAnnotated( jar );
+    cache.saveIndex();
+    cache.clear();
+
+    long lastModified = jar.lastModified();
+    writeJar( "plugin.jar", false );
+    jar.setLastModified( lastModified + 2000L );
+
+    assertNull( getAnnotated( jar ) );
+  }
+
+  @Test
+  public void testJarsAreScannedInParallel() throws Exception {
+    FileObject[] fileObjects = new FileObject[ 4 ];
+    for ( int i = 0; i < fileObjects.length; i++ ) {
+      fileObjects[ i ] = KettleVFS.getFileObject( writeJar( "plugin" + i + ".jar", i % 2 == 0 ).getAbsolutePath() );
+    }
+
+    cache.scanArchives( fileObjects );
+
+    for ( int i = 0; i < fileObjects.length; i++ ) {
+      Set<String> classes = cache.getAnnotationDB( fileObjects[ i ] ).getAnnotationIndex().get( Marker.class.getName() );
+      assertEquals( i % 2 == 0, classes != null );
+    }
+  }
+
+  @Test
+  public void testIndexedPluginIsRegisteredWithoutItsClass() throws Exception {
+    KettleLogStore.init();
+    PluginRegistry registry = PluginRegistry.getInstance();
+    DatabasePluginType pluginType = DatabasePluginType.getInstance();
+    List<PluginFolderInterface> pluginFolders = pluginType.getPluginFolders();
+    File jar = writeJar( "plugin.jar", TestDatabaseMeta.class );
+    try {
+      pluginType.setPluginFolders(
+        Collections.singletonList( new PluginFolder( folder.getAbsolutePath(), false, true ) ) );
+      pluginType.registerPluginJars();
+      PluginInterface plugin = registry.getPlugin( DatabasePluginType.class, "JARFILECACHETEST" );
+      assertEquals( "Jar file cache test", plugin.getName() );
+      cache.saveIndex();
+      cache.clear();
+      registry.removePlugin( DatabasePluginType.class, plugin );
+
+      // The class can't be loaded from the jar file anymore, so the plugin has to come from the index
+      overwriteKeepingSizeAndDate( jar );
+      System.setProperty( Const.KETTLE_FAST_STARTUP, "Y" );
+      pluginType.registerPluginJars();
+
+      PluginInterface indexed = registry.getPlugin( DatabasePluginType.class, "JARFILECACHETEST" );
+      assertEquals( plugin.getName(), indexed.getName() );
+      assertEquals( plugin.getClassMap(), indexed.getClassMap() );
+      assertEquals( plugin.getLibraries(), indexed.getLibraries() );
+      registry.removePlugin( DatabasePluginType.class, indexed );
+    } finally {
+      System.clearProperty( Const.KETTLE_FAST_STARTUP );
+      pluginType.setPluginFolders( pluginFolders );
+    }
+  }
+
+  @Test
+  public void testIndexCanBeDisabled() throws Exception {
+    System.setProperty( Const.KETTLE_PLUGIN_INDEX, "N" );
+    try {
+      getAnnotated( writeJar( "plugin.jar", true ) );
+      cache.saveIndex();
+      assertFalse( new File( JarFileCache.getIndexFilename() ).exists() );
+    } finally {
+      System.clearProperty( Const.KETTLE_PLUGIN_INDEX );
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+public class DateConversionTest {
+
+  private static final String[] MASKS = { "yyyy/MM/dd HH:mm:ss.SSS", "yyyy-MM-dd", "yyyyMMdd", "yyyyMMddHHmmss",
+    "dd/MM/yy HH:mm", "yyyy-MM-dd'T'HH:mm:ss.S", "d.M.yyyy H:m:s", "yyyy-MM-dd''HH", "'day' dd 'of' MM, yyyy" };
+
+  private static final String[] TIME_ZONES = { "UTC", "Europe/Brussels", "America/New_York", "Asia/Kolkata",
+    "Australia/Lord_Howe" };
+
+  private static SimpleDateFormat simpleDateFormat( String mask, TimeZone timeZone, boolean lenient ) {
+    SimpleDateFormat format = new SimpleDateFormat( mask, Locale.US );
+    format.setTimeZone( timeZone );
+    format.setLenient( lenient );
+    return format;
+  }
+
+  private static Date parse( SimpleDateFormat format, String string ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Date date = format.parse( string, position );
+    return position.getErrorIndex() >= 0 ? null : date;
+  }
+
+  @Test
+  public void testFormatMatchesSimpleDateFormat() {
+    Random random = new Random( 42 );
+    for ( String mask : MASKS ) {
+      for ( String id : TIME_ZONES ) {
+        TimeZone timeZone = TimeZone.getTimeZone( id );
+        SimpleDateFormat format = simpleDateFormat( mask, timeZone, false );
+        DateConversion conversion = DateConversion.getInstance( mask, Locale.US, timeZone, false );
+        assertNotNull( mask, conversion );
+
+        for ( int i = 0; i < 500; i++ ) {
+          // 1600 - 2400
+          Date date = new Date( -11676096000000L + (long) ( random.nextDouble() * 25245000000000L ) );
+          String string = format.format( date );
+          assertEquals( mask + " " + id, string, conversion.format( date ) );
+
+          Date parsed = conversion.parse( string );
+          if ( parsed != null ) {
+            assertEquals( mask + " " + id + " " + string, parse( format, string ), parsed );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParseMatchesSimpleDateFormat() {
+    String[] inputs = { "2024/02/29 10:11:12.123", "2023/02/29 10:11:12.123", "2024/2/9 1:1:1.1",
+      "2024/13/01 00:00:00.000", "2024/01/01 24:00:00.000", "2024/01/01 10:11:12.123 trailing", "2024/01/01",
+      "2024/01/01 10:11:12.-12",
+      "+2024/01/01 10:11:12.000", "2024/ 1/01 10:11:12.000", "0000/01/01 00:00:00.000", "1500/01/01 00:00:00.000",
+      "2024/03/10 02:30:00.000", "2024/11/03 01:30:00.000", "2024/03/31 02:30:00.000", "2024/10/27 02:30:00.000",
+      "99999/01/01 00:00:00.000", "2024/01/01 10:11:12.9999" };
+    for ( String id : TIME_ZONES ) {
+      TimeZone timeZone = TimeZone.getTimeZone( id );
+      SimpleDateFormat format = simpleDateFormat( "yyyy/MM/dd HH:mm:ss.SSS", timeZone, false );
+      DateConversion conversion = DateConversion.getInstance( "yyyy/MM/dd HH:mm:ss.SSS", Locale.US, timeZone, false );
+      for ( String input : inputs ) {
+        Date parsed = conversion.parse( input );
+        if ( parsed != null ) {
+          assertEquals( input + " " + id, parse( format, input ), parsed );
+        }
+      }
+      assertNotNull( conversion.parse( "2024/01/01 10:11:12.123" ) );
+    }
+
+    SimpleDateFormat format = simpleDateFormat( "yyyyMMdd", TimeZone.getTimeZone( "UTC" ), false );
+    DateConversion conversion =
+      DateConversion.getInstance( "yyyyMMdd", Locale.US, TimeZone.getTimeZone( "UTC" ), false );
+    for ( String input : new String[] { "20240115", "2024011", "202401155", "2024115", "20241301" } ) {
+      Date parsed = conversion.parse( input );
+      if ( parsed != null ) {
+        assertEquals( input, parse( format, input ), parsed );
+      }
+    }
+    assertNotNull( conversion.parse( "20240115" ) );
+  }
+
+  @Test
+  public void testUnsupported() {
+    TimeZone utc = TimeZone.getTimeZone( "UTC" );
+    assertNull( DateConversion.getInstance( "dd MMM yyyy", Locale.US, utc, false ) );
+    assertNull( DateConversion.getInstance( "yyyy-MM-dd hh:mm a", Locale.US, utc, false ) );
+    assertNull( DateConversion.getInstance( "yyyy-MM-dd HH:mm z", Locale.US, utc, false ) );
+    assertNull( DateConversion.getInstance( "yyyy-MM-dd 'unterminated", Locale.US, utc, false ) );
+    assertNull( DateConversion.getInstance( "yyyy-MM-dd", new Locale( "th", "TH", "TH" ), utc, false ) );
+
+    // Two digit years and lenient formats are formatted but not parsed
+    //
+    assertNull( DateConversion.getInstance( "yy-MM-dd", Locale.US, utc, false ).parse( "24-01-01" ) );
+    assertNull( DateConversion.getInstance( "yyyy-MM-dd", Locale.US, utc, true ).parse( "2024-01-01" ) );
+
+    // Julian calendar
+    //
+    DateConversion conversion = DateConversion.getInstance( "yyyy-MM-dd", Locale.US, utc, false );
+    assertNull( conversion.format( new Date( -13000000000000L ) ) );
+  }
+
+  @Test
+  public void testCached() {
+    TimeZone utc = TimeZone.getTimeZone( "UTC" );
+    assertSame( DateConversion.getInstance( "yyyy-MM-dd", Locale.US, utc, false ),
+      DateConversion.getInstance( "yyyy-MM-dd", Locale.US, (TimeZone) utc.clone(), false ) );
+  }
+
+  @Test
+  public void testValueMeta() throws Exception {
+    ValueMetaInterface string = new ValueMetaString( "string" );
+    string.setConversionMask( "yyyy-MM-dd HH:mm" );
+    string.setDateFormatTimeZone( TimeZone.getTimeZone( "Europe/Brussels" ) );
+    Date date = string.getDate( "2024-07-01 12:30" );
+    assertEquals( 1719829800000L, date.getTime() );
+
+    ValueMetaInterface v = new ValueMetaDate( "date" );
+    v.setConversionMask( "yyyy-MM-dd HH:mm" );
+    v.setDateFormatTimeZone( TimeZone.getTimeZone( "Europe/Brussels" ) );
+    assertEquals( "2024-07-01 12:30", v.getString( date ) );
+
+    // Changing the format is picked up
+    //
+    v.setConversionMask( "dd/MM/yyyy" );
+    assertEquals( "01/07/2024", v.getString( date ) );
+    string.setConversionMask( "dd/MM/yyyy" );
+    string.setDateFormatTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    assertEquals( 1719792000000L, string.getDate( "01/07/2024" ).getTime() );
+  }
+}
@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+public class NumberConversionTest {
+
+  private static DecimalFormat decimalFormat( String pattern, char decimal, char grouping ) {
+    DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance( Locale.US );
+    symbols.setDecimalSeparator( decimal );
+    symbols.setGroupingSeparator( grouping );
+    return new DecimalFormat( pattern, symbols );
+  }
+
+  private static Number parse( DecimalFormat format, String string ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Number number = format.parse( string, position );
+    return position.getIndex() < string.length() ? null : number;
+  }
+
+  @Test
+  public void testFormatInteger() {
+    DecimalFormat format = decimalFormat( "####0;-####0", '.', ',' );
+    NumberConversion conversion = NumberConversion.getInstance( format );
+    assertNotNull( conversion );
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 1000; i++ ) {
+      long value = i < 10 ? i - 5 : random.nextLong() >> random.nextInt( 64 );
+      assertEquals( format.format( value ), conversion.formatInteger( value ) );
+    }
+    assertEquals( format.format( Long.MIN_VALUE ), conversion.formatInteger( Long.MIN_VALUE ) );
+
+    // Grouping, padding and decimals are left to the decimal format
+    //
+    assertNull( NumberConversion.getInstance( decimalFormat( "#,##0", '.', ',' ) ).formatInteger( 1L ) );
+    assertNull( NumberConversion.getInstance( decimalFormat( "000", '.', ',' ) ).formatInteger( 1L ) );
+    assertNull( NumberConversion.getInstance( decimalFormat( "0.00", '.', ',' ) ).formatInteger( 1L ) );
+  }
+
+  @Test
+  public void testParseMatchesDecimalFormat() {
+    String[] patterns = { "####0;-####0", "#.#;-#.#", "#,##0.00", "0.###" };
+    String[] inputs = { "0", "-0", "12", "-12", "007", "1.5", "-1.5", "1,5", "0.1", ".5", "5.", "1.2.3", "1,234.5",
+      "123456789012345", "1234567890123456789", "12345678901234.5", "-", "1e5", "+1", "1 " };
+    for ( String pattern : patterns ) {
+      for ( char[] symbols : new char[][] { { '.', ',' }, { ',', '.' } } ) {
+        DecimalFormat format = decimalFormat( pattern, symbols[0], symbols[1] );
+        NumberConversion conversion = NumberConversion.getInstance( format );
+        assertNotNull( pattern, conversion );
+        for ( String input : inputs ) {
+          Double number = conversion.parseNumber( input );
+          if ( number != null ) {
+            assertEquals( pattern + " " + input, parse( format, input ).doubleValue(), number, 0.0 );
+            assertEquals( pattern + " " + input, 1 / parse( format, input ).doubleValue(), 1 / number, 0.0 );
+          }
+          Long integer = conversion.parseInteger( input );
+          if ( integer != null ) {
+            assertEquals( pattern + " " + input, parse( format, input ).longValue(), (long) integer );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUnsupported() {
+    assertNull( NumberConversion.getInstance( decimalFormat( "#%", '.', ',' ) ) );
+    assertNull( NumberConversion.getInstance( decimalFormat( "0.###E0", '.', ',' ) ) );
+    assertNull( NumberConversion.getInstance( decimalFormat( "$#0", '.', ',' ) ) );
+    assertNull( NumberConversion.getInstance( decimalFormat( " 000;-000", '.', ',' ) ) );
+    assertNull( NumberConversion.getInstance( decimalFormat( "#0;(#0)", '.', ',' ) ) );
+  }
+
+  @Test
+  public void testValueMeta() throws Exception {
+    ValueMetaInterface integer = new ValueMetaInteger( "int" );
+    assertEquals( "-1234", integer.getString( -1234L ) );
+    integer.setConversionMask( "#,##0" );
+    assertEquals( "1,234", integer.getString( 1234L ) );
+
+    ValueMetaInterface string = new ValueMetaString( "string" );
+    string.setConversionMask( "#,##0.00" );
+    string.setDecimalSymbol( "," );
+    string.setGroupingSymbol( "." );
+    assertEquals( Long.valueOf( 1234L ), string.getInteger( "1234" ) );
+    assertEquals( 1234.5, string.getNumber( "1234,5" ), 0.0 );
+    assertEquals( 1234.5, string.getNumber( "1.234,5" ), 0.0 );
+  }
+}
@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class MultiStringMatcherTest {
+
+  private static MultiStringMatcher matcher( boolean ignoreCase, String... patterns ) {
+    return new MultiStringMatcher( Arrays.asList( patterns ), ignoreCase );
+  }
+
+  @Test
+  public void testFirstContainedIsTheLowestIndex() {
+    MultiStringMatcher matcher = matcher( false, "world", "lo", "hello" );
+
+    assertEquals( 0, matcher.indexOfFirstContained( "hello world" ) );
+    assertEquals( 1, matcher.indexOfFirstContained( "hello" ) );
+    assertEquals( 1, matcher.indexOfFirstContained( "slow" ) );
+    assertEquals( -1, matcher.indexOfFirstContained( "help" ) );
+    assertEquals( -1, matcher.indexOfFirstContained( "" ) );
+  }
+
+  @Test
+  public void testSuffixesAreFound() {
+    MultiStringMatcher matcher = matcher( false, "sha", "he", "hers", "his" );
+
+    assertEquals( 1, matcher.indexOfFirstContained( "ushers" ) );
+    assertEquals( 3, matcher.indexOfFirstContained( "this" ) );
+    assertEquals( 0, matcher.indexOfFirstContained( "shhers shah" ) );
+  }
+
+  @Test
+  public void testEmptyPatternIsAlwaysContained() {
+    assertEquals( 1, matcher( false, "x", "" ).indexOfFirstContained( "abc" ) );
+    assertEquals( -1, new MultiStringMatcher( Collections.<String>emptyList(), false ).indexOfFirstContained( "abc" ) );
+  }
+
+  @Test
+  public void testIgnoreCaseFoldsAsciiOnly() {
+    MultiStringMatcher matcher = matcher( true, "abc", "été" );
+
+    assertEquals( 0, matcher.indexOfFirstContained( "xABCx" ) );
+    assertEquals( 1, matcher.indexOfFirstContained( "éTé" ) );
+    assertEquals( -1, matcher.indexOfFirstContained( "ÉTÉ" ) );
+    assertEquals( -1, matcher( false, "abc" ).indexOfFirstContained( "ABC" ) );
+  }
+
+  @Test
+  public void testReplaceAllLikeSequentialReplacements() {
+    MultiStringMatcher matcher = matcher( true, "st", "rd", "ave" );
+    String[] replacements = { "Street", "Road", "Avenue" };
+
+    String text = "1 Main St, 2 Oak rd, 3 Elm AVE";
+    assertEquals( "1 Main Street, 2 Oak Road, 3 Elm Avenue", matcher.replaceAll( text, replacements ) );
+  }
+
+  @Test
+  public void testReplaceAllLeftmostLongest() {
+    String[] replacements = { "1", "2", "3" };
+
+    assertEquals( "x2y", matcher( false, "bcd", "abcde", "c" ).replaceAll( "xabcdey", replacements ) );
+    assertEquals( "a1e", matcher( false, "bcd", "cdx", "c" ).replaceAll( "abcde", replacements ) );
+    assertEquals( "12c", matcher( false, "aa", "b" ).replaceAll( "aabc", replacements ) );
+    assertEquals( "1a", matcher( false, "aa" ).replaceAll( "aaa", replacements ) );
+    assertEquals( "323", matcher( false, "abc", "ab", "b" ).replaceAll( "babb", replacements ) );
+  }
+
+  @Test
+  public void testReplaceAllWithoutMatch() {
+    String text = "nothing here";
+
+    assertSame( text, matcher( false, "x", "y" ).replaceAll( text, new String[] { "1", "2" } ) );
+    assertNull( matcher( false, "x" ).replaceAll( null, new String[] { "1" } ) );
+  }
+
+  @Test
+  public void testCanOverlap() {
+    assertTrue( MultiStringMatcher.canOverlap( "abc", "b", false ) );
+    assertTrue( MultiStringMatcher.canOverlap( "b", "abc", false ) );
+    assertTrue( MultiStringMatcher.canOverlap( "abc", "cde", false ) );
+    assertTrue( MultiStringMatcher.canOverlap( "cde", "abc", false ) );
+    assertFalse( MultiStringMatcher.canOverlap( "Street", "RD", true ) );
+    assertTrue( MultiStringMatcher.canOverlap( "Street", "ST", true ) );
+    assertFalse( MultiStringMatcher.canOverlap( "Street", "ST", false ) );
+    assertFalse( MultiStringMatcher.canOverlap( "abc", "xyz", false ) );
+  }
+}
@@ -0,0 +1,400 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * A {@link Condition} compiled into a Java class for a given row layout.<br>
+ * <br>
+ * The field positions are resolved once and every atomic condition becomes a method of the generated class, so the
+ * condition tree isn't walked for every row. Comparisons of integers, numbers, big numbers, dates and plain strings in
+ * normal storage are done on the native values. Other comparisons go through
+ * {@link ValueMetaInterface#compare(Object, ValueMetaInterface, Object)}, and the remaining functions are evaluated by
+ * a copy of the atomic condition, so the result is always the same as {@link Condition#evaluate(RowMetaInterface,
+ * Object[])}.<br>
+ * <br>
+ * The generated classes only depend on the structure of the condition and the row layout, the values to compare with
+ * are handed to every instance. They are cached, so step copies and transformations using the same condition share
+ * them. An instance is not thread safe.<br>
+ * <br>
+ * Rows of another layout, coming from another hop, can only be evaluated if {@link #isCompiledFor(RowMetaInterface)}
+ * says the fields of the condition are at the same positions.
+ */
+public abstract class CompiledCondition {
+
+  protected RowMetaInterface rowMeta;
+  protected ValueMetaInterface[] m;
+  protected Object[] k;
+  protected Pattern[] p;
+  protected Condition[] d;
+
+  // the fields the condition refers to, with their positions and types in the layout it was compiled for
+  private String[] fieldNames;
+  private int[] fieldIndexes;
+  private ValueMetaInterface[] fieldMetas;
+
+  // the last other layout that was found to match
+  private RowMetaInterface matchingRowMeta;
+
+  /**
+   * @param r
+   *          a row of the layout the condition was compiled for
+   * @return true if the condition evaluates to true
+   */
+  public abstract boolean evaluate( Object[] r ) throws KettleValueException;
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows to evaluate
+   * @return true if the fields of the condition have the same positions and types in the given layout as in the one
+   *         the condition was compiled for
+   */
+  public boolean isCompiledFor( RowMetaInterface rowMeta ) {
+    if ( rowMeta == this.rowMeta || rowMeta == matchingRowMeta ) {
+      return true;
+    }
+    for ( int i = 0; i < fieldNames.length; i++ ) {
+      int index = rowMeta.indexOfValue( fieldNames[ i ] );
+      if ( index != fieldIndexes[ i ] ) {
+        return false;
+      }
+      if ( index >= 0 && !isSameValue( fieldMetas[ i ], rowMeta.getValueMeta( index ) ) ) {
+        return false;
+      }
+    }
+    matchingRowMeta = rowMeta;
+    return true;
+  }
+
+  /**
+   * Values in another storage type can depend on their storage metadata, those have to be the same value metadata.
+   */
+  private static boolean isSameValue( ValueMetaInterface one, ValueMetaInterface two ) {
+    if ( one == two ) {
+      return true;
+    }
+    return one.getType() == two.getType() && one.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL
+      && two.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL
+      && one.isCaseInsensitive() == two.isCaseInsensitive()
+      && Objects.equals( one.getConversionMask(), two.getConversionMask() );
+  }
+
+  /**
+   * Compiles a condition for rows of the given layout.
+   *
+   * @param condition
+   *          the condition, which isn't modified
+   * @param rowMeta
+   *          the layout of the rows to evaluate
+   * @return the compiled condition
+   * @throws KettleException
+   *           in case the generated class can't be compiled
+   */
+  public static CompiledCondition compile( Condition condition, RowMetaInterface rowMeta ) throws KettleException {
+    Generator generator = new Generator( rowMeta );
+    String source = generator.generate( condition );
+
+    Class<? extends CompiledCondition> clazz = cook( source );
+
+    try {
+      CompiledCondition compiled = clazz.newInstance();
+      compiled.rowMeta = rowMeta;
+      compiled.m = generator.metas.toArray( new ValueMetaInterface[ generator.metas.size() ] );
+      compiled.k = generator.constants.toArray();
+      compiled.p = generator.patterns.toArray( new Pattern[ generator.patterns.size() ] );
+      compiled.d = generator.delegates.toArray( new Condition[ generator.delegates.size() ] );
+      int nrFields = generator.fieldNames.size();
+      compiled.fieldNames = generator.fieldNames.toArray( new String[ nrFields ] );
+      compiled.fieldIndexes = new int[ nrFields ];
+      compiled.fieldMetas = new ValueMetaInterface[ nrFields ];
+      for ( int i = 0; i < nrFields; i++ ) {
+        int index = generator.fieldIndexes.get( i );
+        compiled.fieldIndexes[ i ] = index;
+        compiled.fieldMetas[ i ] = index >= 0 ? rowMeta.getValueMeta( index ) : null;
+      }
+      return compiled;
+    } catch ( ReflectiveOperationException e ) {
+      throw new KettleException( "Unable to create compiled condition", e );
+    }
+  }
+
+  private static Class<? extends CompiledCondition> cook( String source ) throws KettleException {
+    try {
+      return JaninoCache.cookClassBody( CompiledCondition.class, source, "java.math.BigDecimal", "java.util.Date",
+        "org.pentaho.di.core.exception.KettleValueException" );
+    } catch ( CompileException e ) {
+      throw new KettleException( "Unable to compile condition", e );
+    }
+  }
+
+  /**
+   * Writes the class body for a condition and collects what the instances need.
+   */
+  private static class Generator {
+    private final RowMetaInterface rowMeta;
+    private final boolean treatNullsAsNotZero;
+    private final StringBuilder methods = new StringBuilder();
+    private final List<ValueMetaInterface> metas = new ArrayList<>();
+    private final List<Object> constants = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<Condition> delegates = new ArrayList<>();
+    private final List<String> fieldNames = new ArrayList<>();
+    private final List<Integer> fieldIndexes = new ArrayList<>();
+    private int nrMethods;
+
+    private Generator( RowMetaInterface rowMeta ) {
+      this.rowMeta = rowMeta;
+      this.treatNullsAsNotZero =
+        "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO, "N" ) );
+    }
+
+    private String generate( Condition condition ) {
+      String expression = expression( condition );
+      return "public boolean evaluate( Object[] r ) throws KettleValueException {\n  return " + expression
+        + ";\n}\n" + methods;
+    }
+
+    private String expression( Condition condition ) {
+      if ( condition.isAtomic() ) {
+        return atomic( condition );
+      }
+
+      // Evaluated in order without precedence, && and || short-circuit the same way the interpreter does
+      StringBuilder expression = new StringBuilder( expression( condition.getCondition( 0 ) ) );
+      for ( int i = 1; i < condition.nrConditions(); i++ ) {
+        Condition child = condition.getCondition( i );
+        String operator;
+        String childExpression;
+        switch ( child.getOperator() ) {
+          case Condition.OPERATOR_OR:
+            operator = " || ";
+            childExpression = expression( child );
+            break;
+          case Condition.OPERATOR_AND:
+            operator = " && ";
+            childExpression = expression( child );
+            break;
+          case Condition.OPERATOR_OR_NOT:
+            operator = " || ";
+            childExpression = "!" + expression( child );
+            break;
+          case Condition.OPERATOR_AND_NOT:
+            operator = " && ";
+            childExpression = "!" + expression( child );
+            break;
+          case Condition.OPERATOR_XOR:
+            operator = " ^ ";
+            childExpression = expression( child );
+            break;
+          default:
+            // Ignored by the interpreter as well
+            continue;
+        }
+        expression.insert( 0, "( " ).append( operator ).append( childExpression ).append( " )" );
+      }
+      return condition.isNegated() ? "!( " + expression + " )" : "( " + expression + " )";
+    }
+
+    private String atomic( Condition condition ) {
+      if ( condition.getFunction() == Condition.FUNC_TRUE ) {
+        return condition.isNegated() ? "false" : "true";
+      }
+
+      int leftIndex = indexOf( condition.getLeftValuename() );
+      if ( leftIndex < 0 ) {
+        // No field to evaluate, not negated either
+        return "false";
+      }
+      ValueMetaInterface leftMeta = rowMeta.getValueMeta( leftIndex );
+
+      // The value to compare with: the exact value if there is one, otherwise the right field
+      ValueMetaInterface rightMeta = condition.getRightExact() != null ? condition.getRightExact().getValueMeta() : null;
+      Object rightExact = condition.getRightExact() != null ? condition.getRightExact().getValueData() : null;
+      int rightIndex = rightExact == null ? indexOf( condition.getRightValuename() ) : -1;
+      if ( rightIndex >= 0 ) {
+        rightMeta = rowMeta.getValueMeta( rightIndex );
+      }
+
+      String method = "c" + nrMethods++;
+      String left = "r[" + leftIndex + "]";
+      String right = rightIndex >= 0 ? "r[" + rightIndex + "]" : "k[" + addConstant( rightExact ) + "]";
+      String body;
+
+      switch ( condition.getFunction() ) {
+        case Condition.FUNC_EQUAL:
+        case Condition.FUNC_NOT_EQUAL:
+        case Condition.FUNC_SMALLER:
+        case Condition.FUNC_SMALLER_EQUAL:
+        case Condition.FUNC_LARGER:
+        case Condition.FUNC_LARGER_EQUAL:
+          body = compare( condition.getFunction(), leftMeta, left, rightMeta, right );
+          break;
+        case Condition.FUNC_NULL:
+          body = "return m[" + addMeta( leftMeta ) + "].isNull( " + left + " );";
+          break;
+        case Condition.FUNC_NOT_NULL:
+          body = "return !m[" + addMeta( leftMeta ) + "].isNull( " + left + " );";
+          break;
+        case Condition.FUNC_REGEXP:
+        case Condition.FUNC_LIKE:
+          body = match( condition, leftMeta, left, rightMeta, rightExact );
+          break;
+        default:
+          body = null;
+          break;
+      }
+
+      if ( body == null ) {
+        // Let a copy of the condition do the evaluation, including the negation
+        delegates.add( (Condition) condition.clone() );
+        return "d[" + ( delegates.size() - 1 ) + "].evaluate( rowMeta, r )";
+      }
+
+      methods.append( "private boolean " ).append( method ).append(
+        "( Object[] r ) throws KettleValueException {\n  " ).append( body ).append( "\n}\n" );
+      return condition.isNegated() ? "!" + method + "( r )" : method + "( r )";
+    }
+
+    private String compare( int function, ValueMetaInterface leftMeta, String left, ValueMetaInterface rightMeta,
+      String right ) {
+      int meta = addMeta( leftMeta );
+      StringBuilder body = new StringBuilder();
+      if ( treatNullsAsNotZero
+        && ( function == Condition.FUNC_SMALLER || function == Condition.FUNC_SMALLER_EQUAL ) ) {
+        body.append( "if ( m[" ).append( meta ).append( "].isNull( " ).append( left ).append(
+          " ) ) return false;\n  " );
+      }
+
+      String nativeCompare = nativeCompare( leftMeta, rightMeta );
+      if ( nativeCompare == null ) {
+        int meta2 = rightMeta == null ? -1 : addMeta( rightMeta );
+        body.append( "int cmp = m[" ).append( meta ).append( "].compare( " ).append( left ).append( ", " ).append(
+          meta2 < 0 ? "null" : "m[" + meta2 + "]" ).append( ", " ).append( right ).append( " );\n  " );
+      } else {
+        // Same null handling as ValueMetaBase.compare(), both values are checked by the metadata of the first
+        body.append( "Object v1 = " ).append( left ).append( ";\n  " );
+        body.append( "Object v2 = " ).append( right ).append( ";\n  " );
+        body.append( "boolean n1 = m[" ).append( meta ).append( "].isNull( v1 );\n  " );
+        body.append( "boolean n2 = m[" ).append( meta ).append( "].isNull( v2 );\n  " );
+        body.append( "int cmp = n1 || n2 ? ( n1 == n2 ? 0 : ( n1 ? -1 : 1 ) ) : " ).append( nativeCompare ).append(
+          ";\n  " );
+      }
+
+      switch ( function ) {
+        case Condition.FUNC_EQUAL:
+          return body.append( "return cmp == 0;" ).toString();
+        case Condition.FUNC_NOT_EQUAL:
+          return body.append( "return cmp != 0;" ).toString();
+        case Condition.FUNC_SMALLER:
+          return body.append( "return cmp < 0;" ).toString();
+        case Condition.FUNC_SMALLER_EQUAL:
+          return body.append( "return cmp <= 0;" ).toString();
+        case Condition.FUNC_LARGER:
+          return body.append( "return cmp > 0;" ).toString();
+        default:
+          return body.append( "return cmp >= 0;" ).toString();
+      }
+    }
+
+    /**
+     * @return the expression comparing two non-null values v1 and v2 natively, or null if the metadata has to do it
+     */
+    private String nativeCompare( ValueMetaInterface leftMeta, ValueMetaInterface rightMeta ) {
+      if ( rightMeta == null || leftMeta.getClass() != rightMeta.getClass()
+        || leftMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+        || rightMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL || leftMeta.isSortedDescending() ) {
+        return null;
+      }
+      if ( leftMeta.getClass() == ValueMetaInteger.class ) {
+        return "Long.compare( ( (Long) v1 ).longValue(), ( (Long) v2 ).longValue() )";
+      }
+      if ( leftMeta.getClass() == ValueMetaNumber.class ) {
+        return "Double.compare( ( (Double) v1 ).doubleValue(), ( (Double) v2 ).doubleValue() )";
+      }
+      if ( leftMeta.getClass() == ValueMetaBigNumber.class ) {
+        return "( (BigDecimal) v1 ).compareTo( (BigDecimal) v2 )";
+      }
+      if ( leftMeta.getClass() == ValueMetaDate.class ) {
+        return "Long.compare( ( (Date) v1 ).getTime(), ( (Date) v2 ).getTime() )";
+      }
+      if ( leftMeta.getClass() == ValueMetaString.class && leftMeta.isCollatorDisabled()
+        && leftMeta.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE && !leftMeta.isIgnoreWhitespace() ) {
+        return leftMeta.isCaseInsensitive()
+          ? "v1.toString().compareToIgnoreCase( v2.toString() )" : "v1.toString().compareTo( v2.toString() )";
+      }
+      return null;
+    }
+
+    /**
+     * Regular expressions and LIKE patterns against an exact value are compiled once.
+     */
+    private String match( Condition condition, ValueMetaInterface leftMeta, String left, ValueMetaInterface rightMeta,
+      Object rightExact ) {
+      if ( rightExact == null ) {
+        return null;
+      }
+      try {
+        String regex = rightMeta.getCompatibleString( rightExact );
+        if ( condition.getFunction() == Condition.FUNC_LIKE ) {
+          regex = regex.replace( "%", ".*" ).replace( "?", "." );
+        }
+        patterns.add( Pattern.compile( regex ) );
+      } catch ( KettleValueException | PatternSyntaxException e ) {
+        // Fails for every row, leave it to the interpreter
+        return null;
+      }
+      int meta = addMeta( leftMeta );
+      return "if ( m[" + meta + "].isNull( " + left + " ) ) return false;\n  return p[" + ( patterns.size() - 1 )
+        + "].matcher( m[" + meta + "].getCompatibleString( " + left + " ) ).matches();";
+    }
+
+    private int indexOf( String valuename ) {
+      if ( Utils.isEmpty( valuename ) ) {
+        return -1;
+      }
+      int index = rowMeta.indexOfValue( valuename );
+      fieldNames.add( valuename );
+      fieldIndexes.add( index );
+      return index;
+    }
+
+    private int addMeta( ValueMetaInterface valueMeta ) {
+      metas.add( valueMeta );
+      return metas.size() - 1;
+    }
+
+    private int addConstant( Object constant ) {
+      constants.add( constant );
+      return constants.size() - 1;
+    }
+  }
+}
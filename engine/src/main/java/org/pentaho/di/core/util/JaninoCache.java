@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.codehaus.janino.ExpressionEvaluator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Keeps the classes and expressions cooked by Janino for the whole JVM, so that step copies and the next executions
+ * of a transformation, for instance the ones of a Transformation Executor, don't cook the same source again. When
+ * several threads need the same source at the same time it is only cooked once.<br>
+ * <br>
+ * A cooked expression can be evaluated by several threads at the same time, it has no state of its own.<br>
+ * <br>
+ * The cache of a class loader is only weakly referenced, and the cached classes only softly, so that a plugin class
+ * loader can still be unloaded. Inside it the classes are keyed by name.
+ */
+public class JaninoCache {
+
+  private static final int MAX_CACHED_CLASSES = 500;
+
+  private static final Cache<ClassLoader, Cache<List<Object>, Class<?>>> classCaches =
+    CacheBuilder.newBuilder().weakKeys().build();
+
+  private static final Cache<ClassLoader, Cache<List<Object>, ExpressionEvaluator>> expressionCaches =
+    CacheBuilder.newBuilder().weakKeys().build();
+
+  /** Used for the bootstrap class loader, which can't be a key. */
+  private static final Cache<List<Object>, Class<?>> bootstrapClassCache = newCache();
+
+  private static final Cache<List<Object>, ExpressionEvaluator> bootstrapExpressionCache = newCache();
+
+  private JaninoCache() {
+  }
+
+  /**
+   * Cooks a class body extending the given class, with the class loader of that class as parent.
+   *
+   * @param extendedClass
+   *          the class the generated class extends
+   * @param source
+   *          the class body
+   * @param defaultImports
+   *          the imports of the class body
+   * @return the generated class
+   * @throws CompileException
+   *           in case the class body can't be compiled
+   */
+  @SuppressWarnings( "unchecked" )
+  public static <T> Class<? extends T> cookClassBody( Class<T> extendedClass, String source,
+    String... defaultImports ) throws CompileException {
+    ClassLoader parentClassLoader = extendedClass.getClassLoader();
+    List<Object> key = Arrays.asList( extendedClass.getName(), Arrays.asList( defaultImports ), source );
+    Cache<List<Object>, Class<?>> cache =
+      parentClassLoader == null ? bootstrapClassCache : cacheOf( classCaches, parentClassLoader );
+    return (Class<? extends T>) get( cache, key, () -> {
+      ClassBodyEvaluator evaluator = new ClassBodyEvaluator();
+      evaluator.setParentClassLoader( parentClassLoader );
+      evaluator.setExtendedClass( extendedClass );
+      evaluator.setDefaultImports( defaultImports );
+      evaluator.cook( source );
+      return evaluator.getClazz();
+    } );
+  }
+
+  /**
+   * Cooks an expression with the context class loader of the current thread as parent, like
+   * {@link ExpressionEvaluator} does by default.
+   *
+   * @param expression
+   *          the expression
+   * @param parameterNames
+   *          the names of the parameters of the expression
+   * @param parameterTypes
+   *          the types of the parameters of the expression
+   * @param returnType
+   *          the type of the value of the expression
+   * @param thrownExceptions
+   *          the exceptions the expression can throw
+   * @return the cooked expression, shared with everybody cooking the same expression with the same parameters
+   * @throws CompileException
+   *           in case the expression can't be compiled
+   */
+  public static ExpressionEvaluator cookExpression( String expression, String[] parameterNames,
+    Class<?>[] parameterTypes, Class<?> returnType, Class<?>[] thrownExceptions ) throws CompileException {
+    ClassLoader parentClassLoader = Thread.currentThread().getContextClassLoader();
+    List<Object> key = Arrays.asList( expression, Arrays.asList( parameterNames ), namesOf( parameterTypes ),
+      returnType.getName(), namesOf( thrownExceptions ) );
+    Cache<List<Object>, ExpressionEvaluator> cache =
+      parentClassLoader == null ? bootstrapExpressionCache : cacheOf( expressionCaches, parentClassLoader );
+    return get( cache, key, () -> {
+      ExpressionEvaluator evaluator = new ExpressionEvaluator();
+      evaluator.setParentClassLoader( parentClassLoader );
+      evaluator.setParameters( parameterNames, parameterTypes );
+      evaluator.setReturnType( returnType );
+      evaluator.setThrownExceptions( thrownExceptions );
+      evaluator.cook( expression );
+      return evaluator;
+    } );
+  }
+
+  private static <T> Cache<List<Object>, T> newCache() {
+    return CacheBuilder.newBuilder().maximumSize( MAX_CACHED_CLASSES ).softValues().build();
+  }
+
+  private static <T> Cache<List<Object>, T> cacheOf( Cache<ClassLoader, Cache<List<Object>, T>> caches,
+    ClassLoader classLoader ) {
+    try {
+      return caches.get( classLoader, JaninoCache::newCache );
+    } catch ( ExecutionException e ) {
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+
+  private static List<String> namesOf( Class<?>[] classes ) {
+    String[] names = new String[ classes.length ];
+    for ( int i = 0; i < classes.length; i++ ) {
+      names[i] = classes[i].getName();
+    }
+    return Arrays.asList( names );
+  }
+
+  private static <T> T get( Cache<List<Object>, T> cache, List<Object> key, CompileTask<T> task )
+    throws CompileException {
+    try {
+      return cache.get( key, task::compile );
+    } catch ( ExecutionException | UncheckedExecutionException e ) {
+      if ( e.getCause() instanceof CompileException ) {
+        throw (CompileException) e.getCause();
+      }
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+
+  @FunctionalInterface
+  private interface CompileTask<T> {
+    T compile() throws Exception;
+  }
+}
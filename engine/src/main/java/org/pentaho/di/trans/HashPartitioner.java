@@ -0,0 +1,346 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Partitions on the hash of one or more key fields. The values are hashed in a normalized form with a 64-bit mixing
+ * function (MurmurHash3 style) so that sequential or skewed keys still spread evenly over the partitions.<br>
+ * <br>
+ * Three methods map the hash on a partition:
+ * <ul>
+ * <li>{@link #METHOD_HASH}: a multiply-shift range reduction, the fastest.</li>
+ * <li>{@link #METHOD_JUMP}: jump consistent hashing, only 1/n of the keys move when the number of partitions grows from
+ * n-1 to n.</li>
+ * <li>{@link #METHOD_RENDEZVOUS}: rendezvous (highest random weight) hashing on the partition IDs, only the keys of
+ * added or removed partitions move, whatever their position in the partition schema.</li>
+ * </ul>
+ */
+public class HashPartitioner extends BasePartitioner {
+
+  public static final String METHOD_HASH = "HASH";
+  public static final String METHOD_JUMP = "JUMP";
+  public static final String METHOD_RENDEZVOUS = "RENDEZVOUS";
+
+  public static final String[] METHOD_CODES = { METHOD_HASH, METHOD_JUMP, METHOD_RENDEZVOUS };
+  public static final String[] METHOD_DESCRIPTIONS = { "Hash", "Jump consistent hash", "Rendezvous hash" };
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+  private static final long SEED = 0x9e3779b97f4a7c15L;
+  private static final long NULL_HASH = 0x2545f4914f6cdd1dL;
+
+  private String[] fieldNames;
+  private String method;
+
+  protected int[] partitionColumnIndexes;
+  protected long[] partitionIdHashes;
+
+  public HashPartitioner() {
+    super();
+    fieldNames = new String[0];
+    method = METHOD_HASH;
+  }
+
+  public Partitioner getInstance() {
+    Partitioner partitioner = new HashPartitioner();
+    partitioner.setId( getId() );
+    partitioner.setDescription( getDescription() );
+    return partitioner;
+  }
+
+  public HashPartitioner clone() {
+    HashPartitioner hashPartitioner = (HashPartitioner) super.clone();
+    hashPartitioner.fieldNames = fieldNames == null ? null : fieldNames.clone();
+    hashPartitioner.method = method;
+
+    return hashPartitioner;
+  }
+
+  public String getDialogClassName() {
+    return "org.pentaho.di.ui.trans.dialog.HashPartitionerDialog";
+  }
+
+  @Override
+  public void init( RowMetaInterface rowMeta ) throws KettleException {
+    super.init( rowMeta );
+
+    if ( partitionColumnIndexes == null ) {
+      if ( fieldNames == null || fieldNames.length == 0 ) {
+        throw new KettleStepException( "No fields to partition on were specified" );
+      }
+      int[] indexes = new int[fieldNames.length];
+      for ( int i = 0; i < fieldNames.length; i++ ) {
+        indexes[i] = rowMeta.indexOfValue( fieldNames[i] );
+        if ( indexes[i] < 0 ) {
+          throw new KettleStepException( "Unable to find partitioning field name ["
+            + fieldNames[i] + "] in the output row..." + rowMeta );
+        }
+      }
+      partitionColumnIndexes = indexes;
+    }
+
+    if ( partitionIdHashes == null && METHOD_RENDEZVOUS.equals( method ) ) {
+      List<String> partitionIDs = meta.getPartitionSchema().getPartitionIDs();
+      long[] hashes = new long[partitionIDs.size()];
+      for ( int i = 0; i < hashes.length; i++ ) {
+        hashes[i] = hashString( SEED, partitionIDs.get( i ) );
+      }
+      partitionIdHashes = hashes;
+    }
+  }
+
+  public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    init( rowMeta );
+
+    long hash = SEED;
+    for ( int index : partitionColumnIndexes ) {
+      hash = combine( hash, hashValue( rowMeta.getValueMeta( index ), row[index] ) );
+    }
+    return selectPartition( fmix64( hash ^ partitionColumnIndexes.length ) );
+  }
+
+  private int selectPartition( long hash ) {
+    if ( METHOD_JUMP.equals( method ) ) {
+      return jumpConsistentHash( hash, nrPartitions );
+    }
+    if ( METHOD_RENDEZVOUS.equals( method ) ) {
+      return rendezvousHash( hash, partitionIdHashes );
+    }
+    // Multiply-shift: maps the upper 32 bits of the hash evenly on [0, nrPartitions)
+    //
+    return (int) ( ( ( hash >>> 32 ) * nrPartitions ) >>> 32 );
+  }
+
+  /**
+   * Jump consistent hash by John Lamping and Eric Veach.
+   */
+  static int jumpConsistentHash( long key, int buckets ) {
+    long b = -1;
+    long j = 0;
+    while ( j < buckets ) {
+      b = j;
+      key = key * 2862933555777941757L + 1;
+      j = (long) ( ( b + 1 ) * ( (double) ( 1L << 31 ) / (double) ( ( key >>> 33 ) + 1 ) ) );
+    }
+    return (int) b;
+  }
+
+  static int rendezvousHash( long hash, long[] partitionIdHashes ) {
+    int selected = 0;
+    long highest = Long.MIN_VALUE;
+    for ( int i = 0; i < partitionIdHashes.length; i++ ) {
+      long weight = fmix64( hash ^ partitionIdHashes[i] );
+      if ( weight > highest ) {
+        highest = weight;
+        selected = i;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Hashes a value in a form that doesn't depend on its storage type: lazy conversion, binary strings or indexed
+   * values of the same data give the same hash.
+   */
+  static long hashValue( ValueMetaInterface valueMeta, Object valueData ) throws KettleException {
+    if ( valueMeta.isNull( valueData ) ) {
+      return NULL_HASH;
+    }
+    // The getters convert the value from its storage type themselves
+    //
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return hashString( SEED, valueMeta.getString( valueData ) );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return fmix64( valueMeta.getInteger( valueData ) );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return hashDouble( valueMeta.getNumber( valueData ) );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return hashBigNumber( valueMeta.getBigNumber( valueData ) );
+      case ValueMetaInterface.TYPE_DATE:
+        return fmix64( valueMeta.getDate( valueData ).getTime() );
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Date date = valueMeta.getDate( valueData );
+        if ( date instanceof Timestamp ) {
+          return combine( fmix64( date.getTime() ), ( (Timestamp) date ).getNanos() );
+        }
+        return fmix64( date.getTime() );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return valueMeta.getBoolean( valueData ) ? fmix64( 1L ) : fmix64( 2L );
+      case ValueMetaInterface.TYPE_BINARY:
+        return hashBytes( SEED, valueMeta.getBinary( valueData ) );
+      default:
+        return fmix64( valueMeta.convertToNormalStorageType( valueData ).hashCode() );
+    }
+  }
+
+  private static long hashDouble( double value ) {
+    if ( value == 0.0d ) {
+      // -0.0 and 0.0 are the same key
+      value = 0.0d;
+    }
+    // doubleToLongBits folds all of the NaN representations into one
+    return fmix64( Double.doubleToLongBits( value ) );
+  }
+
+  private static long hashBigNumber( BigDecimal value ) {
+    // 1.50 and 1.5 are the same key
+    BigDecimal normalized = value.signum() == 0 ? BigDecimal.ZERO : value.stripTrailingZeros();
+    return combine( hashBytes( SEED, normalized.unscaledValue().toByteArray() ), normalized.scale() );
+  }
+
+  static long hashString( long seed, String value ) {
+    long hash = seed;
+    int length = value.length();
+    int i = 0;
+    for ( ; i + 4 <= length; i += 4 ) {
+      long block = value.charAt( i )
+        | ( (long) value.charAt( i + 1 ) << 16 )
+        | ( (long) value.charAt( i + 2 ) << 32 )
+        | ( (long) value.charAt( i + 3 ) << 48 );
+      hash = combine( hash, block );
+    }
+    long tail = 0;
+    for ( int shift = 0; i < length; i++, shift += 16 ) {
+      tail |= (long) value.charAt( i ) << shift;
+    }
+    return fmix64( combine( hash, tail ) ^ length );
+  }
+
+  static long hashBytes( long seed, byte[] value ) {
+    long hash = seed;
+    int length = value.length;
+    int i = 0;
+    for ( ; i + 8 <= length; i += 8 ) {
+      long block = 0;
+      for ( int b = 7; b >= 0; b-- ) {
+        block = ( block << 8 ) | ( value[i + b] & 0xffL );
+      }
+      hash = combine( hash, block );
+    }
+    long tail = 0;
+    for ( int shift = 0; i < length; i++, shift += 8 ) {
+      tail |= ( value[i] & 0xffL ) << shift;
+    }
+    return fmix64( combine( hash, tail ) ^ length );
+  }
+
+  /**
+   * Mixes a 64-bit block into the running hash, like the body of MurmurHash3 x64.
+   */
+  private static long combine( long hash, long block ) {
+    block *= C1;
+    block = Long.rotateLeft( block, 31 );
+    block *= C2;
+    hash ^= block;
+    hash = Long.rotateLeft( hash, 27 );
+    return hash * 5 + 0x52dce729;
+  }
+
+  /**
+   * The MurmurHash3 64-bit finalizer: every input bit affects every output bit.
+   */
+  static long fmix64( long k ) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  public String getDescription() {
+    String description = "Hash partitioner";
+    if ( fieldNames != null && fieldNames.length > 0 ) {
+      description += "(" + String.join( ", ", fieldNames ) + ")";
+    }
+    return description;
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 150 );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "hash_method", method ) );
+    xml.append( "           " ).append( XMLHandler.openTag( "fields" ) ).append( Const.CR );
+    for ( String fieldName : fieldNames ) {
+      xml.append( "             " ).append( XMLHandler.addTagValue( "field_name", fieldName ) );
+    }
+    xml.append( "           " ).append( XMLHandler.closeTag( "fields" ) ).append( Const.CR );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    method = Const.NVL( XMLHandler.getTagValue( partitioningMethodNode, "hash_method" ), METHOD_HASH );
+    Node fieldsNode = XMLHandler.getSubNode( partitioningMethodNode, "fields" );
+    int nrFields = XMLHandler.countNodes( fieldsNode, "field_name" );
+    fieldNames = new String[nrFields];
+    for ( int i = 0; i < nrFields; i++ ) {
+      fieldNames[i] = XMLHandler.getNodeValue( XMLHandler.getSubNodeByNr( fieldsNode, "field_name", i ) );
+    }
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_HASH_METHOD", method );
+    for ( int i = 0; i < fieldNames.length; i++ ) {
+      rep.saveStepAttribute( id_transformation, id_step, i, "PARTITIONING_FIELDNAME", fieldNames[i] );
+    }
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    method = Const.NVL( rep.getStepAttributeString( id_step, "PARTITIONING_HASH_METHOD" ), METHOD_HASH );
+    int nrFields = rep.countNrStepAttributes( id_step, "PARTITIONING_FIELDNAME" );
+    fieldNames = new String[nrFields];
+    for ( int i = 0; i < nrFields; i++ ) {
+      fieldNames[i] = rep.getStepAttributeString( id_step, i, "PARTITIONING_FIELDNAME" );
+    }
+  }
+
+  public String[] getFieldNames() {
+    return fieldNames;
+  }
+
+  public void setFieldNames( String[] fieldNames ) {
+    this.fieldNames = fieldNames;
+    partitionColumnIndexes = null;
+  }
+
+  /**
+   * @return the code of the method that maps the hash on a partition, one of {@link #METHOD_CODES}
+   */
+  public String getMethod() {
+    return method;
+  }
+
+  public void setMethod( String method ) {
+    this.method = Utils.isEmpty( method ) ? METHOD_HASH : method;
+    partitionIdHashes = null;
+  }
+
+}
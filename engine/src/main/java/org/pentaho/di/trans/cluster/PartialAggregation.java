@@ -0,0 +1,282 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.calculator.CalculatorMeta;
+import org.pentaho.di.trans.steps.calculator.CalculatorMetaFunction;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+import org.pentaho.di.trans.steps.selectvalues.SelectValuesMeta;
+
+/**
+ * Rewrites a clustered transformation before it is split so that the slave servers aggregate their own rows before
+ * sending them to the master.<br>
+ * <br>
+ * A Memory Group By step that runs on the master and reads the rows of a single clustered step gets a copy on the slave
+ * servers that calculates the partial aggregates. The step on the master then merges them: sums and counts are summed,
+ * minimums and maximums are aggregated again. An average is sent as a sum and a count, and divided on the master by an
+ * extra Calculator step, followed by a Select Values step that puts the fields back in their original order.<br>
+ * <br>
+ * Steps with other aggregates, more than one input, error handling or copies are left alone, as are averages of steps
+ * that are used as an info step, since the steps added after them would change the layout of the info rows. So are
+ * steps that always give back a row with counts, and transformations where nulls are aggregated as zero.
+ */
+public class PartialAggregation {
+
+  public static final String PARTIAL_STEP_SUFFIX = " (partial)";
+  public static final String AVERAGE_STEP_SUFFIX = " (average)";
+  public static final String SELECT_STEP_SUFFIX = " (fields)";
+
+  private static final String PARTIAL_FIELD_PREFIX = "__partial_";
+
+  private final TransMeta transMeta;
+
+  /**
+   * @param transMeta
+   *          the clustered transformation to rewrite, a copy of the one of the user
+   */
+  public PartialAggregation( TransMeta transMeta ) {
+    this.transMeta = transMeta;
+  }
+
+  /**
+   * Inserts the partial aggregation steps.
+   *
+   * @return the names of the steps that now merge partial aggregates
+   * @throws KettleException
+   *           in case the fields of a step can't be determined
+   */
+  public List<String> apply() throws KettleException {
+    List<String> merging = new ArrayList<>();
+    for ( StepMeta stepMeta : new ArrayList<>( transMeta.getSteps() ) ) {
+      if ( canSplit( stepMeta ) ) {
+        split( stepMeta );
+        merging.add( stepMeta.getName() );
+      }
+    }
+    return merging;
+  }
+
+  boolean canSplit( StepMeta stepMeta ) throws KettleException {
+    if ( !( stepMeta.getStepMetaInterface() instanceof MemoryGroupByMeta ) || stepMeta.isClustered()
+      || stepMeta.isPartitioned() || stepMeta.getCopies() != 1 || stepMeta.isDoingErrorHandling() ) {
+      return false;
+    }
+    List<StepMeta> previousSteps = transMeta.findPreviousSteps( stepMeta );
+    if ( previousSteps.size() != 1 || !previousSteps.get( 0 ).isClustered() ) {
+      return false;
+    }
+    // Summing up counts would give numbers instead of integers
+    //
+    if ( ValueMetaBase.convertStringToBoolean( transMeta.getVariable(
+      Const.KETTLE_COMPATIBILITY_MEMORY_GROUP_BY_SUM_AVERAGE_RETURN_NUMBER_TYPE, "N" ) ) ) {
+      return false;
+    }
+    // A slave with only nulls for a group would send 0 as its minimum or maximum
+    //
+    if ( ValueMetaBase.convertStringToBoolean( transMeta.getVariable(
+      Const.KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO, "N" ) ) ) {
+      return false;
+    }
+
+    MemoryGroupByMeta meta = (MemoryGroupByMeta) stepMeta.getStepMetaInterface();
+    RowMetaInterface inputFields = transMeta.getPrevStepFields( stepMeta );
+    boolean averaging = false;
+    for ( int i = 0; i < meta.getAggregateType().length; i++ ) {
+      switch ( meta.getAggregateType()[i] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          // Without any rows the merged count would be the sum of nothing: null instead of 0
+          if ( meta.isAlwaysGivingBackOneRow() ) {
+            return false;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          ValueMetaInterface subject = inputFields.searchValueMeta( meta.getSubjectField()[i] );
+          if ( subject == null || ( subject.getType() != ValueMetaInterface.TYPE_INTEGER
+            && subject.getType() != ValueMetaInterface.TYPE_NUMBER ) ) {
+            return false;
+          }
+          averaging = true;
+          break;
+        default:
+          return false;
+      }
+    }
+
+    if ( averaging ) {
+      for ( StepMeta other : transMeta.getSteps() ) {
+        if ( transMeta.isStepInformative( other, stepMeta ) ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void split( StepMeta stepMeta ) throws KettleException {
+    MemoryGroupByMeta meta = (MemoryGroupByMeta) stepMeta.getStepMetaInterface();
+    StepMeta previousStep = transMeta.findPreviousSteps( stepMeta ).get( 0 );
+    RowMetaInterface inputFields = transMeta.getPrevStepFields( stepMeta );
+
+    String[] groupField = meta.getGroupField();
+    String[] aggregateField = meta.getAggregateField();
+    String[] subjectField = meta.getSubjectField();
+    int[] aggregateType = meta.getAggregateType();
+
+    List<String> partialAggregates = new ArrayList<>();
+    List<String> partialSubjects = new ArrayList<>();
+    List<Integer> partialTypes = new ArrayList<>();
+    List<String> mergeAggregates = new ArrayList<>();
+    List<Integer> mergeTypes = new ArrayList<>();
+    List<CalculatorMetaFunction> averages = new ArrayList<>();
+
+    for ( int i = 0; i < aggregateType.length; i++ ) {
+      String partial = PARTIAL_FIELD_PREFIX + i;
+      switch ( aggregateType[i] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          String sum = partial + "_sum";
+          String count = partial + "_count";
+          partialAggregates.add( sum );
+          partialSubjects.add( subjectField[i] );
+          partialTypes.add( MemoryGroupByMeta.TYPE_GROUP_SUM );
+          partialAggregates.add( count );
+          partialSubjects.add( subjectField[i] );
+          partialTypes.add( MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL );
+          mergeAggregates.add( sum );
+          mergeTypes.add( MemoryGroupByMeta.TYPE_GROUP_SUM );
+          mergeAggregates.add( count );
+          mergeTypes.add( MemoryGroupByMeta.TYPE_GROUP_SUM );
+
+          // Memory Group By divides the sum by the count the same way
+          //
+          ValueMetaInterface subject = inputFields.searchValueMeta( subjectField[i] );
+          averages.add( new CalculatorMetaFunction( aggregateField[i], CalculatorMetaFunction.CALC_DIVIDE, sum,
+            count, null, subject.getType(), subject.getLength(), subject.getPrecision(), false,
+            subject.getConversionMask(), null, null, null ) );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          partialAggregates.add( partial );
+          partialSubjects.add( subjectField[i] );
+          partialTypes.add( aggregateType[i] );
+          mergeAggregates.add( aggregateField[i] );
+          mergeTypes.add( MemoryGroupByMeta.TYPE_GROUP_SUM );
+          break;
+        default:
+          // Sum, minimum and maximum
+          partialAggregates.add( partial );
+          partialSubjects.add( subjectField[i] );
+          partialTypes.add( aggregateType[i] );
+          mergeAggregates.add( aggregateField[i] );
+          mergeTypes.add( aggregateType[i] );
+          break;
+      }
+    }
+
+    // The partial aggregation runs next to the previous step on the slave servers
+    //
+    MemoryGroupByMeta partialMeta = new MemoryGroupByMeta();
+    partialMeta.allocate( groupField.length, partialAggregates.size() );
+    System.arraycopy( groupField, 0, partialMeta.getGroupField(), 0, groupField.length );
+    for ( int i = 0; i < partialAggregates.size(); i++ ) {
+      partialMeta.getAggregateField()[i] = partialAggregates.get( i );
+      partialMeta.getSubjectField()[i] = partialSubjects.get( i );
+      partialMeta.getAggregateType()[i] = partialTypes.get( i );
+    }
+    // A slave without rows sends nothing: its empty row would be merged as a group of nulls. The master still gives
+    // back its row when no rows arrive at all.
+    partialMeta.setAlwaysGivingBackOneRow( false );
+
+    StepMeta partialStep = new StepMeta( stepMeta.getStepID(),
+      transMeta.getAlternativeStepname( stepMeta.getName() + PARTIAL_STEP_SUFFIX ), partialMeta );
+    partialStep.setClusterSchema( previousStep.getClusterSchema() );
+    partialStep.setCopiesString( previousStep.getCopiesString() );
+    partialStep.setStepPartitioningMeta( previousStep.getStepPartitioningMeta().clone() );
+    partialStep.setLocation( ( previousStep.getLocation().x + stepMeta.getLocation().x ) / 2,
+      ( previousStep.getLocation().y + stepMeta.getLocation().y ) / 2 );
+    transMeta.addStep( partialStep );
+
+    transMeta.removeTransHop( transMeta.findTransHop( previousStep, stepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( previousStep, partialStep ) );
+    transMeta.addTransHop( new TransHopMeta( partialStep, stepMeta ) );
+
+    // The step on the master merges the partial aggregates
+    //
+    int nrMerges = mergeAggregates.size();
+    String[] mergeSubjects = new String[nrMerges];
+    int[] mergeTypeCodes = new int[nrMerges];
+    for ( int i = 0; i < nrMerges; i++ ) {
+      mergeSubjects[i] = partialAggregates.get( i );
+      mergeTypeCodes[i] = mergeTypes.get( i );
+    }
+    meta.setAggregateField( mergeAggregates.toArray( new String[nrMerges] ) );
+    meta.setSubjectField( mergeSubjects );
+    meta.setAggregateType( mergeTypeCodes );
+    meta.setValueField( new String[nrMerges] );
+
+    if ( !averages.isEmpty() ) {
+      addAverages( stepMeta, groupField, aggregateField, averages );
+    }
+  }
+
+  /**
+   * Divides the merged sums by the merged counts and restores the original layout of the rows.
+   */
+  private void addAverages( StepMeta stepMeta, String[] groupField, String[] aggregateField,
+                            List<CalculatorMetaFunction> averages ) {
+    CalculatorMeta calculatorMeta = new CalculatorMeta();
+    calculatorMeta.setCalculation( averages.toArray( new CalculatorMetaFunction[averages.size()] ) );
+    StepMeta averageStep =
+      new StepMeta( transMeta.getAlternativeStepname( stepMeta.getName() + AVERAGE_STEP_SUFFIX ), calculatorMeta );
+    averageStep.setLocation( stepMeta.getLocation().x, stepMeta.getLocation().y + 50 );
+
+    SelectValuesMeta selectValuesMeta = new SelectValuesMeta();
+    selectValuesMeta.allocate( 0, 0, 0 );
+    String[] selectName = new String[groupField.length + aggregateField.length];
+    System.arraycopy( groupField, 0, selectName, 0, groupField.length );
+    System.arraycopy( aggregateField, 0, selectName, groupField.length, aggregateField.length );
+    selectValuesMeta.setSelectName( selectName );
+    StepMeta selectStep =
+      new StepMeta( transMeta.getAlternativeStepname( stepMeta.getName() + SELECT_STEP_SUFFIX ), selectValuesMeta );
+    selectStep.setLocation( stepMeta.getLocation().x, stepMeta.getLocation().y + 100 );
+
+    transMeta.addStep( averageStep );
+    transMeta.addStep( selectStep );
+
+    // The rows now leave through the Select Values step
+    //
+    for ( TransHopMeta hop : transMeta.findAllTransHopFrom( stepMeta ) ) {
+      transMeta.removeTransHop( hop );
+      TransHopMeta moved = new TransHopMeta( selectStep, hop.getToStep(), hop.isEnabled() );
+      transMeta.addTransHop( moved );
+    }
+    transMeta.addTransHop( new TransHopMeta( stepMeta, averageStep ) );
+    transMeta.addTransHop( new TransHopMeta( averageStep, selectStep ) );
+  }
+}
@@ -80,6 +80,8 @@ public class TransSplitter {
     new SlaveStepCopyPartitionDistribution();
   private int socketsBufferSize;
   private boolean compressingSocketStreams;
+  private int remoteStepBatchRows;
+  private boolean partiallyAggregated;
 
   private Map<String, Integer> portCache;
 
@@ -186,6 +188,8 @@ public class TransSplitter {
           Const.toInt(
             originalTransformation.environmentSubstitute( clusterSchema.getSocketsBufferSize() ), 50000 );
         compressingSocketStreams = clusterSchema.isSocketsCompressed();
+        remoteStepBatchRows =
+          Const.toInt( originalTransformation.getVariable( Const.KETTLE_REMOTE_STEP_BATCH_ROWS ), 0 );
 
         // Validate the number of slaves. We need at least one to have a valid cluster
         //
@@ -442,8 +446,25 @@ public class TransSplitter {
     throw new KettleException( "No master server could be found in the original transformation" );
   }
 
+  /**
+   * Let the slave servers aggregate their rows before the master does, if enabled. The original transformation is our
+   * own copy so it can be rewritten, but only once.
+   */
+  private void insertPartialAggregation() throws KettleException {
+    if ( partiallyAggregated
+      || !"Y".equalsIgnoreCase( originalTransformation.getVariable( Const.KETTLE_CLUSTER_PARTIAL_AGGREGATION, "N" ) ) ) {
+      return;
+    }
+    partiallyAggregated = true;
+    for ( String stepname : new PartialAggregation( originalTransformation ).apply() ) {
+      originalTransformation.getLogChannel().logBasic(
+        "The slave servers aggregate the rows of step [" + stepname + "] before sending them to the master" );
+    }
+  }
+
   public void splitOriginalTransformation() throws KettleException {
     clear();
+    insertPartialAggregation();
     // Mixing clusters is not supported at the moment
     // Perform some basic checks on the cluster configuration.
     //
@@ -596,6 +617,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
                     remoteMasterStep.setKey( transformationKey );
+                    remoteMasterStep.setBatchRows( remoteStepBatchRows );
                     masterStep.getRemoteInputSteps().add( remoteMasterStep );
 
                     RemoteStep remoteSlaveStep =
@@ -607,6 +629,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
                     remoteSlaveStep.setKey( transformationKey );
+                    remoteSlaveStep.setBatchRows( remoteStepBatchRows );
                     slaveStep.getRemoteOutputSteps().add( remoteSlaveStep );
 
                     // OK, create a partition number for the target step in the partition distribution...
@@ -742,6 +765,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
                     remoteMasterStep.setKey( transformationKey );
+                    remoteMasterStep.setBatchRows( remoteStepBatchRows );
                     sourceStep.getRemoteOutputSteps().add( remoteMasterStep );
 
                     RemoteStep remoteSlaveStep =
@@ -753,6 +777,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
                     remoteSlaveStep.setKey( transformationKey );
+                    remoteSlaveStep.setBatchRows( remoteStepBatchRows );
                     targetStep.getRemoteInputSteps().add( remoteSlaveStep );
 
                     // OK, create a partition number for the target step in the partition distribution...
@@ -956,6 +981,7 @@ public class TransSplitter {
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteOutputStep.setEncryptingStreams( encrypt );
                               remoteOutputStep.setKey( transformationKey );
+                              remoteOutputStep.setBatchRows( remoteStepBatchRows );
                               sourceStep.getRemoteOutputSteps().add( remoteOutputStep );
 
                               // OK, so the source step is sending rows out on the reserved ports
@@ -974,6 +1000,7 @@ public class TransSplitter {
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteInputStep.setEncryptingStreams( encrypt );
                               remoteInputStep.setKey( transformationKey );
+                              remoteInputStep.setBatchRows( remoteStepBatchRows );
                               targetStep.getRemoteInputSteps().add( remoteInputStep );
                             }
                             // OK, save the partition number for the target step in the partition distribution...
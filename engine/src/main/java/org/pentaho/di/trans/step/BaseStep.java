@@ -222,6 +222,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private RowDistributionInterface rowDistribution;
 
+  /**
+   * For each output row set whether copied rows can be shared with it instead of cloned, null if none of them can.
+   */
+  private boolean[] sharedRowTargets;
+
+  private int sharedRowTargetsSize = -1;
+
   private long errors;
 
   private StepMeta[] nextSteps;
@@ -1544,6 +1551,10 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
       // Copy the row to all output rowsets
       //
+      // The steps that only read their rows share the row. The others get a copy of their own, except for the first
+      // one when the row isn't shared at all.
+      //
+      boolean[] shared = getSharedRowTargets();
 
       // Copy to the row in the other output rowsets...
       for ( int i = 1; i < outputRowSets.size(); i++ ) { // start at 1
@@ -1564,7 +1575,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         try {
           // Loop until we find room in the target rowset
           //
-          putRowToRowSet( rs, rowMeta, rowMeta.cloneRow( row ) );
+          putRowToRowSet( rs, rowMeta, shared != null && shared[ i ] ? row : rowMeta.cloneRow( row ) );
           incrementLinesWritten();
         } catch ( KettleValueException e ) {
           throw new KettleStepException( "Unable to clone row while copying rows to multiple target steps", e );
@@ -1574,11 +1585,49 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       // set row in first output rowset
       //
       RowSet rs = outputRowSets.get( 0 );
-      putRowToRowSet( rs, rowMeta, row );
+      try {
+        putRowToRowSet( rs, rowMeta, shared == null || shared[ 0 ] ? row : rowMeta.cloneRow( row ) );
+      } catch ( KettleValueException e ) {
+        throw new KettleStepException( "Unable to clone row while copying rows to multiple target steps", e );
+      }
       incrementLinesWritten();
     }
   }
 
+  /**
+   * @return for each output row set whether copied rows can be shared with it, null if they can't be shared
+   */
+  private boolean[] getSharedRowTargets() {
+    if ( sharedRowTargetsSize != outputRowSets.size() ) {
+      boolean[] shared = new boolean[ outputRowSets.size() ];
+      boolean sharing = false;
+      for ( int i = 0; i < shared.length; i++ ) {
+        StepMeta target =
+          transMeta == null ? null : transMeta.findStep( outputRowSets.get( i ).getDestinationStepName() );
+        shared[ i ] = isReadingRowsOnly( target );
+        sharing |= shared[ i ];
+      }
+      sharedRowTargets = sharing ? shared : null;
+      sharedRowTargetsSize = shared.length;
+    }
+    return sharedRowTargets;
+  }
+
+  /**
+   * @return true if neither the step nor the steps after it change the rows it reads
+   */
+  private boolean isReadingRowsOnly( StepMeta step ) {
+    if ( step == null || step.getStepMetaInterface() == null || step.getStepMetaInterface().modifiesInputRows() ) {
+      return false;
+    }
+    for ( StepMeta next : transMeta.findNextSteps( step ) ) {
+      if ( !isReadingRowsOnly( next ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void putRowToRowSet( RowSet rs, RowMetaInterface rowMeta, Object[] row ) {
     RowMetaInterface toBeSent;
     RowMetaInterface metaFromRs = rs.getRowMeta();
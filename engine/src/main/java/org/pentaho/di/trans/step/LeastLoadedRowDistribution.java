@@ -0,0 +1,41 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+
+import org.pentaho.di.core.RowSet;
+
+/**
+ * Sends each row to the output row set holding the least rows.
+ */
+public class LeastLoadedRowDistribution extends LoadAwareRowDistribution {
+
+  public static final String CODE = "LeastLoaded";
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Least loaded";
+  }
+
+  @Override
+  protected RowSet selectRowSet( List<RowSet> rowSets ) {
+    return getLeastLoaded( rowSets );
+  }
+}
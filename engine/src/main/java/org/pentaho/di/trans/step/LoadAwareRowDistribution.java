@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.gui.PrimitiveGCInterface.EImage;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Base class of the row distributions that send a row to an output row set with room to spare, instead of waiting for
+ * the next one in line like round robin does. A slow step copy then only gets the rows it can handle, and the other
+ * copies get the rest.<br>
+ * <br>
+ * When the selected row set is full, the row goes to the first row set that has room. Only when all of them are full,
+ * the step waits for the least loaded one.<br>
+ * <br>
+ * One instance is shared by all of the copies of a step, so the implementations can't keep any state.
+ */
+public abstract class LoadAwareRowDistribution implements RowDistributionInterface {
+
+  /**
+   * Selects the row set to try first.
+   *
+   * @param rowSets the output row sets, at least one
+   * @return the row set
+   */
+  protected abstract RowSet selectRowSet( List<RowSet> rowSets );
+
+  @Override
+  public void distributeRow( RowMetaInterface rowMeta, Object[] row, StepInterface stepInterface )
+    throws KettleStepException {
+    List<RowSet> rowSets = stepInterface.getOutputRowSets();
+    RowSet selected = selectRowSet( rowSets );
+    if ( putRowNoWait( selected, rowMeta, row ) ) {
+      return;
+    }
+    while ( true ) {
+      for ( RowSet rowSet : rowSets ) {
+        if ( rowSet != selected && putRowNoWait( rowSet, rowMeta, row ) ) {
+          return;
+        }
+      }
+      // All of the row sets are full, wait for the least loaded one
+      //
+      selected = getLeastLoaded( rowSets );
+      if ( selected.putRow( getRowMeta( selected, rowMeta ), row ) || stepInterface.isStopped() ) {
+        return;
+      }
+    }
+  }
+
+  private static boolean putRowNoWait( RowSet rowSet, RowMetaInterface rowMeta, Object[] row ) {
+    return rowSet.putRowWait( getRowMeta( rowSet, rowMeta ), row, 0, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Like the step itself, the row set keeps the row metadata it got first.
+   */
+  private static RowMetaInterface getRowMeta( RowSet rowSet, RowMetaInterface rowMeta ) {
+    RowMetaInterface metaFromRowSet = rowSet.getRowMeta();
+    return metaFromRowSet == null ? rowMeta.clone() : metaFromRowSet;
+  }
+
+  /**
+   * @return the row set holding the least rows, ties are broken at random
+   */
+  protected static RowSet getLeastLoaded( List<RowSet> rowSets ) {
+    int size = rowSets.size();
+    int start = size > 1 ? ThreadLocalRandom.current().nextInt( size ) : 0;
+    RowSet leastLoaded = null;
+    int leastRows = Integer.MAX_VALUE;
+    for ( int i = 0; i < size; i++ ) {
+      RowSet rowSet = rowSets.get( ( start + i ) % size );
+      int rows = rowSet.size();
+      if ( rows < leastRows ) {
+        leastLoaded = rowSet;
+        leastRows = rows;
+        if ( rows == 0 ) {
+          break;
+        }
+      }
+    }
+    return leastLoaded;
+  }
+
+  @Override
+  public EImage getDistributionImage() {
+    return EImage.LOAD_BALANCE;
+  }
+}
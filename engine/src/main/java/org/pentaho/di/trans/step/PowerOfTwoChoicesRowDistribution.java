@@ -0,0 +1,55 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.pentaho.di.core.RowSet;
+
+/**
+ * Picks two output row sets at random and sends the row to the one holding the least rows. With many step copies this
+ * balances nearly as well as looking at all of the row sets, at a fixed cost per row.
+ */
+public class PowerOfTwoChoicesRowDistribution extends LoadAwareRowDistribution {
+
+  public static final String CODE = "PowerOfTwoChoices";
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Power of two choices";
+  }
+
+  @Override
+  protected RowSet selectRowSet( List<RowSet> rowSets ) {
+    int size = rowSets.size();
+    if ( size <= 2 ) {
+      return getLeastLoaded( rowSets );
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt( size );
+    int second = random.nextInt( size - 1 );
+    if ( second >= first ) {
+      second++;
+    }
+    RowSet firstRowSet = rowSets.get( first );
+    RowSet secondRowSet = rowSets.get( second );
+    return secondRowSet.size() < firstRowSet.size() ? secondRowSet : firstRowSet;
+  }
+}
@@ -27,6 +27,8 @@ import java.net.SocketTimeoutException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -62,6 +64,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private static final long TIMEOUT_IN_SECONDS = 30;
 
+  /** The number of row batches a reader accepts before the writer has to wait for it */
+  private static final int BATCHES_IN_FLIGHT = 4;
+
   /** The target or source slave server with which we're exchanging data */
   private String targetSlaveServerName;
 
@@ -85,6 +90,8 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private DataInputStream inputStream;
 
+  private DataOutputStream creditOutputStream;
+
   private String sourceStep;
 
   private int sourceStepCopyNr;
@@ -96,6 +103,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
   private int bufferSize;
   private boolean compressingStreams;
 
+  /** The number of rows sent per batch, 0 sends the rows one by one */
+  private int batchRows;
+
   private boolean encryptingStreams;
   private byte[] key;
   private CipherInputStream cipherInputStream;
@@ -171,6 +181,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     xml.append( XMLHandler.addTagValue( "port", port, false ) );
     xml.append( XMLHandler.addTagValue( "buffer_size", bufferSize, false ) );
     xml.append( XMLHandler.addTagValue( "compressed_streams", compressingStreams, false ) );
+    xml.append( XMLHandler.addTagValue( "batch_rows", batchRows, false ) );
 
     xml.append( XMLHandler.addTagValue( "source_step_name", sourceStep, false ) );
     xml.append( XMLHandler.addTagValue( "source_step_copy", sourceStepCopyNr, false ) );
@@ -204,6 +215,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     port = XMLHandler.getTagValue( node, "port" );
     bufferSize = Integer.parseInt( XMLHandler.getTagValue( node, "buffer_size" ) );
     compressingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "compressed_streams" ) );
+    batchRows = Const.toInt( XMLHandler.getTagValue( node, "batch_rows" ), 0 );
 
     sourceStep = XMLHandler.getTagValue( node, "source_step_name" );
     sourceStepCopyNr = Integer.parseInt( XMLHandler.getTagValue( node, "source_step_copy" ) );
@@ -347,7 +359,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           // Create the output stream...
           OutputStream socketOut = socket.getOutputStream();
 
-          if ( compressingStreams ) {
+          // Row batches are compressed one by one
+          //
+          if ( compressingStreams && batchRows <= 0 ) {
             gzipOutputStream = new GZIPOutputStream( socketOut, 50000 );
             bufferedOutputStream = new BufferedOutputStream( gzipOutputStream, bufferSize );
           } else {
@@ -388,6 +402,11 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             rowSet.getRowMeta().writeMeta( outputStream );
           }
 
+          if ( batchRows > 0 ) {
+            writeRowBatches( rowSet, rowData );
+            rowData = null;
+          }
+
           // Send that row to the remote step
           //
           while ( rowData != null && !baseStep.isStopped() ) {
@@ -406,7 +425,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             rowData = baseStep.getRowFrom( rowSet );
           }
 
-          if ( compressingStreams ) {
+          if ( gzipOutputStream != null ) {
             outputStream.flush();
             gzipOutputStream.finish();
           } else {
@@ -467,6 +486,83 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     return rowSet;
   }
 
+  /**
+   * Sends the rows of the row set in batches. A batch is sent when it is full or when the row set runs empty, so rows
+   * don't wait for a slow source. The reader grants credits for the batches it can take, the writer waits when it runs
+   * out of them.
+   */
+  private void writeRowBatches( BlockingRowSet rowSet, Object[] rowData ) throws KettleException, IOException {
+    if ( rowData == null ) {
+      return;
+    }
+    RowBatchCodec codec = new RowBatchCodec( rowSet.getRowMeta(), compressingStreams );
+    DataInputStream creditStream = new DataInputStream( socket.getInputStream() );
+    socket.setSoTimeout( 1000 );
+    int credits = 0;
+
+    List<Object[]> batch = new ArrayList<>( batchRows );
+    while ( rowData != null && !baseStep.isStopped() ) {
+      // It's too confusing to count these twice, so decrement
+      baseStep.decrementLinesRead();
+      baseStep.decrementLinesWritten();
+      batch.add( rowData );
+
+      if ( baseStep.log.isDebug() ) {
+        baseStep.logDebug( "Sent row to port " + port + " : " + rowSet.getRowMeta().getString( rowData ) );
+      }
+
+      if ( batch.size() >= batchRows || rowSet.size() == 0 ) {
+        while ( credits == 0 && !baseStep.isStopped() ) {
+          try {
+            credits += creditStream.readUnsignedByte();
+          } catch ( SocketTimeoutException e ) {
+            // See if we were stopped and wait some more
+          }
+        }
+        if ( baseStep.isStopped() ) {
+          return;
+        }
+        credits--;
+        codec.writeBatch( outputStream, batch );
+        outputStream.flush();
+        for ( int i = 0; i < batch.size(); i++ ) {
+          baseStep.incrementLinesOutput();
+        }
+        batch.clear();
+      }
+      rowData = baseStep.getRowFrom( rowSet );
+    }
+    if ( !baseStep.isStopped() ) {
+      codec.writeEnd( outputStream );
+    }
+  }
+
+  /**
+   * Reads the row batches sent by {@link #writeRowBatches(BlockingRowSet, Object[])} into the row set, and grants the
+   * writer a credit for every batch handed over.
+   */
+  private void readRowBatches( RowMetaInterface rowMeta, BlockingRowSet rowSet ) throws KettleException,
+    IOException {
+    RowBatchCodec codec = new RowBatchCodec( rowMeta, compressingStreams );
+    List<Object[]> batch = codec.readBatch( inputStream );
+    while ( batch != null && !baseStep.isStopped() ) {
+      for ( Object[] rowData : batch ) {
+        baseStep.incrementLinesInput();
+        baseStep.decrementLinesRead();
+
+        if ( baseStep.log.isDebug() ) {
+          baseStep.logDebug( "Received row from remote step: " + rowMeta.getString( rowData ) );
+        }
+
+        baseStep.putRowTo( rowMeta, rowData, rowSet );
+        baseStep.decrementLinesWritten();
+      }
+      creditOutputStream.writeByte( 1 );
+      creditOutputStream.flush();
+      batch = codec.readBatch( inputStream );
+    }
+  }
+
   /**
    * Close left-over sockets, streams and so on.
    */
@@ -574,7 +670,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
         connected = true;
 
         InputStream socketStream = socket.getInputStream();
-        if ( compressingStreams ) {
+        if ( compressingStreams && batchRows <= 0 ) {
           gzipInputStream = new GZIPInputStream( socketStream );
           bufferedInputStream = new BufferedInputStream( gzipInputStream, bufferSize );
         } else {
@@ -662,6 +758,14 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
       public void run() {
         try {
 
+          // Let the writer send the first batches
+          //
+          if ( batchRows > 0 ) {
+            creditOutputStream = new DataOutputStream( socket.getOutputStream() );
+            creditOutputStream.writeByte( BATCHES_IN_FLIGHT );
+            creditOutputStream.flush();
+          }
+
           // First read the row meta data from the socket...
           //
           RowMetaInterface rowMeta = null;
@@ -677,9 +781,13 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             throw new KettleEOFException(); // leave now.
           }
 
+          if ( batchRows > 0 ) {
+            readRowBatches( rowMeta, rowSet );
+          }
+
           // And a first row of data...
           //
-          Object[] rowData = getRowOfData( rowMeta );
+          Object[] rowData = batchRows > 0 ? null : getRowOfData( rowMeta );
 
           // Now get the data itself, row by row...
           //
@@ -882,6 +990,21 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.compressingStreams = compressingStreams;
   }
 
+  /**
+   * @return the number of rows sent per batch, 0 or less when the rows are sent one by one
+   */
+  public int getBatchRows() {
+    return batchRows;
+  }
+
+  /**
+   * @param batchRows
+   *          the number of rows to send per batch, 0 or less to send the rows one by one
+   */
+  public void setBatchRows( int batchRows ) {
+    this.batchRows = batchRows;
+  }
+
   /**
    * @return the remoteHostname
    */
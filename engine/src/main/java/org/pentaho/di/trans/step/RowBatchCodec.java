@@ -0,0 +1,406 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Encodes rows in batches for the remote steps of a clustered transformation.<br>
+ * <br>
+ * A batch is sent as its number of rows, a flag telling if the payload is compressed, the length of the payload and
+ * the payload itself. An empty batch ends the stream. In the payload the values are stored column by column: integers
+ * and dates as variable length deltas, numbers and booleans as is, and strings with a dictionary when a batch repeats
+ * them. Values that are not in the normal storage type are written the way {@link ValueMetaInterface#writeData} does.
+ * Compressed payloads use Snappy, which is a lot faster than the GZIP streams of the row by row transport.<br>
+ * <br>
+ * Both sides have to use the same row metadata, which is sent before the first batch.
+ */
+public class RowBatchCodec {
+
+  private static final int FLAG_COMPRESSED = 1;
+
+  private static final byte ENCODING_VALUE = 0;
+  private static final byte ENCODING_INTEGER = 1;
+  private static final byte ENCODING_NUMBER = 2;
+  private static final byte ENCODING_DATE = 3;
+  private static final byte ENCODING_BOOLEAN = 4;
+  private static final byte ENCODING_STRING = 5;
+  private static final byte ENCODING_STRING_DICTIONARY = 6;
+
+  private final RowMetaInterface rowMeta;
+  private final boolean compressing;
+
+  private final ByteArrayOutputStream payload = new ByteArrayOutputStream( 8192 );
+  private final DataOutputStream payloadOutput = new DataOutputStream( payload );
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows in the batches
+   * @param compressing
+   *          true to compress the batches that get smaller by it
+   */
+  public RowBatchCodec( RowMetaInterface rowMeta, boolean compressing ) {
+    this.rowMeta = rowMeta;
+    this.compressing = compressing;
+  }
+
+  /**
+   * Writes a batch of rows to the output stream.
+   *
+   * @param outputStream
+   *          the stream to write to, it is not flushed
+   * @param rows
+   *          the rows to write, at least one
+   * @throws KettleException
+   *           in case a value can't be written
+   */
+  public void writeBatch( DataOutputStream outputStream, List<Object[]> rows ) throws KettleException {
+    try {
+      payload.reset();
+      for ( int i = 0; i < rowMeta.size(); i++ ) {
+        writeColumn( payloadOutput, rowMeta.getValueMeta( i ), i, rows );
+      }
+      payloadOutput.flush();
+
+      byte[] data = payload.toByteArray();
+      int flags = 0;
+      if ( compressing ) {
+        byte[] compressed = Snappy.compress( data );
+        if ( compressed.length < data.length ) {
+          data = compressed;
+          flags |= FLAG_COMPRESSED;
+        }
+      }
+      outputStream.writeInt( rows.size() );
+      outputStream.writeInt( flags );
+      outputStream.writeInt( data.length );
+      outputStream.write( data );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write a batch of rows to the output stream", e );
+    }
+  }
+
+  /**
+   * Writes the empty batch that tells the reader there are no more rows.
+   */
+  public void writeEnd( DataOutputStream outputStream ) throws KettleException {
+    try {
+      outputStream.writeInt( 0 );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write the end of the rows to the output stream", e );
+    }
+  }
+
+  /**
+   * Reads a batch of rows from the input stream.
+   *
+   * @param inputStream
+   *          the stream to read from
+   * @return the rows or null when the writer sent all of its rows
+   * @throws KettleEOFException
+   *           when the stream ends before the last batch
+   * @throws KettleException
+   *           in case the batch can't be read
+   */
+  public List<Object[]> readBatch( DataInputStream inputStream ) throws KettleException {
+    int nrRows;
+    try {
+      nrRows = inputStream.readInt();
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read a batch of rows from the input stream", e );
+    }
+    if ( nrRows == 0 ) {
+      return null;
+    }
+
+    try {
+      int flags = inputStream.readInt();
+      byte[] data = new byte[inputStream.readInt()];
+      inputStream.readFully( data );
+      if ( ( flags & FLAG_COMPRESSED ) != 0 ) {
+        data = Snappy.uncompress( data );
+      }
+
+      List<Object[]> rows = new ArrayList<>( nrRows );
+      for ( int r = 0; r < nrRows; r++ ) {
+        rows.add( RowDataUtil.allocateRowData( rowMeta.size() ) );
+      }
+      DataInputStream payloadInput = new DataInputStream( new ByteArrayInputStream( data ) );
+      for ( int i = 0; i < rowMeta.size(); i++ ) {
+        readColumn( payloadInput, rowMeta.getValueMeta( i ), i, rows );
+      }
+      return rows;
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read a batch of rows from the input stream", e );
+    }
+  }
+
+  private static void writeColumn( DataOutputStream out, ValueMetaInterface valueMeta, int index,
+                                   List<Object[]> rows ) throws IOException, KettleException {
+    byte encoding = getEncoding( valueMeta );
+    if ( encoding == ENCODING_STRING && isWorthADictionary( index, rows ) ) {
+      encoding = ENCODING_STRING_DICTIONARY;
+    }
+    out.writeByte( encoding );
+    if ( encoding == ENCODING_VALUE ) {
+      for ( Object[] row : rows ) {
+        valueMeta.writeData( out, row[index] );
+      }
+      return;
+    }
+
+    writeNulls( out, index, rows );
+    switch ( encoding ) {
+      case ENCODING_INTEGER:
+        long previousInteger = 0;
+        for ( Object[] row : rows ) {
+          if ( row[index] != null ) {
+            long value = (Long) row[index];
+            writeVarLong( out, value - previousInteger );
+            previousInteger = value;
+          }
+        }
+        break;
+      case ENCODING_DATE:
+        long previousTime = 0;
+        for ( Object[] row : rows ) {
+          if ( row[index] != null ) {
+            long time = ( (Date) row[index] ).getTime();
+            writeVarLong( out, time - previousTime );
+            previousTime = time;
+          }
+        }
+        break;
+      case ENCODING_NUMBER:
+        for ( Object[] row : rows ) {
+          if ( row[index] != null ) {
+            out.writeDouble( (Double) row[index] );
+          }
+        }
+        break;
+      case ENCODING_BOOLEAN:
+        for ( Object[] row : rows ) {
+          if ( row[index] != null ) {
+            out.writeBoolean( (Boolean) row[index] );
+          }
+        }
+        break;
+      case ENCODING_STRING:
+        for ( Object[] row : rows ) {
+          if ( row[index] != null ) {
+            writeString( out, (String) row[index] );
+          }
+        }
+        break;
+      default:
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        for ( Object[] row : rows ) {
+          if ( row[index] != null && dictionary.putIfAbsent( (String) row[index], entries.size() ) == null ) {
+            entries.add( (String) row[index] );
+          }
+        }
+        writeVarLong( out, entries.size() );
+        for ( String entry : entries ) {
+          writeString( out, entry );
+        }
+        for ( Object[] row : rows ) {
+          if ( row[index] != null ) {
+            writeVarLong( out, dictionary.get( row[index] ) );
+          }
+        }
+        break;
+    }
+  }
+
+  private static void readColumn( DataInputStream in, ValueMetaInterface valueMeta, int index,
+                                  List<Object[]> rows ) throws IOException, KettleException {
+    byte encoding = in.readByte();
+    if ( encoding == ENCODING_VALUE ) {
+      for ( Object[] row : rows ) {
+        row[index] = valueMeta.readData( in );
+      }
+      return;
+    }
+
+    boolean[] nulls = readNulls( in, rows.size() );
+    switch ( encoding ) {
+      case ENCODING_INTEGER:
+        long integer = 0;
+        for ( int r = 0; r < nulls.length; r++ ) {
+          if ( !nulls[r] ) {
+            integer += readVarLong( in );
+            rows.get( r )[index] = integer;
+          }
+        }
+        break;
+      case ENCODING_DATE:
+        long time = 0;
+        for ( int r = 0; r < nulls.length; r++ ) {
+          if ( !nulls[r] ) {
+            time += readVarLong( in );
+            rows.get( r )[index] = new Date( time );
+          }
+        }
+        break;
+      case ENCODING_NUMBER:
+        for ( int r = 0; r < nulls.length; r++ ) {
+          if ( !nulls[r] ) {
+            rows.get( r )[index] = in.readDouble();
+          }
+        }
+        break;
+      case ENCODING_BOOLEAN:
+        for ( int r = 0; r < nulls.length; r++ ) {
+          if ( !nulls[r] ) {
+            rows.get( r )[index] = in.readBoolean();
+          }
+        }
+        break;
+      case ENCODING_STRING:
+        for ( int r = 0; r < nulls.length; r++ ) {
+          if ( !nulls[r] ) {
+            rows.get( r )[index] = readString( in );
+          }
+        }
+        break;
+      case ENCODING_STRING_DICTIONARY:
+        String[] entries = new String[(int) readVarLong( in )];
+        for ( int e = 0; e < entries.length; e++ ) {
+          entries[e] = readString( in );
+        }
+        for ( int r = 0; r < nulls.length; r++ ) {
+          if ( !nulls[r] ) {
+            rows.get( r )[index] = entries[(int) readVarLong( in )];
+          }
+        }
+        break;
+      default:
+        throw new KettleFileException( "Unknown encoding " + encoding + " for field " + valueMeta.getName() );
+    }
+  }
+
+  private static byte getEncoding( ValueMetaInterface valueMeta ) {
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return ENCODING_VALUE;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return ENCODING_INTEGER;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return ENCODING_NUMBER;
+      case ValueMetaInterface.TYPE_DATE:
+        return ENCODING_DATE;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return ENCODING_BOOLEAN;
+      case ValueMetaInterface.TYPE_STRING:
+        return ENCODING_STRING;
+      default:
+        return ENCODING_VALUE;
+    }
+  }
+
+  /**
+   * A dictionary pays off when at most half of the values in the batch are distinct.
+   */
+  private static boolean isWorthADictionary( int index, List<Object[]> rows ) {
+    int limit = rows.size() / 2;
+    Map<Object, Boolean> distinct = new HashMap<>();
+    for ( Object[] row : rows ) {
+      if ( row[index] != null && distinct.put( row[index], Boolean.TRUE ) == null && distinct.size() > limit ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeNulls( DataOutput out, int index, List<Object[]> rows ) throws IOException {
+    byte[] bits = new byte[( rows.size() + 7 ) / 8];
+    for ( int r = 0; r < rows.size(); r++ ) {
+      if ( rows.get( r )[index] == null ) {
+        bits[r >>> 3] |= 1 << ( r & 7 );
+      }
+    }
+    out.write( bits );
+  }
+
+  private static boolean[] readNulls( DataInput in, int nrRows ) throws IOException {
+    byte[] bits = new byte[( nrRows + 7 ) / 8];
+    in.readFully( bits );
+    boolean[] nulls = new boolean[nrRows];
+    for ( int r = 0; r < nrRows; r++ ) {
+      nulls[r] = ( bits[r >>> 3] & ( 1 << ( r & 7 ) ) ) != 0;
+    }
+    return nulls;
+  }
+
+  private static void writeString( DataOutput out, String value ) throws IOException {
+    byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+    writeVarLong( out, bytes.length );
+    out.write( bytes );
+  }
+
+  private static String readString( DataInput in ) throws IOException {
+    byte[] bytes = new byte[(int) readVarLong( in )];
+    in.readFully( bytes );
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+
+  /**
+   * Writes a zigzag encoded variable length long: small positive and negative values take a single byte.
+   */
+  static void writeVarLong( DataOutput out, long value ) throws IOException {
+    long zigzag = ( value << 1 ) ^ ( value >> 63 );
+    while ( ( zigzag & ~0x7FL ) != 0 ) {
+      out.writeByte( (int) ( ( zigzag & 0x7F ) | 0x80 ) );
+      zigzag >>>= 7;
+    }
+    out.writeByte( (int) zigzag );
+  }
+
+  static long readVarLong( DataInput in ) throws IOException {
+    long zigzag = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.readByte();
+      zigzag |= (long) ( b & 0x7F ) << shift;
+      shift += 7;
+    } while ( ( b & 0x80 ) != 0 );
+    return ( zigzag >>> 1 ) ^ -( zigzag & 1 );
+  }
+}
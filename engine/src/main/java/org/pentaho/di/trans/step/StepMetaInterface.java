@@ -737,6 +737,16 @@ public interface StepMetaInterface {
     return false;
   }
 
+  /**
+   * When a step copies its rows to several steps, the steps that only read their rows get the same row instead of a
+   * copy of their own. This only applies when the steps after them only read the rows as well.
+   *
+   * @return false if the step never changes its input rows, nor stores values beyond the end of them
+   */
+  default boolean modifiesInputRows() {
+    return true;
+  }
+
   /**
    * True if the step passes it's result data straight to the servlet output. See exposing Kettle data over a web service
    * <a href="http://wiki.pentaho.com/display/EAI/PDI+data+over+web+services">http://wiki.pentaho.com/display/EAI/PDI+data+over+web+services</a>
@@ -20,6 +20,7 @@ import java.util.Objects;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileNotFoundException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -148,6 +149,15 @@ public class Calculator extends BaseStep implements StepInterface {
       for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
         data.getTempIndexes()[i] = tempIndexes.get( i );
       }
+
+      if ( !"N".equalsIgnoreCase( getVariable( Const.KETTLE_COMPILE_CALCULATIONS, "Y" ) ) ) {
+        try {
+          data.setCompiledCalculations( CompiledCalculations.compile( this, meta.getCalculation(),
+            data.getFieldIndexes(), getInputRowMeta(), data.getCalcRowMeta() ) );
+        } catch ( KettleException e ) {
+          logBasic( BaseMessages.getString( PKG, "Calculator.Log.CalculationsNotCompiled", e.getMessage() ) );
+        }
+      }
     }
 
     if ( log.isRowLevel() ) {
@@ -194,7 +204,35 @@ public class Calculator extends BaseStep implements StepInterface {
     // First copy the input data to the new result...
     Object[] calcData = RowDataUtil.resizeArray( r, data.getCalcRowMeta().size() );
 
-    for ( int i = 0, index = inputRowMeta.size() + i; i < meta.getCalculation().length; i++, index++ ) {
+    if ( data.getCompiledCalculations() != null ) {
+      data.getCompiledCalculations().calculate( calcData );
+    } else {
+      calcFields( inputRowMeta, calcData, 0, meta.getCalculation().length );
+    }
+
+    // OK, now we should refrain from adding the temporary fields to the result.
+    // So we remove them.
+    //
+    return RowDataUtil.removeItems( calcData, data.getTempIndexes() );
+  }
+
+  /**
+   * Performs a range of the calculations.
+   *
+   * @param inputRowMeta
+   *          the input row metadata
+   * @param calcData
+   *          the input row extended with the calculated values
+   * @param from
+   *          the first calculation to perform
+   * @param to
+   *          the calculation after the last one to perform
+   * @throws KettleValueException
+   *           in case there is a calculation error.
+   */
+  void calcFields( RowMetaInterface inputRowMeta, Object[] calcData, int from, int to ) throws KettleValueException,
+          KettleFileNotFoundException {
+    for ( int i = from, index = inputRowMeta.size() + i; i < to; i++, index++ ) {
       CalculatorMetaFunction fn = meta.getCalculation()[i];
       if ( !Utils.isEmpty( fn.getFieldName() ) ) {
         ValueMetaInterface targetMeta = data.getCalcRowMeta().getValueMeta( index );
@@ -642,11 +680,6 @@ public class Calculator extends BaseStep implements StepInterface {
         }
       }
     }
-
-    // OK, now we should refrain from adding the temporary fields to the result.
-    // So we remove them.
-    //
-    return RowDataUtil.removeItems( calcData, data.getTempIndexes() );
   }
 
   @SuppressWarnings( "java:S1144" ) // Using reflection this method is being invoked
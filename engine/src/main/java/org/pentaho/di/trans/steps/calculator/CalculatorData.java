@@ -35,6 +35,8 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private int[] tempIndexes;
 
+  private CompiledCalculations compiledCalculations;
+
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
   public CalculatorData() {
@@ -74,6 +76,14 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  public CompiledCalculations getCompiledCalculations() {
+    return compiledCalculations;
+  }
+
+  public void setCompiledCalculations( CompiledCalculations compiledCalculations ) {
+    this.compiledCalculations = compiledCalculations;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
@@ -0,0 +1,266 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.calculator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileNotFoundException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.util.JaninoCache;
+
+/**
+ * The calculations of a {@link Calculator} step compiled into a Java class for a given input row layout.<br>
+ * <br>
+ * Arithmetic on number and integer fields in normal storage is done on primitive values. A result is kept in a local
+ * variable as well, so the calculations that use it don't have to unbox it again. The other calculations are handed
+ * back to the step in the order in which they are configured, which gives the same results as performing all of them
+ * one by one.<br>
+ * <br>
+ * The generated classes only depend on the calculations and the row layout, and are cached.
+ */
+public abstract class CompiledCalculations {
+
+  private Calculator calculator;
+  private RowMetaInterface inputRowMeta;
+
+  /**
+   * Performs all the calculations.
+   *
+   * @param calcData
+   *          the input row extended with room for the calculated values
+   */
+  public abstract void calculate( Object[] calcData ) throws KettleValueException, KettleFileNotFoundException;
+
+  /**
+   * Lets the step perform the calculations that aren't compiled.
+   */
+  protected final void interpret( Object[] calcData, int from, int to ) throws KettleValueException,
+    KettleFileNotFoundException {
+    calculator.calcFields( inputRowMeta, calcData, from, to );
+  }
+
+  /**
+   * @return the compiled calculations, or null if none of them can be compiled
+   * @throws KettleException
+   *           in case the generated class can't be compiled
+   */
+  static CompiledCalculations compile( Calculator calculator, CalculatorMetaFunction[] calculations,
+    Calculator.FieldIndexes[] fieldIndexes, RowMetaInterface inputRowMeta, RowMetaInterface calcRowMeta )
+    throws KettleException {
+    Generator generator = new Generator( inputRowMeta.size(), calcRowMeta );
+    String source = generator.generate( calculations, fieldIndexes );
+    if ( generator.nrCompiled == 0 ) {
+      return null;
+    }
+
+    Class<? extends CompiledCalculations> clazz = cook( source );
+
+    try {
+      CompiledCalculations compiled = clazz.newInstance();
+      compiled.calculator = calculator;
+      compiled.inputRowMeta = inputRowMeta;
+      return compiled;
+    } catch ( ReflectiveOperationException e ) {
+      throw new KettleException( "Unable to create compiled calculations", e );
+    }
+  }
+
+  private static Class<? extends CompiledCalculations> cook( String source ) throws KettleException {
+    try {
+      return JaninoCache.cookClassBody( CompiledCalculations.class, source,
+        "org.pentaho.di.core.exception.KettleValueException",
+        "org.pentaho.di.core.exception.KettleFileNotFoundException" );
+    } catch ( CompileException e ) {
+      throw new KettleException( "Unable to compile calculations", e );
+    }
+  }
+
+  /**
+   * A value in a local variable of the generated method: a null flag and a primitive.
+   */
+  private static class Local {
+    private final String isNull;
+    private final String value;
+    private final boolean integer;
+
+    private Local( int nr, boolean integer ) {
+      this.isNull = "n" + nr;
+      this.value = "v" + nr;
+      this.integer = integer;
+    }
+  }
+
+  /**
+   * Writes the method performing the calculations.
+   */
+  private static class Generator {
+    private final int inputSize;
+    private final RowMetaInterface calcRowMeta;
+    private final StringBuilder body = new StringBuilder();
+    private final Map<Integer, Local> locals = new HashMap<>();
+    private int nrLocals;
+    private int nrCompiled;
+    private int firstInterpreted = -1;
+
+    private Generator( int inputSize, RowMetaInterface calcRowMeta ) {
+      this.inputSize = inputSize;
+      this.calcRowMeta = calcRowMeta;
+    }
+
+    private String generate( CalculatorMetaFunction[] calculations, Calculator.FieldIndexes[] fieldIndexes ) {
+      for ( int i = 0; i < calculations.length; i++ ) {
+        int index = inputSize + i;
+        StringBuilder code = new StringBuilder();
+        Local result = compile( calculations[ i ], fieldIndexes[ i ], index, code );
+        if ( result == null ) {
+          // The value is set by the step, it has to be read from the row again
+          locals.remove( index );
+          if ( firstInterpreted < 0 ) {
+            firstInterpreted = i;
+          }
+        } else {
+          interpretUntil( i );
+          body.append( code );
+          locals.put( index, result );
+          nrCompiled++;
+        }
+      }
+      interpretUntil( calculations.length );
+      return "public void calculate( Object[] calcData ) throws KettleValueException, KettleFileNotFoundException {\n"
+        + body + "}\n";
+    }
+
+    private void interpretUntil( int to ) {
+      if ( firstInterpreted >= 0 ) {
+        body.append( "  interpret( calcData, " ).append( firstInterpreted ).append( ", " ).append( to ).append(
+          " );\n" );
+        firstInterpreted = -1;
+      }
+    }
+
+    /**
+     * @return the local variable with the result, or null if the calculation is left to the step
+     */
+    private Local compile( CalculatorMetaFunction function, Calculator.FieldIndexes indexes, int index,
+      StringBuilder code ) {
+      Boolean integer = getKind( index );
+      if ( integer == null || indexes.indexA < 0 ) {
+        return null;
+      }
+      // The result has the type of field A, it is only compiled when it doesn't need a conversion to the target type
+      if ( !integer.equals( getKind( indexes.indexA ) ) ) {
+        return null;
+      }
+
+      String operator;
+      boolean useB = true;
+      switch ( function.getCalcType() ) {
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+          operator = null;
+          useB = false;
+          break;
+        case CalculatorMetaFunction.CALC_ADD:
+          operator = "+";
+          break;
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+          operator = "-";
+          break;
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+          operator = "*";
+          break;
+        case CalculatorMetaFunction.CALC_DIVIDE:
+          operator = "/";
+          break;
+        case CalculatorMetaFunction.CALC_SQUARE:
+          operator = "*";
+          useB = false;
+          break;
+        default:
+          return null;
+      }
+      if ( useB && ( indexes.indexB < 0 || !integer.equals( getKind( indexes.indexB ) ) ) ) {
+        return null;
+      }
+
+      Local a = read( indexes.indexA, integer, code );
+      Local b = useB ? read( indexes.indexB, integer, code ) : a;
+      Local result = new Local( nrLocals++, integer );
+      String type = integer ? "long" : "double";
+      String zero = integer ? "0L" : "0D";
+
+      if ( operator == null ) {
+        code.append( "  boolean " ).append( result.isNull ).append( " = " ).append( a.isNull ).append( ";\n" );
+        code.append( "  " ).append( type ).append( " " ).append( result.value ).append( " = " ).append( a.value )
+          .append( ";\n" );
+      } else {
+        // Null if one of the arguments is null, the operation isn't performed then
+        code.append( "  boolean " ).append( result.isNull ).append( " = " ).append( a.isNull ).append( " || " )
+          .append( b.isNull ).append( ";\n" );
+        code.append( "  " ).append( type ).append( " " ).append( result.value ).append( " = " ).append(
+          result.isNull ).append( " ? " ).append( zero ).append( " : " ).append( a.value ).append( " " ).append(
+            operator ).append( " " ).append( b.value ).append( ";\n" );
+      }
+      code.append( "  calcData[" ).append( index ).append( "] = " ).append( result.isNull ).append( " ? null : " )
+        .append( integer ? "Long" : "Double" ).append( ".valueOf( " ).append( result.value ).append( " );\n" );
+      return result;
+    }
+
+    /**
+     * @return the local variable with the value of a field, read from the row if it isn't in one yet
+     */
+    private Local read( int fieldIndex, boolean integer, StringBuilder code ) {
+      Local local = locals.get( fieldIndex );
+      if ( local != null ) {
+        return local;
+      }
+      local = new Local( nrLocals++, integer );
+      String object = "o" + local.value;
+      code.append( "  Object " ).append( object ).append( " = calcData[" ).append( fieldIndex ).append( "];\n" );
+      code.append( "  boolean " ).append( local.isNull ).append( " = " ).append( object ).append( " == null;\n" );
+      code.append( "  " ).append( integer ? "long " : "double " ).append( local.value ).append( " = " ).append(
+        local.isNull ).append( " ? " ).append( integer ? "0L" : "0D" ).append( " : ( (" ).append(
+          integer ? "Long" : "Double" ).append( ") " ).append( object ).append( " )." ).append(
+            integer ? "longValue()" : "doubleValue()" ).append( ";\n" );
+      locals.put( fieldIndex, local );
+      return local;
+    }
+
+    /**
+     * @return true for an integer, false for a number, null if the field can't be used in primitive calculations
+     */
+    private Boolean getKind( int fieldIndex ) {
+      if ( fieldIndex < 0 || fieldIndex >= calcRowMeta.size() ) {
+        return null;
+      }
+      ValueMetaInterface valueMeta = calcRowMeta.getValueMeta( fieldIndex );
+      if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+        return null;
+      }
+      if ( valueMeta.getClass() == ValueMetaInteger.class ) {
+        return Boolean.TRUE;
+      }
+      if ( valueMeta.getClass() == ValueMetaNumber.class ) {
+        return Boolean.FALSE;
+      }
+      return null;
+    }
+  }
+}
@@ -113,4 +113,9 @@ public class DummyTransMeta extends BaseStepMeta implements StepMetaInterface {
     return new DummyTransData();
   }
 
+  @Override
+  public boolean modifiesInputRows() {
+    return false;
+  }
+
 }
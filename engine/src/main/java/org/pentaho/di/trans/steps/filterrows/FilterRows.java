@@ -16,6 +16,7 @@ package org.pentaho.di.trans.steps.filterrows;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.CompiledCondition;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -48,6 +49,10 @@ public class FilterRows extends BaseStep implements StepInterface {
 
   private synchronized boolean keepRow( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     try {
+      // Rows from another hop can have another layout, those are evaluated by the condition itself
+      if ( data.compiledCondition != null && data.compiledCondition.isCompiledFor( rowMeta ) ) {
+        return data.compiledCondition.evaluate( row );
+      }
       return meta.getCondition().evaluate( rowMeta, row );
     } catch ( Exception e ) {
       String message =
@@ -81,6 +86,14 @@ public class FilterRows extends BaseStep implements StepInterface {
       // if filter refers to non-existing fields, throw exception
       checkNonExistingFields();
 
+      if ( !"N".equalsIgnoreCase( getVariable( Const.KETTLE_COMPILE_CONDITIONS, "Y" ) ) ) {
+        try {
+          data.compiledCondition = CompiledCondition.compile( meta.getCondition(), getInputRowMeta() );
+        } catch ( KettleException e ) {
+          logBasic( BaseMessages.getString( PKG, "FilterRows.Log.ConditionNotCompiled", e.getMessage() ) );
+        }
+      }
+
       // Cache the position of the RowSet for the output.
       //
       if ( data.chosesTargetSteps ) {
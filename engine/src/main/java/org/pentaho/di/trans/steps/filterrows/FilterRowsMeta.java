@@ -455,4 +455,9 @@ public class FilterRowsMeta extends BaseStepMeta implements StepMetaInterface {
       log.logError( e.getMessage() );
     }
   }
+
+  @Override
+  public boolean modifiesInputRows() {
+    return false;
+  }
 }
@@ -0,0 +1,587 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.formula;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.util.JaninoCache;
+
+/**
+ * A formula of the {@link Formula} step compiled into a Java class for a given row layout.<br>
+ * <br>
+ * Only a common subset of the formula language is compiled: field references, number and text literals, unary minus,
+ * the + - * and &amp; operators, number comparisons and the IF, AND, OR, NOT, TRUE, FALSE, ABS, LEN, UPPER, LOWER,
+ * LEFT, RIGHT, MID, YEAR, MONTH and DAY functions. The values have the same types as the ones returned by the formula
+ * library: numbers are calculated as big decimals. Formulas using anything else aren't compiled.<br>
+ * <br>
+ * The formula library removes the trailing zeros of sums, differences and products in a way of its own, so such a
+ * result with trailing zeros is left to the formula library as well.<br>
+ * <br>
+ * When a row needs more than the compiled subset, for instance because a field is null, {@link #evaluate(Object[])}
+ * throws a {@link Fallback} and the formula has to be evaluated by the formula library for that row.<br>
+ * <br>
+ * The literals aren't part of the generated classes, which only depend on the structure of the formula and the row
+ * layout, and are cached.
+ */
+public abstract class CompiledFormula {
+
+  /**
+   * Thrown when a row can't be evaluated by the compiled formula.
+   */
+  public static final class Fallback extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private Fallback() {
+      super( null, null, false, false );
+    }
+  }
+
+  protected static final Fallback FALLBACK = new Fallback();
+
+  /**
+   * The literals of the formula.
+   */
+  protected Object[] k;
+
+  /**
+   * @param r
+   *          the row, laid out as the row metadata the formula was compiled for
+   * @return the result of the formula
+   * @throws Fallback
+   *           when the formula has to be evaluated by the formula library for this row
+   */
+  public abstract Object evaluate( Object[] r );
+
+  protected static Object notNull( Object value ) {
+    if ( value == null ) {
+      throw FALLBACK;
+    }
+    return value;
+  }
+
+  protected static BigDecimal toNumber( Long value ) {
+    return BigDecimal.valueOf( value.longValue() );
+  }
+
+  protected static BigDecimal toNumber( Double value ) {
+    return new BigDecimal( value.toString() );
+  }
+
+  /**
+   * @return the result of a sum, difference or product if it has no trailing zeros and is written without exponent
+   */
+  protected static BigDecimal exact( BigDecimal value ) {
+    if ( value.signum() == 0 ? value.scale() != 0 : value.unscaledValue().mod( BigInteger.TEN ).signum() == 0
+      || value.precision() - value.scale() < -5 ) {
+      throw FALLBACK;
+    }
+    return value;
+  }
+
+  protected static String left( String text, BigDecimal length ) {
+    int n = toLength( length );
+    return n >= text.length() ? text : text.substring( 0, n );
+  }
+
+  protected static String right( String text, BigDecimal length ) {
+    int n = toLength( length );
+    return n >= text.length() ? text : text.substring( text.length() - n );
+  }
+
+  protected static String mid( String text, BigDecimal start, BigDecimal length ) {
+    int s = toLength( start );
+    int n = toLength( length );
+    if ( s < 1 ) {
+      throw FALLBACK;
+    }
+    if ( s > text.length() ) {
+      return "";
+    }
+    return text.substring( s - 1, Math.min( text.length(), s - 1 + n ) );
+  }
+
+  private static int toLength( BigDecimal value ) {
+    if ( value.signum() < 0 || value.scale() > 0 && value.stripTrailingZeros().scale() > 0
+      || value.compareTo( BigDecimal.valueOf( Integer.MAX_VALUE ) ) > 0 ) {
+      throw FALLBACK;
+    }
+    return value.intValue();
+  }
+
+  protected static BigDecimal datePart( Date date, int field ) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime( date );
+    int value = calendar.get( field );
+    return BigDecimal.valueOf( field == Calendar.MONTH ? value + 1 : value );
+  }
+
+  /**
+   * @return the compiled formula, or null if the formula uses something that isn't compiled
+   * @throws KettleException
+   *           in case the generated class can't be compiled
+   */
+  static CompiledFormula compile( String formula, RowMetaInterface rowMeta ) throws KettleException {
+    if ( formula == null ) {
+      return null;
+    }
+    Generator generator = new Generator( formula, rowMeta );
+    String source = generator.generate();
+    if ( source == null ) {
+      return null;
+    }
+
+    Class<? extends CompiledFormula> clazz = cook( source );
+
+    try {
+      CompiledFormula compiled = clazz.newInstance();
+      compiled.k = generator.literals.toArray();
+      return compiled;
+    } catch ( ReflectiveOperationException e ) {
+      throw new KettleException( "Unable to create compiled formula", e );
+    }
+  }
+
+  private static Class<? extends CompiledFormula> cook( String source ) throws KettleException {
+    try {
+      return JaninoCache.cookClassBody( CompiledFormula.class, source, "java.math.BigDecimal", "java.util.Calendar",
+        "java.util.Date" );
+    } catch ( CompileException e ) {
+      throw new KettleException( "Unable to compile formula", e );
+    }
+  }
+
+  /**
+   * The types of the compiled expressions. A boolean expression is a primitive, the others are objects.
+   */
+  private enum Kind {
+    NUMBER, INTEGER, DOUBLE, TEXT, BOOLEAN, DATE, ANY
+  }
+
+  private static class Expression {
+    private final Kind kind;
+    private final String code;
+
+    private Expression( Kind kind, String code ) {
+      this.kind = kind;
+      this.code = code;
+    }
+
+    private boolean isNumeric() {
+      return kind == Kind.NUMBER || kind == Kind.INTEGER || kind == Kind.DOUBLE;
+    }
+
+    /**
+     * @return the code of the expression as a big decimal, the way the formula library calculates with numbers
+     */
+    private String asNumber() {
+      switch ( kind ) {
+        case INTEGER:
+        case DOUBLE:
+          return "toNumber( " + code + " )";
+        default:
+          return code;
+      }
+    }
+
+    private String asObject() {
+      return kind == Kind.BOOLEAN ? "Boolean.valueOf( " + code + " )" : code;
+    }
+  }
+
+  /**
+   * Thrown while parsing when the formula uses something that isn't compiled.
+   */
+  private static class NotCompiled extends Exception {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Parses the formula and writes the method evaluating it.
+   */
+  private static class Generator {
+    private final String formula;
+    private final RowMetaInterface rowMeta;
+    private final List<Object> literals = new ArrayList<>();
+    private int pos;
+
+    private Generator( String formula, RowMetaInterface rowMeta ) {
+      this.formula = formula;
+      this.rowMeta = rowMeta;
+    }
+
+    /**
+     * @return the source of the class, or null if the formula isn't compiled
+     */
+    private String generate() {
+      try {
+        Expression expression = parseComparison();
+        skipSpaces();
+        if ( pos < formula.length() ) {
+          return null;
+        }
+        return "public Object evaluate( Object[] r ) {\n  return " + expression.asObject() + ";\n}\n";
+      } catch ( NotCompiled e ) {
+        return null;
+      }
+    }
+
+    private Expression parseComparison() throws NotCompiled {
+      Expression left = parseConcatenation();
+      while ( true ) {
+        String operator = peekOperator( "<>", "<=", ">=", "=", "<", ">" );
+        if ( operator == null ) {
+          return left;
+        }
+        Expression right = parseConcatenation();
+        if ( !left.isNumeric() || !right.isNumeric() ) {
+          throw new NotCompiled();
+        }
+        String javaOperator = operator.equals( "=" ) ? "==" : operator.equals( "<>" ) ? "!=" : operator;
+        left = new Expression( Kind.BOOLEAN, "( " + left.asNumber() + ".compareTo( " + right.asNumber() + " ) "
+          + javaOperator + " 0 )" );
+      }
+    }
+
+    private Expression parseConcatenation() throws NotCompiled {
+      Expression left = parseAdditive();
+      while ( peekOperator( "&" ) != null ) {
+        Expression right = parseAdditive();
+        if ( left.kind != Kind.TEXT || right.kind != Kind.TEXT ) {
+          throw new NotCompiled();
+        }
+        left = new Expression( Kind.TEXT, left.code + ".concat( " + right.code + " )" );
+      }
+      return left;
+    }
+
+    private Expression parseAdditive() throws NotCompiled {
+      Expression left = parseMultiplicative();
+      while ( true ) {
+        String operator = peekOperator( "+", "-" );
+        if ( operator == null ) {
+          return left;
+        }
+        left = arithmetic( left, operator.equals( "+" ) ? "add" : "subtract", parseMultiplicative() );
+      }
+    }
+
+    private Expression parseMultiplicative() throws NotCompiled {
+      Expression left = parseUnary();
+      while ( true ) {
+        // Divisions and powers are left to the formula library, they round in their own way
+        if ( peekOperator( "/", "^" ) != null ) {
+          throw new NotCompiled();
+        }
+        if ( peekOperator( "*" ) == null ) {
+          return left;
+        }
+        left = arithmetic( left, "multiply", parseUnary() );
+      }
+    }
+
+    private Expression arithmetic( Expression left, String method, Expression right ) throws NotCompiled {
+      if ( !left.isNumeric() || !right.isNumeric() ) {
+        throw new NotCompiled();
+      }
+      return new Expression( Kind.NUMBER, "exact( " + left.asNumber() + "." + method + "( " + right.asNumber()
+        + " ) )" );
+    }
+
+    private Expression parseUnary() throws NotCompiled {
+      if ( peekOperator( "-" ) != null ) {
+        Expression value = parseUnary();
+        if ( !value.isNumeric() ) {
+          throw new NotCompiled();
+        }
+        return new Expression( Kind.NUMBER, value.asNumber() + ".negate()" );
+      }
+      Expression value = parsePrimary();
+      if ( peekOperator( "%" ) != null ) {
+        throw new NotCompiled();
+      }
+      return value;
+    }
+
+    private Expression parsePrimary() throws NotCompiled {
+      skipSpaces();
+      if ( pos >= formula.length() ) {
+        throw new NotCompiled();
+      }
+      char c = formula.charAt( pos );
+      if ( c == '(' ) {
+        pos++;
+        Expression value = parseComparison();
+        expect( ')' );
+        return value;
+      }
+      if ( c == '[' ) {
+        return parseField();
+      }
+      if ( c == '"' ) {
+        return parseText();
+      }
+      if ( Character.isDigit( c ) || c == '.' ) {
+        return parseNumber();
+      }
+      if ( c >= 'A' && c <= 'Z' ) {
+        return parseFunction();
+      }
+      throw new NotCompiled();
+    }
+
+    private Expression parseField() throws NotCompiled {
+      int end = formula.indexOf( ']', pos );
+      if ( end < 0 ) {
+        throw new NotCompiled();
+      }
+      String name = formula.substring( pos + 1, end );
+      pos = end + 1;
+      if ( name.isEmpty() || name.startsWith( "." ) || name.indexOf( '"' ) >= 0 ) {
+        throw new NotCompiled();
+      }
+      int index = rowMeta.indexOfValue( name );
+      if ( index < 0 ) {
+        throw new NotCompiled();
+      }
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
+      if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+        throw new NotCompiled();
+      }
+      String read = "notNull( r[" + index + "] )";
+      Class<?> valueMetaClass = valueMeta.getClass();
+      if ( valueMetaClass == ValueMetaInteger.class ) {
+        return new Expression( Kind.INTEGER, "( (Long) " + read + " )" );
+      }
+      if ( valueMetaClass == ValueMetaNumber.class ) {
+        return new Expression( Kind.DOUBLE, "( (Double) " + read + " )" );
+      }
+      if ( valueMetaClass == ValueMetaBigNumber.class ) {
+        return new Expression( Kind.NUMBER, "( (BigDecimal) " + read + " )" );
+      }
+      if ( valueMetaClass == ValueMetaString.class && valueMeta.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE ) {
+        return new Expression( Kind.TEXT, "( (String) " + read + " )" );
+      }
+      if ( valueMetaClass == ValueMetaDate.class ) {
+        return new Expression( Kind.DATE, "( (Date) " + read + " )" );
+      }
+      if ( valueMetaClass == ValueMetaBoolean.class ) {
+        return new Expression( Kind.BOOLEAN, "( (Boolean) " + read + " ).booleanValue()" );
+      }
+      throw new NotCompiled();
+    }
+
+    private Expression parseText() throws NotCompiled {
+      StringBuilder text = new StringBuilder();
+      pos++;
+      while ( true ) {
+        if ( pos >= formula.length() ) {
+          throw new NotCompiled();
+        }
+        char c = formula.charAt( pos++ );
+        if ( c == '"' ) {
+          if ( pos < formula.length() && formula.charAt( pos ) == '"' ) {
+            pos++;
+          } else {
+            break;
+          }
+        }
+        text.append( c );
+      }
+      return new Expression( Kind.TEXT, "( (String) k[" + addLiteral( text.toString() ) + "] )" );
+    }
+
+    private Expression parseNumber() throws NotCompiled {
+      int start = pos;
+      while ( pos < formula.length() && ( Character.isDigit( formula.charAt( pos ) ) || formula.charAt( pos ) == '.' ) ) {
+        pos++;
+      }
+      if ( pos < formula.length() && Character.isLetter( formula.charAt( pos ) ) ) {
+        // Exponents and anything else the formula library accepts in a number
+        throw new NotCompiled();
+      }
+      try {
+        BigDecimal number = new BigDecimal( formula.substring( start, pos ) );
+        return new Expression( Kind.NUMBER, "( (BigDecimal) k[" + addLiteral( number ) + "] )" );
+      } catch ( NumberFormatException e ) {
+        throw new NotCompiled();
+      }
+    }
+
+    private Expression parseFunction() throws NotCompiled {
+      int start = pos;
+      while ( pos < formula.length() && ( Character.isLetterOrDigit( formula.charAt( pos ) )
+        || formula.charAt( pos ) == '.' || formula.charAt( pos ) == '_' ) ) {
+        pos++;
+      }
+      String name = formula.substring( start, pos );
+      skipSpaces();
+      expect( '(' );
+      List<Expression> arguments = new ArrayList<>();
+      skipSpaces();
+      if ( pos < formula.length() && formula.charAt( pos ) == ')' ) {
+        pos++;
+      } else {
+        while ( true ) {
+          arguments.add( parseComparison() );
+          skipSpaces();
+          if ( pos < formula.length() && formula.charAt( pos ) == ';' ) {
+            pos++;
+          } else {
+            expect( ')' );
+            break;
+          }
+        }
+      }
+      return function( name, arguments );
+    }
+
+    private Expression function( String name, List<Expression> arguments ) throws NotCompiled {
+      switch ( name ) {
+        case "TRUE":
+        case "FALSE":
+          check( arguments, 0 );
+          return new Expression( Kind.BOOLEAN, name.toLowerCase() );
+        case "IF":
+          return ifThenElse( arguments );
+        case "AND":
+        case "OR":
+          if ( arguments.isEmpty() ) {
+            throw new NotCompiled();
+          }
+          StringBuilder code = new StringBuilder( "(" );
+          for ( int i = 0; i < arguments.size(); i++ ) {
+            check( arguments.get( i ), Kind.BOOLEAN );
+            // Every argument is evaluated, like the formula library does
+            code.append( i > 0 ? ( name.equals( "AND" ) ? " & " : " | " ) : " " ).append( arguments.get( i ).code );
+          }
+          return new Expression( Kind.BOOLEAN, code.append( " )" ).toString() );
+        case "NOT":
+          check( arguments, 1, Kind.BOOLEAN );
+          return new Expression( Kind.BOOLEAN, "!( " + arguments.get( 0 ).code + " )" );
+        case "ABS":
+          check( arguments, 1, Kind.NUMBER );
+          return new Expression( Kind.NUMBER, arguments.get( 0 ).asNumber() + ".abs()" );
+        case "LEN":
+          check( arguments, 1, Kind.TEXT );
+          return new Expression( Kind.NUMBER, "BigDecimal.valueOf( " + arguments.get( 0 ).code + ".length() )" );
+        case "UPPER":
+          check( arguments, 1, Kind.TEXT );
+          return new Expression( Kind.TEXT, arguments.get( 0 ).code + ".toUpperCase()" );
+        case "LOWER":
+          check( arguments, 1, Kind.TEXT );
+          return new Expression( Kind.TEXT, arguments.get( 0 ).code + ".toLowerCase()" );
+        case "LEFT":
+        case "RIGHT":
+          check( arguments, 2, Kind.TEXT, Kind.NUMBER );
+          return new Expression( Kind.TEXT, name.toLowerCase() + "( " + arguments.get( 0 ).code + ", "
+            + arguments.get( 1 ).asNumber() + " )" );
+        case "MID":
+          check( arguments, 3, Kind.TEXT, Kind.NUMBER, Kind.NUMBER );
+          return new Expression( Kind.TEXT, "mid( " + arguments.get( 0 ).code + ", " + arguments.get( 1 ).asNumber()
+            + ", " + arguments.get( 2 ).asNumber() + " )" );
+        case "YEAR":
+          check( arguments, 1, Kind.DATE );
+          return new Expression( Kind.NUMBER, "datePart( " + arguments.get( 0 ).code + ", Calendar.YEAR )" );
+        case "MONTH":
+          check( arguments, 1, Kind.DATE );
+          return new Expression( Kind.NUMBER, "datePart( " + arguments.get( 0 ).code + ", Calendar.MONTH )" );
+        case "DAY":
+          check( arguments, 1, Kind.DATE );
+          return new Expression( Kind.NUMBER, "datePart( " + arguments.get( 0 ).code
+            + ", Calendar.DAY_OF_MONTH )" );
+        default:
+          throw new NotCompiled();
+      }
+    }
+
+    private Expression ifThenElse( List<Expression> arguments ) throws NotCompiled {
+      if ( arguments.size() != 3 ) {
+        throw new NotCompiled();
+      }
+      check( arguments.get( 0 ), Kind.BOOLEAN );
+      Expression then = arguments.get( 1 );
+      Expression otherwise = arguments.get( 2 );
+      if ( then.kind == otherwise.kind ) {
+        return new Expression( then.kind, "( " + arguments.get( 0 ).code + " ? " + then.code + " : "
+          + otherwise.code + " )" );
+      }
+      // The branches keep their own types, like they do in the formula library
+      return new Expression( Kind.ANY, "( " + arguments.get( 0 ).code + " ? (Object) " + then.asObject()
+        + " : (Object) " + otherwise.asObject() + " )" );
+    }
+
+    private void check( List<Expression> arguments, int count, Kind... kinds ) throws NotCompiled {
+      if ( arguments.size() != count ) {
+        throw new NotCompiled();
+      }
+      for ( int i = 0; i < count; i++ ) {
+        check( arguments.get( i ), kinds[ i ] );
+      }
+    }
+
+    private void check( Expression argument, Kind kind ) throws NotCompiled {
+      if ( kind == Kind.NUMBER ? !argument.isNumeric() : argument.kind != kind ) {
+        throw new NotCompiled();
+      }
+    }
+
+    private int addLiteral( Object literal ) {
+      literals.add( literal );
+      return literals.size() - 1;
+    }
+
+    /**
+     * @return the first of the operators found at the current position, which is then skipped, or null
+     */
+    private String peekOperator( String... operators ) {
+      skipSpaces();
+      for ( String operator : operators ) {
+        if ( formula.startsWith( operator, pos ) ) {
+          pos += operator.length();
+          return operator;
+        }
+      }
+      return null;
+    }
+
+    private void expect( char c ) throws NotCompiled {
+      skipSpaces();
+      if ( pos >= formula.length() || formula.charAt( pos ) != c ) {
+        throw new NotCompiled();
+      }
+      pos++;
+    }
+
+    private void skipSpaces() {
+      while ( pos < formula.length() && Character.isWhitespace( formula.charAt( pos ) ) ) {
+        pos++;
+      }
+    }
+  }
+}
@@ -50,6 +50,8 @@ import org.pentaho.reporting.libraries.formula.parser.FormulaParser;
  * @since 8-sep-2005
  */
 public class Formula extends BaseStep implements StepInterface {
+  private static Class<?> PKG = FormulaMeta.class; // for i18n purposes, needed by Translator2!!
+
   private FormulaMeta meta;
   private FormulaData data;
   private String[] keyWords;
@@ -138,6 +140,7 @@ public class Formula extends BaseStep implements StepInterface {
               + Const.NVL( fn.getFormula(), "" ) + "]" );
           }
         }
+        compileFormulas();
       }
 
       for ( int i = 0; i < meta.getFormula().length; i++ ) {
@@ -148,7 +151,7 @@ public class Formula extends BaseStep implements StepInterface {
           }
 
           // this is main part of all this step: calculate formula
-          Object formulaResult = data.formulas[i].evaluate();
+          Object formulaResult = evaluate( i );
           if ( formulaResult instanceof LibFormulaErrorValue ) {
             // inspect why it is happens to get clear error message.
             throw new KettleException( "Error calculate formula. Formula "
@@ -206,6 +209,35 @@ public class Formula extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Compiles the formulas that only use the common functions and operators into Java classes.
+   */
+  private void compileFormulas() {
+    data.compiledFormulas = new CompiledFormula[meta.getFormula().length];
+    if ( "N".equalsIgnoreCase( getVariable( Const.KETTLE_COMPILE_FORMULAS, "Y" ) ) ) {
+      return;
+    }
+    for ( int i = 0; i < meta.getFormula().length; i++ ) {
+      try {
+        data.compiledFormulas[i] = CompiledFormula.compile( meta.getFormula()[i].getFormula(), data.outputRowMeta );
+      } catch ( KettleException e ) {
+        logBasic( BaseMessages.getString( PKG, "Formula.Log.FormulaNotCompiled", meta.getFormula()[i].getFormula(),
+          e.getMessage() ) );
+      }
+    }
+  }
+
+  private Object evaluate( int i ) throws Exception {
+    if ( data.compiledFormulas[i] != null ) {
+      try {
+        return data.compiledFormulas[i].evaluate( data.context.getRowData() );
+      } catch ( CompiledFormula.Fallback e ) {
+        // This row needs the formula library
+      }
+    }
+    return data.formulas[i].evaluate();
+  }
+
   protected Object getReturnValue( Object formulaResult, int returnType, int realIndex, FormulaMetaFunction fn )
     throws KettleException {
     if ( formulaResult == null ) {
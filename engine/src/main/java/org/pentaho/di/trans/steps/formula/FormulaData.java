@@ -38,6 +38,7 @@ public class FormulaData extends BaseStepData implements StepDataInterface {
   public static final int RETURN_TYPE_TIMESTAMP = 9;
   public RowForumulaContext context;
   public Formula[] formulas;
+  public CompiledFormula[] compiledFormulas;
   public FormulaParser parser;
   public RowMetaInterface outputRowMeta;
   public int[] returnType;
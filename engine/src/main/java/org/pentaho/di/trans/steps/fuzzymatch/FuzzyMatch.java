@@ -13,13 +13,6 @@
 
 package org.pentaho.di.trans.steps.fuzzymatch;
 
-import java.util.Iterator;
-
-import org.apache.commons.codec.language.DoubleMetaphone;
-import org.apache.commons.codec.language.Metaphone;
-import org.apache.commons.codec.language.RefinedSoundex;
-import org.apache.commons.codec.language.Soundex;
-import org.apache.commons.lang.StringUtils;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.RowSet;
@@ -39,10 +32,6 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
-import com.wcohen.ss.Jaro;
-import com.wcohen.ss.JaroWinkler;
-import com.wcohen.ss.NeedlemanWunsch;
-
 /**
  * Performs a fuzzy match for each main stream field row An approximative match is done in a lookup stream
  *
@@ -204,6 +193,13 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
       logDebug( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadingMainStreamRow", getInputRowMeta().getString(
         keyRow ) ) );
     }
+    if ( data.index == null ) {
+      data.index = new FuzzyMatchIndex( data.look.iterator(), meta.getAlgorithmType(), meta.isCaseSensitive(),
+        data.maximalDistance, data.minimalSimilarity );
+      if ( isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.IndexedValues", data.index.size() ) );
+      }
+    }
     Object[] retval = null;
     switch ( meta.getAlgorithmType() ) {
       case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
@@ -234,38 +230,21 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
-
     long distance = -1;
 
     // Object o=row[data.indexOfMainField];
     String lookupvalue = getInputRowMeta().getString( row, data.indexOfMainField );
 
-    while ( it.hasNext() ) {
+    // Only the cached values that can be close enough, with their distance
+    FuzzyMatchIndex.Candidates candidates = data.index.distances( lookupvalue );
+
+    for ( int c = 0; c < candidates.size; c++ ) {
       // Get cached row data
-      Object[] cachedData = it.next();
+      Object[] cachedData = data.index.getRow( candidates.rows[c] );
       // Key value is the first value
       String cacheValue = (String) cachedData[0];
 
-      int cdistance = -1;
-      String usecacheValue = cacheValue;
-      String uselookupvalue = lookupvalue;
-      if ( !meta.isCaseSensitive() ) {
-        usecacheValue = cacheValue.toLowerCase();
-        uselookupvalue = lookupvalue.toLowerCase();
-      }
-
-      switch ( meta.getAlgorithmType() ) {
-        case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
-          cdistance = Utils.getDamerauLevenshteinDistance( usecacheValue, uselookupvalue );
-          break;
-        case FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH:
-          cdistance = Math.abs( (int) new NeedlemanWunsch().score( usecacheValue, uselookupvalue ) );
-          break;
-        default:
-          cdistance = StringUtils.getLevenshteinDistance( usecacheValue, uselookupvalue );
-          break;
-      }
+      int cdistance = candidates.distances[c];
 
       if ( data.minimalDistance <= cdistance && cdistance <= data.maximalDistance ) {
         if ( meta.isGetCloserValue() ) {
@@ -306,38 +285,33 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
-
     Object o = row[data.indexOfMainField];
     String lookupvalue = (String) o;
 
-    String lookupValueMF = getEncodedMF( lookupvalue, meta.getAlgorithmType() );
+    String lookupValueMF = FuzzyMatchIndex.encode( lookupvalue, meta.getAlgorithmType() );
 
-    while ( it.hasNext() ) {
+    // The last cached value with the same code
+    int found = data.index.lastWithCode( lookupValueMF );
+    if ( found >= 0 ) {
       // Get cached row data
-      Object[] cachedData = it.next();
+      Object[] cachedData = data.index.getRow( found );
       // Key value is the first value
       String cacheValue = (String) cachedData[0];
 
-      String cacheValueMF = getEncodedMF( cacheValue, meta.getAlgorithmType() );
+      // Add match value
+      int index = 0;
+      rowData[index++] = cacheValue;
 
-      if ( lookupValueMF.equals( cacheValueMF ) ) {
-
-        // Add match value
-        int index = 0;
-        rowData[index++] = cacheValue;
-
-        // Add metric value?
-        if ( data.addValueFieldName ) {
-          rowData[index++] = cacheValueMF;
-        }
-        // Add additional return values?
-        if ( data.addAdditionalFields ) {
-          for ( int i = 0; i < meta.getValue().length; i++ ) {
-            int nf = i + index;
-            int nr = i + 1;
-            rowData[nf] = cachedData[nr];
-          }
+      // Add metric value?
+      if ( data.addValueFieldName ) {
+        rowData[index++] = lookupValueMF;
+      }
+      // Add additional return values?
+      if ( data.addAdditionalFields ) {
+        for ( int i = 0; i < meta.getValue().length; i++ ) {
+          int nf = i + index;
+          int nr = i + 1;
+          rowData[nf] = cachedData[nr];
         }
       }
     }
@@ -345,33 +319,10 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return rowData;
   }
 
-  private String getEncodedMF( String value, Integer algorithmType ) {
-    String encodedValueMF = "";
-    switch ( algorithmType ) {
-      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
-        encodedValueMF = ( new Metaphone() ).metaphone( value );
-        break;
-      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
-        encodedValueMF = ( ( new DoubleMetaphone() ).doubleMetaphone( value ) );
-        break;
-      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
-        encodedValueMF = ( new Soundex() ).encode( value );
-        break;
-      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
-        encodedValueMF = ( new RefinedSoundex() ).encode( value );
-        break;
-      default:
-        break;
-    }
-    return encodedValueMF;
-  }
-
   private Object[] doSimilarity( Object[] row ) {
 
     // Reserve room
     Object[] rowData = buildEmptyRow();
-    // prepare to read from cache ...
-    Iterator<Object[]> it = data.look.iterator();
     double similarity = 0;
 
     // get current value from main stream
@@ -379,26 +330,16 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
 
     String lookupvalue = o == null ? "" : (String) o;
 
-    while ( it.hasNext() ) {
+    // prepare to read from cache, only the values that can be similar enough, with their similarity
+    FuzzyMatchIndex.Candidates candidates = data.index.similarities( lookupvalue );
+
+    for ( int c = 0; c < candidates.size; c++ ) {
       // Get cached row data
-      Object[] cachedData = it.next();
+      Object[] cachedData = data.index.getRow( candidates.rows[c] );
       // Key value is the first value
       String cacheValue = (String) cachedData[0];
 
-      double csimilarity = new Double( 0 );
-
-      switch ( meta.getAlgorithmType() ) {
-        case FuzzyMatchMeta.OPERATION_TYPE_JARO:
-          csimilarity = new Jaro().score( cacheValue, lookupvalue );
-          break;
-        case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
-          csimilarity = new JaroWinkler().score( cacheValue, lookupvalue );
-          break;
-        default:
-          // Letters pair similarity
-          csimilarity = LetterPairSimilarity.getSimiliarity( cacheValue, lookupvalue );
-          break;
-      }
+      double csimilarity = candidates.similarities[c];
 
       if ( data.minimalSimilarity <= csimilarity && csimilarity <= data.maximalSimilarity ) {
         if ( meta.isGetCloserValue() ) {
@@ -614,6 +555,7 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     meta = (FuzzyMatchMeta) smi;
     data = (FuzzyMatchData) sdi;
     data.look.clear();
+    data.index = null;
     super.dispose( smi, sdi );
   }
 
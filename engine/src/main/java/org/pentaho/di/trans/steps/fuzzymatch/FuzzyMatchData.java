@@ -31,6 +31,9 @@ public class FuzzyMatchData extends BaseStepData implements StepDataInterface {
   /** used to store values in used to look up things */
   public HashSet<Object[]> look;
 
+  /** the values of look indexed for the algorithm, built with the first lookup */
+  FuzzyMatchIndex index;
+
   public boolean readLookupValues;
 
   /** index of main stream field **/
@@ -0,0 +1,479 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.apache.commons.codec.language.Metaphone;
+import org.apache.commons.codec.language.RefinedSoundex;
+import org.apache.commons.codec.language.Soundex;
+import org.apache.commons.lang.StringUtils;
+import org.pentaho.di.core.util.Utils;
+
+import com.wcohen.ss.Jaro;
+import com.wcohen.ss.JaroWinkler;
+import com.wcohen.ss.NeedlemanWunsch;
+
+/**
+ * Keeps the rows of the lookup stream of a Fuzzy Match step so that a main stream value is only compared with the
+ * lookup values that can match it:
+ * <ul>
+ * <li>Levenshtein: the values are kept in a BK-tree, the distance being a metric.</li>
+ * <li>Damerau-Levenshtein: the values are sorted by length, values longer or shorter by more than the maximal
+ * distance can't match.</li>
+ * <li>Letter pairs: the values are in an inverted index of their letter pairs, only the values sharing pairs with the
+ * main stream value can have a similarity above 0.</li>
+ * <li>Phonetic algorithms: the values are grouped by code.</li>
+ * </ul>
+ * The other algorithms compare every value. When there are many values to compare they are compared by several
+ * threads.<br>
+ * <br>
+ * The candidates are always returned in the order of the lookup rows, so that the step picks the same rows as when it
+ * compares all of them.
+ */
+class FuzzyMatchIndex {
+
+  /** Below this number of comparisons a single thread does them */
+  static final int PARALLEL_THRESHOLD = 10000;
+
+  private final int algorithm;
+
+  private final boolean caseSensitive;
+
+  private final int maximalDistance;
+
+  private final Object[][] rows;
+
+  /** The key of every row, lower case for the distances when not case sensitive */
+  private final String[] keys;
+
+  private BkTreeNode bkTree;
+
+  /** The rows sorted by key length, with the first position of every length */
+  private int[] byLength;
+  private int[] lengthStarts;
+
+  /** The rows containing every letter pair, with the number of times they contain it */
+  private Map<String, int[]> pairRows;
+  private Map<String, int[]> pairCounts;
+  private int[] pairTotals;
+  private int[] shared;
+
+  /** The last row of every phonetic code */
+  private Map<String, Integer> codeRows;
+
+  /**
+   * The rows of the lookup stream matching a main stream value, in the order of the lookup rows.
+   */
+  static final class Candidates {
+    int size;
+    int[] rows;
+    int[] distances;
+    double[] similarities;
+  }
+
+  private static final class BkTreeNode {
+    final String key;
+    final List<Integer> rows = new ArrayList<>( 1 );
+    BkTreeNode[] children;
+
+    BkTreeNode( String key ) {
+      this.key = key;
+    }
+  }
+
+  FuzzyMatchIndex( Iterator<Object[]> lookupRows, int algorithm, boolean caseSensitive, int maximalDistance,
+    double minimalSimilarity ) {
+    this.algorithm = algorithm;
+    this.caseSensitive = caseSensitive;
+    // Keeps the sums of distances in the int range
+    this.maximalDistance = Math.min( maximalDistance, Integer.MAX_VALUE / 4 );
+
+    List<Object[]> list = new ArrayList<>();
+    while ( lookupRows.hasNext() ) {
+      list.add( lookupRows.next() );
+    }
+    rows = list.toArray( new Object[ list.size() ][] );
+    keys = new String[ rows.length ];
+    for ( int i = 0; i < rows.length; i++ ) {
+      keys[i] = (String) rows[i][0];
+      if ( isDistance() && !caseSensitive ) {
+        keys[i] = keys[i].toLowerCase();
+      }
+    }
+
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+        for ( int i = 0; i < keys.length; i++ ) {
+          addToBkTree( i );
+        }
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+        indexLengths();
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        if ( minimalSimilarity > 0 ) {
+          indexLetterPairs();
+        }
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+        indexCodes();
+        break;
+      default:
+        break;
+    }
+  }
+
+  private boolean isDistance() {
+    return algorithm == FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN
+      || algorithm == FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN
+      || algorithm == FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH;
+  }
+
+  int size() {
+    return rows.length;
+  }
+
+  Object[] getRow( int row ) {
+    return rows[row];
+  }
+
+  /**
+   * @param value
+   *          the main stream value
+   * @return the rows with their distance to the value, at least the ones within the maximal distance
+   */
+  Candidates distances( String value ) {
+    String key = caseSensitive ? value : value.toLowerCase();
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+        return searchBkTree( key );
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+        return searchLengths( key );
+      default:
+        Candidates candidates = all();
+        candidates.distances = new int[ rows.length ];
+        forEach( rows.length, i -> candidates.distances[i] = distance( keys[i], key ) );
+        return candidates;
+    }
+  }
+
+  /**
+   * @param value
+   *          the main stream value
+   * @return the rows with their similarity to the value, at least the ones above the minimal similarity
+   */
+  Candidates similarities( String value ) {
+    if ( pairRows != null ) {
+      return searchLetterPairs( value );
+    }
+    Candidates candidates = all();
+    candidates.similarities = new double[ rows.length ];
+    forEach( rows.length, i -> candidates.similarities[i] = similarity( keys[i], value ) );
+    return candidates;
+  }
+
+  /**
+   * @param code
+   *          the phonetic code of the main stream value
+   * @return the last row with the same code, -1 if there is none
+   */
+  int lastWithCode( String code ) {
+    Integer row = code == null ? null : codeRows.get( code );
+    return row == null ? -1 : row;
+  }
+
+  private Candidates all() {
+    Candidates candidates = new Candidates();
+    candidates.size = rows.length;
+    candidates.rows = new int[ rows.length ];
+    for ( int i = 0; i < rows.length; i++ ) {
+      candidates.rows[i] = i;
+    }
+    return candidates;
+  }
+
+  private int distance( String cacheValue, String value ) {
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+        return Utils.getDamerauLevenshteinDistance( cacheValue, value );
+      case FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH:
+        return Math.abs( (int) new NeedlemanWunsch().score( cacheValue, value ) );
+      default:
+        return StringUtils.getLevenshteinDistance( cacheValue, value );
+    }
+  }
+
+  private double similarity( String cacheValue, String value ) {
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+        return new Jaro().score( cacheValue, value );
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+        return new JaroWinkler().score( cacheValue, value );
+      default:
+        return LetterPairSimilarity.getSimiliarity( cacheValue, value );
+    }
+  }
+
+  static String encode( String value, int algorithm ) {
+    switch ( algorithm ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+        return new Metaphone().metaphone( value );
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+        return new DoubleMetaphone().doubleMetaphone( value );
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+        return new Soundex().encode( value );
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+        return new RefinedSoundex().encode( value );
+      default:
+        return "";
+    }
+  }
+
+  private static void forEach( int count, IntConsumer action ) {
+    if ( count >= PARALLEL_THRESHOLD ) {
+      IntStream.range( 0, count ).parallel().forEach( action );
+    } else {
+      for ( int i = 0; i < count; i++ ) {
+        action.accept( i );
+      }
+    }
+  }
+
+  /**
+   * Sorts the matching rows in the order of the lookup rows.
+   */
+  private static Candidates sorted( int count, int[] rows, int[] distances ) {
+    long[] sorted = new long[ count ];
+    for ( int i = 0; i < count; i++ ) {
+      sorted[i] = ( (long) rows[i] << 32 ) | ( distances[i] & 0xFFFFFFFFL );
+    }
+    Arrays.sort( sorted );
+    Candidates candidates = new Candidates();
+    candidates.size = count;
+    candidates.rows = new int[ count ];
+    candidates.distances = new int[ count ];
+    for ( int i = 0; i < count; i++ ) {
+      candidates.rows[i] = (int) ( sorted[i] >>> 32 );
+      candidates.distances[i] = (int) sorted[i];
+    }
+    return candidates;
+  }
+
+  private void addToBkTree( int row ) {
+    String key = keys[row];
+    if ( bkTree == null ) {
+      bkTree = new BkTreeNode( key );
+      bkTree.rows.add( row );
+      return;
+    }
+    BkTreeNode node = bkTree;
+    while ( true ) {
+      int distance = StringUtils.getLevenshteinDistance( node.key, key );
+      if ( distance == 0 ) {
+        node.rows.add( row );
+        return;
+      }
+      if ( node.children == null || node.children.length <= distance ) {
+        node.children =
+          Arrays.copyOf( node.children == null ? new BkTreeNode[ 0 ] : node.children, distance + 1 );
+      }
+      if ( node.children[distance] == null ) {
+        node.children[distance] = new BkTreeNode( key );
+        node.children[distance].rows.add( row );
+        return;
+      }
+      node = node.children[distance];
+    }
+  }
+
+  private Candidates searchBkTree( String key ) {
+    int count = 0;
+    int[] found = new int[ 16 ];
+    int[] distances = new int[ 16 ];
+    Deque<BkTreeNode> nodes = new ArrayDeque<>();
+    if ( bkTree != null ) {
+      nodes.push( bkTree );
+    }
+    while ( !nodes.isEmpty() ) {
+      BkTreeNode node = nodes.pop();
+      int distance = StringUtils.getLevenshteinDistance( node.key, key );
+      if ( distance <= maximalDistance ) {
+        for ( int row : node.rows ) {
+          if ( count == found.length ) {
+            found = Arrays.copyOf( found, count * 2 );
+            distances = Arrays.copyOf( distances, count * 2 );
+          }
+          found[count] = row;
+          distances[count++] = distance;
+        }
+      }
+      if ( node.children != null ) {
+        // The triangle inequality leaves out the children further away than the maximal distance
+        //
+        int from = Math.max( 1, distance - maximalDistance );
+        int to = Math.min( node.children.length - 1, distance + maximalDistance );
+        for ( int d = from; d <= to; d++ ) {
+          if ( node.children[d] != null ) {
+            nodes.push( node.children[d] );
+          }
+        }
+      }
+    }
+    return sorted( count, found, distances );
+  }
+
+  private void indexLengths() {
+    int maxLength = 0;
+    for ( String key : keys ) {
+      maxLength = Math.max( maxLength, key.length() );
+    }
+    lengthStarts = new int[ maxLength + 2 ];
+    for ( String key : keys ) {
+      lengthStarts[key.length() + 1]++;
+    }
+    for ( int length = 1; length < lengthStarts.length; length++ ) {
+      lengthStarts[length] += lengthStarts[length - 1];
+    }
+    byLength = new int[ keys.length ];
+    int[] next = Arrays.copyOf( lengthStarts, lengthStarts.length );
+    for ( int i = 0; i < keys.length; i++ ) {
+      byLength[next[keys[i].length()]++] = i;
+    }
+  }
+
+  private Candidates searchLengths( String key ) {
+    // An edit changes the length by one at most
+    //
+    int from = lengthStarts[Math.max( 0, Math.min( key.length() - maximalDistance, lengthStarts.length - 1 ) )];
+    int to = lengthStarts[Math.max( 0, Math.min( key.length() + maximalDistance + 1, lengthStarts.length - 1 ) )];
+    int count = Math.max( 0, to - from );
+    int[] found = Arrays.copyOfRange( byLength, from, from + count );
+    int[] distances = new int[ count ];
+    forEach( count, i -> distances[i] = distance( keys[found[i]], key ) );
+
+    int matches = 0;
+    for ( int i = 0; i < count; i++ ) {
+      if ( distances[i] <= maximalDistance ) {
+        found[matches] = found[i];
+        distances[matches++] = distances[i];
+      }
+    }
+    return sorted( matches, found, distances );
+  }
+
+  private void indexLetterPairs() {
+    Map<String, List<int[]>> postings = new HashMap<>();
+    pairTotals = new int[ keys.length ];
+    for ( int i = 0; i < keys.length; i++ ) {
+      List<String> pairs = LetterPairSimilarity.getLetterPairs( keys[i] );
+      pairTotals[i] = pairs.size();
+      Map<String, Integer> counts = new HashMap<>();
+      for ( String pair : pairs ) {
+        counts.merge( pair, 1, Integer::sum );
+      }
+      for ( Map.Entry<String, Integer> count : counts.entrySet() ) {
+        postings.computeIfAbsent( count.getKey(), k -> new ArrayList<>() ).add( new int[] { i, count.getValue() } );
+      }
+    }
+    shared = new int[ keys.length ];
+    pairRows = new HashMap<>();
+    pairCounts = new HashMap<>();
+    for ( Map.Entry<String, List<int[]>> posting : postings.entrySet() ) {
+      List<int[]> list = posting.getValue();
+      int[] postingRows = new int[ list.size() ];
+      int[] postingCounts = new int[ list.size() ];
+      for ( int i = 0; i < postingRows.length; i++ ) {
+        postingRows[i] = list.get( i )[0];
+        postingCounts[i] = list.get( i )[1];
+      }
+      pairRows.put( posting.getKey(), postingRows );
+      pairCounts.put( posting.getKey(), postingCounts );
+    }
+  }
+
+  /**
+   * Computes the similarities of the values sharing letter pairs with the value like
+   * {@link LetterPairSimilarity#getSimiliarity(String, String)}: twice the number of shared pairs divided by the
+   * number of pairs of both values.
+   */
+  private Candidates searchLetterPairs( String value ) {
+    List<String> pairs = LetterPairSimilarity.getLetterPairs( value );
+    Map<String, Integer> counts = new HashMap<>();
+    for ( String pair : pairs ) {
+      counts.merge( pair, 1, Integer::sum );
+    }
+
+    int touched = 0;
+    int[] touchedRows = new int[ 16 ];
+    for ( Map.Entry<String, Integer> count : counts.entrySet() ) {
+      int[] postingRows = pairRows.get( count.getKey() );
+      if ( postingRows != null ) {
+        int[] postingCounts = pairCounts.get( count.getKey() );
+        for ( int i = 0; i < postingRows.length; i++ ) {
+          int row = postingRows[i];
+          if ( shared[row] == 0 ) {
+            if ( touched == touchedRows.length ) {
+              touchedRows = Arrays.copyOf( touchedRows, touched * 2 );
+            }
+            touchedRows[touched++] = row;
+          }
+          shared[row] += Math.min( count.getValue(), postingCounts[i] );
+        }
+      }
+    }
+
+    Candidates candidates = new Candidates();
+    candidates.rows = Arrays.copyOf( touchedRows, touched );
+    if ( Utils.isEmpty( value ) ) {
+      // Two empty values are similar
+      //
+      candidates.rows = IntStream.range( 0, keys.length ).filter( i -> Utils.isEmpty( keys[i] ) ).toArray();
+    }
+    Arrays.sort( candidates.rows );
+    candidates.size = candidates.rows.length;
+    candidates.similarities = new double[ candidates.size ];
+    for ( int i = 0; i < candidates.size; i++ ) {
+      int row = candidates.rows[i];
+      candidates.similarities[i] =
+        Utils.isEmpty( value ) ? 1 : ( 2.0 * shared[row] ) / ( pairTotals[row] + pairs.size() );
+      shared[row] = 0;
+    }
+    return candidates;
+  }
+
+  private void indexCodes() {
+    String[] codes = new String[ keys.length ];
+    forEach( keys.length, i -> codes[i] = encode( keys[i], algorithm ) );
+    codeRows = new HashMap<>();
+    for ( int i = 0; i < codes.length; i++ ) {
+      if ( codes[i] != null ) {
+        codeRows.put( codes[i], i );
+      }
+    }
+  }
+}
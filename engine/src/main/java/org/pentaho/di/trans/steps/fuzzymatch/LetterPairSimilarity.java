@@ -66,14 +66,20 @@ public class LetterPairSimilarity {
     return allPairs;
   }
 
+  /** @return the letter pairs of the words of the string, the way they are compared */
+
+  static ArrayList<String> getLetterPairs( String str ) {
+    return wordLetterPairs( str.toUpperCase() );
+  }
+
   /** @return lexical similarity value in the range [0,1] */
 
   public static double getSimiliarity( String str1, String str2 ) {
     if ( Utils.isEmpty( str1 ) && Utils.isEmpty( str2 ) ) {
       return new Double( 1 );
     }
-    ArrayList<String> pairs1 = wordLetterPairs( str1.toUpperCase() );
-    ArrayList<String> pairs2 = wordLetterPairs( str2.toUpperCase() );
+    ArrayList<String> pairs1 = getLetterPairs( str1 );
+    ArrayList<String> pairs2 = getLetterPairs( str2 );
     int intersection = 0;
     int union = pairs1.size() + pairs2.size();
 
@@ -0,0 +1,623 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.RowListener;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+
+/**
+ * Joins 2 streams on key fields without the need to sort them. All the rows of the second stream are read in a hash
+ * table first, then the rows of the first stream are joined with the rows of the second stream having the same keys,
+ * in the order of the first stream. The rows of the second stream that did not match are written at the end for the
+ * right and full outer joins. When both streams read from the same step, the rows of the first stream that arrive
+ * while the second stream is read are written to a temporary file, so that step doesn't wait on the first stream.<br>
+ * <br>
+ * When the second stream has more rows than the maximum kept in memory, both streams are partitioned on the hash of
+ * the keys in temporary files, and the partitions are joined one after the other (grace hash join). A partition of the
+ * second stream that is still too large is partitioned again, up to a few times.<br>
+ * <br>
+ * Keys are equal when the values of the second stream compare equal, the values of the first stream are converted to
+ * the types of the second stream if needed. Like in the Merge Join step, null keys match each other.
+ */
+public class HashJoin extends BaseStep implements StepInterface {
+  private static Class<?> PKG = HashJoinMeta.class; // for i18n purposes, needed by Translator2!!
+
+  /** The number of partitions the streams are split in, every time a partition doesn't fit in memory */
+  static final int PARTITIONS = 16;
+
+  /** The number of times the rows can be partitioned */
+  static final int MAX_DEPTH = 3;
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private HashJoinMeta meta;
+  private HashJoinData data;
+
+  private interface RowHandler {
+    void handle( Object[] row ) throws KettleException;
+  }
+
+  public HashJoin( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+    Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    Object[] one;
+    if ( first ) {
+      first = false;
+      one = initialize();
+    } else {
+      one = getRowFrom( data.oneRowSet );
+    }
+
+    if ( one == null ) {
+      if ( data.partitioned ) {
+        joinPartitions();
+      } else {
+        outputUnmatched();
+      }
+      setOutputDone();
+      return false;
+    }
+
+    joinOrPartition( one );
+
+    if ( checkFeedback( getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "HashJoin.LineNumber" ) + getLinesRead() );
+    }
+    return true;
+  }
+
+  /**
+   * Reads the second stream in the hash table, or in the partitions, then the first row of the first stream.
+   *
+   * @return the first row of the first stream, null if there is none
+   */
+  private Object[] initialize() throws KettleException {
+    List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+
+    data.oneRowSet = findInputRowSet( infoStreams.get( 0 ).getStepname() );
+    if ( data.oneRowSet == null ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.UnableToFindSpecifiedStep", infoStreams.get( 0 ).getStepname() ) );
+    }
+
+    data.twoRowSet = findInputRowSet( infoStreams.get( 1 ).getStepname() );
+    if ( data.twoRowSet == null ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.UnableToFindSpecifiedStep", infoStreams.get( 1 ).getStepname() ) );
+    }
+
+    if ( meta.getKeyFields1().length != meta.getKeyFields2().length ) {
+      throw new KettleStepException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.KeysDoNotMatch", meta.getKeyFields1().length, meta.getKeyFields2().length ) );
+    }
+
+    // Read the whole second stream first
+    //
+    Object[] two = getRowFromTwo();
+    if ( two != null ) {
+      data.twoMeta = data.twoRowSet.getRowMeta();
+    } else {
+      data.twoMeta = getTransMeta().getStepFields( infoStreams.get( 1 ).getStepname() );
+    }
+    data.keyNrs2 = findKeys( data.twoMeta, meta.getKeyFields2() );
+
+    data.collators = new Collator[data.keyNrs2.length];
+    for ( int i = 0; i < data.keyNrs2.length; i++ ) {
+      ValueMetaInterface keyMeta = data.twoMeta.getValueMeta( data.keyNrs2[i] );
+      if ( keyMeta.isString() && !keyMeta.isCollatorDisabled() ) {
+        Locale locale = keyMeta.getCollatorLocale() != null ? keyMeta.getCollatorLocale() : Locale.getDefault();
+        data.collators[i] = Collator.getInstance( locale );
+        data.collators[i].setStrength( keyMeta.getCollatorStrength() );
+      }
+    }
+
+    while ( two != null && !isStopped() ) {
+      addRow( two );
+      two = getRowFromTwo();
+    }
+    if ( data.partitioned ) {
+      close( data.twoOutputs );
+    }
+
+    Object[] one = null;
+    if ( data.bufferSize == 0 ) {
+      one = getRowFrom( data.oneRowSet );
+      if ( one != null ) {
+        data.oneMeta = data.oneRowSet.getRowMeta();
+      } else {
+        data.oneMeta = getTransMeta().getStepFields( infoStreams.get( 0 ).getStepname() );
+      }
+    }
+    data.keyNrs1 = findKeys( data.oneMeta, meta.getKeyFields1() );
+
+    // The keys of the first stream are converted when they don't have the type of the second stream
+    //
+    data.conversionMetas = new ValueMetaInterface[data.keyNrs1.length];
+    for ( int i = 0; i < data.keyNrs1.length; i++ ) {
+      ValueMetaInterface keyMeta = data.twoMeta.getValueMeta( data.keyNrs2[i] );
+      if ( data.oneMeta.getValueMeta( data.keyNrs1[i] ).getType() != keyMeta.getType() ) {
+        data.conversionMetas[i] = keyMeta.clone();
+        data.conversionMetas[i].setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      }
+    }
+
+    // just for speed: oneMeta+twoMeta
+    //
+    data.outputRowMeta = new RowMeta();
+    data.outputRowMeta.mergeRowMeta( data.oneMeta.clone() );
+    data.outputRowMeta.mergeRowMeta( data.twoMeta.clone() );
+
+    // Calculate one_dummy... defaults to null
+    data.one_dummy = RowDataUtil.allocateRowData( data.oneMeta.size() + data.twoMeta.size() );
+
+    // Calculate two_dummy... defaults to null
+    //
+    data.two_dummy = new Object[data.twoMeta.size()];
+
+    // The rows of the first stream read along with the second stream come first
+    //
+    if ( data.bufferSize > 0 ) {
+      close( data.bufferOutputs );
+      readRows( data.bufferFile, data.bufferSize, data.oneMeta, this::joinOrPartition );
+      delete( data.bufferFile );
+      data.bufferSize = 0;
+      one = getRowFrom( data.oneRowSet );
+    }
+
+    return one;
+  }
+
+  /**
+   * Reads the next row of the second stream. When the streams share a previous step, the rows of the first stream are
+   * written to a temporary file while there is no row of the second stream: both row sets are waited on in turn.
+   *
+   * @return the next row of the second stream, null if there are no more rows
+   */
+  private Object[] getRowFromTwo() throws KettleException {
+    if ( data.bufferOne ) {
+      while ( !isStopped() && !data.twoRowSet.isDone()
+        && !( data.oneRowSet.isDone() && data.oneRowSet.size() == 0 ) ) {
+        Object[] two = data.twoRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        if ( two != null ) {
+          return rowRead( data.twoRowSet, two );
+        }
+        Object[] one = data.oneRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        if ( one != null ) {
+          bufferRow( rowRead( data.oneRowSet, one ) );
+        }
+      }
+    }
+    // Nothing left to buffer, wait for the second stream alone
+    return getRowFrom( data.twoRowSet );
+  }
+
+  /**
+   * Does the bookkeeping of getRowFrom() for a row taken from a row set directly.
+   */
+  private Object[] rowRead( RowSet rowSet, Object[] row ) throws KettleStepException {
+    incrementLinesRead();
+    for ( RowListener listener : getRowListeners() ) {
+      listener.rowReadEvent( rowSet.getRowMeta(), row );
+    }
+    return row;
+  }
+
+  private void bufferRow( Object[] one ) throws KettleException {
+    if ( one == null ) {
+      return;
+    }
+    if ( data.bufferOutputs == null ) {
+      data.oneMeta = data.oneRowSet.getRowMeta();
+      data.bufferOutputs = new DataOutputStream[1];
+      data.bufferFile = createFiles( data.bufferOutputs )[0];
+    }
+    data.oneMeta.writeData( data.bufferOutputs[0], one );
+    data.bufferSize++;
+  }
+
+  /**
+   * Joins a row of the first stream, or writes it to its partition when the streams are partitioned.
+   */
+  private void joinOrPartition( Object[] one ) throws KettleException {
+    if ( data.partitioned ) {
+      write( data.oneOutputs, data.oneSizes, partition( oneKey( one ), 0 ), data.oneMeta, one );
+    } else {
+      joinRow( one );
+    }
+  }
+
+  private int[] findKeys( RowMetaInterface rowMeta, String[] keyFields ) throws KettleStepException {
+    int[] keyNrs = new int[keyFields.length];
+    for ( int i = 0; i < keyNrs.length; i++ ) {
+      keyNrs[i] = rowMeta.indexOfValue( keyFields[i] );
+      if ( keyNrs[i] < 0 ) {
+        String message =
+          BaseMessages.getString( PKG, "HashJoin.Exception.UnableToFindFieldInReferenceStream", keyFields[i] );
+        logError( message );
+        throw new KettleStepException( message );
+      }
+    }
+    return keyNrs;
+  }
+
+  private List<Object> twoKey( Object[] row ) throws KettleValueException {
+    Object[] key = new Object[data.keyNrs2.length];
+    for ( int i = 0; i < key.length; i++ ) {
+      key[i] = keyValue( i, data.twoMeta.getValueMeta( data.keyNrs2[i] ), row[data.keyNrs2[i]] );
+    }
+    return Arrays.asList( key );
+  }
+
+  private List<Object> oneKey( Object[] row ) throws KettleValueException {
+    Object[] key = new Object[data.keyNrs1.length];
+    for ( int i = 0; i < key.length; i++ ) {
+      ValueMetaInterface valueMeta = data.oneMeta.getValueMeta( data.keyNrs1[i] );
+      Object value = row[data.keyNrs1[i]];
+      if ( data.conversionMetas[i] != null ) {
+        value = valueMeta.isNull( value ) ? null
+          : data.twoMeta.getValueMeta( data.keyNrs2[i] ).convertData( valueMeta, value );
+        valueMeta = data.conversionMetas[i];
+      }
+      key[i] = keyValue( i, valueMeta, value );
+    }
+    return Arrays.asList( key );
+  }
+
+  /**
+   * @return a value that is equal for all the values the key of the second stream compares equal
+   */
+  private Object keyValue( int keyNr, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    if ( valueMeta.isNull( value ) ) {
+      return null;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        ValueMetaInterface keyMeta = data.twoMeta.getValueMeta( data.keyNrs2[keyNr] );
+        String string = valueMeta.getString( value );
+        if ( keyMeta.isIgnoreWhitespace() ) {
+          string = string.trim();
+        }
+        if ( data.collators[keyNr] != null ) {
+          return data.collators[keyNr].getCollationKey( string );
+        }
+        return keyMeta.isCaseInsensitive() ? foldCase( string ) : string;
+      case ValueMetaInterface.TYPE_INTEGER:
+        return valueMeta.getInteger( value );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return valueMeta.getNumber( value );
+      case ValueMetaInterface.TYPE_DATE:
+        return valueMeta.getDate( value ).getTime();
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        BigDecimal number = valueMeta.getBigNumber( value );
+        return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return valueMeta.getBoolean( value );
+      case ValueMetaInterface.TYPE_BINARY:
+        return ByteBuffer.wrap( valueMeta.getBinary( value ) );
+      default:
+        return valueMeta.convertToNormalStorageType( value );
+    }
+  }
+
+  /** The way String.compareToIgnoreCase compares characters */
+  private static String foldCase( String string ) {
+    char[] chars = string.toCharArray();
+    for ( int i = 0; i < chars.length; i++ ) {
+      chars[i] = Character.toLowerCase( Character.toUpperCase( chars[i] ) );
+    }
+    return new String( chars );
+  }
+
+  /**
+   * @return the partition of the key, different keys of a partition are spread over other partitions at the next depth
+   */
+  static int partition( List<Object> key, int depth ) {
+    int hash = key.hashCode() * ( 0x9E3779B9 + 2 * depth );
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    return Math.floorMod( hash, PARTITIONS );
+  }
+
+  /**
+   * Adds a row of the second stream to the hash table, partitions the rows when there are too many.
+   */
+  private void addRow( Object[] two ) throws KettleException {
+    List<Object> key = twoKey( two );
+    if ( data.partitioned ) {
+      write( data.twoOutputs, data.twoSizes, partition( key, 0 ), data.twoMeta, two );
+      return;
+    }
+    data.table.computeIfAbsent( key, k -> new ArrayList<>( 1 ) ).add( two );
+    data.tableSize++;
+    if ( data.tableSize > data.maxRowsInMemory ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.Partitioning", data.maxRowsInMemory, PARTITIONS ) );
+      }
+      data.partitioned = true;
+      data.twoOutputs = new DataOutputStream[PARTITIONS];
+      data.twoSizes = new int[PARTITIONS];
+      data.twoFiles = createFiles( data.twoOutputs );
+      data.oneOutputs = new DataOutputStream[PARTITIONS];
+      data.oneSizes = new int[PARTITIONS];
+      data.oneFiles = createFiles( data.oneOutputs );
+      for ( Map.Entry<List<Object>, List<Object[]>> entry : data.table.entrySet() ) {
+        int partition = partition( entry.getKey(), 0 );
+        for ( Object[] row : entry.getValue() ) {
+          write( data.twoOutputs, data.twoSizes, partition, data.twoMeta, row );
+        }
+      }
+      data.table.clear();
+      data.tableSize = 0;
+    }
+  }
+
+  /**
+   * Joins a row of the first stream with the rows of the second stream in the hash table.
+   */
+  private void joinRow( Object[] one ) throws KettleException {
+    List<Object> key = oneKey( one );
+    List<Object[]> twos = data.table.get( key );
+    if ( twos != null ) {
+      if ( data.one_optional ) {
+        data.matched.add( key );
+      }
+      for ( Object[] two : twos ) {
+        Object[] oneBig = RowDataUtil.createResizedCopy( one, data.outputRowMeta.size() );
+        putRow( data.outputRowMeta, RowDataUtil.addRowData( oneBig, data.oneMeta.size(), two ) );
+      }
+    } else if ( data.two_optional ) {
+      Object[] oneBig = RowDataUtil.createResizedCopy( one, data.outputRowMeta.size() );
+      putRow( data.outputRowMeta, RowDataUtil.addRowData( oneBig, data.oneMeta.size(), data.two_dummy ) );
+    }
+  }
+
+  /**
+   * Writes the rows of the second stream in the hash table that were not joined, for the right and full outer joins,
+   * then empties the table.
+   */
+  private void outputUnmatched() throws KettleException {
+    if ( data.one_optional ) {
+      for ( Map.Entry<List<Object>, List<Object[]>> entry : data.table.entrySet() ) {
+        if ( !data.matched.contains( entry.getKey() ) ) {
+          for ( Object[] two : entry.getValue() ) {
+            Object[] outputRowData = RowDataUtil.createResizedCopy( data.one_dummy, data.outputRowMeta.size() );
+            putRow( data.outputRowMeta, RowDataUtil.addRowData( outputRowData, data.oneMeta.size(), two ) );
+          }
+        }
+      }
+    }
+    data.table.clear();
+    data.tableSize = 0;
+    data.matched.clear();
+  }
+
+  private void joinPartitions() throws KettleException {
+    close( data.oneOutputs );
+    for ( int i = 0; i < PARTITIONS && !isStopped(); i++ ) {
+      joinPartition( data.twoFiles[i], data.twoSizes[i], data.oneFiles[i], data.oneSizes[i], 1 );
+    }
+  }
+
+  /**
+   * Joins the rows of a partition of both streams, partitions them again when the second stream has too many rows.
+   */
+  private void joinPartition( FileObject twoFile, int twoSize, FileObject oneFile, int oneSize, int depth )
+    throws KettleException {
+    if ( twoSize > data.maxRowsInMemory && depth < MAX_DEPTH ) {
+      DataOutputStream[] twoOutputs = new DataOutputStream[PARTITIONS];
+      int[] twoSizes = new int[PARTITIONS];
+      FileObject[] twoFiles = createFiles( twoOutputs );
+      readRows( twoFile, twoSize, data.twoMeta,
+        row -> write( twoOutputs, twoSizes, partition( twoKey( row ), depth ), data.twoMeta, row ) );
+      close( twoOutputs );
+
+      if ( Arrays.stream( twoSizes ).max().getAsInt() < twoSize ) {
+        DataOutputStream[] oneOutputs = new DataOutputStream[PARTITIONS];
+        int[] oneSizes = new int[PARTITIONS];
+        FileObject[] oneFiles = createFiles( oneOutputs );
+        readRows( oneFile, oneSize, data.oneMeta,
+          row -> write( oneOutputs, oneSizes, partition( oneKey( row ), depth ), data.oneMeta, row ) );
+        close( oneOutputs );
+        delete( twoFile );
+        delete( oneFile );
+
+        for ( int i = 0; i < PARTITIONS && !isStopped(); i++ ) {
+          joinPartition( twoFiles[i], twoSizes[i], oneFiles[i], oneSizes[i], depth + 1 );
+        }
+        return;
+      }
+
+      // All the rows have the same key (or hash): there is no other way than keeping them in memory
+      //
+      for ( FileObject file : twoFiles ) {
+        delete( file );
+      }
+    }
+
+    // Exceeding the memory budget is worth knowing at the default log level
+    if ( twoSize > data.maxRowsInMemory && log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "HashJoin.Log.PartitionTooLarge", twoSize, data.maxRowsInMemory ) );
+    }
+    readRows( twoFile, twoSize, data.twoMeta,
+      row -> data.table.computeIfAbsent( twoKey( row ), k -> new ArrayList<>( 1 ) ).add( row ) );
+    readRows( oneFile, oneSize, data.oneMeta, this::joinRow );
+    outputUnmatched();
+    delete( twoFile );
+    delete( oneFile );
+  }
+
+  private FileObject[] createFiles( DataOutputStream[] outputs ) throws KettleException {
+    FileObject[] files = new FileObject[outputs.length];
+    try {
+      for ( int i = 0; i < files.length; i++ ) {
+        files[i] =
+          KettleVFS.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
+            getTransMeta() );
+        data.files.add( files[i] );
+        outputs[i] =
+          new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( files[i], false ),
+            BUFFER_SIZE ) );
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.ErrorWritingTempFile" ), e );
+    }
+    return files;
+  }
+
+  private void write( DataOutputStream[] outputs, int[] sizes, int partition, RowMetaInterface rowMeta,
+    Object[] row ) throws KettleException {
+    rowMeta.writeData( outputs[partition], row );
+    sizes[partition]++;
+  }
+
+  private void close( DataOutputStream[] outputs ) throws KettleException {
+    try {
+      for ( int i = 0; i < outputs.length; i++ ) {
+        if ( outputs[i] != null ) {
+          outputs[i].close();
+          outputs[i] = null;
+        }
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.ErrorWritingTempFile" ), e );
+    }
+  }
+
+  private void readRows( FileObject file, int size, RowMetaInterface rowMeta, RowHandler handler )
+    throws KettleException {
+    if ( size == 0 ) {
+      return;
+    }
+    try ( DataInputStream input =
+      new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( file ), BUFFER_SIZE ) ) ) {
+      for ( int i = 0; i < size && !isStopped(); i++ ) {
+        handler.handle( rowMeta.readData( input ) );
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString(
+        PKG, "HashJoin.Exception.ErrorReadingTempFile", KettleVFS.getFilename( file ) ), e );
+    }
+  }
+
+  private void delete( FileObject file ) {
+    try {
+      file.delete();
+      data.files.remove( file );
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "HashJoin.Log.UnableToDeleteTempFile", KettleVFS.getFilename( file ) ),
+        e );
+    }
+  }
+
+  /**
+   * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
+   */
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    if ( super.init( smi, sdi ) ) {
+      List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+      if ( infoStreams.get( 0 ).getStepMeta() == null || infoStreams.get( 1 ).getStepMeta() == null ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.BothStreamsNeeded" ) );
+        return false;
+      }
+      StepMeta sharedStep = meta.findSharedPreviousStep( getTransMeta() );
+      if ( sharedStep != null ) {
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.BufferingFirstStream", sharedStep.getName() ) );
+        }
+        data.bufferOne = true;
+      }
+      data.maxRowsInMemory = Math.max( 1, Const.toInt( environmentSubstitute( meta.getMaxRowsInMemory() ),
+        Integer.parseInt( HashJoinMeta.DEFAULT_MAX_ROWS_IN_MEMORY ) ) );
+
+      String joinType = meta.getJoinType();
+      for ( int i = 0; i < HashJoinMeta.join_types.length; ++i ) {
+        if ( HashJoinMeta.join_types[i].equalsIgnoreCase( joinType ) ) {
+          data.one_optional = HashJoinMeta.one_optionals[i];
+          data.two_optional = HashJoinMeta.two_optionals[i];
+          return true;
+        }
+      }
+      logError( BaseMessages.getString( PKG, "HashJoin.Log.InvalidJoinType", meta.getJoinType() ) );
+    }
+    return false;
+  }
+
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    // Remove the temporary files that are left, after an error or a stop
+    //
+    for ( DataOutputStream[] outputs : Arrays.asList( data.twoOutputs, data.oneOutputs, data.bufferOutputs ) ) {
+      if ( outputs != null ) {
+        try {
+          close( outputs );
+        } catch ( KettleException e ) {
+          logError( e.getMessage() );
+        }
+      }
+    }
+    for ( FileObject file : new ArrayList<>( data.files ) ) {
+      delete( file );
+    }
+    data.table.clear();
+    data.matched.clear();
+
+    super.dispose( smi, sdi );
+  }
+}
@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.io.DataOutputStream;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+
+public class HashJoinData extends BaseStepData implements StepDataInterface {
+  public RowMetaInterface oneMeta, twoMeta;
+  public RowMetaInterface outputRowMeta; // just for speed: oneMeta+twoMeta
+  public Object[] one_dummy, two_dummy;
+  public boolean one_optional, two_optional;
+  public int[] keyNrs1;
+  public int[] keyNrs2;
+
+  public RowSet oneRowSet;
+  public RowSet twoRowSet;
+
+  /** The number of rows of the second stream kept in memory */
+  public int maxRowsInMemory;
+
+  /** The rows of the second stream by key, in the order of the stream */
+  public Map<List<Object>, List<Object[]>> table = new LinkedHashMap<>();
+
+  /** The number of rows in the table */
+  public int tableSize;
+
+  /** The keys of the table found in the first stream, only kept for the right and full outer joins */
+  public Set<List<Object>> matched = new HashSet<>();
+
+  /** The metadata of the keys of the first stream when they need a conversion to the types of the second one */
+  public ValueMetaInterface[] conversionMetas;
+
+  /** The collators of the keys of the second stream that compare with one */
+  public Collator[] collators;
+
+  /** True when the streams are partitioned in temporary files */
+  public boolean partitioned;
+
+  public FileObject[] twoFiles, oneFiles;
+  public DataOutputStream[] twoOutputs, oneOutputs;
+  public int[] twoSizes, oneSizes;
+
+  /** True when the streams share a previous step: the first stream is read along with the second one */
+  public boolean bufferOne;
+
+  /** The rows of the first stream read while the second stream is read */
+  public FileObject bufferFile;
+  public DataOutputStream[] bufferOutputs;
+  public int bufferSize;
+
+  /** All the temporary files, to delete the remaining ones at the end */
+  public List<FileObject> files = new ArrayList<>();
+
+  public HashJoinData() {
+    super();
+  }
+}
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.codehaus.janino.ExpressionEvaluator;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.JaninoCache;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
@@ -151,15 +152,13 @@ public class Janino extends BaseStep implements StepInterface {
           JaninoMetaFunction fn = meta.getFormula()[m];
           if ( !Utils.isEmpty( fn.getFieldName() ) ) {
 
-            // Create the expression evaluator: is relatively slow so we do it only for the first row...
+            // Cooking the expression is relatively slow: it's only done once in the JVM for the same expression and
+            // parameters, other step copies and the next executions of the transformation share it.
             //
-            data.expressionEvaluators[m] = new ExpressionEvaluator();
-            data.expressionEvaluators[m].setParameters(
-              parameterNames.toArray( new String[parameterNames.size()] ), parameterTypes
-                .toArray( new Class<?>[parameterTypes.size()] ) );
-            data.expressionEvaluators[m].setReturnType( Object.class );
-            data.expressionEvaluators[m].setThrownExceptions( new Class<?>[] { Exception.class } );
-            data.expressionEvaluators[m].cook( fn.getFormula() );
+            data.expressionEvaluators[m] = JaninoCache.cookExpression( fn.getFormula(),
+              parameterNames.toArray( new String[parameterNames.size()] ),
+              parameterTypes.toArray( new Class<?>[parameterTypes.size()] ), Object.class,
+              new Class<?>[] { Exception.class } );
           } else {
             throw new KettleException( "Unable to find field name for formula ["
               + Const.NVL( fn.getFormula(), "" ) + "]" );
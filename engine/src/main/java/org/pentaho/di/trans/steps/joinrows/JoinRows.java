@@ -285,6 +285,15 @@ public class JoinRows extends BaseStep implements StepInterface {
       return false;
     }
 
+    if ( data.filenr == 0 && !data.indexChecked ) {
+      data.indexChecked = true;
+      createIndex();
+    }
+    if ( data.index != null ) {
+      outputIndexedRows();
+      return true;
+    }
+
     //
     // OK, are we at the last file yet?
     // If so, we can output one row in the cartesian product.
@@ -329,6 +338,45 @@ public class JoinRows extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * With 2 input streams and a condition that compares fields of both streams for equality, only the rows of the
+   * second stream with the same values as the main stream row are combined with it: they are looked up in an index
+   * instead of reading the whole second stream for every main stream row.
+   */
+  private void createIndex() throws KettleException {
+    if ( data.file.length != 2 || data.fileRowMeta[1] == null || meta.getCondition() == null
+      || meta.getCondition().isEmpty() ) {
+      return;
+    }
+    data.outputRowMeta = createOutputRowMeta( data.fileRowMeta );
+    data.index = JoinRowsIndex.create( meta.getCondition(), data.outputRowMeta, data.fileRowMeta[0].size(),
+      data.cache[1], data.fileRowMeta[1] );
+    if ( data.index != null ) {
+      data.index.build( data.file[1], data.size[1] );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "JoinRows.Log.IndexedRows", data.size[1], data.index.size(),
+          data.rs[1].getOriginStepName() ) );
+      }
+    }
+  }
+
+  /**
+   * Combines the main stream row with the rows of the second stream found in the index, in their order in the stream.
+   * The condition is still evaluated as it can hold more than the equalities.
+   */
+  private void outputIndexedRows() throws KettleException {
+    int mainSize = data.fileRowMeta[0].size();
+    int otherSize = data.fileRowMeta[1].size();
+    for ( Object[] row : data.index.lookup( data.joinrow[0] ) ) {
+      Object[] sum = new Object[data.outputRowMeta.size()];
+      System.arraycopy( data.joinrow[0], 0, sum, 0, mainSize );
+      System.arraycopy( row, 0, sum, mainSize, otherSize );
+      if ( meta.getCondition().evaluate( data.outputRowMeta, sum ) ) {
+        putRow( data.outputRowMeta, sum );
+      }
+    }
+  }
+
   private boolean cacheInputRow() throws KettleException {
     // /////////////////////////////
     // Read from input channels //
@@ -432,6 +480,16 @@ public class JoinRows extends BaseStep implements StepInterface {
     meta = (JoinRowsMeta) smi;
     data = (JoinRowsData) sdi;
 
+    if ( data.index != null ) {
+      try {
+        data.index.close();
+      } catch ( IOException ioe ) {
+        logError( BaseMessages.getString( PKG, "JoinRows.Log.UnableToCloseInputStream" )
+          + data.file[1] + "] : " + ioe.toString() );
+      }
+      data.index = null;
+    }
+
     // Remove the temporary files...
     if ( data.file != null ) {
       for ( int i = 1; i < data.file.length; i++ ) {
@@ -460,7 +518,11 @@ public class JoinRows extends BaseStep implements StepInterface {
       processRow( meta, data );
     }
     // The last row needs to be written too to the account of the number of input rows.
+    // With the index all the rows of a main stream row are written at once.
     //
+    if ( data.index != null ) {
+      return;
+    }
     for ( int i = 0; i < repeats; i++ ) {
       processRow( meta, data );
     }
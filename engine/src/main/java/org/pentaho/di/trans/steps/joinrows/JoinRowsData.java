@@ -56,6 +56,14 @@ public class JoinRowsData extends BaseStepData implements StepDataInterface {
 
   public RowMetaInterface outputRowMeta;
 
+  /**
+   * The rows of the second stream by the values of the fields the condition compares with the main stream, null when
+   * all the rows are combined.
+   */
+  JoinRowsIndex index;
+
+  boolean indexChecked;
+
   public JoinRowsData() {
     super();
   }
@@ -0,0 +1,302 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.joinrows;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+
+/**
+ * Indexes the rows of the second input stream of a Join Rows step on the fields the condition compares for equality
+ * with fields of the main stream, so that a main stream row is only combined with the rows having the same values in
+ * these fields.<br>
+ * <br>
+ * The index keeps the position of every row: in the cache when the rows fit in it, in the temporary file otherwise.
+ * The keys are coarser than the comparisons of the condition (strings are trimmed and case folded), the full condition
+ * is still evaluated for every combination.
+ */
+class JoinRowsIndex implements Closeable {
+
+  /** The fields of the main stream and of the second stream compared for equality, in the output row */
+  private final int[] mainFields;
+  private final int[] otherFields;
+
+  private final RowMetaInterface outputRowMeta;
+
+  private final int mainSize;
+
+  private final Map<List<Object>, long[]> positions = new HashMap<>();
+
+  private final Map<List<Object>, Integer> counts = new HashMap<>();
+
+  private final List<Object[]> cache;
+
+  private final RowMetaInterface fileRowMeta;
+
+  private RandomAccessFile file;
+
+  private JoinRowsIndex( int[] mainFields, int[] otherFields, RowMetaInterface outputRowMeta, int mainSize,
+    List<Object[]> cache, RowMetaInterface fileRowMeta ) {
+    this.mainFields = mainFields;
+    this.otherFields = otherFields;
+    this.outputRowMeta = outputRowMeta;
+    this.mainSize = mainSize;
+    this.cache = cache;
+    this.fileRowMeta = fileRowMeta;
+  }
+
+  /**
+   * Looks for the equalities between a field of the main stream and a field of the second stream the condition needs
+   * to be true.
+   *
+   * @param condition
+   *          the condition of the step
+   * @param outputRowMeta
+   *          the fields of the main stream followed by the fields of the second stream
+   * @param mainSize
+   *          the number of fields of the main stream
+   * @param cache
+   *          the rows of the second stream, null if they didn't fit in the cache
+   * @param fileRowMeta
+   *          the fields of the second stream
+   * @return the empty index, null if the condition has no such equality
+   */
+  static JoinRowsIndex create( Condition condition, RowMetaInterface outputRowMeta, int mainSize,
+    List<Object[]> cache, RowMetaInterface fileRowMeta ) {
+    List<int[]> equalities = new ArrayList<>();
+    findEqualities( condition, outputRowMeta, mainSize, equalities );
+    if ( equalities.isEmpty() ) {
+      return null;
+    }
+    int[] mainFields = new int[ equalities.size() ];
+    int[] otherFields = new int[ equalities.size() ];
+    for ( int i = 0; i < equalities.size(); i++ ) {
+      mainFields[i] = equalities.get( i )[0];
+      otherFields[i] = equalities.get( i )[1];
+    }
+    return new JoinRowsIndex( mainFields, otherFields, outputRowMeta, mainSize, cache, fileRowMeta );
+  }
+
+  /**
+   * A condition is only true when its first sub-condition and the ones joined with AND are true, unless it is negated
+   * or joined with anything else.
+   */
+  private static void findEqualities( Condition condition, RowMetaInterface rowMeta, int mainSize,
+    List<int[]> equalities ) {
+    if ( condition.isNegated() ) {
+      return;
+    }
+    if ( !condition.isAtomic() ) {
+      List<Condition> children = condition.getChildren();
+      for ( int i = 1; i < children.size(); i++ ) {
+        int operator = children.get( i ).getOperator();
+        if ( operator != Condition.OPERATOR_AND && operator != Condition.OPERATOR_AND_NOT ) {
+          return;
+        }
+      }
+      for ( int i = 0; i < children.size(); i++ ) {
+        if ( i == 0 || children.get( i ).getOperator() == Condition.OPERATOR_AND ) {
+          findEqualities( children.get( i ), rowMeta, mainSize, equalities );
+        }
+      }
+      return;
+    }
+    if ( condition.getFunction() != Condition.FUNC_EQUAL
+      || ( condition.getRightExact() != null && condition.getRightExact().getValueData() != null ) ) {
+      return;
+    }
+    int left = indexOf( rowMeta, condition.getLeftValuename() );
+    int right = indexOf( rowMeta, condition.getRightValuename() );
+    if ( left < 0 || right < 0 || ( left < mainSize ) == ( right < mainSize ) ) {
+      return;
+    }
+    ValueMetaInterface leftMeta = rowMeta.getValueMeta( left );
+    if ( leftMeta.getType() != rowMeta.getValueMeta( right ).getType() || !isHashable( leftMeta ) ) {
+      return;
+    }
+    equalities.add( left < mainSize ? new int[] { left, right } : new int[] { right, left } );
+  }
+
+  private static int indexOf( RowMetaInterface rowMeta, String name ) {
+    return name == null || name.isEmpty() ? -1 : rowMeta.indexOfValue( name );
+  }
+
+  private static boolean isHashable( ValueMetaInterface valueMeta ) {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        // A collator can find different strings equal
+        return valueMeta.isCollatorDisabled();
+      case ValueMetaInterface.TYPE_INTEGER:
+      case ValueMetaInterface.TYPE_NUMBER:
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return a value that is the same for all the values the comparisons of the condition find equal
+   */
+  private static Object keyOf( ValueMetaInterface valueMeta, Object data ) throws KettleValueException {
+    if ( valueMeta.getType() == ValueMetaInterface.TYPE_STRING ) {
+      String string = valueMeta.isNull( data ) ? null : valueMeta.getString( data );
+      return string == null ? "" : foldCase( string.trim() );
+    }
+    if ( valueMeta.isNull( data ) ) {
+      return null;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return valueMeta.getInteger( data );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return valueMeta.getNumber( data );
+      case ValueMetaInterface.TYPE_DATE:
+        return valueMeta.getDate( data ).getTime();
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        BigDecimal number = valueMeta.getBigNumber( data );
+        return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+      default:
+        return valueMeta.getBoolean( data );
+    }
+  }
+
+  /** The way String.compareToIgnoreCase compares characters */
+  private static String foldCase( String string ) {
+    char[] chars = string.toCharArray();
+    for ( int i = 0; i < chars.length; i++ ) {
+      chars[i] = Character.toLowerCase( Character.toUpperCase( chars[i] ) );
+    }
+    return new String( chars );
+  }
+
+  private List<Object> key( Object[] row, int[] fields, int offset ) throws KettleValueException {
+    Object[] key = new Object[ fields.length ];
+    for ( int i = 0; i < fields.length; i++ ) {
+      key[i] = keyOf( outputRowMeta.getValueMeta( fields[i] ), row[fields[i] - offset] );
+    }
+    return Arrays.asList( key );
+  }
+
+  private void add( Object[] row, long position ) throws KettleValueException {
+    List<Object> key = key( row, otherFields, mainSize );
+    long[] keyPositions = positions.get( key );
+    int count = keyPositions == null ? 0 : counts.get( key );
+    if ( keyPositions == null || count == keyPositions.length ) {
+      keyPositions = keyPositions == null ? new long[ 1 ] : Arrays.copyOf( keyPositions, count * 2 );
+      positions.put( key, keyPositions );
+    }
+    keyPositions[count] = position;
+    counts.put( key, count + 1 );
+  }
+
+  /**
+   * Reads the rows of the second stream once, from the cache or from the temporary file.
+   *
+   * @param tempFile
+   *          the temporary file holding all the rows of the second stream
+   * @param size
+   *          the number of rows of the second stream
+   */
+  void build( File tempFile, int size ) throws KettleException {
+    if ( cache != null ) {
+      for ( int i = 0; i < cache.size(); i++ ) {
+        add( cache.get( i ), i );
+      }
+      return;
+    }
+    try ( CountingInputStream counting =
+      new CountingInputStream( new BufferedInputStream( new FileInputStream( tempFile ) ) ) ) {
+      DataInputStream input = new DataInputStream( counting );
+      for ( int i = 0; i < size; i++ ) {
+        long position = counting.getCount();
+        add( fileRowMeta.readData( input ), position );
+      }
+      file = new RandomAccessFile( tempFile, "r" );
+    } catch ( IOException e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * @param mainRow
+   *          a row of the main stream
+   * @return the rows of the second stream that can be joined with the main stream row, in their order in the stream
+   */
+  List<Object[]> lookup( Object[] mainRow ) throws KettleException {
+    List<Object> key = key( mainRow, mainFields, 0 );
+    long[] keyPositions = positions.get( key );
+    if ( keyPositions == null ) {
+      return new ArrayList<>();
+    }
+    int count = counts.get( key );
+    List<Object[]> rows = new ArrayList<>( count );
+    if ( cache != null ) {
+      for ( int i = 0; i < count; i++ ) {
+        // Don't forget to clone the data to protect it against data alteration downstream.
+        rows.add( fileRowMeta.cloneRow( cache.get( (int) keyPositions[i] ) ) );
+      }
+      return rows;
+    }
+    try {
+      // The positions of a key are in the order of the file, one stream reads all the rows from the first one on
+      FileChannel channel = file.getChannel().position( keyPositions[0] );
+      CountingInputStream counting =
+        new CountingInputStream( new BufferedInputStream( Channels.newInputStream( channel ) ) );
+      DataInputStream input = new DataInputStream( counting );
+      for ( int i = 0; i < count; i++ ) {
+        ByteStreams.skipFully( input, keyPositions[i] - keyPositions[0] - counting.getCount() );
+        rows.add( fileRowMeta.readData( input ) );
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( e );
+    }
+    return rows;
+  }
+
+  int size() {
+    return positions.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( file != null ) {
+      file.close();
+      file = null;
+    }
+  }
+}
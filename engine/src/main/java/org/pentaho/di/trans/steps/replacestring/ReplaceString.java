@@ -19,6 +19,7 @@ import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.MultiStringMatcher;
 import org.pentaho.di.core.util.StringUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
@@ -30,6 +31,7 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -124,9 +126,15 @@ public class ReplaceString extends BaseStep implements StepInterface {
 
       RowMetaInterface currentRowMeta =
           ( numFieldsAlreadyBeenTransformed.contains( data.inStreamNrs[i] ) ) ? data.outputRowMeta : getInputRowMeta();
-      String value =
-          replaceString( currentRowMeta.getString( rowData, data.inStreamNrs[i] ), data.patterns[i],
+      String value;
+      if ( data.matchers != null && data.matchers[i] != null ) {
+        value = data.matchers[i].replaceAll( currentRowMeta.getString( rowData, data.inStreamNrs[i] ),
+          data.matcherReplacements[i] );
+        i = data.matcherEnds[i] - 1;
+      } else {
+        value = replaceString( currentRowMeta.getString( rowData, data.inStreamNrs[i] ), data.patterns[i],
           getResolvedReplaceByString( i, row ) );
+      }
 
       if ( Utils.isEmpty( data.outStreamNrs[i] ) ) {
         // update field value
@@ -140,6 +148,67 @@ public class ReplaceString extends BaseStep implements StepInterface {
     return rowData;
   }
 
+  /**
+   * Looks for consecutive literal replacements of the same field that can be done with a single pass over the value,
+   * giving the same result as doing them one after the other: no search string can overlap another one, and no
+   * replacement can be part of an occurrence of a search string used after it.
+   */
+  private void buildMatchers() {
+    data.matchers = new MultiStringMatcher[data.numFields];
+    data.matcherReplacements = new String[data.numFields][];
+    data.matcherEnds = new int[data.numFields];
+    int start = 0;
+    while ( start < data.numFields ) {
+      int end = start;
+      if ( isSinglePassCandidate( start ) ) {
+        end++;
+        while ( end < data.numFields && isSinglePassCandidate( end ) && fitsInSinglePass( start, end ) ) {
+          end++;
+        }
+      }
+      if ( end - start > 1 ) {
+        boolean ignoreCase = !meta.getCaseSensitive()[start];
+        data.matchers[start] =
+          new MultiStringMatcher( Arrays.asList( data.replaceString ).subList( start, end ), ignoreCase );
+        data.matcherReplacements[start] = Arrays.copyOfRange( data.replaceByString, start, end );
+        data.matcherEnds[start] = end;
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "ReplaceString.Log.SinglePass", end - start,
+            meta.getFieldInStream()[start] ) );
+        }
+        start = end;
+      } else {
+        start++;
+      }
+    }
+  }
+
+  private boolean isSinglePassCandidate( int i ) {
+    ValueMetaInterface valueMeta = getInputRowMeta().getValueMeta( data.inStreamNrs[i] );
+    String replaceBy = data.replaceByString[i];
+    return !meta.getUseRegEx()[i] && !meta.getWholeWord()[i] && Utils.isEmpty( data.outStreamNrs[i] )
+      && ( meta.getCaseSensitive()[i] || !meta.isUnicode()[i] ) // UNICODE_CHARACTER_CLASS folds all the letters
+      && valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL
+      && valueMeta.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE
+      && !Utils.isEmpty( data.replaceString[i] ) && data.replaceFieldIndex[i] == -1 && !data.setEmptyString[i]
+      && !Utils.isEmpty( replaceBy ) && replaceBy.indexOf( '$' ) < 0 && replaceBy.indexOf( '\\' ) < 0;
+  }
+
+  private boolean fitsInSinglePass( int start, int end ) {
+    if ( data.inStreamNrs[end] != data.inStreamNrs[start]
+      || meta.getCaseSensitive()[end] != meta.getCaseSensitive()[start] ) {
+      return false;
+    }
+    boolean ignoreCase = !meta.getCaseSensitive()[start];
+    for ( int i = start; i < end; i++ ) {
+      if ( MultiStringMatcher.canOverlap( data.replaceString[i], data.replaceString[end], ignoreCase )
+        || MultiStringMatcher.canOverlap( data.replaceByString[i], data.replaceString[end], ignoreCase ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (ReplaceStringMeta) smi;
     data = (ReplaceStringData) sdi;
@@ -163,6 +232,7 @@ public class ReplaceString extends BaseStep implements StepInterface {
       data.inStreamNrs = new int[data.numFields];
       data.outStreamNrs = new String[data.numFields];
       data.patterns = new Pattern[data.numFields];
+      data.replaceString = new String[data.numFields];
       data.replaceByString = new String[data.numFields];
       data.setEmptyString = new boolean[data.numFields];
       data.replaceFieldIndex = new int[data.numFields];
@@ -181,8 +251,9 @@ public class ReplaceString extends BaseStep implements StepInterface {
         }
 
         data.outStreamNrs[i] = environmentSubstitute( meta.getFieldOutStream()[i] );
+        data.replaceString[ i ] = environmentSubstitute( meta.getReplaceString()[ i ] );
         data.patterns[ i ] = buildPattern( !meta.getUseRegEx()[ i ], meta.getCaseSensitive()[ i ],
-          meta.getWholeWord()[ i ], environmentSubstitute( meta.getReplaceString()[ i ] ), meta.isUnicode()[ i ] );
+          meta.getWholeWord()[ i ], data.replaceString[ i ], meta.isUnicode()[ i ] );
 
         String field = meta.getFieldReplaceByString()[i];
         if ( !Utils.isEmpty( field ) ) {
@@ -198,6 +269,7 @@ public class ReplaceString extends BaseStep implements StepInterface {
         data.setEmptyString[i] = meta.isSetEmptyString()[i];
 
       }
+      buildMatchers();
     } // end if first
 
     try {
@@ -249,6 +321,8 @@ public class ReplaceString extends BaseStep implements StepInterface {
 
     data.outStreamNrs = null;
     data.patterns = null;
+    data.matchers = null;
+    data.matcherReplacements = null;
     data.replaceByString = null;
     data.replaceString = null;
     data.valueChange = null;
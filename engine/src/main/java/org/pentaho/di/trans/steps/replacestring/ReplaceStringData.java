@@ -16,6 +16,7 @@ package org.pentaho.di.trans.steps.replacestring;
 import java.util.regex.Pattern;
 
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.MultiStringMatcher;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -57,6 +58,13 @@ public class ReplaceStringData extends BaseStepData implements StepDataInterface
 
   public Pattern[] patterns;
 
+  /** The matcher doing the replacements from a field index up to the matching matcherEnds in a single pass */
+  public MultiStringMatcher[] matchers;
+
+  public String[][] matcherReplacements;
+
+  public int[] matcherEnds;
+
   public int numFields;
 
   /**
@@ -189,6 +189,7 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
       }
 
       data.scope = data.cx.initStandardObjects( null, false );
+      data.primitiveValues = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_JAVASCRIPT_PRIMITIVE_VALUES, "N" ) );
 
       bFirstRun = true;
 
@@ -232,20 +233,14 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
             data.scope.put( valueMeta.getName(), data.scope, jsarg );
           } else {
             Object normalStorageValueData = valueMeta.convertToNormalStorageType( valueData );
-            Scriptable jsarg;
-            if ( normalStorageValueData != null ) {
-              jsarg = Context.toObject( normalStorageValueData, data.scope );
-            } else {
-              jsarg = null;
-            }
-            data.scope.put( valueMeta.getName(), data.scope, jsarg );
+            data.scope.put( valueMeta.getName(), data.scope, toJavaScript( normalStorageValueData ) );
           }
         }
 
-        // also add the meta information for the whole row
+        // also add the meta information for the whole row, it's the same for every row
         //
-        Scriptable jsrowMeta = Context.toObject( rowMeta, data.scope );
-        data.scope.put( "rowMeta", data.scope, jsrowMeta );
+        data.jsRowMeta = Context.toObject( rowMeta, data.scope );
+        data.scope.put( "rowMeta", data.scope, data.jsRowMeta );
 
         // Modification for Additional Script parsing
         //
@@ -290,7 +285,7 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
         try {
           // Checking for StartScript
           if ( strStartScript != null && strStartScript.length() > 0 ) {
-            Script startScript = data.cx.compileString( strStartScript, "trans_Start", 1, null );
+            Script startScript = ScriptValuesModCache.compileString( data.cx, strStartScript, "trans_Start" );
             startScript.exec( data.cx, data.scope );
             if ( log.isDetailed() ) {
               logDetailed( ( "Start Script found!" ) );
@@ -307,7 +302,7 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
 
         }
         // Now Compile our Script
-        data.script = data.cx.compileString( strTransformScript, "script", 1, null );
+        data.script = ScriptValuesModCache.compileString( data.cx, strTransformScript, "script" );
       } catch ( Exception e ) {
         throw new KettleValueException( BaseMessages.getString(
           PKG, "ScriptValuesMod.Log.CouldNotCompileJavascript" ), e );
@@ -358,19 +353,12 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
             data.scope.put( valueMeta.getName(), data.scope, jsarg );
           } else {
             Object normalStorageValueData = valueMeta.convertToNormalStorageType( valueData );
-            Scriptable jsarg;
-            if ( normalStorageValueData != null ) {
-              jsarg = Context.toObject( normalStorageValueData, data.scope );
-            } else {
-              jsarg = null;
-            }
-            data.scope.put( valueMeta.getName(), data.scope, jsarg );
+            data.scope.put( valueMeta.getName(), data.scope, toJavaScript( normalStorageValueData ) );
           }
         }
 
         // also add the meta information for the hole row
-        Scriptable jsrowMeta = Context.toObject( rowMeta, data.scope );
-        data.scope.put( "rowMeta", data.scope, jsrowMeta );
+        data.scope.put( "rowMeta", data.scope, data.jsRowMeta );
       } catch ( Exception e ) {
         throw new KettleValueException( BaseMessages.getString( PKG, "ScriptValuesMod.Log.UnexpectedeError" ), e );
       }
@@ -469,6 +457,23 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
     return bRC;
   }
 
+  /**
+   * @return the value of a field as the scripts see it: a JavaScript object, or a JavaScript primitive for strings,
+   *         integers, numbers and booleans if {@link Const#KETTLE_JAVASCRIPT_PRIMITIVE_VALUES} is set
+   */
+  private Object toJavaScript( Object normalStorageValueData ) {
+    if ( normalStorageValueData == null ) {
+      return null;
+    }
+    if ( data.primitiveValues
+      && ( normalStorageValueData instanceof String || normalStorageValueData instanceof Long
+        || normalStorageValueData instanceof Double || normalStorageValueData instanceof Boolean ) ) {
+      // Rhino uses these as they are, no wrapper is needed
+      return normalStorageValueData;
+    }
+    return Context.toObject( normalStorageValueData, data.scope );
+  }
+
   public Object getValueFromJScript( Object result, int i ) throws KettleValueException {
     String fieldName = meta.getFieldname()[ i ];
     if ( !Utils.isEmpty( fieldName ) ) {
@@ -502,7 +507,7 @@ public class ScriptValuesMod extends BaseStep implements StepInterface {
         if ( data.cx != null ) {
           // Checking for EndScript
           if ( strEndScript != null && strEndScript.length() > 0 ) {
-            Script endScript = data.cx.compileString( strEndScript, "trans_End", 1, null );
+            Script endScript = ScriptValuesModCache.compileString( data.cx, strEndScript, "trans_End" );
             endScript.exec( data.cx, data.scope );
             if ( log.isDetailed() ) {
               logDetailed( ( "End Script found!" ) );
@@ -0,0 +1,64 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.scriptvalues_mod;
+
+import java.util.concurrent.ExecutionException;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Keeps the scripts compiled by the Modified JavaScript Value steps, so that the copies of a step and the next
+ * executions of a transformation don't compile them again. A compiled script holds no state of its own, it runs
+ * against the scope of the step copy executing it. When several step copies need the same script at the same time it is
+ * only compiled once.
+ */
+class ScriptValuesModCache {
+
+  private static final int MAX_CACHED_SCRIPTS = 500;
+
+  private static final Cache<String, Script> scripts =
+    CacheBuilder.newBuilder().maximumSize( MAX_CACHED_SCRIPTS ).build();
+
+  private ScriptValuesModCache() {
+  }
+
+  /**
+   * Compiles a script with the settings of the context, unless the same script was compiled with the same settings
+   * before.
+   *
+   * @param cx
+   *          the context of the step copy
+   * @param source
+   *          the source of the script
+   * @param sourceName
+   *          the name used in error messages
+   * @return the compiled script
+   */
+  static Script compileString( Context cx, String source, String sourceName ) {
+    String key = cx.getOptimizationLevel() + "|" + cx.getLanguageVersion() + "|" + sourceName + "|" + source;
+    try {
+      return scripts.get( key, () -> cx.compileString( source, sourceName, 1, null ) );
+    } catch ( ExecutionException | UncheckedExecutionException e ) {
+      // Rhino reports the errors of a script with unchecked exceptions, they are thrown as they are
+      Throwables.throwIfUnchecked( e.getCause() );
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+}
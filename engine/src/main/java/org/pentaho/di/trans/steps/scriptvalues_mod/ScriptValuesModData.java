@@ -37,6 +37,9 @@ public class ScriptValuesModData extends BaseStepData implements StepDataInterfa
   public RowMetaInterface outputRowMeta;
   public int[] replaceIndex;
 
+  public Scriptable jsRowMeta;
+  public boolean primitiveValues;
+
   public ScriptValuesModData() {
     super();
     cx = null;
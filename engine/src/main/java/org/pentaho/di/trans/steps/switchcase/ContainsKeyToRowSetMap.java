@@ -17,36 +17,37 @@ import java.util.ArrayList;
 import java.util.Set;
 
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.util.MultiStringMatcher;
 
 public class ContainsKeyToRowSetMap extends KeyToRowSetMap {
   protected ArrayList<String> list = new ArrayList<String>();
 
+  /** Finds all the keys in a value with a single pass, built on first use */
+  private MultiStringMatcher matcher;
+
   protected ContainsKeyToRowSetMap() {
     super();
   }
 
   public Set<RowSet> get( Object value ) {
-    String valueStr = (String) value;
-    for ( String key : list ) {
-      if ( valueStr.contains( key ) ) {
-        return super.get( key );
-      }
-    }
-    return null;
+    int index = getMatcher().indexOfFirstContained( (String) value );
+    return index < 0 ? null : super.get( list.get( index ) );
   }
 
   protected void put( Object key, RowSet rowSet ) {
     super.put( key, rowSet );
     list.add( (String) key );
+    matcher = null;
   }
 
   public boolean containsKey( Object key ) {
-    String keyStr = (String) key;
-    for ( String value : list ) {
-      if ( keyStr.contains( value ) ) {
-        return true;
-      }
+    return getMatcher().indexOfFirstContained( (String) key ) >= 0;
+  }
+
+  private MultiStringMatcher getMatcher() {
+    if ( matcher == null ) {
+      matcher = new MultiStringMatcher( list, false );
     }
-    return false;
+    return matcher;
   }
 }
@@ -0,0 +1,138 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A buffered output stream that hands every full buffer to a background thread and keeps on filling a second buffer
+ * in the meantime. That way compression and the actual (VFS) file I/O don't hold up the step thread.<br>
+ * <br>
+ * At most one buffer is being written at any given time, so the order of the bytes is preserved. Errors of the
+ * background writer are reported on the next write, flush or close.
+ */
+public class AsyncFlushOutputStream extends BufferedOutputStream {
+
+  private final ExecutorService executor;
+
+  private byte[] spare;
+
+  private Future<?> pending;
+
+  public AsyncFlushOutputStream( OutputStream out, int size, String threadName ) {
+    super( out, size );
+    this.spare = new byte[ size ];
+    this.executor = Executors.newSingleThreadExecutor( runnable -> {
+      Thread thread = new Thread( runnable, threadName );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  @Override
+  public synchronized void write( int b ) throws IOException {
+    if ( count >= buf.length ) {
+      flushBuffer();
+    }
+    buf[ count++ ] = (byte) b;
+  }
+
+  @Override
+  public synchronized void write( byte[] b, int off, int len ) throws IOException {
+    if ( len >= buf.length ) {
+      // Larger than our buffer: write it out directly, after whatever was pending.
+      //
+      flushBuffer();
+      waitForPending();
+      out.write( b, off, len );
+      return;
+    }
+    if ( len > buf.length - count ) {
+      flushBuffer();
+    }
+    System.arraycopy( b, off, buf, count, len );
+    count += len;
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    flushBuffer();
+    waitForPending();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      shutdown();
+    }
+  }
+
+  /**
+   * Stops the background writer thread. Called when the underlying streams are closed without going through
+   * {@link #close()}.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private void flushBuffer() throws IOException {
+    if ( count == 0 ) {
+      return;
+    }
+    // The spare buffer is only free once the previous write has finished
+    //
+    waitForPending();
+
+    final byte[] full = buf;
+    final int length = count;
+    buf = spare;
+    spare = full;
+    count = 0;
+
+    pending = executor.submit( () -> {
+      out.write( full, 0, length );
+      return null;
+    } );
+  }
+
+  private void waitForPending() throws IOException {
+    if ( pending == null ) {
+      return;
+    }
+    try {
+      pending.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for the background write to finish" );
+    } catch ( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof IOException ) {
+        throw (IOException) cause;
+      }
+      throw new IOException( cause );
+    } finally {
+      pending = null;
+    }
+  }
+}
@@ -0,0 +1,376 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.nio.charset.Charset;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Writes the textual form of a field value straight into a reusable byte buffer, without going through an
+ * intermediate String and the (synchronized) DecimalFormat / SimpleDateFormat of the value metadata.<br>
+ * <br>
+ * Only the formats that can be rendered byte for byte identical to the regular conversion are supported: integers
+ * without grouping or decimals and dates with purely numeric masks (yyyy/MM/dd HH:mm:ss.SSS and the like). For all
+ * other fields {@link #create(ValueMetaInterface)} returns null and the regular conversion is used.
+ *
+ * @since 10.3
+ */
+public abstract class TextFileFieldEncoder {
+
+  /**
+   * 1582-10-15T00:00:00Z, before this date SimpleDateFormat switches to the Julian calendar.
+   */
+  private static final long GREGORIAN_CUTOVER = -12219292800000L;
+
+  private static final long MILLIS_PER_DAY = 86400000L;
+
+  private static final String DIGITS_AND_SIGN = "0123456789-";
+
+  /**
+   * Encodes the given (non-null, normal storage) value into the buffer.
+   *
+   * @param value the value to encode
+   * @param buffer the buffer to write into, at least {@link #getMaxLength()} bytes long
+   * @return the number of bytes written or -1 if this particular value needs to go through the regular conversion
+   */
+  public abstract int encode( Object value, byte[] buffer );
+
+  /**
+   * @return the maximum number of bytes a single call to {@link #encode(Object, byte[])} writes
+   */
+  public abstract int getMaxLength();
+
+  /**
+   * @return the bytes, besides digits and the minus sign, that can appear in the encoded output
+   */
+  protected abstract byte[] getLiterals();
+
+  /**
+   * Determines whether or not the encoded form of a value can ever contain one of the given byte sequences. Used to
+   * make sure the output doesn't need enclosing or escaping.
+   *
+   * @param sequences the separator, enclosure, ...
+   * @return true if one of the sequences could be part of the encoded output
+   */
+  public boolean mightContain( byte[]... sequences ) {
+    byte[] alphabet = getLiterals();
+    for ( byte[] sequence : sequences ) {
+      if ( sequence == null || sequence.length == 0 ) {
+        continue;
+      }
+      // A sequence made up exclusively of bytes we can produce can show up in the output
+      //
+      boolean possible = true;
+      for ( int i = 0; possible && i < sequence.length; i++ ) {
+        possible = DIGITS_AND_SIGN.indexOf( sequence[ i ] ) >= 0 || contains( alphabet, sequence[ i ] );
+      }
+      if ( possible ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Creates an encoder for the given value metadata.
+   *
+   * @param valueMeta the metadata of the field to write, including the output format options
+   * @return the encoder or null if the field can't be encoded directly
+   */
+  public static TextFileFieldEncoder create( ValueMetaInterface valueMeta ) {
+    if ( valueMeta == null || valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+      || valueMeta.getConversionMetadata() != null || !isAsciiCompatible( valueMeta.getStringEncoding() ) ) {
+      return null;
+    }
+
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return IntegerEncoder.newEncoder( valueMeta );
+      case ValueMetaInterface.TYPE_DATE:
+        return DateEncoder.newEncoder( valueMeta );
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Digits, the minus sign and the punctuation of the numeric date masks need to encode to their ASCII values.
+   */
+  static boolean isAsciiCompatible( String encoding ) {
+    try {
+      Charset charset = Utils.isEmpty( encoding ) ? Charset.defaultCharset() : Charset.forName( encoding );
+      String probe = " !\"#$%&()*+,-./0123456789:;<=>?@[\\]^_`{|}~";
+      return Arrays.equals( probe.getBytes( charset ), probe.getBytes( "US-ASCII" ) );
+    } catch ( Exception e ) {
+      return false;
+    }
+  }
+
+  private static boolean contains( byte[] bytes, byte b ) {
+    for ( byte x : bytes ) {
+      if ( x == b ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes a non-negative value with at least minDigits digits.
+   *
+   * @return the new position in the buffer
+   */
+  static int writeDigits( byte[] buffer, int pos, long value, int minDigits ) {
+    int digits = 1;
+    for ( long v = value / 10; v > 0; v /= 10 ) {
+      digits++;
+    }
+    int length = Math.max( digits, minDigits );
+    int end = pos + length;
+    int i = end;
+    long v = value;
+    while ( i > pos ) {
+      buffer[ --i ] = (byte) ( '0' + ( v % 10 ) );
+      v /= 10;
+    }
+    return end;
+  }
+
+  /**
+   * Integers formatted with masks like ####0;-####0 : no grouping, no decimals, no padding.
+   */
+  static class IntegerEncoder extends TextFileFieldEncoder {
+
+    static TextFileFieldEncoder newEncoder( ValueMetaInterface valueMeta ) {
+      String mask = valueMeta.getFormatMask();
+      if ( mask == null || !mask.matches( "#*0(;-#*0)?" ) ) {
+        return null;
+      }
+      DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+      if ( symbols.getZeroDigit() != '0' || symbols.getMinusSign() != '-' ) {
+        return null;
+      }
+      return new IntegerEncoder();
+    }
+
+    @Override
+    public int encode( Object value, byte[] buffer ) {
+      long l = (Long) value;
+      if ( l == Long.MIN_VALUE ) {
+        return -1;
+      }
+      int pos = 0;
+      if ( l < 0 ) {
+        buffer[ pos++ ] = '-';
+        l = -l;
+      }
+      return writeDigits( buffer, pos, l, 1 );
+    }
+
+    @Override
+    public int getMaxLength() {
+      return 20;
+    }
+
+    @Override
+    protected byte[] getLiterals() {
+      return new byte[0];
+    }
+  }
+
+  /**
+   * Dates formatted with a mask that only contains numeric fields (y, M, d, H, m, s, S) and literals.
+   */
+  static class DateEncoder extends TextFileFieldEncoder {
+    private static final char LITERAL = 0;
+
+    private final char[] fields;
+    private final int[] widths;
+    private final byte[] literals;
+    private final TimeZone timeZone;
+
+    DateEncoder( char[] fields, int[] widths, byte[] literals, TimeZone timeZone ) {
+      this.fields = fields;
+      this.widths = widths;
+      this.literals = literals;
+      this.timeZone = timeZone;
+    }
+
+    static TextFileFieldEncoder newEncoder( ValueMetaInterface valueMeta ) {
+      String mask = valueMeta.getFormatMask();
+      if ( Utils.isEmpty( mask ) ) {
+        return null;
+      }
+
+      StringBuilder fields = new StringBuilder();
+      int[] widths = new int[ mask.length() ];
+      StringBuilder literals = new StringBuilder();
+
+      int i = 0;
+      while ( i < mask.length() ) {
+        char c = mask.charAt( i );
+        if ( c == '\'' ) {
+          // Quoted literal text, '' is a single quote
+          //
+          int end = mask.indexOf( '\'', i + 1 );
+          if ( end < 0 ) {
+            return null;
+          }
+          String text = end == i + 1 ? "'" : mask.substring( i + 1, end );
+          for ( char t : text.toCharArray() ) {
+            if ( t > 127 ) {
+              return null;
+            }
+            widths[ fields.length() ] = literals.length();
+            fields.append( LITERAL );
+            literals.append( t );
+          }
+          i = end + 1;
+        } else if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) {
+          int count = 1;
+          while ( i + count < mask.length() && mask.charAt( i + count ) == c ) {
+            count++;
+          }
+          switch ( c ) {
+            case 'M':
+              if ( count > 2 ) {
+                return null; // month names
+              }
+              break;
+            case 'y':
+            case 'd':
+            case 'H':
+            case 'm':
+            case 's':
+            case 'S':
+              break;
+            default:
+              return null;
+          }
+          widths[ fields.length() ] = count;
+          fields.append( c );
+          i += count;
+        } else {
+          if ( c > 127 ) {
+            return null;
+          }
+          widths[ fields.length() ] = literals.length();
+          fields.append( LITERAL );
+          literals.append( c );
+          i++;
+        }
+      }
+
+      TimeZone timeZone = valueMeta.getDateFormatTimeZone();
+      if ( timeZone == null ) {
+        timeZone = TimeZone.getDefault();
+      }
+      // Non-Gregorian calendars (Buddhist, Japanese imperial) and native digits are left to SimpleDateFormat
+      //
+      Locale locale = valueMeta.getDateFormatLocale();
+      if ( locale == null ) {
+        locale = Locale.getDefault();
+      }
+      if ( !"gregory".equals( Calendar.getInstance( timeZone, locale ).getCalendarType() )
+        || DecimalFormatSymbols.getInstance( locale ).getZeroDigit() != '0' ) {
+        return null;
+      }
+      byte[] literalBytes = new byte[ literals.length() ];
+      for ( int l = 0; l < literalBytes.length; l++ ) {
+        literalBytes[ l ] = (byte) literals.charAt( l );
+      }
+      return new DateEncoder( fields.toString().toCharArray(), Arrays.copyOf( widths, fields.length() ),
+        literalBytes, (TimeZone) timeZone.clone() );
+    }
+
+    @Override
+    public int encode( Object value, byte[] buffer ) {
+      long millis = ( (Date) value ).getTime();
+      if ( millis < GREGORIAN_CUTOVER ) {
+        return -1;
+      }
+      long local = millis + timeZone.getOffset( millis );
+      long days = Math.floorDiv( local, MILLIS_PER_DAY );
+      int millisOfDay = (int) Math.floorMod( local, MILLIS_PER_DAY );
+
+      // Convert the days since the epoch to a proleptic Gregorian year/month/day
+      //
+      long z = days + 719468;
+      long era = Math.floorDiv( z, 146097 );
+      long dayOfEra = z - era * 146097;
+      long yearOfEra = ( dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096 ) / 365;
+      long dayOfYear = dayOfEra - ( 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100 );
+      long mp = ( 5 * dayOfYear + 2 ) / 153;
+      long day = dayOfYear - ( 153 * mp + 2 ) / 5 + 1;
+      long month = mp < 10 ? mp + 3 : mp - 9;
+      long year = yearOfEra + era * 400 + ( month <= 2 ? 1 : 0 );
+
+      int pos = 0;
+      for ( int f = 0; f < fields.length; f++ ) {
+        int width = widths[ f ];
+        switch ( fields[ f ] ) {
+          case LITERAL:
+            buffer[ pos++ ] = literals[ width ];
+            break;
+          case 'y':
+            pos = width == 2 ? writeDigits( buffer, pos, year % 100, 2 ) : writeDigits( buffer, pos, year, width );
+            break;
+          case 'M':
+            pos = writeDigits( buffer, pos, month, width );
+            break;
+          case 'd':
+            pos = writeDigits( buffer, pos, day, width );
+            break;
+          case 'H':
+            pos = writeDigits( buffer, pos, millisOfDay / 3600000, width );
+            break;
+          case 'm':
+            pos = writeDigits( buffer, pos, ( millisOfDay / 60000 ) % 60, width );
+            break;
+          case 's':
+            pos = writeDigits( buffer, pos, ( millisOfDay / 1000 ) % 60, width );
+            break;
+          case 'S':
+            pos = writeDigits( buffer, pos, millisOfDay % 1000, width );
+            break;
+          default:
+            return -1;
+        }
+      }
+      return pos;
+    }
+
+    @Override
+    public int getMaxLength() {
+      int length = 0;
+      for ( int f = 0; f < fields.length; f++ ) {
+        length += fields[ f ] == LITERAL ? 1 : Math.max( widths[ f ], 10 );
+      }
+      return length;
+    }
+
+    @Override
+    protected byte[] getLiterals() {
+      return literals;
+    }
+  }
+}
@@ -69,6 +69,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
   private static final String FILE_COMPRESSION_TYPE_NONE =
       TextFileOutputMeta.fileCompressionTypeCodes[TextFileOutputMeta.FILE_COMPRESSION_TYPE_NONE];
+  private static final int DEFAULT_BUFFER_SIZE = 5000;
+
   private static final boolean COMPATIBILITY_APPEND_NO_HEADER = "Y".equals(
           Const.NVL( System.getProperty( Const.KETTLE_COMPATIBILITY_TEXT_FILE_OUTPUT_APPEND_NO_HEADER ), "N" ) );
 
@@ -199,7 +201,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             }
           }
 
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream = createBufferedOutputStream( compressionOutputStream );
 
           fileStreams = data.new FileStream( fileOutputStream, compressionOutputStream, bufferedOutputStream );
 
@@ -219,7 +221,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           CompressionProvider compressionProvider = getCompressionProvider();
           CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
           compressionOutputStream.addEntry( filename, environmentSubstitute( meta.getExtension() ) );
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream = createBufferedOutputStream( compressionOutputStream );
 
           fileStreams.setFileOutputStream( fileOutputStream );
           fileStreams.setCompressedOutputStream( compressionOutputStream );
@@ -287,6 +289,35 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     return flushInterval;
   }
 
+  public int getBufferSize() {
+    String bufferSizeStr = getTransMeta().getVariable( Const.KETTLE_FILE_OUTPUT_BUFFER_SIZE );
+    int bufferSize = DEFAULT_BUFFER_SIZE;
+    if ( bufferSizeStr != null ) {
+      try {
+        bufferSize = Integer.parseInt( bufferSizeStr.trim() );
+      } catch ( Exception ex ) {
+        // Do nothing
+      }
+    }
+    return bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+  }
+
+  public boolean isAsyncFlush() {
+    return "Y".equalsIgnoreCase( getTransMeta().getVariable( Const.KETTLE_FILE_OUTPUT_ASYNC_FLUSH ) );
+  }
+
+  public boolean isFastEncoding() {
+    return "Y".equalsIgnoreCase( getTransMeta().getVariable( Const.KETTLE_FILE_OUTPUT_FAST_ENCODING ) );
+  }
+
+  protected BufferedOutputStream createBufferedOutputStream( OutputStream outputStream ) {
+    if ( isAsyncFlush() ) {
+      return new AsyncFlushOutputStream( outputStream, getBufferSize(), getStepname() + " - file writer" );
+    } else {
+      return new BufferedOutputStream( outputStream, getBufferSize() );
+    }
+  }
+
   public int getMaxOpenFiles(  )  {
     String maxStreamCountStr = getTransMeta().getVariable( "KETTLE_FILE_OUTPUT_MAX_STREAM_COUNT" );
     int maxStreamCount = 0;
@@ -456,6 +487,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
         }
         meta.calcMetaWithFieldOptions( data );
+        initFieldEncoders();
       }
     }
 
@@ -499,7 +531,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
           ValueMetaInterface v = meta.getMetaWithFieldOptions()[ i ];
           Object valueData = r[ data.fieldnrs[ i ] ];
-          writeField( v, valueData, data.binaryNullValue[ i ] );
+          if ( !writeEncodedField( i, valueData ) ) {
+            writeField( v, valueData, data.binaryNullValue[ i ] );
+          }
         }
       }
 
@@ -512,6 +546,71 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Writes the value of output field i straight from the field encoder, if there is one for the field.
+   *
+   * @return true if the field was written, false if it needs to go through the regular conversion
+   */
+  private boolean writeEncodedField( int i, Object valueData ) throws IOException {
+    if ( data.fieldEncoders == null || data.fieldEncoders[ i ] == null || valueData == null ) {
+      return false;
+    }
+    int length = data.fieldEncoders[ i ].encode( valueData, data.fieldBuffer );
+    if ( length < 0 ) {
+      return false;
+    }
+    if ( length > 0 ) {
+      // The encoded value never needs enclosing or escaping of enclosures, see initFieldEncoders()
+      //
+      boolean writeEnclosures = meta.isEnclosureForced() && !meta.isPadded() && data.binaryEnclosure.length > 0;
+      if ( writeEnclosures ) {
+        data.writer.write( data.binaryEnclosure );
+      }
+      data.writer.write( data.fieldBuffer, 0, length );
+      if ( writeEnclosures ) {
+        data.writer.write( data.binaryEnclosure );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sets up the direct encoding of the output fields that have a simple numeric format. Only used when
+   * {@link Const#KETTLE_FILE_OUTPUT_FAST_ENCODING} is enabled.
+   */
+  protected void initFieldEncoders() {
+    data.fieldEncoders = null;
+    data.fieldBuffer = null;
+    if ( meta.isFastDump() || !isFastEncoding() ) {
+      return;
+    }
+
+    ValueMetaInterface[] metas = meta.getMetaWithFieldOptions();
+    TextFileFieldEncoder[] encoders = new TextFileFieldEncoder[ metas.length ];
+    int maxLength = 0;
+    for ( int i = 0; i < metas.length; i++ ) {
+      TextFileFieldEncoder encoder = TextFileFieldEncoder.create( metas[ i ] );
+      // Values that might need enclosing or escaping of enclosures take the regular path: with the enclosure fix
+      // values holding the separator or enclosure are enclosed, with forced enclosures the enclosures are doubled.
+      //
+      if ( encoder != null && ( meta.isEnclosureForced() || !meta.isEnclosureFixDisabled() )
+        && encoder.mightContain( data.binarySeparator, data.binaryEnclosure ) ) {
+        encoder = null;
+      }
+      if ( encoder != null ) {
+        encoders[ i ] = encoder;
+        maxLength = Math.max( maxLength, encoder.getMaxLength() );
+      }
+    }
+    if ( maxLength > 0 ) {
+      data.fieldEncoders = encoders;
+      data.fieldBuffer = new byte[ maxLength ];
+      if ( log.isDetailed() ) {
+        logDetailed( "Encoding integer and date fields directly to bytes" );
+      }
+    }
+  }
+
   private byte[] formatField( ValueMetaInterface v, Object valueData ) throws KettleValueException {
     if ( v.isString() ) {
       if ( v.isStorageBinaryString() && v.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE && v.getLength() < 0
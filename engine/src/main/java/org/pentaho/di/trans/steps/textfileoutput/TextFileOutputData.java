@@ -115,6 +115,9 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
     }
 
     public void close() throws IOException {
+      if ( bufferedOutputStream instanceof AsyncFlushOutputStream ) {
+        ( (AsyncFlushOutputStream) bufferedOutputStream ).shutdown();
+      }
       setBufferedOutputStream( null );
       getCompressedOutputStream().close();
       setCompressedOutputStream( null );
@@ -410,6 +413,13 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
 
   public byte[][] binaryNullValue;
 
+  /**
+   * Per output field: writes the value directly in the field buffer, null if the regular conversion is needed
+   */
+  public TextFileFieldEncoder[] fieldEncoders;
+
+  public byte[] fieldBuffer;
+
   public boolean oneFileOpened;
 
   public int fileNameFieldIndex;
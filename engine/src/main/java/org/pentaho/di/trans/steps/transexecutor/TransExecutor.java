@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.json.simple.JSONArray;
@@ -86,6 +87,7 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
       if ( row == null ) {
         executeTransformation( null );
+        finishExecutions( 0 );
         setOutputDone();
         return false;
       }
@@ -217,9 +219,11 @@ public class TransExecutor extends BaseStep implements StepInterface {
     // keep track for drill down in Spoon...
     getTrans().addActiveSubTransformation( getStepname(), executorTrans );
 
-    Result result = new Result();
-    result.setRows( transExecutorData.groupBuffer );
-    executorTrans.setPreviousResult( result );
+    // The group buffer is filled again while the transformation runs when several groups run at the same time
+    TransExecutorData.Execution execution = new TransExecutorData.Execution( executorTrans,
+      transExecutorData.groupTimeStart, new ArrayList<>( transExecutorData.groupBuffer ) );
+    transExecutorData.groupBuffer.clear();
+    executorTrans.setPreviousResult( execution.result );
 
     try {
       executorTrans.prepareExecution( getTrans().getArguments() );
@@ -233,26 +237,44 @@ public class TransExecutor extends BaseStep implements StepInterface {
         // but the execution configuration information is useful in case of a transformation re-start on Carte
         delegationListener.transformationDelegationStarted( executorTrans, new TransExecutionConfiguration() );
       }
-
-      // Wait a while until we're done with the transformation
-      executorTrans.waitUntilFinished();
-
-      result = executorTrans.getResult();
     } catch ( KettleException e ) {
       log.logError( "An error occurred executing the transformation: ", e );
-      result.setResult( false );
-      result.setNrErrors( 1 );
+      execution.result.setResult( false );
+      execution.result.setNrErrors( 1 );
+      execution.failed = true;
     }
 
-    if ( result.isSafeStop() ) {
-      getTrans().safeStop();
-    }
+    transExecutorData.executions.add( execution );
+    finishExecutions( transExecutorData.maxConcurrentExecutions - 1 );
+  }
 
-    collectTransResults( result );
-    collectExecutionResults( result );
-    collectExecutionResultFiles( result );
+  /**
+   * Waits for the oldest running transformations to finish and collects their results, in the order in which they
+   * were started, until no more than the given number of transformations is running.
+   */
+  private void finishExecutions( int maxRunning ) throws KettleException {
+    TransExecutorData transExecutorData = getData();
+    while ( transExecutorData.executions.size() > maxRunning ) {
+      // The execution stays in the queue while it runs, so that it can be stopped
+      TransExecutorData.Execution execution = transExecutorData.executions.peek();
 
-    transExecutorData.groupBuffer.clear();
+      Result result = execution.result;
+      if ( !execution.failed ) {
+        // Wait a while until we're done with the transformation
+        execution.trans.waitUntilFinished();
+
+        result = execution.trans.getResult();
+      }
+
+      if ( result.isSafeStop() ) {
+        getTrans().safeStop();
+      }
+
+      collectTransResults( result );
+      collectExecutionResults( result, execution.trans, execution.startTime );
+      collectExecutionResultFiles( result );
+      transExecutorData.executions.poll();
+    }
   }
 
   @VisibleForTesting
@@ -265,9 +287,22 @@ public class TransExecutor extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Returns the transformation metadata for the next group. The copies are handed out in turn: the groups finish in
+   * the order in which they were started, so the copy is no longer used by a running group when it comes back.
+   */
+  private TransMeta nextExecutorTransMeta() {
+    TransExecutorData transExecutorData = getData();
+    TransMeta[] executorTransMetas = transExecutorData.executorTransMetas;
+    if ( executorTransMetas == null || executorTransMetas.length < 2 ) {
+      return transExecutorData.getExecutorTransMeta();
+    }
+    return executorTransMetas[ transExecutorData.executionNr++ % executorTransMetas.length ];
+  }
+
   @VisibleForTesting
   Trans createInternalTrans() throws KettleException {
-    Trans executorTrans = new Trans( getData().getExecutorTransMeta(), this );
+    Trans executorTrans = new Trans( nextExecutorTransMeta(), this );
 
     executorTrans.setParentTrans( getTrans() );
     executorTrans.setRepository( getTrans().getRepository() );
@@ -409,13 +444,17 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
   @VisibleForTesting
   void collectExecutionResults( Result result ) throws KettleException {
+    collectExecutionResults( result, getData().getExecutorTrans(), getData().groupTimeStart );
+  }
+
+  private void collectExecutionResults( Result result, Trans executorTrans, long startTime ) throws KettleException {
     RowSet executionResultsRowSet = getData().getExecutionResultRowSet();
     if ( meta.getExecutionResultTargetStepMeta() != null && executionResultsRowSet != null ) {
       Object[] outputRow = RowDataUtil.allocateRowData( getData().getExecutionResultsOutputRowMeta().size() );
       int idx = 0;
 
       if ( !Utils.isEmpty( meta.getExecutionTimeField() ) ) {
-        outputRow[ idx++ ] = Long.valueOf( System.currentTimeMillis() - getData().groupTimeStart );
+        outputRow[ idx++ ] = Long.valueOf( System.currentTimeMillis() - startTime );
       }
       if ( !Utils.isEmpty( meta.getExecutionResultField() ) ) {
         outputRow[ idx++ ] = Boolean.valueOf( result.getResult() );
@@ -451,12 +490,12 @@ public class TransExecutor extends BaseStep implements StepInterface {
         outputRow[ idx++ ] = Long.valueOf( result.getExitStatus() );
       }
       if ( !Utils.isEmpty( meta.getExecutionLogTextField() ) ) {
-        String channelId = getData().getExecutorTrans().getLogChannelId();
+        String channelId = executorTrans.getLogChannelId();
         String logText = KettleLogStore.getAppender().getBuffer( channelId, false ).toString();
         outputRow[ idx++ ] = logText;
       }
       if ( !Utils.isEmpty( meta.getExecutionLogChannelIdField() ) ) {
-        outputRow[ idx++ ] = getData().getExecutorTrans().getLogChannelId();
+        outputRow[ idx++ ] = executorTrans.getLogChannelId();
       }
 
       putRowTo( getData().getExecutionResultsOutputRowMeta(), outputRow, executionResultsRowSet );
@@ -510,6 +549,25 @@ public class TransExecutor extends BaseStep implements StepInterface {
           }
           transExecutorData.groupTimeStart = System.currentTimeMillis();
 
+          // How many groups may run at the same time?
+          transExecutorData.maxConcurrentExecutions =
+            Math.max( 1, Const.toInt( getVariable( Const.KETTLE_TRANS_EXECUTOR_CONCURRENT_GROUPS ), 1 ) );
+          if ( transExecutorData.maxConcurrentExecutions > 1
+            && transExecutorData.getExecutorTransMeta().isUsingUniqueConnections() ) {
+            // The groups would all share the transaction of the parent transformation
+            logBasic( BaseMessages.getString( PKG, "TransExecutor.Log.UniqueConnectionsOneGroupAtATime" ) );
+            transExecutorData.maxConcurrentExecutions = 1;
+          }
+          transExecutorData.executions = new ConcurrentLinkedDeque<>();
+
+          // Every group that runs at the same time gets a transformation of its own to activate its parameters in
+          transExecutorData.executorTransMetas = new TransMeta[ transExecutorData.maxConcurrentExecutions ];
+          transExecutorData.executorTransMetas[ 0 ] = transExecutorData.getExecutorTransMeta();
+          for ( int i = 1; i < transExecutorData.executorTransMetas.length; i++ ) {
+            transExecutorData.executorTransMetas[ i ] = loadExecutorTransMeta();
+          }
+          transExecutorData.executionNr = 0;
+
           // Is there a grouping field set?
           if ( !Utils.isEmpty( meta.getGroupField() ) ) {
             transExecutorData.groupField = environmentSubstitute( meta.getGroupField() );
@@ -541,16 +599,12 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
   public void stopRunning( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface )
     throws KettleException {
-    if ( getData().getExecutorTrans() != null ) {
-      getData().getExecutorTrans().stopAll();
-    }
+    stopExecutions();
   }
 
   public void stopAll() {
     // Stop the transformation execution.
-    if ( getData().getExecutorTrans() != null ) {
-      getData().getExecutorTrans().stopAll();
-    }
+    stopExecutions();
 
     // Also stop this step
     super.stopAll();
@@ -560,6 +614,17 @@ public class TransExecutor extends BaseStep implements StepInterface {
     return getData().getExecutorTrans();
   }
 
+  private void stopExecutions() {
+    if ( getData().getExecutorTrans() != null ) {
+      getData().getExecutorTrans().stopAll();
+    }
+    if ( getData().executions != null ) {
+      for ( TransExecutorData.Execution execution : getData().executions ) {
+        execution.trans.stopAll();
+      }
+    }
+  }
+
   @VisibleForTesting
   TransExecutorData getData() {
     return data;
@@ -13,8 +13,10 @@
 
 package org.pentaho.di.trans.steps.transexecutor;
 
+import java.util.Deque;
 import java.util.List;
 
+import org.pentaho.di.core.Result;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -50,11 +52,38 @@ public class TransExecutorData extends BaseStepData implements StepDataInterface
 
   public Object prevGroupFieldData;
 
+  public int maxConcurrentExecutions;
+  /** The running groups, in the order in which they were started; also read by the threads stopping the step */
+  public Deque<Execution> executions;
+
+  /**
+   * A copy of the transformation for every group that can run at the same time
+   */
+  public TransMeta[] executorTransMetas;
+  public int executionNr;
+
   private RowSet executorStepOutputRowSet;
   private RowSet resultRowsRowSet;
   private RowSet resultFilesRowSet;
   private RowSet executionResultRowSet;
 
+  /**
+   * A transformation started for a group of rows, of which the results aren't collected yet.
+   */
+  public static class Execution {
+    public final Trans trans;
+    public final long startTime;
+    public final Result result;
+    public boolean failed;
+
+    public Execution( Trans trans, long startTime, List<RowMetaAndData> rows ) {
+      this.trans = trans;
+      this.startTime = startTime;
+      this.result = new Result();
+      this.result.setRows( rows );
+    }
+  }
+
   public TransExecutorData() {
     super();
   }
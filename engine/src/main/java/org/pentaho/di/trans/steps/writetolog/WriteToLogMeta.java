@@ -364,4 +364,9 @@ public class WriteToLogMeta extends BaseStepMeta implements StepMetaInterface {
     return new WriteToLogData();
   }
 
+  @Override
+  public boolean modifiesInputRows() {
+    return false;
+  }
+
 }
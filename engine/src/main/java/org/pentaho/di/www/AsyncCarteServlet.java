@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Servlet;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+/**
+ * Runs the requests of a Carte servlet on its own {@link CarteRequestExecutor} with Servlet 3 asynchronous processing,
+ * so that the threads of the web server are free again as soon as a request is handed over. When the executor is full
+ * the client gets a 503 and is asked to retry later.
+ */
+public class AsyncCarteServlet extends HttpServlet {
+
+  private static final long serialVersionUID = -1510364373497255341L;
+
+  /** The number of seconds after which a refused client should retry */
+  private static final String RETRY_AFTER = "1";
+
+  private final transient Servlet servlet;
+  private final transient CarteRequestExecutor executor;
+  private final transient LogChannelInterface log;
+
+  public AsyncCarteServlet( Servlet servlet, CarteRequestExecutor executor ) {
+    this.servlet = servlet;
+    this.executor = executor;
+    this.log = new LogChannel( "Servlet" );
+  }
+
+  @Override
+  public void init( ServletConfig config ) throws ServletException {
+    super.init( config );
+    servlet.init( config );
+  }
+
+  @Override
+  public void destroy() {
+    servlet.destroy();
+    super.destroy();
+  }
+
+  @Override
+  protected void service( HttpServletRequest request, HttpServletResponse response ) throws ServletException,
+    IOException {
+    AsyncContext context = request.startAsync();
+    // Executions can take as long as they need
+    context.setTimeout( 0 );
+
+    boolean accepted = executor.execute( () -> {
+      try {
+        servlet.service( context.getRequest(), context.getResponse() );
+      } catch ( Exception e ) {
+        log.logError( "Error handling request to " + executor.getContextPath(), e );
+        sendError( response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR );
+      } finally {
+        context.complete();
+      }
+    } );
+
+    if ( !accepted ) {
+      log.logBasic( "Too many requests waiting for " + executor.getContextPath() + ", refusing the request" );
+      response.setHeader( "Retry-After", RETRY_AFTER );
+      sendError( response, HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+      context.complete();
+    }
+  }
+
+  private void sendError( HttpServletResponse response, int status ) {
+    if ( !response.isCommitted() ) {
+      try {
+        response.sendError( status );
+      } catch ( IOException e ) {
+        log.logError( "Unable to send error " + status + " for " + executor.getContextPath(), e );
+      }
+    }
+  }
+
+  public Servlet getServlet() {
+    return servlet;
+  }
+}
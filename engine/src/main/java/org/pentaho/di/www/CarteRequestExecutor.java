@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded thread pool for the requests of one Carte servlet.<br>
+ * <br>
+ * Every servlet gets its own pool, so a burst of requests to one of them, for example hundreds of executions submitted
+ * at once, can't take the threads that the status and stop requests need. When the pool and its queue are full, the
+ * request is refused instead of waiting.<br>
+ * <br>
+ * The executors belong to the {@link WebServer} that created them, so servers running in the same JVM keep their pools
+ * and their load apart.
+ */
+public class CarteRequestExecutor {
+
+  private final String contextPath;
+  private final int threads;
+  private final ThreadPoolExecutor pool;
+
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+
+  /**
+   * @param contextPath
+   *          the context path of the servlet
+   * @param threads
+   *          the maximum number of requests to execute at the same time
+   * @param queueSize
+   *          the maximum number of requests waiting for a thread
+   */
+  public CarteRequestExecutor( String contextPath, int threads, int queueSize ) {
+    this.contextPath = contextPath;
+    this.threads = threads;
+    AtomicInteger threadNr = new AtomicInteger();
+    pool = new ThreadPoolExecutor( threads, threads, 60L, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>( Math.max( 1, queueSize ) ), runnable -> {
+        Thread thread = new Thread( runnable, "Carte " + contextPath + " " + threadNr.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    pool.allowCoreThreadTimeOut( true );
+  }
+
+  /**
+   * @param request
+   *          the request to execute
+   * @return false if the request was refused because there are too many waiting already
+   */
+  public boolean execute( Runnable request ) {
+    long queued = System.nanoTime();
+    try {
+      pool.execute( () -> {
+        waitNanos.addAndGet( System.nanoTime() - queued );
+        active.incrementAndGet();
+        try {
+          request.run();
+        } finally {
+          active.decrementAndGet();
+          completed.incrementAndGet();
+        }
+      } );
+      return true;
+    } catch ( RejectedExecutionException e ) {
+      rejected.incrementAndGet();
+      return false;
+    }
+  }
+
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  public String getContextPath() {
+    return contextPath;
+  }
+
+  public SlaveServerRequestQueueStatus getStatus() {
+    SlaveServerRequestQueueStatus status = new SlaveServerRequestQueueStatus();
+    status.setContextPath( contextPath );
+    status.setThreads( threads );
+    status.setActive( active.get() );
+    status.setQueued( pool.getQueue().size() );
+    long executed = completed.get();
+    status.setCompleted( executed );
+    status.setRejected( rejected.get() );
+    status.setAverageWaitMillis( executed == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis( waitNanos.get() / executed ) );
+    return status;
+  }
+
+  /**
+   * @param executors
+   *          the executors of one server
+   * @return the load of the executors, sorted by context path
+   */
+  public static List<SlaveServerRequestQueueStatus> getStatusList( Collection<CarteRequestExecutor> executors ) {
+    List<SlaveServerRequestQueueStatus> statusList = new ArrayList<>();
+    for ( CarteRequestExecutor executor : executors ) {
+      statusList.add( executor.getStatus() );
+    }
+    statusList.sort( Comparator.comparing( SlaveServerRequestQueueStatus::getContextPath ) );
+    return statusList;
+  }
+}
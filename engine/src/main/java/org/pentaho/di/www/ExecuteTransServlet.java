@@ -63,6 +63,8 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
 
   public static final String CONTEXT_PATH = "/kettle/executeTrans";
 
+  private final PreparedTransPool.Holder preparedTransPool = new PreparedTransPool.Holder( CONTEXT_PATH );
+
   public ExecuteTransServlet() {
   }
 
@@ -81,6 +83,9 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
   Empty response is returned or response contains output of an error happened during the transformation execution.
   Response contains <code>ERROR</code> result if error happened during transformation execution.</p>
 
+    <p>Transformation files listed in <code>KETTLE_CARTE_PREPARED_TRANSFORMATIONS</code> are kept parsed and prepared
+  for execution, which saves the preparation for requests without parameters and log level.</p>
+
     <p><b>Example Request:</b><br />
     <pre function="syntax.xml">
     GET /kettle/executeTrans/?rep=my_repository&user=my_user&pass=my_password&trans=my_trans&level=INFO
@@ -250,7 +255,27 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
     try {
 
       final Repository repository = openRepository( repOption, userOption, passOption );
-      final TransMeta transMeta = loadTransformation( repository, transOption );
+      LogLevel logLevel = LogLevel.getLogLevelForCode( levelOption );
+
+      // Transformation files can be kept parsed and prepared, which doesn't work with a connection per request.
+      // Prepared ones can only be used if there are no variables to set.
+      //
+      PreparedTransPool pool = preparedTransPool.get();
+      boolean designated = repository == null && pool.isDesignated( transOption );
+      Trans preparedTrans = null;
+      if ( designated && PreparedTransPool.canUse( request, levelOption, knownOptions ) ) {
+        preparedTrans = pool.take( transOption, null, () -> loadTransformation( null, transOption ),
+          meta -> createTrans( meta, null, logLevel ), out );
+      }
+
+      final TransMeta transMeta;
+      if ( preparedTrans != null ) {
+        transMeta = preparedTrans.getTransMeta();
+      } else if ( designated ) {
+        transMeta = pool.getTransMeta( transOption, null, () -> loadTransformation( null, transOption ) );
+      } else {
+        transMeta = loadTransformation( repository, transOption );
+      }
 
       // Set the servlet parameters as variables in the transformation
       //
@@ -274,25 +299,14 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
       }
 
       TransExecutionConfiguration transExecutionConfiguration = new TransExecutionConfiguration();
-      LogLevel logLevel = LogLevel.getLogLevelForCode( levelOption );
       transExecutionConfiguration.setLogLevel( logLevel );
       TransConfiguration transConfiguration = new TransConfiguration( transMeta, transExecutionConfiguration );
 
-      String carteObjectId = UUID.randomUUID().toString();
-      SimpleLoggingObject servletLoggingObject =
-        new SimpleLoggingObject( CONTEXT_PATH, LoggingObjectType.CARTE, null );
-      servletLoggingObject.setContainerObjectId( carteObjectId );
-      servletLoggingObject.setLogLevel( logLevel );
-
       // Create the transformation and store in the list...
       //
-      final Trans trans = new Trans( transMeta, servletLoggingObject );
-
-      trans.setRepository( repository );
-      trans.setSocketRepository( getSocketRepository() );
-
-      getTransformationMap().addTransformation( transMeta.getName(), carteObjectId, trans, transConfiguration );
-      trans.setContainerObjectId( carteObjectId );
+      final Trans trans = preparedTrans != null ? preparedTrans : createTrans( transMeta, repository, logLevel );
+      getTransformationMap().addTransformation( transMeta.getName(), trans.getContainerObjectId(), trans,
+        transConfiguration );
 
       if ( repository != null ) {
         // The repository connection is open: make sure we disconnect from the repository once we
@@ -349,6 +363,27 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
     }
   }
 
+  private Trans createTrans( TransMeta transMeta, Repository repository, LogLevel logLevel ) {
+    String carteObjectId = UUID.randomUUID().toString();
+    SimpleLoggingObject servletLoggingObject =
+      new SimpleLoggingObject( CONTEXT_PATH, LoggingObjectType.CARTE, null );
+    servletLoggingObject.setContainerObjectId( carteObjectId );
+    servletLoggingObject.setLogLevel( logLevel );
+
+    Trans trans = new Trans( transMeta, servletLoggingObject );
+
+    trans.setRepository( repository );
+    trans.setSocketRepository( getSocketRepository() );
+    trans.setContainerObjectId( carteObjectId );
+    return trans;
+  }
+
+  @Override
+  public void destroy() {
+    preparedTransPool.clear();
+    super.destroy();
+  }
+
   private TransMeta loadTransformation( Repository repository, String trans ) throws KettleException {
 
     if ( repository == null ) {
@@ -416,7 +451,9 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
   }
 
   protected void executeTrans( Trans trans ) throws KettleException {
-    trans.prepareExecution( null );
+    if ( !trans.isReadyToStart() ) {
+      trans.prepareExecution( null );
+    }
     trans.startThreads();
     trans.waitUntilFinished();
   }
@@ -20,6 +20,9 @@ import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.Job;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.www.cache.CarteStatusSnapshots;
+
+import com.google.common.annotations.VisibleForTesting;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -44,6 +47,11 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
 
   public static final String CONTEXT_PATH = "/kettle/status";
 
+  @VisibleForTesting
+  CarteStatusSnapshots snapshots = new CarteStatusSnapshots();
+
+  private transient List<CarteRequestExecutor> requestExecutors = Collections.emptyList();
+
   public GetStatusServlet() {
   }
 
@@ -51,6 +59,14 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
     super( transformationMap, jobMap );
   }
 
+  /**
+   * @param requestExecutors
+   *          the request executors of the server this servlet runs in, to show their load in the status
+   */
+  public void setRequestExecutors( List<CarteRequestExecutor> requestExecutors ) {
+    this.requestExecutors = requestExecutors;
+  }
+
   /**
    <div id="mindtouch">
    <h1>/kettle/status</h1>
@@ -205,38 +221,16 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
     List<CarteObjectEntry> jobEntries = getJobMap().getJobObjects();
 
     if ( useXML ) {
-      out.print( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
-      SlaveServerStatus serverStatus = new SlaveServerStatus();
-      serverStatus.setStatusDescription( "Online" );
-
-      getSystemInfo( serverStatus );
-
-      for ( CarteObjectEntry entry : transEntries ) {
-        Trans trans = getTransformationMap().getTransformation( entry );
-        if ( trans != null ) {
-          String status = trans.getStatus();
-          SlaveServerTransStatus sstatus = new SlaveServerTransStatus( entry.getName(), entry.getId(), status );
-          sstatus.setLogDate( trans.getLogDate() );
-          sstatus.setPaused( trans.isPaused() );
-          serverStatus.getTransStatusList().add( sstatus );
-        }
-      }
-
-      for ( CarteObjectEntry entry : jobEntries ) {
-        Job job = getJobMap().getJob( entry );
-        if ( job != null ) {
-          String status = job.getStatus();
-          SlaveServerJobStatus jobStatus = new SlaveServerJobStatus( entry.getName(), entry.getId(), status );
-          jobStatus.setLogDate( job.getLogDate() );
-          serverStatus.getJobStatusList().add( jobStatus );
-        }
+      // All the clients polling in the same interval get the same status
+      //
+      String xml = snapshots.getServerStatus();
+      if ( xml == null ) {
+        xml = getServerStatusXML( transEntries, jobEntries );
+        snapshots.putServerStatus( xml );
       }
 
-      try {
-        out.println( serverStatus.getXML() );
-      } catch ( KettleException e ) {
-        throw new ServletException( "Unable to get the server status in XML format", e );
-      }
+      out.print( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
+      out.println( xml );
     } else {
       out.println( "<HTML>" );
       out.println( "<HEAD><TITLE>"
@@ -977,6 +971,42 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
       .collect( Collectors.joining( "/" ) );
   }
 
+  private String getServerStatusXML( List<CarteObjectEntry> transEntries, List<CarteObjectEntry> jobEntries )
+    throws ServletException {
+    SlaveServerStatus serverStatus = new SlaveServerStatus();
+    serverStatus.setStatusDescription( "Online" );
+
+    getSystemInfo( serverStatus );
+    serverStatus.getRequestQueueList().addAll( CarteRequestExecutor.getStatusList( requestExecutors ) );
+
+    for ( CarteObjectEntry entry : transEntries ) {
+      Trans trans = getTransformationMap().getTransformation( entry );
+      if ( trans != null ) {
+        String status = trans.getStatus();
+        SlaveServerTransStatus sstatus = new SlaveServerTransStatus( entry.getName(), entry.getId(), status );
+        sstatus.setLogDate( trans.getLogDate() );
+        sstatus.setPaused( trans.isPaused() );
+        serverStatus.getTransStatusList().add( sstatus );
+      }
+    }
+
+    for ( CarteObjectEntry entry : jobEntries ) {
+      Job job = getJobMap().getJob( entry );
+      if ( job != null ) {
+        String status = job.getStatus();
+        SlaveServerJobStatus jobStatus = new SlaveServerJobStatus( entry.getName(), entry.getId(), status );
+        jobStatus.setLogDate( job.getLogDate() );
+        serverStatus.getJobStatusList().add( jobStatus );
+      }
+    }
+
+    try {
+      return serverStatus.getXML();
+    } catch ( KettleException e ) {
+      throw new ServletException( "Unable to get the server status in XML format", e );
+    }
+  }
+
   private static void getSystemInfo( SlaveServerStatus serverStatus ) {
     OperatingSystemMXBean operatingSystemMXBean =
       java.lang.management.ManagementFactory.getOperatingSystemMXBean();
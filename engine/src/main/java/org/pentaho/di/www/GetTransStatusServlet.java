@@ -25,7 +25,6 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.owasp.encoder.Encode;
-import org.pentaho.di.cluster.HttpUtil;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
@@ -39,6 +38,8 @@ import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepStatus;
 import org.pentaho.di.www.cache.CarteStatusCache;
+import org.pentaho.di.www.cache.CarteStatusSnapshots;
+import org.pentaho.di.www.cache.TransStatusSnapshot;
 
 
 public class GetTransStatusServlet extends BaseHttpServlet implements CartePluginInterface {
@@ -51,12 +52,17 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
 
   public static final String SEND_RESULT = "sendResult";
 
+  public static final String SINCE = "since";
+
   private static final byte[] XML_HEADER =
     XMLHandler.getXMLHeader( Const.XML_ENCODING ).getBytes( Charset.forName( Const.XML_ENCODING ) );
 
   @VisibleForTesting
   CarteStatusCache cache = CarteStatusCache.getInstance();
 
+  @VisibleForTesting
+  CarteStatusSnapshots snapshots = new CarteStatusSnapshots();
+
   public GetTransStatusServlet() {
   }
 
@@ -106,6 +112,12 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
    <td>Start line number of the execution log to be included into response.</td>
    <td>integer, optional</td>
    </tr>
+   <tr>
+   <td>since</td>
+   <td>Sequence number of an earlier XML status of the transformation. Only the steps that changed after it
+   are included into response.</td>
+   <td>long, optional</td>
+   </tr>
    </tbody>
    </table>
 
@@ -125,6 +137,9 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
    <p> Response XML or HTML response containing details about the transformation specified.
    If an error occurs during method invocation <code>result</code> field of the response
    will contain <code>ERROR</code> status.</p>
+   <p>The XML response carries an <code>ETag</code> header. A request with that value in the
+   <code>If-None-Match</code> header gets status 304 without a body while nothing changed. The
+   <code>sequence</code> element can be passed as <code>since</code> on the next request.</p>
 
    <p><b>Example Response:</b></p>
    <pre function="syntax.xml">
@@ -183,6 +198,10 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
    <td>Request was processed.</td>
    </tr>
    <tr>
+   <td>304</td>
+   <td>The XML status did not change since the one with the given <code>ETag</code>.</td>
+   </tr>
+   <tr>
    <td>500</td>
    <td>Internal server error occurs during request processing.</td>
    </tr>
@@ -249,7 +268,8 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
           String logId = trans.getLogChannelId();
           boolean finishedOrStopped = trans.isFinishedOrStopped();
           boolean sendResultXmlWithStatus = "Y".equalsIgnoreCase( request.getParameter( SEND_RESULT ) );
-          boolean dontUseCache = sendResultXmlWithStatus;
+          long sinceSequence = Const.toLong( request.getParameter( SINCE ), -1L );
+          boolean dontUseCache = sendResultXmlWithStatus || sinceSequence >= 0;
           if ( finishedOrStopped && ( data = cache.get( logId, startLineNr ) ) != null && !dontUseCache ) {
             response.setContentLength( XML_HEADER.length + data.length );
             out = response.getOutputStream();
@@ -257,41 +277,42 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
             out.write( data );
             out.flush();
           } else {
-            int lastLineNr = KettleLogStore.getLastBufferLineNr();
+            TransStatusSnapshot snapshot = snapshots.getTransStatus( trans );
 
-            String logText = getLogText( trans, startLineNr, lastLineNr );
+            // Nothing changed since the last time this client asked
+            //
+            String eTag = getETag( snapshot, startLineNr, sinceSequence, sendResultXmlWithStatus );
+            response.setHeader( "ETag", eTag );
+            if ( eTag.equals( request.getHeader( "If-None-Match" ) ) ) {
+              response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+              return;
+            }
 
             response.setContentType( "text/xml" );
             response.setCharacterEncoding( Const.XML_ENCODING );
 
             SlaveServerTransStatus transStatus =
-              new SlaveServerTransStatus( transName, entry.getId(), trans.getStatus() );
+              new SlaveServerTransStatus( transName, entry.getId(), snapshot.getStatusDescription() );
             transStatus.setFirstLoggingLineNr( startLineNr );
-            transStatus.setLastLoggingLineNr( lastLineNr );
-            transStatus.setLogDate( trans.getLogDate() );
-
-            for ( int i = 0; i < trans.nrSteps(); i++ ) {
-              StepInterface baseStep = trans.getRunThread( i );
-              if ( ( baseStep.isRunning() ) || baseStep.getStatus() != StepExecutionStatus.STATUS_EMPTY ) {
-                StepStatus stepStatus = new StepStatus( baseStep );
-                transStatus.getStepStatusList().add( stepStatus );
-              }
-            }
+            transStatus.setLastLoggingLineNr( snapshot.getLastLogLineNr() );
+            transStatus.setLogDate( snapshot.getLogDate() );
+            transStatus.setSequence( snapshot.getSequence() );
+            transStatus.getStepStatusList().addAll( snapshot.getStepStatusList( sinceSequence ) );
 
             // The log can be quite large at times, we are going to putIfAbsent a base64 encoding around a compressed
             // stream
             // of bytes to handle this one.
-            String loggingString = HttpUtil.encodeBase64ZippedString( logText );
+            String loggingString = snapshot.getEncodedLogText( startLineNr );
             transStatus.setLoggingString( loggingString );
             //        transStatus.setLoggingUncompressedSize( logText.length() );
 
             // Also set the result object...
             //
-            transStatus.setResult( trans.getResult() );
+            transStatus.setResult( snapshot.getResult() );
 
             // Is the transformation paused?
             //
-            transStatus.setPaused( trans.isPaused() );
+            transStatus.setPaused( snapshot.isPaused() );
 
             // Send the result back as XML
             //
@@ -524,6 +545,15 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
     return CONTEXT_PATH;
   }
 
+  /**
+   * The response depends on the snapshot and on what the client asked for.
+   */
+  private static String getETag( TransStatusSnapshot snapshot, int startLineNr, long sinceSequence,
+                                 boolean sendResultXmlWithStatus ) {
+    return "\"" + snapshot.getSequence() + "-" + startLineNr + "-" + sinceSequence
+      + ( sendResultXmlWithStatus ? "-result" : "" ) + "\"";
+  }
+
   private String getLogText( Trans trans, int startLineNr, int lastLineNr ) throws KettleException {
     try {
       return KettleLogStore.getAppender().getBuffer(
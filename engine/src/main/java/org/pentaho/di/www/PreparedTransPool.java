@@ -0,0 +1,567 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.map.DatabaseConnectionMap;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.LogTableInterface;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.repository.RepositoryObject;
+import org.pentaho.di.repository.RepositoryObjectType;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+
+/**
+ * Keeps the transformations listed in {@link Const#KETTLE_CARTE_PREPARED_TRANSFORMATIONS} ready for the Carte
+ * execution servlets.<br>
+ * <br>
+ * The metadata of such a transformation is parsed once and copied for every request. It is loaded again when the file
+ * or the repository object is modified. Next to that a few transformations are kept prepared for execution: the steps
+ * are initialized, so connections are open and scripts compiled. A request takes one of those and only has to start
+ * it, after which a new one is prepared in the background. A transformation can only run once, so they are replaced
+ * rather than reset.<br>
+ * <br>
+ * Steps can only be initialized once all variables are known, so prepared transformations are only handed out for
+ * requests that don't set parameters or variables.<br>
+ * <br>
+ * Preparing a transformation also writes the start record of its log tables and reads the batch id and date range from
+ * them. That has to happen when the transformation runs, so transformations with a log table, step performance
+ * snapshots or metrics are not prepared ahead, only their metadata is cached. The current date and the date range of
+ * the other transformations are calculated again when a request takes them. A prepared transformation that wasn't taken
+ * within {@link Const#KETTLE_CARTE_PREPARED_TRANS_MAX_IDLE} seconds is cleaned up, so that its database connections
+ * aren't kept open until the database drops them.
+ */
+public class PreparedTransPool {
+
+  private static final int DEFAULT_POOL_SIZE = 2;
+  private static final int DEFAULT_MAX_IDLE_SECONDS = 300;
+  private static final int CONNECTION_VALIDATION_TIMEOUT_SECONDS = 5;
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+  /**
+   * Loads the metadata of a transformation from its file or the repository.
+   */
+  public interface TransLoader {
+    TransMeta loadTrans() throws KettleException;
+  }
+
+  /**
+   * Creates a transformation for the given metadata the way the servlet would, without preparing it.
+   */
+  public interface TransFactory {
+    Trans createTrans( TransMeta transMeta ) throws KettleException;
+  }
+
+  private final String contextPath;
+  private final Set<String> transformations;
+  private final int poolSize;
+  private final long maxIdleMillis;
+  private final LogChannelInterface log;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Object preparerLock = new Object();
+  private ScheduledExecutorService preparer;
+
+  private static class Entry {
+    private TransMeta template;
+    private Object version;
+    private int generation;
+    private boolean preparable;
+    private Repository repository;
+    private TransFactory factory;
+    private final BlockingQueue<PreparedTrans> prepared = new LinkedBlockingQueue<>();
+    private final AtomicInteger preparing = new AtomicInteger();
+  }
+
+  private static class PreparedTrans {
+    private final Trans trans;
+    private final ServletWriter writer;
+    private final int generation;
+    private final long preparedTime;
+
+    private PreparedTrans( Trans trans, ServletWriter writer, int generation ) {
+      this.trans = trans;
+      this.writer = writer;
+      this.generation = generation;
+      this.preparedTime = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Steps writing to the servlet can pick up the writer when they are initialized, before there is a request. They
+   * get this one, which passes everything on to the writer of the request that runs the transformation.
+   */
+  private static class ServletWriter extends Writer {
+    private volatile Writer target;
+
+    @Override
+    public void write( char[] cbuf, int off, int len ) throws IOException {
+      getTarget().write( cbuf, off, len );
+    }
+
+    @Override
+    public void flush() throws IOException {
+      getTarget().flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      getTarget().close();
+    }
+
+    private Writer getTarget() throws IOException {
+      if ( target == null ) {
+        throw new IOException( "The prepared transformation was not started by a request" );
+      }
+      return target;
+    }
+  }
+
+  /**
+   * The pool of a servlet, created when the first request arrives so that a Carte without designated transformations
+   * doesn't read the configuration for nothing.
+   */
+  public static class Holder implements Serializable {
+    private static final long serialVersionUID = 4823501164387524618L;
+
+    private final String contextPath;
+    private transient PreparedTransPool pool;
+
+    public Holder( String contextPath ) {
+      this.contextPath = contextPath;
+    }
+
+    public synchronized PreparedTransPool get() {
+      if ( pool == null ) {
+        pool = new PreparedTransPool( contextPath );
+      }
+      return pool;
+    }
+
+    /**
+     * Cleans up the pool, if it was created. Called when the servlet is destroyed.
+     */
+    public void clear() {
+      PreparedTransPool current;
+      synchronized ( this ) {
+        current = pool;
+        pool = null;
+      }
+      if ( current != null ) {
+        current.clear();
+      }
+    }
+  }
+
+  /**
+   * Prepared transformations are already initialized, so they can only be handed out for requests that leave the log
+   * level alone and don't set parameters or variables.
+   *
+   * @param request
+   *          the request to execute a transformation
+   * @param levelOption
+   *          the log level asked for, if any
+   * @param knownOptions
+   *          the parameters of the servlet itself, all others are variables of the transformation
+   * @return true if the request can take a prepared transformation
+   */
+  public static boolean canUse( HttpServletRequest request, String levelOption, String[] knownOptions ) {
+    if ( !Utils.isEmpty( levelOption ) ) {
+      return false;
+    }
+    Enumeration<?> parameterNames = request.getParameterNames();
+    while ( parameterNames.hasMoreElements() ) {
+      if ( Const.indexOfString( (String) parameterNames.nextElement(), knownOptions ) < 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param contextPath
+   *          the context path of the servlet using the pool
+   */
+  public PreparedTransPool( String contextPath ) {
+    this( contextPath, getConfiguredTransformations(), Const.toInt( EnvUtil.getSystemProperty(
+      Const.KETTLE_CARTE_PREPARED_TRANS_POOL_SIZE ), DEFAULT_POOL_SIZE ), Const.toInt( EnvUtil.getSystemProperty(
+      Const.KETTLE_CARTE_PREPARED_TRANS_MAX_IDLE ), DEFAULT_MAX_IDLE_SECONDS ) );
+  }
+
+  public PreparedTransPool( String contextPath, Set<String> transformations, int poolSize ) {
+    this( contextPath, transformations, poolSize, DEFAULT_MAX_IDLE_SECONDS );
+  }
+
+  /**
+   * @param maxIdleSeconds
+   *          the number of seconds a prepared transformation is kept when it isn't taken
+   */
+  public PreparedTransPool( String contextPath, Set<String> transformations, int poolSize, int maxIdleSeconds ) {
+    this.contextPath = contextPath;
+    this.transformations = transformations;
+    this.poolSize = Math.max( 0, poolSize );
+    this.maxIdleMillis = TimeUnit.SECONDS.toMillis( Math.max( 1, maxIdleSeconds ) );
+    this.log = new LogChannel( "Prepared transformations " + contextPath );
+  }
+
+  private static Set<String> getConfiguredTransformations() {
+    String list = EnvUtil.getSystemProperty( Const.KETTLE_CARTE_PREPARED_TRANSFORMATIONS );
+    if ( list == null || list.trim().isEmpty() ) {
+      return Collections.emptySet();
+    }
+    Set<String> transformations = new LinkedHashSet<>();
+    for ( String trans : list.split( "," ) ) {
+      if ( !trans.trim().isEmpty() ) {
+        transformations.add( trans.trim() );
+      }
+    }
+    return transformations;
+  }
+
+  /**
+   * @return true if the metadata of the transformation is kept by this pool
+   */
+  public boolean isDesignated( String trans ) {
+    return trans != null && transformations.contains( trans );
+  }
+
+  /**
+   * @return a copy of the cached metadata of a designated transformation, loaded again if it was modified
+   */
+  public TransMeta getTransMeta( String trans, Repository repository, TransLoader loader ) throws KettleException {
+    Entry entry = entries.computeIfAbsent( trans, t -> new Entry() );
+    synchronized ( entry ) {
+      refresh( trans, entry, repository, loader );
+      return (TransMeta) entry.template.realClone( false );
+    }
+  }
+
+  /**
+   * Takes a transformation that is prepared for execution and starts preparing the next one.
+   *
+   * @param trans
+   *          the designated transformation
+   * @param repository
+   *          the repository to load from, null for a file
+   * @param loader
+   *          loads the metadata when it isn't cached or was modified
+   * @param factory
+   *          creates the transformations to prepare
+   * @param out
+   *          the writer of the request for the steps that write to the servlet
+   * @return a prepared transformation, or null if none is ready
+   */
+  public Trans take( String trans, Repository repository, TransLoader loader, TransFactory factory, Writer out )
+    throws KettleException {
+    Entry entry = entries.computeIfAbsent( trans, t -> new Entry() );
+    PreparedTrans preparedTrans;
+    do {
+      List<PreparedTrans> stale = new ArrayList<>();
+      synchronized ( entry ) {
+        refresh( trans, entry, repository, loader );
+        entry.factory = factory;
+        while ( ( preparedTrans = entry.prepared.poll() ) != null && !isCurrent( entry, preparedTrans ) ) {
+          stale.add( preparedTrans );
+        }
+        prepareMore( trans, entry );
+      }
+      for ( PreparedTrans staleTrans : stale ) {
+        discard( staleTrans.trans );
+      }
+      if ( preparedTrans == null ) {
+        return null;
+      }
+
+      // Validating the connections takes a round trip to the database, the other requests don't wait for that
+      //
+      if ( !hasValidConnections( preparedTrans.trans ) ) {
+        log.logBasic( "A database connection of prepared transformation '" + preparedTrans.trans.getName()
+          + "' is no longer valid, cleaning it up" );
+        discard( preparedTrans.trans );
+        preparedTrans = null;
+      }
+    } while ( preparedTrans == null );
+
+    // The dates were calculated when the transformation was prepared, without a log table this only sets them to now
+    //
+    preparedTrans.trans.calculateBatchIdAndDateRange();
+    preparedTrans.writer.target = out;
+    return preparedTrans.trans;
+  }
+
+  private boolean isCurrent( Entry entry, PreparedTrans preparedTrans ) {
+    return preparedTrans.generation == entry.generation && !isExpired( preparedTrans );
+  }
+
+  private boolean isExpired( PreparedTrans preparedTrans ) {
+    return System.currentTimeMillis() - preparedTrans.preparedTime > maxIdleMillis;
+  }
+
+  /**
+   * Validates the connections the steps share when the transformation uses unique connections. The connections of
+   * the other steps can't be reached from here, those are only protected by the maximum idle time.
+   */
+  private boolean hasValidConnections( Trans trans ) {
+    if ( !trans.getTransMeta().isUsingUniqueConnections() || trans.getTransactionId() == null ) {
+      return true;
+    }
+    String prefix = trans.getTransactionId() + ":";
+    for ( Map.Entry<String, Database> database : DatabaseConnectionMap.getInstance().getMap().entrySet() ) {
+      if ( database.getKey().startsWith( prefix ) ) {
+        Connection connection = database.getValue().getConnection();
+        try {
+          if ( connection == null || !connection.isValid( CONNECTION_VALIDATION_TIMEOUT_SECONDS ) ) {
+            return false;
+          }
+        } catch ( SQLException e ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return false if preparing the transformation does work that belongs to its execution, like writing to a log table
+   */
+  private static boolean isPreparable( TransMeta transMeta ) {
+    if ( transMeta.isCapturingStepPerformanceSnapShots() || transMeta.isGatheringMetrics() ) {
+      return false;
+    }
+    for ( LogTableInterface logTable : transMeta.getLogTables() ) {
+      if ( logTable.getDatabaseMeta() != null ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void refresh( String trans, Entry entry, Repository repository, TransLoader loader )
+    throws KettleException {
+    Object version = entry.template == null ? null : getVersion( trans, repository, entry.template );
+    if ( entry.template != null && Objects.equals( version, entry.version ) && entry.repository == repository ) {
+      return;
+    }
+
+    if ( entry.template != null ) {
+      log.logBasic( "Transformation '" + trans + "' was modified, loading it again" );
+    }
+    if ( repository == null ) {
+      version = getVersion( trans, null, null );
+    }
+    entry.template = loader.loadTrans();
+    entry.version = repository == null ? version : getVersion( trans, repository, entry.template );
+    entry.repository = repository;
+    entry.generation++;
+    entry.preparable = isPreparable( entry.template );
+    if ( !entry.preparable && poolSize > 0 ) {
+      log.logBasic( "Transformation '" + trans + "' is logged or measured when it is prepared, "
+        + "it is not prepared ahead of the requests" );
+    }
+
+    PreparedTrans preparedTrans;
+    while ( ( preparedTrans = entry.prepared.poll() ) != null ) {
+      discard( preparedTrans.trans );
+    }
+  }
+
+  /**
+   * @return the modification date of the file or repository object
+   */
+  private Object getVersion( String trans, Repository repository, TransMeta transMeta ) throws KettleException {
+    try {
+      if ( repository == null ) {
+        FileObject file = KettleVFS.getInstance( DefaultBowl.getInstance() ).getFileObject( trans );
+        return file.exists() ? file.getContent().getLastModifiedTime() : null;
+      }
+      if ( transMeta.getObjectId() == null ) {
+        return null;
+      }
+      RepositoryObject information =
+        repository.getObjectInformation( transMeta.getObjectId(), RepositoryObjectType.TRANSFORMATION );
+      return information == null ? null : information.getModifiedDate();
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to verify if transformation '" + trans + "' was modified", e );
+    }
+  }
+
+  private void prepareMore( String trans, Entry entry ) {
+    while ( entry.preparable && entry.prepared.size() + entry.preparing.get() < poolSize ) {
+      entry.preparing.incrementAndGet();
+      TransMeta transMeta = (TransMeta) entry.template.realClone( false );
+      TransFactory factory = entry.factory;
+      int generation = entry.generation;
+      try {
+        getPreparer().execute( () -> prepare( trans, entry, transMeta, factory, generation ) );
+      } catch ( RejectedExecutionException e ) {
+        // The pool is being cleared
+        entry.preparing.decrementAndGet();
+        return;
+      }
+    }
+  }
+
+  private void prepare( String trans, Entry entry, TransMeta transMeta, TransFactory factory, int generation ) {
+    Trans preparedTrans = null;
+    try {
+      preparedTrans = factory.createTrans( transMeta );
+      ServletWriter writer = new ServletWriter();
+      preparedTrans.setServletPrintWriter( new PrintWriter( writer ) );
+      preparedTrans.prepareExecution( null );
+
+      synchronized ( entry ) {
+        if ( generation == entry.generation ) {
+          entry.prepared.add( new PreparedTrans( preparedTrans, writer, generation ) );
+          preparedTrans = null;
+        }
+      }
+    } catch ( Exception e ) {
+      log.logError( "Unable to prepare transformation '" + trans + "'", e );
+    } finally {
+      entry.preparing.decrementAndGet();
+      if ( preparedTrans != null ) {
+        discard( preparedTrans );
+      }
+    }
+  }
+
+  private void discard( Trans trans ) {
+    try {
+      trans.cleanup();
+    } catch ( Exception e ) {
+      log.logError( "Unable to clean up prepared transformation '" + trans.getName() + "'", e );
+    }
+    KettleLogStore.discardLines( trans.getLogChannelId(), false );
+  }
+
+  /**
+   * The preparer has a lock of its own: it is asked for while an entry is locked.
+   */
+  private ScheduledExecutorService getPreparer() {
+    synchronized ( preparerLock ) {
+      if ( preparer == null ) {
+        preparer = Executors.newSingleThreadScheduledExecutor( runnable -> {
+          Thread thread = new Thread( runnable, "Carte " + contextPath + " preparer" );
+          thread.setDaemon( true );
+          return thread;
+        } );
+        preparer.scheduleWithFixedDelay( this::discardExpired, maxIdleMillis, maxIdleMillis, TimeUnit.MILLISECONDS );
+      }
+      return preparer;
+    }
+  }
+
+  /**
+   * Cleans up the prepared transformations that weren't taken in time. New ones are prepared by the next request.
+   */
+  private void discardExpired() {
+    for ( Entry entry : entries.values() ) {
+      synchronized ( entry ) {
+        entry.prepared.removeIf( preparedTrans -> {
+          if ( isExpired( preparedTrans ) ) {
+            discard( preparedTrans.trans );
+            return true;
+          }
+          return false;
+        } );
+      }
+    }
+  }
+
+  /**
+   * Cleans up all the prepared transformations and forgets the cached metadata.
+   */
+  public void clear() {
+    // A transformation prepared from now on is of an old generation: it is cleaned up by the preparer itself
+    for ( Entry entry : entries.values() ) {
+      synchronized ( entry ) {
+        entry.generation++;
+      }
+    }
+
+    // No lock is held while waiting: the transformations being prepared need the lock of their entry to finish
+    ScheduledExecutorService stopping;
+    synchronized ( preparerLock ) {
+      stopping = preparer;
+      preparer = null;
+    }
+    if ( stopping != null ) {
+      // Let the transformations being prepared and the queued ones finish so that they are cleaned up
+      stopping.shutdown();
+      try {
+        if ( !stopping.awaitTermination( SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+          // An interrupted preparation is cleaned up as well
+          stopping.shutdownNow();
+        }
+      } catch ( InterruptedException e ) {
+        stopping.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    List<PreparedTrans> discarded = new ArrayList<>();
+    for ( Entry entry : entries.values() ) {
+      synchronized ( entry ) {
+        entry.prepared.drainTo( discarded );
+      }
+    }
+    entries.clear();
+    for ( PreparedTrans preparedTrans : discarded ) {
+      discard( preparedTrans.trans );
+    }
+  }
+
+  /**
+   * @return the number of transformations prepared for execution
+   */
+  public int getPreparedCount( String trans ) {
+    Entry entry = entries.get( trans );
+    return entry == null ? 0 : entry.prepared.size();
+  }
+}
@@ -16,6 +16,7 @@ package org.pentaho.di.www;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.ServletException;
@@ -48,6 +49,8 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
 
   public static final String CONTEXT_PATH = "/kettle/runTrans";
 
+  private final PreparedTransPool.Holder preparedTransPool = new PreparedTransPool.Holder( CONTEXT_PATH );
+
   public RunTransServlet() {
   }
 
@@ -63,6 +66,9 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
     <p>Execute transformation from enterprise repository. Repository should be configured in Carte xml file.
   Response contains <code>ERROR</code> result if error happened during transformation execution.</p>
 
+    <p>Transformations listed in <code>KETTLE_CARTE_PREPARED_TRANSFORMATIONS</code> are kept parsed and prepared for
+  execution, which saves the preparation for requests without parameters and log level.</p>
+
     <p><b>Example Request:</b><br />
     <pre function="syntax.xml">
     GET /kettle/runTrans?trans=home%2Fadmin%2Fdummy-trans&level=Debug
@@ -164,7 +170,26 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
     try {
 
       final Repository repository = transformationMap.getSlaveServerConfig().getRepository();
-      final TransMeta transMeta = loadTrans( repository, transOption );
+      LogLevel logLevel = LogLevel.getLogLevelForCode( levelOption );
+
+      // Prepared transformations can only be used if there are no variables to set
+      //
+      PreparedTransPool pool = preparedTransPool.get();
+      boolean designated = pool.isDesignated( transOption );
+      Trans preparedTrans = null;
+      if ( designated && PreparedTransPool.canUse( request, levelOption, knownOptions ) ) {
+        preparedTrans = pool.take( transOption, repository, () -> loadTrans( repository, transOption ),
+          meta -> newTrans( meta, repository, logLevel, null ), out );
+      }
+
+      final TransMeta transMeta;
+      if ( preparedTrans != null ) {
+        transMeta = preparedTrans.getTransMeta();
+      } else if ( designated ) {
+        transMeta = pool.getTransMeta( transOption, repository, () -> loadTrans( repository, transOption ) );
+      } else {
+        transMeta = loadTrans( repository, transOption );
+      }
 
       // Set the servlet parameters as variables in the transformation
       //
@@ -189,48 +214,21 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
       }
 
       TransExecutionConfiguration transExecutionConfiguration = new TransExecutionConfiguration();
-      LogLevel logLevel = LogLevel.getLogLevelForCode( levelOption );
       transExecutionConfiguration.setLogLevel( logLevel );
       TransConfiguration transConfiguration = new TransConfiguration( transMeta, transExecutionConfiguration );
 
-      String carteObjectId = UUID.randomUUID().toString();
-      SimpleLoggingObject servletLoggingObject =
-        new SimpleLoggingObject( CONTEXT_PATH, LoggingObjectType.CARTE, null );
-      servletLoggingObject.setContainerObjectId( carteObjectId );
-      servletLoggingObject.setLogLevel( logLevel );
-
       // Create the transformation and store in the list...
       //
-      final Trans trans = createTrans( transMeta, servletLoggingObject );
+      final Trans trans = preparedTrans != null ? preparedTrans
+        : newTrans( transMeta, repository, logLevel, transExecutionConfiguration.getVariables() );
+      String carteObjectId = trans.getContainerObjectId();
 
       // Pass information
       //
-      trans.setRepository( repository );
       trans.setServletPrintWriter( out );
       trans.setServletReponse( response );
       trans.setServletRequest( request );
 
-      // Setting variables
-      //
-      trans.initializeVariablesFrom( null );
-      trans.getTransMeta().setInternalKettleVariables( trans );
-      trans.injectVariables( transConfiguration.getTransExecutionConfiguration().getVariables() );
-
-      // Also copy the parameters over...
-      //
-      trans.copyParametersFrom( transMeta );
-
-      /*
-       * String[] parameterNames = job.listParameters(); for (int idx = 0; idx < parameterNames.length; idx++) { // Grab
-       * the parameter value set in the job entry // String thisValue =
-       * jobExecutionConfiguration.getParams().get(parameterNames[idx]); if (!Utils.isEmpty(thisValue)) { // Set the
-       * value as specified by the user in the job entry // jobMeta.setParameterValue(parameterNames[idx], thisValue); }
-       * }
-       */
-      transMeta.activateParameters();
-
-      trans.setSocketRepository( getSocketRepository() );
-
       getTransformationMap().addTransformation( trans.getName(), carteObjectId, trans, transConfiguration );
 
       // DO NOT disconnect from the shared repository connection when the job finishes.
@@ -241,7 +239,11 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
       try {
         // Execute the transformation...
         //
-        trans.execute( null );
+        if ( trans.isReadyToStart() ) {
+          trans.startThreads();
+        } else {
+          trans.execute( null );
+        }
 
         finishProcessing( trans, out );
 
@@ -260,6 +262,39 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
     return new Trans( transMeta, servletLoggingObject );
   }
 
+  private Trans newTrans( TransMeta transMeta, Repository repository, LogLevel logLevel,
+                         Map<String, String> variables ) {
+    String carteObjectId = UUID.randomUUID().toString();
+    SimpleLoggingObject servletLoggingObject =
+      new SimpleLoggingObject( CONTEXT_PATH, LoggingObjectType.CARTE, null );
+    servletLoggingObject.setContainerObjectId( carteObjectId );
+    servletLoggingObject.setLogLevel( logLevel );
+
+    Trans trans = createTrans( transMeta, servletLoggingObject );
+    trans.setContainerObjectId( carteObjectId );
+    trans.setRepository( repository );
+
+    // Setting variables
+    //
+    trans.initializeVariablesFrom( null );
+    trans.getTransMeta().setInternalKettleVariables( trans );
+    trans.injectVariables( variables );
+
+    // Also copy the parameters over...
+    //
+    trans.copyParametersFrom( transMeta );
+    transMeta.activateParameters();
+
+    trans.setSocketRepository( getSocketRepository() );
+    return trans;
+  }
+
+  @Override
+  public void destroy() {
+    preparedTransPool.clear();
+    super.destroy();
+  }
+
   private TransMeta loadTrans( Repository repository, String transformationName ) throws KettleException {
 
     if ( repository == null ) {
@@ -0,0 +1,137 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.w3c.dom.Node;
+
+/**
+ * The load of the requests of one Carte servlet that are executed by a {@link CarteRequestExecutor}.
+ */
+public class SlaveServerRequestQueueStatus {
+  public static final String XML_TAG = "request_queue";
+
+  private String contextPath;
+  private int threads;
+  private int active;
+  private int queued;
+  private long completed;
+  private long rejected;
+  private long averageWaitMillis;
+
+  public SlaveServerRequestQueueStatus() {
+  }
+
+  public SlaveServerRequestQueueStatus( Node queueNode ) {
+    contextPath = XMLHandler.getTagValue( queueNode, "context" );
+    threads = Const.toInt( XMLHandler.getTagValue( queueNode, "threads" ), 0 );
+    active = Const.toInt( XMLHandler.getTagValue( queueNode, "active" ), 0 );
+    queued = Const.toInt( XMLHandler.getTagValue( queueNode, "queued" ), 0 );
+    completed = Const.toLong( XMLHandler.getTagValue( queueNode, "completed" ), 0L );
+    rejected = Const.toLong( XMLHandler.getTagValue( queueNode, "rejected" ), 0L );
+    averageWaitMillis = Const.toLong( XMLHandler.getTagValue( queueNode, "average_wait_ms" ), 0L );
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder();
+    xml.append( XMLHandler.openTag( XML_TAG ) );
+    xml.append( XMLHandler.addTagValue( "context", contextPath, false ) );
+    xml.append( XMLHandler.addTagValue( "threads", threads, false ) );
+    xml.append( XMLHandler.addTagValue( "active", active, false ) );
+    xml.append( XMLHandler.addTagValue( "queued", queued, false ) );
+    xml.append( XMLHandler.addTagValue( "completed", completed, false ) );
+    xml.append( XMLHandler.addTagValue( "rejected", rejected, false ) );
+    xml.append( XMLHandler.addTagValue( "average_wait_ms", averageWaitMillis, false ) );
+    xml.append( XMLHandler.closeTag( XML_TAG ) );
+    return xml.toString();
+  }
+
+  /**
+   * @return the context path of the servlet
+   */
+  public String getContextPath() {
+    return contextPath;
+  }
+
+  public void setContextPath( String contextPath ) {
+    this.contextPath = contextPath;
+  }
+
+  /**
+   * @return the maximum number of requests that are executed at the same time
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads( int threads ) {
+    this.threads = threads;
+  }
+
+  /**
+   * @return the number of requests that are being executed
+   */
+  public int getActive() {
+    return active;
+  }
+
+  public void setActive( int active ) {
+    this.active = active;
+  }
+
+  /**
+   * @return the number of requests waiting for a thread
+   */
+  public int getQueued() {
+    return queued;
+  }
+
+  public void setQueued( int queued ) {
+    this.queued = queued;
+  }
+
+  /**
+   * @return the number of requests that were executed
+   */
+  public long getCompleted() {
+    return completed;
+  }
+
+  public void setCompleted( long completed ) {
+    this.completed = completed;
+  }
+
+  /**
+   * @return the number of requests that were refused because the queue was full
+   */
+  public long getRejected() {
+    return rejected;
+  }
+
+  public void setRejected( long rejected ) {
+    this.rejected = rejected;
+  }
+
+  /**
+   * @return the average number of milliseconds a request waited for a thread
+   */
+  public long getAverageWaitMillis() {
+    return averageWaitMillis;
+  }
+
+  public void setAverageWaitMillis( long averageWaitMillis ) {
+    this.averageWaitMillis = averageWaitMillis;
+  }
+}
@@ -31,6 +31,7 @@ public class SlaveServerStatus {
 
   private List<SlaveServerTransStatus> transStatusList;
   private List<SlaveServerJobStatus> jobStatusList;
+  private List<SlaveServerRequestQueueStatus> requestQueueList = new ArrayList<SlaveServerRequestQueueStatus>();
 
   private long memoryFree;
   private long memoryTotal;
@@ -107,6 +108,14 @@ public class SlaveServerStatus {
     }
     xml.append( "  </jobstatuslist>" ).append( Const.CR );
 
+    if ( !requestQueueList.isEmpty() ) {
+      xml.append( "  <request_queues>" ).append( Const.CR );
+      for ( SlaveServerRequestQueueStatus requestQueue : requestQueueList ) {
+        xml.append( "    " ).append( requestQueue.getXML() ).append( Const.CR );
+      }
+      xml.append( "  </request_queues>" ).append( Const.CR );
+    }
+
     xml.append( "</" + XML_TAG + ">" ).append( Const.CR );
 
     return xml.toString();
@@ -147,6 +156,11 @@ public class SlaveServerStatus {
       Node jobStatusNode = XMLHandler.getSubNodeByNr( listJobsNode, SlaveServerJobStatus.XML_TAG, i );
       jobStatusList.add( new SlaveServerJobStatus( jobStatusNode ) );
     }
+
+    Node requestQueuesNode = XMLHandler.getSubNode( statusNode, "request_queues" );
+    for ( Node requestQueueNode : XMLHandler.getNodes( requestQueuesNode, SlaveServerRequestQueueStatus.XML_TAG ) ) {
+      requestQueueList.add( new SlaveServerRequestQueueStatus( requestQueueNode ) );
+    }
   }
 
   public static SlaveServerStatus fromXML( String xml ) throws KettleException {
@@ -236,6 +250,21 @@ public class SlaveServerStatus {
     this.jobStatusList = jobStatusList;
   }
 
+  /**
+   * @return the load of the servlets that execute their requests on a pool of their own
+   */
+  public List<SlaveServerRequestQueueStatus> getRequestQueueList() {
+    return requestQueueList;
+  }
+
+  /**
+   * @param requestQueueList
+   *          the load of the servlets that execute their requests on a pool of their own
+   */
+  public void setRequestQueueList( List<SlaveServerRequestQueueStatus> requestQueueList ) {
+    this.requestQueueList = requestQueueList;
+  }
+
   /**
    * @return the memoryFree
    */
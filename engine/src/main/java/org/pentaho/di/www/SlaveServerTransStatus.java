@@ -56,6 +56,8 @@ public class SlaveServerTransStatus {
 
   private boolean paused;
 
+  private long sequence;
+
   public SlaveServerTransStatus() {
     stepStatusList = new ArrayList<StepStatus>();
   }
@@ -87,6 +89,9 @@ public class SlaveServerTransStatus {
     xml.append( "  " ).append( XMLHandler.addTagValue( "error_desc", errorDescription ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "log_date", XMLHandler.date2string( logDate ) ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "paused", paused ) );
+    if ( sequence > 0 ) {
+      xml.append( "  " ).append( XMLHandler.addTagValue( "sequence", sequence ) );
+    }
 
     xml.append( "  " ).append( XMLHandler.openTag( "stepstatuslist" ) ).append( Const.CR );
     for ( int i = 0; i < stepStatusList.size(); i++ ) {
@@ -118,6 +123,7 @@ public class SlaveServerTransStatus {
     errorDescription = XMLHandler.getTagValue( transStatusNode, "error_desc" );
     logDate = XMLHandler.stringToDate( XMLHandler.getTagValue( transStatusNode, "log_date" ) );
     paused = "Y".equalsIgnoreCase( XMLHandler.getTagValue( transStatusNode, "paused" ) );
+    sequence = Const.toLong( XMLHandler.getTagValue( transStatusNode, "sequence" ), 0L );
 
     Node statusListNode = XMLHandler.getSubNode( transStatusNode, "stepstatuslist" );
     int nr = XMLHandler.countNodes( statusListNode, StepStatus.XML_TAG );
@@ -340,6 +346,21 @@ public class SlaveServerTransStatus {
     this.paused = paused;
   }
 
+  /**
+   * @return the sequence number of the last change of the status on the server, 0 if the server doesn't number them
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @param sequence
+   *          the sequence number of the last change of the status on the server
+   */
+  public void setSequence( long sequence ) {
+    this.sequence = sequence;
+  }
+
   /**
    * @return the lastLoggingLineNr
    */
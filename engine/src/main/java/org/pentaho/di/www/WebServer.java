@@ -61,6 +61,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class WebServer {
 
@@ -90,6 +91,8 @@ public class WebServer {
 
   private SslConfiguration sslConfig;
 
+  private List<CarteRequestExecutor> requestExecutors = new CopyOnWriteArrayList<>();
+
   public WebServer( LogChannelInterface log, TransformationMap transformationMap, JobMap jobMap,
       SocketRepository socketRepository, List<SlaveServerDetection> detections, String hostname, int port, boolean join,
       String passwordFile ) throws Exception {
@@ -225,6 +228,16 @@ public class WebServer {
     rootServlet.setJettyMode( true );
     root.addServlet( new ServletHolder( rootServlet ), "/*" );
 
+    // Optionally every servlet executes its requests on a bounded pool of its own
+    //
+    int requestThreads = validProperty( Const.KETTLE_CARTE_REQUEST_THREADS )
+      ? Integer.parseInt( System.getProperty( Const.KETTLE_CARTE_REQUEST_THREADS ) ) : 0;
+    int requestQueueSize = validProperty( Const.KETTLE_CARTE_REQUEST_QUEUE_SIZE )
+      ? Integer.parseInt( System.getProperty( Const.KETTLE_CARTE_REQUEST_QUEUE_SIZE ) ) : 100;
+    if ( requestThreads > 0 ) {
+      log.logBasic( BaseMessages.getString( PKG, "WebServer.Log.ConfigOptions", "requestThreads", requestThreads ) );
+    }
+
     PluginRegistry pluginRegistry = PluginRegistry.getInstance();
     List<PluginInterface> plugins = pluginRegistry.getPlugins( CartePluginType.class );
     for ( PluginInterface plugin : plugins ) {
@@ -232,10 +245,22 @@ public class WebServer {
       CartePluginInterface servlet = pluginRegistry.loadClass( plugin, CartePluginInterface.class );
       servlet.setup( transformationMap, jobMap, socketRepository, detections );
       servlet.setJettyMode( true );
+      if ( servlet instanceof GetStatusServlet ) {
+        ( (GetStatusServlet) servlet ).setRequestExecutors( requestExecutors );
+      }
 
+      String contextPath = getContextPath( servlet );
       ServletContextHandler servletContext =
-        new ServletContextHandler( contexts, getContextPath( servlet ), ServletContextHandler.SESSIONS );
-      ServletHolder servletHolder = new ServletHolder( (Servlet) servlet );
+        new ServletContextHandler( contexts, contextPath, ServletContextHandler.SESSIONS );
+      ServletHolder servletHolder;
+      if ( requestThreads > 0 ) {
+        CarteRequestExecutor executor = new CarteRequestExecutor( contextPath, requestThreads, requestQueueSize );
+        requestExecutors.add( executor );
+        servletHolder = new ServletHolder( new AsyncCarteServlet( (Servlet) servlet, executor ) );
+        servletHolder.setAsyncSupported( true );
+      } else {
+        servletHolder = new ServletHolder( (Servlet) servlet );
+      }
       servletContext.addServlet( servletHolder, "/*" );
     }
 
@@ -325,6 +350,10 @@ public class WebServer {
         // Stop the server...
         //
         server.stop();
+        for ( CarteRequestExecutor executor : requestExecutors ) {
+          executor.shutdown();
+        }
+        requestExecutors.clear();
         KettleEnvironment.shutdown();
         if ( webServerShutdownHandler != null ) {
           webServerShutdownHandler.shutdownWebServer();
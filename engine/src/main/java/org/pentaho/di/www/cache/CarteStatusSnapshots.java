@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LoggingBuffer;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepStatus;
+
+/**
+ * Keeps the last status of the transformations and of the server that Carte sent to its clients.<br>
+ * <br>
+ * A snapshot is built at most once per {@link Const#KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL} milliseconds and shared by
+ * all the clients polling in that time. The log lines of a transformation are read from the log buffer incrementally.
+ * The transformations are weakly referenced, so their snapshots go away together with them.<br>
+ * <br>
+ * Every Carte server holds its own snapshots, through the servlets it created: servers sharing a JVM don't see each
+ * other's status.
+ */
+public class CarteStatusSnapshots {
+
+  /** Sequence numbers are unique for the whole server so that they can't be confused between transformations */
+  private static final AtomicLong sequence = new AtomicLong();
+
+  private final Map<Trans, TransEntry> transEntries = Collections.synchronizedMap( new WeakHashMap<>() );
+
+  private String serverStatus;
+  private long serverStatusTime;
+
+  private static class TransEntry {
+    private final TransLogLines logLines = new TransLogLines();
+    private TransStatusSnapshot snapshot;
+  }
+
+  public CarteStatusSnapshots() {
+  }
+
+  /**
+   * @return the minimum number of milliseconds between two snapshots, 0 to build one for every request
+   */
+  public static long getInterval() {
+    return Const.toLong( EnvUtil.getSystemProperty( Const.KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL ), 0L );
+  }
+
+  /**
+   * @return the status of the transformation, built now or not longer than the snapshot interval ago
+   */
+  public TransStatusSnapshot getTransStatus( Trans trans ) {
+    TransEntry entry = transEntries.computeIfAbsent( trans, t -> new TransEntry() );
+    synchronized ( entry ) {
+      long now = System.currentTimeMillis();
+      if ( entry.snapshot == null || now - entry.snapshot.getCreationTime() >= getInterval() ) {
+        entry.snapshot = buildTransStatus( trans, entry.snapshot, entry.logLines, now );
+      }
+      return entry.snapshot;
+    }
+  }
+
+  private TransStatusSnapshot buildTransStatus( Trans trans, TransStatusSnapshot previous, TransLogLines logLines,
+                                                long now ) {
+    LoggingBuffer buffer = KettleLogStore.getAppender();
+    int lastLogLineNr = buffer.getLastBufferLineNr();
+    int newLogLines = logLines.update( buffer, trans.getLogChannel().getLogChannelId(), lastLogLineNr );
+
+    String statusDescription = trans.getStatus();
+    boolean paused = trans.isPaused();
+
+    List<StepStatus> stepStatusList = new ArrayList<>();
+    for ( int i = 0; i < trans.nrSteps(); i++ ) {
+      StepInterface baseStep = trans.getRunThread( i );
+      if ( ( baseStep.isRunning() ) || baseStep.getStatus() != StepExecutionStatus.STATUS_EMPTY ) {
+        stepStatusList.add( new StepStatus( baseStep ) );
+      }
+    }
+
+    // Give everything that changed a new sequence number
+    //
+    long snapshotSequence = previous == null ? sequence.incrementAndGet() : previous.getSequence();
+    long changeSequence = 0L;
+    long[] stepSequences = new long[ stepStatusList.size() ];
+    boolean sameSteps = previous != null && previous.getStepStatusList().size() == stepStatusList.size();
+    for ( int i = 0; i < stepStatusList.size(); i++ ) {
+      if ( sameSteps && isSameStatus( previous.getStepStatusList().get( i ), stepStatusList.get( i ) ) ) {
+        stepSequences[ i ] = previous.getStepSequence( i );
+      } else {
+        if ( changeSequence == 0L ) {
+          changeSequence = previous == null ? snapshotSequence : sequence.incrementAndGet();
+        }
+        stepSequences[ i ] = changeSequence;
+      }
+    }
+    if ( previous != null && ( changeSequence != 0L || newLogLines > 0 || !sameSteps
+      || !Objects.equals( statusDescription, previous.getStatusDescription() ) || paused != previous.isPaused()
+      || !Objects.equals( trans.getLogDate(), previous.getLogDate() ) ) ) {
+      snapshotSequence = changeSequence != 0L ? changeSequence : sequence.incrementAndGet();
+    }
+
+    return new TransStatusSnapshot( snapshotSequence, now, statusDescription, paused, trans.getLogDate(),
+      trans.getResult(), stepStatusList, stepSequences, lastLogLineNr, logLines );
+  }
+
+  /**
+   * Only the counters and the state of a step count as a change: the time and speed follow them.
+   */
+  private static boolean isSameStatus( StepStatus one, StepStatus two ) {
+    return Objects.equals( one.getStepname(), two.getStepname() ) && one.getCopy() == two.getCopy()
+      && one.getLinesRead() == two.getLinesRead() && one.getLinesWritten() == two.getLinesWritten()
+      && one.getLinesInput() == two.getLinesInput() && one.getLinesOutput() == two.getLinesOutput()
+      && one.getLinesUpdated() == two.getLinesUpdated() && one.getLinesRejected() == two.getLinesRejected()
+      && one.getErrors() == two.getErrors() && one.isStopped() == two.isStopped() && one.isPaused() == two.isPaused()
+      && Objects.equals( one.getStatusDescription(), two.getStatusDescription() );
+  }
+
+  /**
+   * @return the XML status of the server if it was built less than the snapshot interval ago, null otherwise
+   */
+  public synchronized String getServerStatus() {
+    if ( serverStatus == null || System.currentTimeMillis() - serverStatusTime >= getInterval() ) {
+      return null;
+    }
+    return serverStatus;
+  }
+
+  /**
+   * @param xml
+   *          the XML status of the server to share with the next clients
+   */
+  public synchronized void putServerStatus( String xml ) {
+    serverStatus = xml;
+    serverStatusTime = System.currentTimeMillis();
+  }
+}
@@ -0,0 +1,150 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www.cache;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.BufferLine;
+import org.pentaho.di.core.logging.KettleLogLayout;
+import org.pentaho.di.core.logging.LogMessage;
+import org.pentaho.di.core.logging.LoggingBuffer;
+import org.pentaho.di.core.logging.LoggingRegistry;
+
+/**
+ * The formatted log lines of one transformation, read from the central log buffer a bit at a time. Every status request
+ * used to filter the whole buffer for the lines of the transformation; now only the lines that were added since the
+ * last snapshot are looked at.
+ */
+class TransLogLines {
+
+  /**
+   * A line number is taken before the line is put in the buffer, so for a moment a line can be missing between lines
+   * that are already there. Numbers that don't show up in time were taken by another buffer.
+   */
+  private static final long MAX_GAP_MILLIS = 5000L;
+
+  private int[] lineNrs = new int[ 64 ];
+  private String[] lines = new String[ 64 ];
+  private int size;
+
+  /** All the lines of the buffer up to this one were looked at */
+  private int lastLineNr;
+
+  /** The first line missing after the last line that was looked at, and since when */
+  private int gapLineNr;
+  private long gapTime;
+
+  /**
+   * Reads the new lines of the transformation from the buffer. The lines after a missing one are read again until the
+   * missing line shows up, the ones that were already read are skipped.
+   *
+   * @return the number of new lines
+   */
+  synchronized int update( LoggingBuffer buffer, String logChannelId, int lastBufferLineNr ) {
+    int firstBufferLineNr = buffer.getFirstBufferLineNr();
+    removeLinesBefore( firstBufferLineNr );
+    lastLineNr = Math.max( lastLineNr, firstBufferLineNr - 1 );
+    if ( lastBufferLineNr <= lastLineNr ) {
+      return 0;
+    }
+
+    List<String> channelIds = LoggingRegistry.getInstance().getLogChannelChildren( logChannelId );
+    List<BufferLine> bufferLines = buffer.getBufferLinesFromTo( null, false, lastLineNr + 1, lastBufferLineNr );
+    KettleLogLayout layout = buffer.getLayout();
+    long now = System.currentTimeMillis();
+    boolean gapFree = true;
+    int newLines = 0;
+    for ( BufferLine line : bufferLines ) {
+      if ( gapFree && line.getNr() != lastLineNr + 1 && !isGivenUp( lastLineNr + 1, now ) ) {
+        gapFree = false;
+      }
+      if ( gapFree ) {
+        lastLineNr = line.getNr();
+      }
+      if ( channelIds.contains( getLogChannelId( line ) ) && add( line.getNr(), line, layout ) ) {
+        newLines++;
+      }
+    }
+    return newLines;
+  }
+
+  private static String getLogChannelId( BufferLine line ) {
+    return ( (LogMessage) line.getEvent().getMessage() ).getLogChannelId();
+  }
+
+  /**
+   * @return true if the line has been missing for too long to still show up
+   */
+  private boolean isGivenUp( int lineNr, long now ) {
+    if ( gapLineNr != lineNr ) {
+      gapLineNr = lineNr;
+      gapTime = now;
+    }
+    return now - gapTime >= MAX_GAP_MILLIS;
+  }
+
+  /**
+   * @return the lines from the first line number up to and including the last one
+   */
+  synchronized String getText( int fromLineNr, int toLineNr ) {
+    int index = Arrays.binarySearch( lineNrs, 0, size, fromLineNr );
+    if ( index < 0 ) {
+      index = -index - 1;
+    }
+    StringBuilder text = new StringBuilder();
+    for ( ; index < size && lineNrs[ index ] <= toLineNr; index++ ) {
+      text.append( lines[ index ] );
+    }
+    return text.toString();
+  }
+
+  /**
+   * @return false if the line was already read
+   */
+  private boolean add( int lineNr, BufferLine line, KettleLogLayout layout ) {
+    int index = Arrays.binarySearch( lineNrs, 0, size, lineNr );
+    if ( index >= 0 ) {
+      return false;
+    }
+    index = -index - 1;
+    if ( size == lineNrs.length ) {
+      lineNrs = Arrays.copyOf( lineNrs, size * 2 );
+      lines = Arrays.copyOf( lines, size * 2 );
+    }
+    System.arraycopy( lineNrs, index, lineNrs, index + 1, size - index );
+    System.arraycopy( lines, index, lines, index + 1, size - index );
+    lineNrs[ index ] = lineNr;
+    lines[ index ] = layout.format( line.getEvent() ) + Const.CR;
+    size++;
+    return true;
+  }
+
+  /**
+   * Forgets the lines that the buffer doesn't keep anymore.
+   */
+  private void removeLinesBefore( int firstLineNr ) {
+    int index = Arrays.binarySearch( lineNrs, 0, size, firstLineNr );
+    if ( index < 0 ) {
+      index = -index - 1;
+    }
+    if ( index > 0 ) {
+      System.arraycopy( lineNrs, index, lineNrs, 0, size - index );
+      System.arraycopy( lines, index, lines, 0, size - index );
+      Arrays.fill( lines, size - index, size, null );
+      size -= index;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.pentaho.di.cluster.HttpUtil;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.trans.step.StepStatus;
+
+/**
+ * The status of a transformation at one point in time, shared by all the clients that poll it.<br>
+ * <br>
+ * Every change gets a new sequence number: the snapshot as a whole, and every step when its counters or status change.
+ * A client that passes the sequence number of the last status it received only gets the steps that changed since.
+ */
+public class TransStatusSnapshot {
+
+  private final long sequence;
+  private final long creationTime;
+  private final String statusDescription;
+  private final boolean paused;
+  private final Date logDate;
+  private final Result result;
+  private final List<StepStatus> stepStatusList;
+  private final long[] stepSequences;
+  private final int lastLogLineNr;
+  private final TransLogLines logLines;
+
+  private int encodedLogFrom = -1;
+  private String encodedLog;
+
+  TransStatusSnapshot( long sequence, long creationTime, String statusDescription, boolean paused, Date logDate,
+                       Result result, List<StepStatus> stepStatusList, long[] stepSequences, int lastLogLineNr,
+                       TransLogLines logLines ) {
+    this.sequence = sequence;
+    this.creationTime = creationTime;
+    this.statusDescription = statusDescription;
+    this.paused = paused;
+    this.logDate = logDate;
+    this.result = result;
+    this.stepStatusList = stepStatusList;
+    this.stepSequences = stepSequences;
+    this.lastLogLineNr = lastLogLineNr;
+    this.logLines = logLines;
+  }
+
+  /**
+   * @return the sequence number of the last change
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  long getCreationTime() {
+    return creationTime;
+  }
+
+  public String getStatusDescription() {
+    return statusDescription;
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  public Date getLogDate() {
+    return logDate;
+  }
+
+  public Result getResult() {
+    return result;
+  }
+
+  public int getLastLogLineNr() {
+    return lastLogLineNr;
+  }
+
+  /**
+   * @return the status of all the steps
+   */
+  public List<StepStatus> getStepStatusList() {
+    return stepStatusList;
+  }
+
+  /**
+   * @param sinceSequence
+   *          the sequence number of an earlier snapshot, or a negative number for all the steps
+   * @return the status of the steps that changed after the given snapshot
+   */
+  public List<StepStatus> getStepStatusList( long sinceSequence ) {
+    if ( sinceSequence < 0 ) {
+      return stepStatusList;
+    }
+    List<StepStatus> changed = new ArrayList<>();
+    for ( int i = 0; i < stepStatusList.size(); i++ ) {
+      if ( stepSequences[ i ] > sinceSequence ) {
+        changed.add( stepStatusList.get( i ) );
+      }
+    }
+    return changed;
+  }
+
+  long getStepSequence( int index ) {
+    return stepSequences[ index ];
+  }
+
+  /**
+   * @return the log lines of the transformation from the given line number up to the last line of the snapshot
+   */
+  public String getLogText( int fromLineNr ) {
+    return logLines.getText( fromLineNr, lastLogLineNr );
+  }
+
+  /**
+   * The log text the way it is sent to a client. Clients polling the same transformation usually ask for the same
+   * lines, so the last one is kept.
+   */
+  public synchronized String getEncodedLogText( int fromLineNr ) throws IOException {
+    if ( encodedLog == null || encodedLogFrom != fromLineNr ) {
+      encodedLog = HttpUtil.encodeBase64ZippedString( getLogText( fromLineNr ) );
+      encodedLogFrom = fromLineNr;
+    }
+    return encodedLog;
+  }
+}
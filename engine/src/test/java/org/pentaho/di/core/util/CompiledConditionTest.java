@@ -0,0 +1,202 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class CompiledConditionTest {
+
+  private static final String[] FIELDS = { "int", "num", "str", "date", "big", "int2", "str2" };
+
+  private RowMetaInterface rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "int" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "num" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "str" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "big" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "int2" ) );
+    ValueMetaString caseInsensitive = new ValueMetaString( "str2" );
+    caseInsensitive.setCaseInsensitive( true );
+    rowMeta.addValueMeta( caseInsensitive );
+    return rowMeta;
+  }
+
+  private Object[] createRow( Random random ) {
+    return new Object[] {
+      random.nextInt( 5 ) == 0 ? null : Long.valueOf( random.nextInt( 5 ) ),
+      random.nextInt( 5 ) == 0 ? null : Double.valueOf( random.nextInt( 5 ) / 2.0 ),
+      randomString( random ),
+      random.nextInt( 5 ) == 0 ? null : new Date( random.nextInt( 3 ) * 1000L ),
+      random.nextInt( 5 ) == 0 ? null : BigDecimal.valueOf( random.nextInt( 5 ), 1 ),
+      random.nextInt( 5 ) == 0 ? null : Long.valueOf( random.nextInt( 5 ) ),
+      randomString( random ), };
+  }
+
+  private static String randomString( Random random ) {
+    String[] strings = { null, "", "a", "A", "ab", "b", "ba", "abc" };
+    return strings[ random.nextInt( strings.length ) ];
+  }
+
+  private ValueMetaAndData createExact( Random random, ValueMetaInterface valueMeta ) throws Exception {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return new ValueMetaAndData( "exact", Long.valueOf( random.nextInt( 5 ) ) );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return new ValueMetaAndData( "exact", Double.valueOf( random.nextInt( 5 ) / 2.0 ) );
+      case ValueMetaInterface.TYPE_DATE:
+        return new ValueMetaAndData( "exact", new Date( random.nextInt( 3 ) * 1000L ) );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return new ValueMetaAndData( "exact", BigDecimal.valueOf( random.nextInt( 5 ), 1 ) );
+      default:
+        String[] patterns = { "a", "a.*", "%b", "a;b;abc", "A" };
+        return new ValueMetaAndData( "exact", patterns[ random.nextInt( patterns.length ) ] );
+    }
+  }
+
+  private Condition createAtomic( Random random ) throws Exception {
+    String left = FIELDS[ random.nextInt( FIELDS.length ) ];
+    int function = random.nextInt( Condition.functions.length );
+    ValueMetaInterface leftMeta = rowMeta.searchValueMeta( left );
+    Condition condition;
+    if ( random.nextBoolean() ) {
+      // Compare with a field of the same type
+      String right = leftMeta.isString() ? ( left.equals( "str" ) ? "str2" : "str" )
+        : leftMeta.isInteger() ? ( left.equals( "int" ) ? "int2" : "int" ) : left;
+      condition = new Condition( left, function, right, null );
+    } else {
+      condition = new Condition( left, function, null, createExact( random, leftMeta ) );
+    }
+    condition.setNegated( random.nextInt( 4 ) == 0 );
+    return condition;
+  }
+
+  private Condition createCondition( Random random, int depth ) throws Exception {
+    if ( depth == 0 || random.nextInt( 3 ) == 0 ) {
+      return createAtomic( random );
+    }
+    Condition condition = new Condition();
+    int nrConditions = 2 + random.nextInt( 3 );
+    for ( int i = 0; i < nrConditions; i++ ) {
+      Condition child = createCondition( random, depth - 1 );
+      if ( i > 0 ) {
+        String[] operators = Condition.getRealOperators();
+        child.setOperator( Condition.getOperator( operators[ random.nextInt( operators.length ) ] ) );
+      }
+      condition.addCondition( child );
+    }
+    condition.setNegated( random.nextInt( 4 ) == 0 );
+    return condition;
+  }
+
+  private Object interpret( Condition condition, Object[] row ) {
+    try {
+      return condition.evaluate( rowMeta, row );
+    } catch ( RuntimeException e ) {
+      return "error";
+    }
+  }
+
+  private Object evaluate( CompiledCondition compiled, Object[] row ) {
+    try {
+      return compiled.evaluate( row );
+    } catch ( Exception e ) {
+      return "error";
+    }
+  }
+
+  @Test
+  public void testSameResultAsInterpreter() throws Exception {
+    rowMeta = createRowMeta();
+    Random random = new Random( 42 );
+    for ( int c = 0; c < 200; c++ ) {
+      Condition condition = createCondition( random, 3 );
+      CompiledCondition compiled = CompiledCondition.compile( condition, rowMeta );
+      for ( int r = 0; r < 50; r++ ) {
+        Object[] row = createRow( random );
+        assertEquals( condition + " for " + rowMeta.getString( row ), interpret( condition, row ),
+          evaluate( compiled, row ) );
+      }
+    }
+  }
+
+  @Test
+  public void testMissingLeftFieldIsFalseEvenWhenNegated() throws Exception {
+    rowMeta = createRowMeta();
+    Condition condition = new Condition( true, "missing", Condition.FUNC_NULL, null, null );
+
+    assertFalse( CompiledCondition.compile( condition, rowMeta ).evaluate( new Object[ FIELDS.length ] ) );
+  }
+
+  @Test
+  public void testConstantsAreNotPartOfTheGeneratedClass() throws Exception {
+    rowMeta = createRowMeta();
+    Condition one = new Condition( "int", Condition.FUNC_LARGER, null, new ValueMetaAndData( "exact", 1L ) );
+    Condition two = new Condition( "int", Condition.FUNC_LARGER, null, new ValueMetaAndData( "exact", 3L ) );
+
+    CompiledCondition compiledOne = CompiledCondition.compile( one, rowMeta );
+    CompiledCondition compiledTwo = CompiledCondition.compile( two, rowMeta );
+
+    assertEquals( compiledOne.getClass(), compiledTwo.getClass() );
+    Object[] row = { 2L, null, null, null, null, null, null };
+    assertTrue( compiledOne.evaluate( row ) );
+    assertFalse( compiledTwo.evaluate( row ) );
+  }
+
+  @Test
+  public void testOnlyCompiledForLayoutsWithTheSameFields() throws Exception {
+    rowMeta = createRowMeta();
+    Condition condition = new Condition( "int", Condition.FUNC_LARGER, "int2", null );
+    CompiledCondition compiled = CompiledCondition.compile( condition, rowMeta );
+    assertTrue( compiled.isCompiledFor( rowMeta ) );
+
+    // Another hop with the same fields, but also with the fields in another order
+    assertTrue( compiled.isCompiledFor( createRowMeta() ) );
+    RowMetaInterface reordered = createRowMeta();
+    reordered.removeValueMeta( "int" );
+    reordered.addValueMeta( new ValueMetaInteger( "int" ) );
+    assertFalse( compiled.isCompiledFor( reordered ) );
+
+    RowMetaInterface otherType = createRowMeta();
+    otherType.setValueMeta( 5, new ValueMetaString( "int2" ) );
+    assertFalse( compiled.isCompiledFor( otherType ) );
+  }
+}
@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ExpressionEvaluator;
+import org.junit.Test;
+
+public class JaninoCacheTest {
+
+  private static final String[] NAMES = { "a", "b" };
+  private static final Class<?>[] TYPES = { Long.class, Long.class };
+  private static final Class<?>[] EXCEPTIONS = { Exception.class };
+
+  public abstract static class Base {
+    public abstract int value();
+  }
+
+  private static ExpressionEvaluator cook( String expression, Class<?>... types ) throws CompileException {
+    return JaninoCache.cookExpression( expression, NAMES, types, Object.class, EXCEPTIONS );
+  }
+
+  @Test
+  public void testSameExpressionIsCookedOnce() throws Exception {
+    ExpressionEvaluator evaluator = cook( "a + b", TYPES );
+
+    assertSame( evaluator, cook( "a + b", TYPES ) );
+    assertEquals( 5L, evaluator.evaluate( new Object[] { 2L, 3L } ) );
+  }
+
+  @Test
+  public void testParameterTypesArePartOfTheKey() throws Exception {
+    ExpressionEvaluator longs = cook( "a + b", TYPES );
+    ExpressionEvaluator strings = cook( "a + b", String.class, String.class );
+
+    assertNotSame( longs, strings );
+    assertEquals( "23", strings.evaluate( new Object[] { "2", "3" } ) );
+  }
+
+  @Test( expected = CompileException.class )
+  public void testCompileErrorIsThrown() throws Exception {
+    cook( "a +", TYPES );
+  }
+
+  @Test
+  public void testConcurrentCooksShareOneEvaluator() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    try {
+      List<Future<ExpressionEvaluator>> futures = new ArrayList<>();
+      for ( int i = 0; i < 8; i++ ) {
+        futures.add( executor.submit( (Callable<ExpressionEvaluator>) () -> cook( "a * b - 1", TYPES ) ) );
+      }
+      for ( Future<ExpressionEvaluator> future : futures ) {
+        assertSame( futures.get( 0 ).get(), future.get() );
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testContextClassLoaderIsPartOfTheKey() throws Exception {
+    ExpressionEvaluator evaluator = cook( "a - b", TYPES );
+    Thread thread = Thread.currentThread();
+    ClassLoader contextClassLoader = thread.getContextClassLoader();
+    thread.setContextClassLoader( new URLClassLoader( new URL[0], contextClassLoader ) );
+    try {
+      ExpressionEvaluator other = cook( "a - b", TYPES );
+
+      assertNotSame( evaluator, other );
+      assertSame( other, cook( "a - b", TYPES ) );
+    } finally {
+      thread.setContextClassLoader( contextClassLoader );
+    }
+  }
+
+  @Test
+  public void testClassBodyIsCookedOnce() throws Exception {
+    String source = "public int value() { return 42; }";
+    Class<? extends Base> clazz = JaninoCache.cookClassBody( Base.class, source );
+
+    assertSame( clazz, JaninoCache.cookClassBody( Base.class, source ) );
+    assertEquals( 42, clazz.newInstance().value() );
+  }
+}
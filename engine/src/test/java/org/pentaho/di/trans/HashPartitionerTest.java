@@ -0,0 +1,228 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.partition.PartitionSchema;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+
+public class HashPartitionerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final int ROWS = 20000;
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "FieldNames", "Method" );
+    LoadSaveTester<HashPartitioner> tester = new LoadSaveTester<HashPartitioner>( HashPartitioner.class, attributes );
+
+    tester.testSerialization();
+  }
+
+  private static HashPartitioner partitioner( String method, List<String> partitionIDs, String... fieldNames ) {
+    StepPartitioningMeta meta = new StepPartitioningMeta();
+    meta.setPartitionSchema( new PartitionSchema( "schema", partitionIDs ) );
+    HashPartitioner partitioner = new HashPartitioner();
+    partitioner.setMeta( meta );
+    partitioner.setMethod( method );
+    partitioner.setFieldNames( fieldNames );
+    return partitioner;
+  }
+
+  private static List<String> partitionIDs( int count ) {
+    List<String> partitionIDs = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      partitionIDs.add( "P" + i );
+    }
+    return partitionIDs;
+  }
+
+  private static RowMetaInterface keyRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    return rowMeta;
+  }
+
+  private static List<Object[]> sequentialRows() {
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < ROWS; i++ ) {
+      // Sequential keys that are all multiples of the partition count skew a modulo partitioner completely
+      rows.add( new Object[] { i * 8, "code-" + ( i % 3 ) } );
+    }
+    return rows;
+  }
+
+  private static int[] partitions( HashPartitioner partitioner, RowMetaInterface rowMeta, List<Object[]> rows )
+    throws KettleException {
+    int[] partitions = new int[rows.size()];
+    for ( int i = 0; i < rows.size(); i++ ) {
+      partitions[i] = partitioner.getPartition( rowMeta, rows.get( i ) );
+    }
+    return partitions;
+  }
+
+  @Test
+  public void testSequentialKeysSpreadEvenly() throws Exception {
+    RowMetaInterface rowMeta = keyRowMeta();
+    for ( String method : HashPartitioner.METHOD_CODES ) {
+      HashPartitioner partitioner = partitioner( method, partitionIDs( 8 ), "id" );
+      int[] counts = new int[8];
+      for ( Object[] row : sequentialRows() ) {
+        counts[partitioner.getPartition( rowMeta, row )]++;
+      }
+      for ( int count : counts ) {
+        assertTrue( method + ": " + Arrays.toString( counts ), Math.abs( count - ROWS / 8 ) < ROWS / 8 / 10 );
+      }
+    }
+  }
+
+  @Test
+  public void testAllKeyFieldsAreHashed() throws Exception {
+    RowMetaInterface rowMeta = keyRowMeta();
+    HashPartitioner partitioner = partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 16 ), "id", "code" );
+    boolean[] seen = new boolean[16];
+    for ( int i = 0; i < 1000; i++ ) {
+      seen[partitioner.getPartition( rowMeta, new Object[] { 1L, "code-" + i } )] = true;
+    }
+    for ( boolean partitionSeen : seen ) {
+      assertTrue( partitionSeen );
+    }
+  }
+
+  @Test
+  public void testEqualValuesGiveTheSamePartition() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "big" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    HashPartitioner partitioner =
+      partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 1024 ), "number", "big", "string" );
+
+    assertEquals( partitioner.getPartition( rowMeta, new Object[] { 0.0d, new BigDecimal( "1.5" ), "a" } ),
+      partitioner.getPartition( rowMeta, new Object[] { -0.0d, new BigDecimal( "1.500" ), "a" } ) );
+    assertEquals( partitioner.getPartition( rowMeta, new Object[] { null, null, null } ),
+      partitioner.getPartition( rowMeta, new Object[] { null, null, null } ) );
+  }
+
+  @Test
+  public void testBinaryStringsGiveTheSamePartitionAsNormalValues() throws Exception {
+    RowMetaInterface rowMeta = keyRowMeta();
+    RowMetaInterface lazyRowMeta = new RowMeta();
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      ValueMetaInterface lazyMeta = valueMeta.clone();
+      ValueMetaInterface storageMeta = new ValueMetaString( valueMeta.getName() );
+      lazyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+      lazyMeta.setStorageMetadata( storageMeta );
+      lazyRowMeta.addValueMeta( lazyMeta );
+    }
+    HashPartitioner partitioner = partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 1024 ), "id", "code" );
+    HashPartitioner lazyPartitioner =
+      partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 1024 ), "id", "code" );
+
+    for ( Object[] row : sequentialRows().subList( 0, 100 ) ) {
+      Object[] lazyRow = { String.valueOf( row[0] ).getBytes( StandardCharsets.UTF_8 ),
+        ( (String) row[1] ).getBytes( StandardCharsets.UTF_8 ) };
+      assertEquals( partitioner.getPartition( rowMeta, row ), lazyPartitioner.getPartition( lazyRowMeta, lazyRow ) );
+    }
+  }
+
+  @Test
+  public void testIndexedValuesGiveTheSamePartitionAsNormalValues() throws Exception {
+    RowMetaInterface rowMeta = keyRowMeta();
+    RowMetaInterface indexedRowMeta = new RowMeta();
+    ValueMetaInterface idMeta = new ValueMetaInteger( "id" );
+    idMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+    idMeta.setIndex( new Object[] { 0L, 8L, 16L } );
+    indexedRowMeta.addValueMeta( idMeta );
+    ValueMetaInterface codeMeta = new ValueMetaString( "code" );
+    codeMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+    codeMeta.setIndex( new Object[] { "code-0", "code-1", "code-2" } );
+    indexedRowMeta.addValueMeta( codeMeta );
+    HashPartitioner partitioner = partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 1024 ), "id", "code" );
+    HashPartitioner indexedPartitioner =
+      partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 1024 ), "id", "code" );
+
+    for ( int i = 0; i < 3; i++ ) {
+      assertEquals( partitioner.getPartition( rowMeta, new Object[] { i * 8L, "code-" + i } ),
+        indexedPartitioner.getPartition( indexedRowMeta, new Object[] { i, i } ) );
+    }
+    assertEquals( indexedPartitioner.getPartition( indexedRowMeta, new Object[] { 1, 2 } ),
+      partitioner.getPartition( rowMeta, new Object[] { 8L, "code-2" } ) );
+  }
+
+  @Test
+  public void testJumpMovesFewKeysWhenAPartitionIsAdded() throws Exception {
+    RowMetaInterface rowMeta = keyRowMeta();
+    List<Object[]> rows = sequentialRows();
+    int[] before = partitions( partitioner( HashPartitioner.METHOD_JUMP, partitionIDs( 9 ), "id" ), rowMeta, rows );
+    int[] after = partitions( partitioner( HashPartitioner.METHOD_JUMP, partitionIDs( 10 ), "id" ), rowMeta, rows );
+
+    int moved = 0;
+    for ( int i = 0; i < rows.size(); i++ ) {
+      if ( before[i] != after[i] ) {
+        // Keys only move to the new partition
+        assertEquals( 9, after[i] );
+        moved++;
+      }
+    }
+    assertTrue( "moved " + moved, Math.abs( moved - ROWS / 10 ) < ROWS / 10 / 5 );
+  }
+
+  @Test
+  public void testRendezvousOnlyMovesKeysOfTheRemovedPartition() throws Exception {
+    RowMetaInterface rowMeta = keyRowMeta();
+    List<Object[]> rows = sequentialRows();
+    List<String> allIDs = partitionIDs( 6 );
+    List<String> remainingIDs = new ArrayList<>( allIDs );
+    remainingIDs.remove( "P2" );
+
+    String method = HashPartitioner.METHOD_RENDEZVOUS;
+    int[] before = partitions( partitioner( method, allIDs, "id" ), rowMeta, rows );
+    int[] after = partitions( partitioner( method, remainingIDs, "id" ), rowMeta, rows );
+
+    for ( int i = 0; i < rows.size(); i++ ) {
+      String partitionBefore = allIDs.get( before[i] );
+      String partitionAfter = remainingIDs.get( after[i] );
+      if ( !"P2".equals( partitionBefore ) ) {
+        assertEquals( partitionBefore, partitionAfter );
+      }
+    }
+  }
+
+  @Test( expected = KettleException.class )
+  public void testUnknownField() throws Exception {
+    partitioner( HashPartitioner.METHOD_HASH, partitionIDs( 2 ), "unknown" )
+      .getPartition( keyRowMeta(), new Object[] { 1L, "a" } );
+  }
+}
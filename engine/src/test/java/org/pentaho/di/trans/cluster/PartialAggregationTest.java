@@ -0,0 +1,198 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.cluster.ClusterSchema;
+import org.pentaho.di.cluster.SlaveServer;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransTestFactory;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+
+public class PartialAggregationTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String GROUP_BY_STEPNAME = "group by";
+
+  private static RowMetaInterface inputRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "quantity" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "price" ) );
+    return rowMeta;
+  }
+
+  private static List<RowMetaAndData> inputRows() {
+    RowMetaInterface rowMeta = inputRowMeta();
+    List<RowMetaAndData> rows = new ArrayList<>();
+    for ( int i = 0; i < 1000; i++ ) {
+      rows.add( new RowMetaAndData( rowMeta, "code-" + ( i % 7 ), i % 5 == 0 ? null : (long) i, i * 0.5d ) );
+    }
+    return rows;
+  }
+
+  private static MemoryGroupByMeta groupByMeta( int... aggregateTypes ) {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, aggregateTypes.length );
+    meta.getGroupField()[0] = "code";
+    for ( int i = 0; i < aggregateTypes.length; i++ ) {
+      meta.getAggregateField()[i] = "aggregate" + i;
+      meta.getSubjectField()[i] = i % 2 == 0 ? "quantity" : "price";
+      meta.getAggregateType()[i] = aggregateTypes[i];
+    }
+    return meta;
+  }
+
+  private static TransMeta clusteredTransMeta( MemoryGroupByMeta groupByMeta ) {
+    TransMeta transMeta =
+      TransTestFactory.generateTestTransformation( null, groupByMeta, GROUP_BY_STEPNAME, inputRowMeta() );
+    ClusterSchema clusterSchema = new ClusterSchema( "cluster", Collections.<SlaveServer>emptyList() );
+    transMeta.findStep( TransTestFactory.INJECTOR_STEPNAME ).setClusterSchema( clusterSchema );
+    return transMeta;
+  }
+
+  private static List<String> execute( TransMeta transMeta ) throws Exception {
+    return execute( transMeta, inputRows() );
+  }
+
+  private static List<String> execute( TransMeta transMeta, List<RowMetaAndData> inputRows ) throws Exception {
+    // Run the rewritten transformation locally, with several copies doing the partial aggregation
+    for ( StepMeta stepMeta : transMeta.getSteps() ) {
+      if ( stepMeta.getName().endsWith( PartialAggregation.PARTIAL_STEP_SUFFIX ) ) {
+        stepMeta.setCopies( 3 );
+      }
+      stepMeta.setClusterSchema( null );
+    }
+    List<RowMetaAndData> result = TransTestFactory.executeTestTransformation( transMeta,
+      TransTestFactory.INJECTOR_STEPNAME, GROUP_BY_STEPNAME, TransTestFactory.DUMMY_STEPNAME, inputRows );
+
+    List<String> rows = new ArrayList<>();
+    for ( RowMetaAndData row : result ) {
+      rows.add( row.getRowMeta().toStringMeta() + " " + row.getRowMeta().getString( row.getData() ) );
+    }
+    Collections.sort( rows );
+    return rows;
+  }
+
+  private static void assertSameResult( int... aggregateTypes ) throws Exception {
+    List<String> expected = execute( clusteredTransMeta( groupByMeta( aggregateTypes ) ) );
+
+    TransMeta transMeta = clusteredTransMeta( groupByMeta( aggregateTypes ) );
+    assertEquals( Collections.singletonList( GROUP_BY_STEPNAME ), new PartialAggregation( transMeta ).apply() );
+    List<String> actual = execute( transMeta );
+
+    assertEquals( 7, expected.size() );
+    assertEquals( expected, actual );
+  }
+
+  @Test
+  public void testMergesSumsCountsAndExtremes() throws Exception {
+    assertSameResult( MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_MAX,
+      MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, MemoryGroupByMeta.TYPE_GROUP_MIN,
+      MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY );
+  }
+
+  @Test
+  public void testMergesAverages() throws Exception {
+    assertSameResult( MemoryGroupByMeta.TYPE_GROUP_AVERAGE, MemoryGroupByMeta.TYPE_GROUP_AVERAGE,
+      MemoryGroupByMeta.TYPE_GROUP_SUM );
+  }
+
+  @Test
+  public void testPartialStepRunsOnTheCluster() throws Exception {
+    TransMeta transMeta = clusteredTransMeta( groupByMeta( MemoryGroupByMeta.TYPE_GROUP_AVERAGE ) );
+    new PartialAggregation( transMeta ).apply();
+
+    StepMeta partial = transMeta.findStep( GROUP_BY_STEPNAME + PartialAggregation.PARTIAL_STEP_SUFFIX );
+    assertNotNull( partial );
+    assertTrue( partial.isClustered() );
+    assertEquals( partial, transMeta.findPrevStep( GROUP_BY_STEPNAME, 0 ) );
+
+    // The rows now leave through the step that restores the fields
+    StepMeta dummy = transMeta.findStep( TransTestFactory.DUMMY_STEPNAME );
+    assertEquals( GROUP_BY_STEPNAME + PartialAggregation.SELECT_STEP_SUFFIX,
+      transMeta.findPreviousSteps( dummy ).get( 0 ).getName() );
+  }
+
+  @Test
+  public void testUnsupportedAggregatesAreLeftAlone() throws Exception {
+    TransMeta transMeta = clusteredTransMeta( groupByMeta( MemoryGroupByMeta.TYPE_GROUP_SUM,
+      MemoryGroupByMeta.TYPE_GROUP_MEDIAN ) );
+    assertTrue( new PartialAggregation( transMeta ).apply().isEmpty() );
+    assertEquals( 3, transMeta.nrSteps() );
+  }
+
+  @Test
+  public void testStepsReadingFromTheMasterAreLeftAlone() throws Exception {
+    TransMeta transMeta = clusteredTransMeta( groupByMeta( MemoryGroupByMeta.TYPE_GROUP_SUM ) );
+    transMeta.findStep( TransTestFactory.INJECTOR_STEPNAME ).setClusterSchema( null );
+    assertTrue( new PartialAggregation( transMeta ).apply().isEmpty() );
+  }
+
+  @Test
+  public void testSlaveWithoutRowsAddsNoGroup() throws Exception {
+    // Two rows for the three copies doing the partial aggregation: one of them gets no rows
+    RowMetaInterface rowMeta = inputRowMeta();
+    List<RowMetaAndData> rows = new ArrayList<>();
+    rows.add( new RowMetaAndData( rowMeta, "code-1", 1L, 1.0d ) );
+    rows.add( new RowMetaAndData( rowMeta, "code-2", 2L, 2.0d ) );
+
+    MemoryGroupByMeta groupByMeta = groupByMeta( MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_MAX );
+    groupByMeta.setAlwaysGivingBackOneRow( true );
+    List<String> expected = execute( clusteredTransMeta( (MemoryGroupByMeta) groupByMeta.clone() ), rows );
+
+    TransMeta transMeta = clusteredTransMeta( groupByMeta );
+    assertEquals( Collections.singletonList( GROUP_BY_STEPNAME ), new PartialAggregation( transMeta ).apply() );
+    assertFalse( ( (MemoryGroupByMeta) transMeta.findStep( GROUP_BY_STEPNAME + PartialAggregation.PARTIAL_STEP_SUFFIX )
+      .getStepMetaInterface() ).isAlwaysGivingBackOneRow() );
+    List<String> actual = execute( transMeta, rows );
+
+    assertEquals( 2, expected.size() );
+    assertEquals( expected, actual );
+  }
+
+  @Test
+  public void testCountsThatAlwaysGiveBackOneRowAreLeftAlone() throws Exception {
+    MemoryGroupByMeta groupByMeta = groupByMeta( MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL );
+    groupByMeta.setAlwaysGivingBackOneRow( true );
+    assertTrue( new PartialAggregation( clusteredTransMeta( groupByMeta ) ).apply().isEmpty() );
+  }
+
+  @Test
+  public void testAllNullsAreZeroIsLeftAlone() throws Exception {
+    TransMeta transMeta = clusteredTransMeta( groupByMeta( MemoryGroupByMeta.TYPE_GROUP_MIN,
+      MemoryGroupByMeta.TYPE_GROUP_MAX ) );
+    transMeta.setVariable( Const.KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO, "Y" );
+    assertTrue( new PartialAggregation( transMeta ).apply().isEmpty() );
+  }
+}
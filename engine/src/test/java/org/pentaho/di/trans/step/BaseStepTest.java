@@ -40,6 +40,7 @@ import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.trans.BasePartitioner;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 import org.pentaho.di.www.SocketRepository;
 
@@ -59,6 +60,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -279,6 +281,75 @@ public class BaseStepTest {
     assertNotSame( meta1, meta2 );
   }
 
+  @Test
+  public void copiedRowsAreSharedWithStepsThatOnlyReadThem() throws Exception {
+    StepMetaInterface modifyingMeta = mock( StepMetaInterface.class );
+    when( modifyingMeta.modifiesInputRows() ).thenReturn( true );
+    StepMeta reader = new StepMeta( "reader", new DummyTransMeta() );
+    StepMeta modifier = new StepMeta( "modifier", modifyingMeta );
+    StepMeta readerBeforeModifier = new StepMeta( "readerBeforeModifier", new DummyTransMeta() );
+    when( mockHelper.transMeta.findStep( "reader" ) ).thenReturn( reader );
+    when( mockHelper.transMeta.findStep( "modifier" ) ).thenReturn( modifier );
+    when( mockHelper.transMeta.findStep( "readerBeforeModifier" ) ).thenReturn( readerBeforeModifier );
+    when( mockHelper.transMeta.findNextSteps( readerBeforeModifier ) ).thenReturn( Arrays.asList( modifier ) );
+
+    List<RowSet> rowSets = new ArrayList<>();
+    for ( String target : new String[] { "modifier", "reader", "readerBeforeModifier", "reader" } ) {
+      RowSet rowSet = new QueueRowSet();
+      rowSet.setThreadNameFromToCopy( "BASE STEP", 0, target, rowSets.size() );
+      rowSets.add( rowSet );
+    }
+
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setStopped( false );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    baseStep.setOutputRowSets( rowSets );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    Object[] row = new Object[] { "a" };
+    baseStep.putRow( rowMeta, row );
+
+    assertNotSame( row, rowSets.get( 0 ).getRow() );
+    assertSame( row, rowSets.get( 1 ).getRow() );
+    assertNotSame( row, rowSets.get( 2 ).getRow() );
+    assertSame( row, rowSets.get( 3 ).getRow() );
+    assertEquals( 4, baseStep.getLinesWritten() );
+  }
+
+  @Test
+  public void copiedRowsAreClonedWhenNoStepOnlyReadsThem() throws Exception {
+    StepMetaInterface modifyingMeta = mock( StepMetaInterface.class );
+    when( modifyingMeta.modifiesInputRows() ).thenReturn( true );
+    StepMeta modifier = new StepMeta( "modifier", modifyingMeta );
+    when( mockHelper.transMeta.findStep( "modifier" ) ).thenReturn( modifier );
+
+    List<RowSet> rowSets = new ArrayList<>();
+    for ( int i = 0; i < 2; i++ ) {
+      RowSet rowSet = new QueueRowSet();
+      rowSet.setThreadNameFromToCopy( "BASE STEP", 0, "modifier", i );
+      rowSets.add( rowSet );
+    }
+
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setStopped( false );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    baseStep.setOutputRowSets( rowSets );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    Object[] row = new Object[] { "a" };
+    baseStep.putRow( rowMeta, row );
+
+    // The first step gets the row itself, like before
+    assertSame( row, rowSets.get( 0 ).getRow() );
+    assertNotSame( row, rowSets.get( 1 ).getRow() );
+  }
+
   @Test
   public void testBuildLog() throws KettleValueException {
     BaseStep testObject = new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
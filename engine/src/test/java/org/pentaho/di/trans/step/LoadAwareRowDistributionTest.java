@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class LoadAwareRowDistributionTest {
+
+  private final RowMetaInterface rowMeta = new RowMeta();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  private static StepInterface step( List<RowSet> rowSets ) {
+    StepInterface step = mock( StepInterface.class );
+    when( step.getOutputRowSets() ).thenReturn( rowSets );
+    return step;
+  }
+
+  private static List<RowSet> rowSets( int count, int capacity ) {
+    List<RowSet> rowSets = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      rowSets.add( new BlockingRowSet( capacity ) );
+    }
+    return rowSets;
+  }
+
+  @Test
+  public void testLeastLoaded() throws Exception {
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    List<RowSet> rowSets = rowSets( 3, 10 );
+    rowSets.get( 0 ).putRow( rowMeta, new Object[] { -1L } );
+    rowSets.get( 0 ).putRow( rowMeta, new Object[] { -2L } );
+    rowSets.get( 2 ).putRow( rowMeta, new Object[] { -3L } );
+
+    LeastLoadedRowDistribution distribution = new LeastLoadedRowDistribution();
+    StepInterface step = step( rowSets );
+    for ( long i = 0; i < 6; i++ ) {
+      distribution.distributeRow( rowMeta, new Object[] { i }, step );
+    }
+    // The emptiest row set gets the rows until they all hold the same number of rows
+    //
+    assertEquals( 3, rowSets.get( 0 ).size() );
+    assertEquals( 3, rowSets.get( 1 ).size() );
+    assertEquals( 3, rowSets.get( 2 ).size() );
+  }
+
+  @Test
+  public void testRoutesAroundFullRowSets() throws Exception {
+    for ( LoadAwareRowDistribution distribution : new LoadAwareRowDistribution[] {
+      new LeastLoadedRowDistribution(), new PowerOfTwoChoicesRowDistribution() } ) {
+      // A slow copy doesn't read its rows, so its row set stays full
+      //
+      List<RowSet> rowSets = rowSets( 4, 2 );
+      rowSets.get( 1 ).putRow( rowMeta, new Object[] { -1L } );
+      rowSets.get( 1 ).putRow( rowMeta, new Object[] { -2L } );
+
+      StepInterface step = step( rowSets );
+      for ( long i = 0; i < 6; i++ ) {
+        distribution.distributeRow( rowMeta, new Object[] { i }, step );
+      }
+      assertEquals( distribution.getCode(), 2, rowSets.get( 0 ).size() );
+      assertEquals( distribution.getCode(), 2, rowSets.get( 1 ).size() );
+      assertEquals( distribution.getCode(), 2, rowSets.get( 2 ).size() );
+      assertEquals( distribution.getCode(), 2, rowSets.get( 3 ).size() );
+    }
+  }
+
+  @Test
+  public void testWaitsForLeastLoadedWhenAllAreFull() throws Exception {
+    List<RowSet> rowSets = rowSets( 2, 1 );
+    rowSets.get( 0 ).putRow( rowMeta, new Object[] { -1L } );
+    rowSets.get( 1 ).putRow( rowMeta, new Object[] { -2L } );
+
+    Thread reader = new Thread( () -> {
+      try {
+        Thread.sleep( 100 );
+      } catch ( InterruptedException e ) {
+        // Read right away
+      }
+      rowSets.get( 1 ).getRow();
+    } );
+    reader.start();
+    new PowerOfTwoChoicesRowDistribution().distributeRow( rowMeta, new Object[] { 1L }, step( rowSets ) );
+    reader.join();
+
+    assertEquals( -1L, rowSets.get( 0 ).getRowImmediate()[ 0 ] );
+    assertEquals( 1L, rowSets.get( 1 ).getRowImmediate()[ 0 ] );
+  }
+
+  @Test
+  public void testRegisteredAsPlugins() throws Exception {
+    PluginRegistry registry = PluginRegistry.getInstance();
+    for ( String code : new String[] { LeastLoadedRowDistribution.CODE, PowerOfTwoChoicesRowDistribution.CODE } ) {
+      RowDistributionInterface distribution =
+        registry.loadClass( RowDistributionPluginType.class, code, RowDistributionInterface.class );
+      assertNotNull( code, distribution );
+      assertEquals( code, distribution.getCode() );
+    }
+  }
+}
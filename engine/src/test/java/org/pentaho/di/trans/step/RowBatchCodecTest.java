@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class RowBatchCodecTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  private static RowMetaInterface rowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "day" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "big" ) );
+
+    // Binary strings are written the way the value metadata writes them
+    ValueMetaInterface lazy = new ValueMetaString( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazy.setStorageMetadata( new ValueMetaString( "lazy" ) );
+    rowMeta.addValueMeta( lazy );
+    return rowMeta;
+  }
+
+  private static List<Object[]> rows( int count ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      boolean nulls = i % 7 == 3;
+      rows.add( new Object[] {
+        nulls ? null : (long) ( i * 1000 - 5000 ),
+        nulls ? null : "code-" + ( i % 4 ),
+        nulls ? null : "name " + i + " é",
+        nulls ? null : i / 3.0d,
+        nulls ? null : new Date( 1700000000000L + i * 60000L ),
+        nulls ? null : i % 2 == 0,
+        nulls ? null : new BigDecimal( i + ".25" ),
+        nulls ? null : ( "lazy" + i ).getBytes( StandardCharsets.UTF_8 ) } );
+    }
+    return rows;
+  }
+
+  private static void assertSameRows( RowMetaInterface rowMeta, List<Object[]> expected, List<Object[]> actual )
+    throws Exception {
+    assertEquals( expected.size(), actual.size() );
+    for ( int r = 0; r < expected.size(); r++ ) {
+      assertEquals( "row " + r, 0, rowMeta.compare( expected.get( r ), actual.get( r ) ) );
+      assertEquals( "row " + r, rowMeta.getString( expected.get( r ) ), rowMeta.getString( actual.get( r ) ) );
+    }
+  }
+
+  private static void testRoundTrip( boolean compressing ) throws Exception {
+    RowMetaInterface rowMeta = rowMeta();
+    List<Object[]> first = rows( 500 );
+    List<Object[]> second = rows( 1 );
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    RowBatchCodec writer = new RowBatchCodec( rowMeta, compressing );
+    writer.writeBatch( outputStream, first );
+    writer.writeBatch( outputStream, second );
+    writer.writeEnd( outputStream );
+
+    DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    RowBatchCodec reader = new RowBatchCodec( rowMeta, compressing );
+    assertSameRows( rowMeta, first, reader.readBatch( inputStream ) );
+    assertSameRows( rowMeta, second, reader.readBatch( inputStream ) );
+    assertNull( reader.readBatch( inputStream ) );
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    testRoundTrip( false );
+  }
+
+  @Test
+  public void testRoundTripCompressed() throws Exception {
+    testRoundTrip( true );
+  }
+
+  @Test
+  public void testSmallerThanRowByRow() throws Exception {
+    RowMetaInterface rowMeta = rowMeta();
+    List<Object[]> rows = rows( 1000 );
+
+    ByteArrayOutputStream rowByRow = new ByteArrayOutputStream();
+    DataOutputStream rowOutputStream = new DataOutputStream( rowByRow );
+    for ( Object[] row : rows ) {
+      rowMeta.writeData( rowOutputStream, row );
+    }
+
+    ByteArrayOutputStream batched = new ByteArrayOutputStream();
+    new RowBatchCodec( rowMeta, false ).writeBatch( new DataOutputStream( batched ), rows );
+
+    assertTrue( batched.size() + " >= " + rowByRow.size(), batched.size() < rowByRow.size() );
+  }
+
+  @Test
+  public void testVarLongs() throws Exception {
+    long[] values = { 0L, 1L, -1L, 63L, -64L, 64L, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    for ( long value : values ) {
+      RowBatchCodec.writeVarLong( outputStream, value );
+    }
+    DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+    for ( long value : values ) {
+      assertEquals( value, RowBatchCodec.readVarLong( inputStream ) );
+    }
+  }
+
+  @Test( expected = KettleEOFException.class )
+  public void testStreamEndsBeforeTheLastBatch() throws Exception {
+    new RowBatchCodec( rowMeta(), false ).readBatch( new DataInputStream( new ByteArrayInputStream( new byte[0] ) ) );
+  }
+}
@@ -0,0 +1,148 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+public class CompiledCalculationsTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<CalculatorMeta, CalculatorData> smh;
+
+  @BeforeClass
+  public static void init() throws KettleException {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    smh = new StepMockHelper<>( "Calculator", CalculatorMeta.class, CalculatorData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void tearDown() {
+    smh.cleanUp();
+  }
+
+  private static CalculatorMetaFunction calculation( String name, int calcType, String fieldA, String fieldB,
+    int valueType, boolean removed ) {
+    return new CalculatorMetaFunction( name, calcType, fieldA, fieldB, null, valueType, 0, 0, removed, "", "", "",
+      "" );
+  }
+
+  private static CalculatorMetaFunction[] getCalculations() {
+    return new CalculatorMetaFunction[] {
+      calculation( "sum", CalculatorMetaFunction.CALC_ADD, "a", "b", ValueMetaInterface.TYPE_NUMBER, true ),
+      calculation( "square", CalculatorMetaFunction.CALC_SQUARE, "sum", null, ValueMetaInterface.TYPE_NUMBER, false ),
+      calculation( "ratio", CalculatorMetaFunction.CALC_DIVIDE, "square", "b", ValueMetaInterface.TYPE_NUMBER,
+        false ),
+      // Not compiled: the result of field A has to be converted to the target type
+      calculation( "rounded", CalculatorMetaFunction.CALC_ROUND_1, "ratio", null, ValueMetaInterface.TYPE_INTEGER,
+        false ),
+      calculation( "diff", CalculatorMetaFunction.CALC_SUBTRACT, "rounded", "i", ValueMetaInterface.TYPE_INTEGER,
+        false ),
+      calculation( "product", CalculatorMetaFunction.CALC_MULTIPLY, "diff", "i", ValueMetaInterface.TYPE_INTEGER,
+        false ),
+      calculation( "copy", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "product", null,
+        ValueMetaInterface.TYPE_INTEGER, false ),
+      calculation( "text", CalculatorMetaFunction.CALC_ADD, "s", "s", ValueMetaInterface.TYPE_STRING, false ),
+      calculation( "mixed", CalculatorMetaFunction.CALC_ADD, "a", "i", ValueMetaInterface.TYPE_NUMBER, false ), };
+  }
+
+  private List<Object[]> calculate( Object[][] rows, boolean compile ) throws KettleException {
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "a" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "b" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "i" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "s" ) );
+
+    RowSet inputRowSet = smh.getMockInputRowSet( rows );
+    inputRowSet.setRowMeta( inputRowMeta );
+    Calculator calculator = new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.setInputRowMeta( inputRowMeta );
+    calculator.setVariable( Const.KETTLE_COMPILE_CALCULATIONS, compile ? "Y" : "N" );
+    calculator.init( smh.initStepMetaInterface, smh.initStepDataInterface );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( getCalculations() );
+    CalculatorData data = new CalculatorData();
+
+    List<Object[]> result = new ArrayList<>();
+    calculator.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        result.add( row );
+      }
+    } );
+    for ( int i = 0; i < rows.length; i++ ) {
+      calculator.processRow( meta, data );
+    }
+    if ( compile ) {
+      assertNotNull( data.getCompiledCalculations() );
+    } else {
+      assertNull( data.getCompiledCalculations() );
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameResultAsInterpreter() throws Exception {
+    Object[][] rows = {
+      { 1.5D, 2D, 3L, "x" },
+      { null, 2D, 3L, "y" },
+      { 4D, null, null, null },
+      { -7.25D, 0.5D, -2L, "" },
+      { 1000D, 3D, 0L, "z" }, };
+
+    List<Object[]> compiled = calculate( rows, true );
+    List<Object[]> interpreted = calculate( rows, false );
+
+    assertEquals( rows.length, compiled.size() );
+    for ( int i = 0; i < rows.length; i++ ) {
+      assertArrayEquals( interpreted.get( i ), compiled.get( i ) );
+    }
+  }
+}
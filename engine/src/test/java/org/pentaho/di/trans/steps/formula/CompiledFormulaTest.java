@@ -0,0 +1,258 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class CompiledFormulaTest {
+
+  private static RowMetaInterface rowMeta;
+  private static Date date;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleClientEnvironment.init();
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "int" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "num" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "str" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set( 2024, Calendar.MARCH, 15 );
+    date = calendar.getTime();
+  }
+
+  private static Object evaluate( String formula, Object... row ) throws Exception {
+    CompiledFormula compiled = CompiledFormula.compile( formula, rowMeta );
+    assertNotNull( formula, compiled );
+    return compiled.evaluate( row );
+  }
+
+  /**
+   * Evaluates the formula with the formula library, the way the step does when a formula isn't compiled.
+   */
+  private static Object interpret( String formula, Object... row ) throws Exception {
+    FormulaData data = new FormulaData();
+    data.context = new RowForumulaContext( rowMeta );
+    data.context.setRowData( row );
+    return data.createFormula( formula ).evaluate();
+  }
+
+  /**
+   * The compiled formula has to return exactly what the formula library returns, unless it falls back to it.
+   */
+  private static void assertSameAsInterpreter( String formula, Object... row ) throws Exception {
+    Object expected = interpret( formula, row );
+    CompiledFormula compiled = CompiledFormula.compile( formula, rowMeta );
+    assertNotNull( formula, compiled );
+    Object actual;
+    try {
+      actual = compiled.evaluate( row );
+    } catch ( CompiledFormula.Fallback e ) {
+      return;
+    }
+    assertEquals( formula, expected, actual );
+    if ( expected != null ) {
+      assertEquals( formula, expected.getClass(), actual.getClass() );
+    }
+  }
+
+  private static Object[] row() {
+    return new Object[] { 3L, 0.1D, "Kettle", date, Boolean.TRUE };
+  }
+
+  @Test
+  public void testNumbersAreBigDecimals() throws Exception {
+    assertEquals( new BigDecimal( "3.2" ), evaluate( "[int] + [num] + 0.1", row() ) );
+    assertEquals( new BigDecimal( "-9" ), evaluate( "-[int] * 3", row() ) );
+    assertEquals( new BigDecimal( "6" ), evaluate( "ABS( 2 - ( [int] + 4 ) ) + 1", row() ) );
+  }
+
+  @Test
+  public void testFieldKeepsItsType() throws Exception {
+    assertEquals( 3L, evaluate( "[int]", row() ) );
+    assertEquals( 0.1D, evaluate( "IF( [flag]; [num]; 2.5 )", row() ) );
+  }
+
+  @Test
+  public void testConditions() throws Exception {
+    assertEquals( Boolean.TRUE, evaluate( "[int] >= 3", row() ) );
+    assertEquals( Boolean.FALSE, evaluate( "AND( [int] <> 3; [flag] )", row() ) );
+    assertEquals( "big", evaluate( "IF( OR( [int] > 5; NOT( [num] < 1 ) ); \"small\"; \"big\" )", row() ) );
+  }
+
+  @Test
+  public void testTextFunctions() throws Exception {
+    assertEquals( "KETtle", evaluate( "UPPER( LEFT( [str]; 3 ) ) & RIGHT( [str]; 3 )", row() ) );
+    assertEquals( "ett", evaluate( "LOWER( MID( [str]; 2; 3 ) )", row() ) );
+    assertEquals( "", evaluate( "MID( [str]; 10; 3 )", row() ) );
+    assertEquals( new BigDecimal( 6 ), evaluate( "LEN( [str] )", row() ) );
+    assertEquals( "say \"hi\"", evaluate( "\"say \"\"hi\"\"\"", row() ) );
+  }
+
+  @Test
+  public void testDateFunctions() throws Exception {
+    assertEquals( new BigDecimal( 2024 ), evaluate( "YEAR( [date] )", row() ) );
+    assertEquals( new BigDecimal( 3 ), evaluate( "MONTH( [date] )", row() ) );
+    assertEquals( new BigDecimal( 15 ), evaluate( "DAY( [date] )", row() ) );
+  }
+
+  @Test( expected = CompiledFormula.Fallback.class )
+  public void testNullFieldFallsBack() throws Exception {
+    evaluate( "[int] + 1", null, 0.1D, "Kettle", date, Boolean.TRUE );
+  }
+
+  @Test
+  public void testTrailingZerosFallBack() throws Exception {
+    assertFallsBack( "1.50 + 1.50" );
+    assertFallsBack( "[num] * 10" );
+    assertFallsBack( "[int] * 10" );
+    assertFallsBack( "0.1 - 0.10" );
+    assertFallsBack( "( 1.5 + 1.5 ) * 3" );
+    // Written with an exponent by the formula library
+    assertFallsBack( "0.0001 * 0.0003" );
+    assertEquals( BigDecimal.ZERO, evaluate( "[int] - 3", row() ) );
+  }
+
+  private static void assertFallsBack( String formula ) throws Exception {
+    try {
+      evaluate( formula, row() );
+      fail( formula );
+    } catch ( CompiledFormula.Fallback e ) {
+      // expected
+    }
+  }
+
+  @Test( expected = CompiledFormula.Fallback.class )
+  public void testNegativeLengthFallsBack() throws Exception {
+    evaluate( "LEFT( [str]; -1 )", row() );
+  }
+
+  @Test
+  public void testUnsupportedFormulasAreNotCompiled() throws Exception {
+    assertNull( CompiledFormula.compile( "[int] / 2", rowMeta ) );
+    assertNull( CompiledFormula.compile( "TRIM( [str] )", rowMeta ) );
+    assertNull( CompiledFormula.compile( "[str] = \"Kettle\"", rowMeta ) );
+    assertNull( CompiledFormula.compile( "[missing] + 1", rowMeta ) );
+    assertNull( CompiledFormula.compile( "[int] + ", rowMeta ) );
+    assertNull( CompiledFormula.compile( "[str] & [int]", rowMeta ) );
+  }
+
+  @Test
+  public void testLiteralsAreNotPartOfTheGeneratedClass() throws Exception {
+    CompiledFormula one = CompiledFormula.compile( "[int] + 1", rowMeta );
+    CompiledFormula two = CompiledFormula.compile( "[int] + 2", rowMeta );
+
+    assertEquals( one.getClass(), two.getClass() );
+    assertEquals( new BigDecimal( 4 ), one.evaluate( row() ) );
+    assertEquals( new BigDecimal( 5 ), two.evaluate( row() ) );
+  }
+
+  @Test
+  public void testNumbersAreTheSameAsTheInterpreter() throws Exception {
+    // Scale and trailing zeros
+    assertSameAsInterpreter( "[int] + [num] + 0.1", row() );
+    assertSameAsInterpreter( "1.25 + 1.5", row() );
+    assertSameAsInterpreter( "[int] - 1.5", row() );
+    assertSameAsInterpreter( "3.14159 * [int]", row() );
+    assertSameAsInterpreter( "1.50 + 1.50", row() );
+    assertSameAsInterpreter( "2.50 * 4", row() );
+    assertSameAsInterpreter( "[num] * 10", row() );
+    assertSameAsInterpreter( "0.1 - 0.10", row() );
+    assertSameAsInterpreter( "[int] * 10", row() );
+    assertSameAsInterpreter( "0.0001 * 0.0003", row() );
+    assertSameAsInterpreter( "1.50", row() );
+    assertSameAsInterpreter( "-[int] * 3", row() );
+    assertSameAsInterpreter( "ABS( 2 - ( [int] + 4 ) ) + 1", row() );
+
+    // Integer and number results
+    assertSameAsInterpreter( "[int]", row() );
+    assertSameAsInterpreter( "[num]", row() );
+    assertSameAsInterpreter( "[int] + 1", row() );
+    assertSameAsInterpreter( "[int] * [int]", row() );
+    assertSameAsInterpreter( "LEN( [str] )", row() );
+    assertSameAsInterpreter( "IF( [flag]; [int]; 2.5 )", row() );
+    assertSameAsInterpreter( "IF( [flag]; [num]; 2.5 )", row() );
+    assertSameAsInterpreter( "IF( [flag]; 1; 2 )", row() );
+  }
+
+  @Test
+  public void testTextAndConditionsAreTheSameAsTheInterpreter() throws Exception {
+    assertSameAsInterpreter( "UPPER( LEFT( [str]; 3 ) ) & RIGHT( [str]; 3 )", row() );
+    assertSameAsInterpreter( "LOWER( MID( [str]; 2; 3 ) )", row() );
+    assertSameAsInterpreter( "MID( [str]; 10; 3 )", row() );
+    assertSameAsInterpreter( "LEFT( [str]; 2.0 )", row() );
+    assertSameAsInterpreter( "[int] >= 3", row() );
+    assertSameAsInterpreter( "AND( [int] <> 3; [flag] )", row() );
+    assertSameAsInterpreter( "IF( OR( [int] > 5; NOT( [num] < 1 ) ); \"small\"; \"big\" )", row() );
+  }
+
+  @Test
+  public void testNullFieldsAreTheSameAsTheInterpreter() throws Exception {
+    Object[] nulls = new Object[] { null, null, null, null, null };
+    assertSameAsInterpreter( "[int]", nulls );
+    assertSameAsInterpreter( "[num]", nulls );
+    assertSameAsInterpreter( "[str]", nulls );
+    assertSameAsInterpreter( "[int] + 1", nulls );
+    assertSameAsInterpreter( "[num] * 2", nulls );
+    assertSameAsInterpreter( "[int] >= 3", nulls );
+    assertSameAsInterpreter( "UPPER( [str] )", nulls );
+    assertSameAsInterpreter( "LEN( [str] )", nulls );
+    assertSameAsInterpreter( "[str] & \"x\"", nulls );
+    assertSameAsInterpreter( "IF( [flag]; 1; 2 )", nulls );
+    assertSameAsInterpreter( "YEAR( [date] )", nulls );
+  }
+
+  @Test
+  public void testDatePartsAreTheSameAsTheInterpreterInAnotherTimeZone() throws Exception {
+    TimeZone timeZone = TimeZone.getDefault();
+    try {
+      for ( String id : new String[] { "UTC", "Pacific/Kiritimati", "America/Los_Angeles" } ) {
+        TimeZone.setDefault( TimeZone.getTimeZone( id ) );
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set( 2024, Calendar.DECEMBER, 31, 23, 30 );
+        Object[] row = new Object[] { 3L, 0.1D, "Kettle", calendar.getTime(), Boolean.TRUE };
+
+        assertSameAsInterpreter( "YEAR( [date] )", row );
+        assertSameAsInterpreter( "MONTH( [date] )", row );
+        assertSameAsInterpreter( "DAY( [date] )", row );
+      }
+    } finally {
+      TimeZone.setDefault( timeZone );
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.pentaho.di.core.util.Utils;
+
+public class FuzzyMatchIndexTest {
+
+  private static final String[] NAMES = { "Catrine", "Catriny", "Katrin", "John", "Jon", "Joan", "", "Mary Ann",
+    "Maryann", "Marianne", "JOHN", "Cathrine", "catherine" };
+
+  private static List<Object[]> rows( String... keys ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( String key : keys ) {
+      rows.add( new Object[] { key } );
+    }
+    return rows;
+  }
+
+  private static List<Object[]> randomRows( Random random, int count ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      rows.add( new Object[] { randomString( random ) } );
+    }
+    return rows;
+  }
+
+  private static String randomString( Random random ) {
+    StringBuilder builder = new StringBuilder();
+    int length = random.nextInt( 8 );
+    for ( int i = 0; i < length; i++ ) {
+      builder.append( "abcAB ".charAt( random.nextInt( 6 ) ) );
+    }
+    return builder.toString();
+  }
+
+  private static String describe( FuzzyMatchIndex.Candidates candidates, int maximalDistance ) {
+    StringBuilder builder = new StringBuilder();
+    for ( int i = 0; i < candidates.size; i++ ) {
+      if ( candidates.distances[i] <= maximalDistance ) {
+        builder.append( candidates.rows[i] ).append( '=' ).append( candidates.distances[i] ).append( ' ' );
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String describe( FuzzyMatchIndex.Candidates candidates, double minimalSimilarity ) {
+    StringBuilder builder = new StringBuilder();
+    for ( int i = 0; i < candidates.size; i++ ) {
+      if ( candidates.similarities[i] >= minimalSimilarity ) {
+        builder.append( candidates.rows[i] ).append( '=' ).append( candidates.similarities[i] ).append( ' ' );
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String bruteForceDistances( List<Object[]> rows, String value, boolean damerau,
+    int maximalDistance ) {
+    StringBuilder builder = new StringBuilder();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      String key = ( (String) rows.get( i )[0] ).toLowerCase();
+      int distance = damerau ? Utils.getDamerauLevenshteinDistance( key, value.toLowerCase() )
+        : StringUtils.getLevenshteinDistance( key, value.toLowerCase() );
+      if ( distance <= maximalDistance ) {
+        builder.append( i ).append( '=' ).append( distance ).append( ' ' );
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String bruteForceSimilarities( List<Object[]> rows, String value, double minimalSimilarity ) {
+    StringBuilder builder = new StringBuilder();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      double similarity = LetterPairSimilarity.getSimiliarity( (String) rows.get( i )[0], value );
+      if ( similarity >= minimalSimilarity ) {
+        builder.append( i ).append( '=' ).append( similarity ).append( ' ' );
+      }
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void testLevenshteinFindsTheSameValuesAsComparingAll() {
+    Random random = new Random( 42 );
+    List<Object[]> rows = randomRows( random, 500 );
+    rows.addAll( rows( NAMES ) );
+    for ( int maximalDistance = 0; maximalDistance < 4; maximalDistance++ ) {
+      FuzzyMatchIndex index = new FuzzyMatchIndex( rows.iterator(), FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN,
+        false, maximalDistance, 0 );
+      for ( int i = 0; i < 50; i++ ) {
+        String value = i < NAMES.length ? NAMES[i] : randomString( random );
+        assertEquals( value, bruteForceDistances( rows, value, false, maximalDistance ),
+          describe( index.distances( value ), maximalDistance ) );
+      }
+    }
+  }
+
+  @Test
+  public void testDamerauLevenshteinFindsTheSameValuesAsComparingAll() {
+    Random random = new Random( 7 );
+    List<Object[]> rows = randomRows( random, 500 );
+    rows.addAll( rows( NAMES ) );
+    for ( int maximalDistance = 0; maximalDistance < 4; maximalDistance++ ) {
+      FuzzyMatchIndex index = new FuzzyMatchIndex( rows.iterator(),
+        FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN, false, maximalDistance, 0 );
+      for ( int i = 0; i < 50; i++ ) {
+        String value = i < NAMES.length ? NAMES[i] : randomString( random );
+        assertEquals( value, bruteForceDistances( rows, value, true, maximalDistance ),
+          describe( index.distances( value ), maximalDistance ) );
+      }
+    }
+  }
+
+  @Test
+  public void testLetterPairsFindTheSameValuesAsComparingAll() {
+    Random random = new Random( 3 );
+    List<Object[]> rows = randomRows( random, 500 );
+    rows.addAll( rows( NAMES ) );
+    for ( double minimalSimilarity : new double[] { 0.1, 0.5, 0.8 } ) {
+      FuzzyMatchIndex index = new FuzzyMatchIndex( rows.iterator(), FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY,
+        false, 0, minimalSimilarity );
+      for ( int i = 0; i < 50; i++ ) {
+        String value = i < NAMES.length ? NAMES[i] : randomString( random );
+        assertEquals( value, bruteForceSimilarities( rows, value, minimalSimilarity ),
+          describe( index.similarities( value ), minimalSimilarity ) );
+      }
+    }
+  }
+
+  @Test
+  public void testPhoneticCodeGivesTheLastRowWithTheCode() {
+    FuzzyMatchIndex index = new FuzzyMatchIndex( rows( NAMES ).iterator(), FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX,
+      false, 0, 0 );
+
+    assertEquals( 10, index.lastWithCode( FuzzyMatchIndex.encode( "Jhon", FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX ) ) );
+    assertEquals( -1, index.lastWithCode( FuzzyMatchIndex.encode( "Xavier",
+      FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX ) ) );
+  }
+
+  @Test
+  public void testManyValuesAreComparedInParallel() {
+    Random random = new Random( 11 );
+    List<Object[]> rows = randomRows( random, FuzzyMatchIndex.PARALLEL_THRESHOLD + 1 );
+    FuzzyMatchIndex index = new FuzzyMatchIndex( rows.iterator(),
+      FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN, false, 10, 0 );
+
+    assertEquals( bruteForceDistances( rows, "abc", true, 10 ), describe( index.distances( "abc" ), 10 ) );
+  }
+}
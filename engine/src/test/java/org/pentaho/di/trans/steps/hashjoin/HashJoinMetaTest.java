@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.loadsave.LoadSaveTester;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HashJoinMetaTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes =
+      Arrays.asList( "joinType", "keyFields1", "keyFields2", "directory", "prefix", "maxRowsInMemory" );
+
+    Map<String, String> getterMap = new HashMap<String, String>();
+    getterMap.put( "joinType", "getJoinType" );
+    getterMap.put( "keyFields1", "getKeyFields1" );
+    getterMap.put( "keyFields2", "getKeyFields2" );
+    getterMap.put( "directory", "getDirectory" );
+    getterMap.put( "prefix", "getPrefix" );
+    getterMap.put( "maxRowsInMemory", "getMaxRowsInMemory" );
+
+    Map<String, String> setterMap = new HashMap<String, String>();
+    setterMap.put( "joinType", "setJoinType" );
+    setterMap.put( "keyFields1", "setKeyFields1" );
+    setterMap.put( "keyFields2", "setKeyFields2" );
+    setterMap.put( "directory", "setDirectory" );
+    setterMap.put( "prefix", "setPrefix" );
+    setterMap.put( "maxRowsInMemory", "setMaxRowsInMemory" );
+
+    new LoadSaveTester( HashJoinMeta.class, attributes, getterMap, setterMap ).testSerialization();
+  }
+
+  @Test
+  public void testDefaults() {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+
+    assertEquals( "INNER", meta.getJoinType() );
+    assertEquals( "%%java.io.tmpdir%%", meta.getDirectory() );
+    assertEquals( HashJoinMeta.DEFAULT_MAX_ROWS_IN_MEMORY, meta.getMaxRowsInMemory() );
+    assertEquals( 0, meta.getKeyFields1().length );
+  }
+
+  @Test
+  public void testFindSharedPreviousStep() {
+    TransMeta transMeta = new TransMeta();
+    StepMeta a = addStep( transMeta, "A" );
+    StepMeta b = addStep( transMeta, "B" );
+    StepMeta c = addStep( transMeta, "C" );
+    StepMeta d = addStep( transMeta, "D" );
+    transMeta.addTransHop( new TransHopMeta( b, c ) );
+
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( c );
+    meta.getStepIOMeta().getInfoStreams().get( 1 ).setStepMeta( d );
+    assertNull( meta.findSharedPreviousStep( transMeta ) );
+
+    transMeta.addTransHop( new TransHopMeta( a, b ) );
+    transMeta.addTransHop( new TransHopMeta( a, d ) );
+    assertEquals( a, meta.findSharedPreviousStep( transMeta ) );
+
+    List<CheckResultInterface> remarks = new ArrayList<>();
+    meta.check( remarks, transMeta, addStep( transMeta, "Hash join" ), null, new String[0], new String[0], null,
+      transMeta, null, null );
+    assertTrue( remarks.stream().anyMatch( remark -> remark.getType() == CheckResultInterface.TYPE_RESULT_COMMENT
+      && remark.getText().contains( "[A]" ) ) );
+  }
+
+  private static StepMeta addStep( TransMeta transMeta, String name ) {
+    StepMeta stepMeta = new StepMeta( name, new DummyTransMeta() );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+
+  @Test
+  public void cloneTest() throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setKeyFields1( new String[] { "kf1-1", "kf1-2" } );
+    meta.setKeyFields2( new String[] { "kf2-1", "kf2-2" } );
+    meta.setJoinType( "FULL OUTER" );
+    meta.setMaxRowsInMemory( "5000" );
+    HashJoinMeta aClone = (HashJoinMeta) meta.clone();
+    assertFalse( aClone == meta ); // Not same object returned by clone
+    assertTrue( Arrays.equals( meta.getKeyFields1(), aClone.getKeyFields1() ) );
+    assertTrue( Arrays.equals( meta.getKeyFields2(), aClone.getKeyFields2() ) );
+    assertEquals( meta.getJoinType(), aClone.getJoinType() );
+    assertEquals( meta.getMaxRowsInMemory(), aClone.getMaxRowsInMemory() );
+
+    assertNotNull( aClone.getStepIOMeta() );
+    assertFalse( meta.getStepIOMeta() == aClone.getStepIOMeta() );
+    List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+    List<StreamInterface> cloneInfoStreams = aClone.getStepIOMeta().getInfoStreams();
+    assertEquals( infoStreams.size(), cloneInfoStreams.size() );
+    for ( int i = 0; i < infoStreams.size(); i++ ) {
+      assertFalse( infoStreams.get( i ) == cloneInfoStreams.get( i ) );
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+public class HashJoinTest {
+
+  private static final String[] NAMES = { "a", "A", "b", null, "c" };
+
+  @ClassRule
+  public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private StepMockHelper<HashJoinMeta, HashJoinData> mockHelper;
+
+  private List<Object[]> oneRows;
+  private List<Object[]> twoRows;
+
+  @BeforeClass
+  public static void init() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    mockHelper = new StepMockHelper<>( "HashJoinTest", HashJoinMeta.class, HashJoinData.class );
+    when( mockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      mockHelper.logChannelInterface );
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+
+    Random random = new Random( 5 );
+    oneRows = randomRows( random, 200, 40 );
+    twoRows = randomRows( random, 150, 40 );
+  }
+
+  @After
+  public void tearDown() {
+    mockHelper.cleanUp();
+  }
+
+  private static List<Object[]> randomRows( Random random, int count, int keys ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      int key = random.nextInt( keys );
+      rows.add( new Object[] { key == 0 ? null : (long) key, NAMES[random.nextInt( NAMES.length )], (long) i } );
+    }
+    return rows;
+  }
+
+  private static RowMeta rowMeta( String numberName, String nameName, String idName ) {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( numberName ) );
+    ValueMetaString name = new ValueMetaString( nameName );
+    name.setCaseInsensitive( true );
+    rowMeta.addValueMeta( name );
+    rowMeta.addValueMeta( new ValueMetaInteger( idName ) );
+    return rowMeta;
+  }
+
+  private static BlockingRowSet rowSet( String origin, int size ) {
+    BlockingRowSet rowSet = new BlockingRowSet( size );
+    rowSet.setThreadNameFromToCopy( origin, 0, "HashJoinTest", 0 );
+    return rowSet;
+  }
+
+  private static void putRows( BlockingRowSet rowSet, RowMeta rowMeta, List<Object[]> rows ) {
+    for ( Object[] row : rows ) {
+      while ( !rowSet.putRow( rowMeta, row.clone() ) ) {
+        // Wait until there is room
+      }
+    }
+    rowSet.setDone();
+  }
+
+  private static boolean matches( Object[] one, Object[] two ) {
+    if ( !Objects.equals( one[0], two[0] ) ) {
+      return false;
+    }
+    return one[1] == null ? two[1] == null : two[1] != null && ( (String) one[1] ).equalsIgnoreCase( (String) two[1] );
+  }
+
+  /**
+   * Joins the rows with nested loops, in the order of the first stream, then the unmatched rows of the second stream
+   */
+  private List<String> expectedRows( String joinType ) {
+    int type = Arrays.asList( HashJoinMeta.join_types ).indexOf( joinType );
+    List<String> expected = new ArrayList<>();
+    boolean[] matched = new boolean[twoRows.size()];
+    for ( Object[] one : oneRows ) {
+      boolean found = false;
+      for ( int i = 0; i < twoRows.size(); i++ ) {
+        if ( matches( one, twoRows.get( i ) ) ) {
+          expected.add( Arrays.toString( new Object[] { one[0], one[1], one[2], twoRows.get( i )[0],
+            twoRows.get( i )[1], twoRows.get( i )[2] } ) );
+          matched[i] = true;
+          found = true;
+        }
+      }
+      if ( !found && HashJoinMeta.two_optionals[type] ) {
+        expected.add( Arrays.toString( new Object[] { one[0], one[1], one[2], null, null, null } ) );
+      }
+    }
+    for ( int i = 0; i < twoRows.size(); i++ ) {
+      if ( !matched[i] && HashJoinMeta.one_optionals[type] ) {
+        expected.add( Arrays.toString( new Object[] { null, null, null, twoRows.get( i )[0], twoRows.get( i )[1],
+          twoRows.get( i )[2] } ) );
+      }
+    }
+    return expected;
+  }
+
+  private List<String> join( String joinType, int maxRowsInMemory ) throws KettleException {
+    return join( joinType, maxRowsInMemory, false );
+  }
+
+  private List<String> join( String joinType, int maxRowsInMemory, boolean sharedPreviousStep )
+    throws KettleException {
+    StepMeta oneStep = mock( StepMeta.class );
+    when( oneStep.getName() ).thenReturn( "one" );
+    when( mockHelper.transMeta.findStep( "one" ) ).thenReturn( oneStep );
+    StepMeta twoStep = mock( StepMeta.class );
+    when( twoStep.getName() ).thenReturn( "two" );
+    when( mockHelper.transMeta.findStep( "two" ) ).thenReturn( twoStep );
+    if ( sharedPreviousStep ) {
+      StepMeta previousStep = mock( StepMeta.class );
+      when( mockHelper.transMeta.findPreviousSteps( oneStep, true ) ).thenReturn( Arrays.asList( previousStep ) );
+      when( mockHelper.transMeta.findPreviousSteps( twoStep, true ) ).thenReturn( Arrays.asList( previousStep ) );
+    }
+
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setJoinType( joinType );
+    meta.setKeyFields1( new String[] { "number1", "name1" } );
+    meta.setKeyFields2( new String[] { "number2", "name2" } );
+    meta.setDirectory( temporaryFolder.getRoot().getAbsolutePath() );
+    meta.setMaxRowsInMemory( String.valueOf( maxRowsInMemory ) );
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( oneStep );
+    meta.getStepIOMeta().getInfoStreams().get( 1 ).setStepMeta( twoStep );
+
+    HashJoinData data = new HashJoinData();
+    HashJoin step =
+      new HashJoin( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    assertTrue( step.init( meta, data ) );
+    assertEquals( sharedPreviousStep, data.bufferOne );
+    RowMeta oneMeta = rowMeta( "number1", "name1", "id1" );
+    RowMeta twoMeta = rowMeta( "number2", "name2", "id2" );
+    if ( sharedPreviousStep ) {
+      // The shared step writes all the rows of the first stream before the ones of the second stream, in a buffer
+      // too small for them
+      BlockingRowSet oneRowSet = rowSet( "one", 10 );
+      BlockingRowSet twoRowSet = rowSet( "two", 10 );
+      step.addRowSetToInputRowSets( oneRowSet );
+      step.addRowSetToInputRowSets( twoRowSet );
+      new Thread( () -> {
+        putRows( oneRowSet, oneMeta, oneRows );
+        putRows( twoRowSet, twoMeta, twoRows );
+      } ).start();
+    } else {
+      BlockingRowSet oneRowSet = rowSet( "one", oneRows.size() + 1 );
+      putRows( oneRowSet, oneMeta, oneRows );
+      step.addRowSetToInputRowSets( oneRowSet );
+      BlockingRowSet twoRowSet = rowSet( "two", twoRows.size() + 1 );
+      putRows( twoRowSet, twoMeta, twoRows );
+      step.addRowSetToInputRowSets( twoRowSet );
+    }
+    RowStepCollector collector = new RowStepCollector();
+    step.addRowListener( collector );
+
+    while ( step.processRow( meta, data ) ) {
+      // Keep on joining
+    }
+    assertEquals( maxRowsInMemory < twoRows.size(), data.partitioned );
+    assertEquals( oneRows.size() + twoRows.size(), step.getLinesRead() );
+    step.dispose( meta, data );
+
+    return collector.getRowsWritten().stream().map( row -> Arrays.toString( Arrays.copyOf( row.getData(), 6 ) ) )
+      .collect( Collectors.toList() );
+  }
+
+  @Test
+  public void testJoinInMemoryKeepsTheOrderOfTheFirstStream() throws Exception {
+    assertEquals( expectedRows( "INNER" ), join( "INNER", 1000 ) );
+    assertEquals( expectedRows( "LEFT OUTER" ), join( "LEFT OUTER", 1000 ) );
+  }
+
+  @Test
+  public void testJoinInMemoryWritesTheUnmatchedRowsAtTheEnd() throws Exception {
+    for ( String joinType : new String[] { "RIGHT OUTER", "FULL OUTER" } ) {
+      List<String> expected = expectedRows( joinType );
+      List<String> actual = join( joinType, 1000 );
+      int matched = expectedRows( joinType.equals( "RIGHT OUTER" ) ? "INNER" : "LEFT OUTER" ).size();
+      assertEquals( joinType, expected.subList( 0, matched ), actual.subList( 0, matched ) );
+      Collections.sort( expected );
+      Collections.sort( actual );
+      assertEquals( joinType, expected, actual );
+    }
+  }
+
+  @Test
+  public void testJoinOfPartitionsGivesTheSameRows() throws Exception {
+    // With 4 rows in memory the partitions are partitioned again
+    //
+    for ( int maxRowsInMemory : new int[] { 20, 4 } ) {
+      for ( String joinType : HashJoinMeta.join_types ) {
+        List<String> expected = expectedRows( joinType );
+        List<String> actual = join( joinType, maxRowsInMemory );
+        Collections.sort( expected );
+        Collections.sort( actual );
+        assertEquals( joinType, expected, actual );
+        assertEquals( 0, temporaryFolder.getRoot().list().length );
+      }
+    }
+  }
+
+  @Test
+  public void testPartitionsTooLargeAreKeptInMemory() throws Exception {
+    // Every row of the second stream has the same key
+    //
+    for ( Object[] row : twoRows ) {
+      row[0] = 1L;
+      row[1] = "a";
+    }
+    List<String> expected = expectedRows( "FULL OUTER" );
+    List<String> actual = join( "FULL OUTER", 3 );
+    Collections.sort( expected );
+    Collections.sort( actual );
+    assertEquals( expected, actual );
+    assertEquals( 0, temporaryFolder.getRoot().list().length );
+  }
+
+  @Test( timeout = 60000 )
+  public void testFirstStreamIsReadWhileTheSecondIsReadWhenTheyShareAStep() throws Exception {
+    for ( int maxRowsInMemory : new int[] { 1000, 20 } ) {
+      for ( String joinType : HashJoinMeta.join_types ) {
+        List<String> expected = expectedRows( joinType );
+        List<String> actual = join( joinType, maxRowsInMemory, true );
+        Collections.sort( expected );
+        Collections.sort( actual );
+        assertEquals( joinType, expected, actual );
+        assertEquals( 0, temporaryFolder.getRoot().list().length );
+      }
+    }
+  }
+
+  @Test
+  public void testSameKeysAreInTheSamePartition() {
+    List<Object> key = Arrays.<Object>asList( 12L, "abc" );
+    for ( int depth = 0; depth < HashJoin.MAX_DEPTH; depth++ ) {
+      int partition = HashJoin.partition( key, depth );
+      assertTrue( partition >= 0 && partition < HashJoin.PARTITIONS );
+      assertEquals( partition, HashJoin.partition( Arrays.<Object>asList( 12L, "abc" ), depth ) );
+    }
+  }
+}
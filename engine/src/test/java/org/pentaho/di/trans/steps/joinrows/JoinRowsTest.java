@@ -16,6 +16,7 @@ package org.pentaho.di.trans.steps.joinrows;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.BlockingRowSet;
@@ -23,7 +24,9 @@ import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.trans.RowStepCollector;
 import org.pentaho.di.trans.Trans;
@@ -36,6 +39,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -179,6 +183,90 @@ public class JoinRowsTest {
     return blockingRowSet;
   }
 
+  @Test
+  public void testEqualitiesAreLookedUpInMemory() throws Exception {
+    assertIndexedJoin( 1000 );
+  }
+
+  @Test
+  public void testEqualitiesAreLookedUpInTemporaryFile() throws Exception {
+    assertIndexedJoin( 2 );
+  }
+
+  private void assertIndexedJoin( int cacheSize ) throws Exception {
+    String[] keys = { "a", "A", " a ", "b", null, "", "c" };
+    BlockingRowSet main = getKeyedRowSet( keys, 20, "key", "low", "main step name" );
+    BlockingRowSet secondary = getKeyedRowSet( keys, 30, "skey", "high", "secondary step name" );
+
+    Condition condition = new Condition();
+    condition.addCondition( new Condition( "key", Condition.FUNC_EQUAL, "skey", null ) );
+    condition.addCondition( new Condition( "low", Condition.FUNC_SMALLER, "high", null ) );
+
+    // The expected rows are all the combinations that meet the condition
+    RowMetaInterface outputRowMeta = new RowMeta();
+    outputRowMeta.mergeRowMeta( main.getRowMeta() );
+    outputRowMeta.mergeRowMeta( secondary.getRowMeta() );
+    List<Object[]> mainRows = getRows( main );
+    List<Object[]> secondaryRows = getRows( secondary );
+    List<String> expected = new ArrayList<>();
+    for ( Object[] mainRow : mainRows ) {
+      for ( Object[] secondaryRow : secondaryRows ) {
+        Object[] sum = new Object[] { mainRow[0], mainRow[1], secondaryRow[0], secondaryRow[1] };
+        if ( condition.evaluate( outputRowMeta, sum ) ) {
+          expected.add( Arrays.toString( sum ) );
+        }
+      }
+    }
+
+    JoinRowsMeta joinRowsMeta = new JoinRowsMeta();
+    joinRowsMeta.setMainStepname( "main step name" );
+    joinRowsMeta.setPrefix( "out" );
+    joinRowsMeta.setCacheSize( cacheSize );
+    joinRowsMeta.setCondition( condition );
+    JoinRowsData joinRowsData = new JoinRowsData();
+    JoinRows joinRows = getJoinRows();
+    joinRows.getTrans().setRunning( true );
+    joinRows.init( joinRowsMeta, joinRowsData );
+    joinRows.setInputRowSets( new ArrayList<>( Arrays.<RowSet>asList( getKeyedRowSet( keys, 20, "key", "low",
+      "main step name" ), getKeyedRowSet( keys, 30, "skey", "high", "secondary step name" ) ) ) );
+    RowStepCollector rowStepCollector = new RowStepCollector();
+    joinRows.addRowListener( rowStepCollector );
+
+    while ( joinRows.processRow( joinRowsMeta, joinRowsData ) ) {
+      // Keep on joining
+    }
+    assertNotNull( joinRowsData.index );
+    joinRows.dispose( joinRowsMeta, joinRowsData );
+
+    List<String> written = rowStepCollector.getRowsWritten().stream()
+      .map( row -> Arrays.toString( row.getData() ) ).collect( Collectors.toList() );
+    assertTrue( expected.size() > 0 );
+    assertEquals( expected, written );
+  }
+
+  private BlockingRowSet getKeyedRowSet( String[] keys, int size, String keyName, String numberName,
+    String originStepName ) {
+    BlockingRowSet blockingRowSet = new BlockingRowSet( size );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( keyName ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( numberName ) );
+    blockingRowSet.setRowMeta( rowMeta );
+    for ( int i = 0; i < size; i++ ) {
+      blockingRowSet.putRow( rowMeta, new Object[] { keys[( i * 3 ) % keys.length], (long) ( i % 5 ) } );
+    }
+    blockingRowSet.setThreadNameFromToCopy( originStepName, 0, null, 0 );
+    blockingRowSet.setDone();
+    return blockingRowSet;
+  }
+
+  private List<Object[]> getRows( RowSet rowSet ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( Object[] row = rowSet.getRow(); row != null; row = rowSet.getRow() ) {
+      rows.add( row );
+    }
+    return rows;
+  }
+
   private Object[][] createExpectedResult() {
     Object[][] objects = {{"main -- row[0]-first value", "main -- row[0]-second value", "main -- row[0]-third value", "secondary -- row[0]-first value", "secondary -- row[0]-second value", "secondary -- row[0]-third value"},
       {"main -- row[0]-first value", "main -- row[0]-second value", "main -- row[0]-third value", "secondary -- row[1]-first value", "secondary -- row[1]-second value", "secondary -- row[1]-third value"},
@@ -31,6 +31,8 @@ import java.util.regex.Pattern;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
@@ -200,5 +202,60 @@ public class ReplaceStringTest {
     replaceString.processRow( meta, data );
     assertEquals( "aAmatchedmatched", replaceString.getRow()[ 1 ] );
   }
-}
 
+  private ReplaceString prepareLiteralReplacements( ReplaceStringData data, Object[] row, String[] replaceStrings,
+    String[] replaceByStrings ) throws Exception {
+    ReplaceString replaceString = Mockito.spy(
+      new ReplaceString( stepMockHelper.stepMeta, data, 0, stepMockHelper.transMeta, stepMockHelper.trans ) );
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "address" ) );
+    doReturn( row ).when( replaceString ).getRow();
+    ReplaceStringMeta meta = stepMockHelper.processRowsStepMetaInterface;
+
+    int n = replaceStrings.length;
+    String[] fields = new String[ n ];
+    String[] empty = new String[ n ];
+    for ( int i = 0; i < n; i++ ) {
+      fields[ i ] = "address";
+      empty[ i ] = StringUtils.EMPTY;
+    }
+    doReturn( fields ).when( meta ).getFieldInStream();
+    doReturn( empty ).when( meta ).getFieldOutStream();
+    doReturn( new boolean[ n ] ).when( meta ).isUnicode();
+    doReturn( new boolean[ n ] ).when( meta ).getUseRegEx();
+    doReturn( new boolean[ n ] ).when( meta ).getCaseSensitive();
+    doReturn( new boolean[ n ] ).when( meta ).getWholeWord();
+    doReturn( replaceStrings ).when( meta ).getReplaceString();
+    doReturn( empty ).when( meta ).getFieldReplaceByString();
+    doReturn( replaceByStrings ).when( meta ).getReplaceByString();
+    doReturn( new boolean[ n ] ).when( meta ).isSetEmptyString();
+
+    replaceString.init( meta, data );
+    replaceString.setInputRowMeta( inputRowMeta );
+    replaceString.processRow( meta, data );
+    return replaceString;
+  }
+
+  @Test
+  public void testLiteralReplacementsInSinglePass() throws Exception {
+    ReplaceStringData data = new ReplaceStringData();
+    ReplaceString replaceString = prepareLiteralReplacements( data, new Object[] { "Main St and Oak RD, main st" },
+      new String[] { "st", "rd", "ave" }, new String[] { "Street", "Road", "Avenue" } );
+
+    assertNotNull( data.matchers[ 0 ] );
+    assertEquals( 3, data.matcherEnds[ 0 ] );
+    assertEquals( "Main Street and Oak Road, main Street", replaceString.getRow()[ 0 ] );
+  }
+
+  @Test
+  public void testChainedReplacementsAreDoneInTurn() throws Exception {
+    ReplaceStringData data = new ReplaceStringData();
+    ReplaceString replaceString = prepareLiteralReplacements( data, new Object[] { "abc" },
+      new String[] { "a", "b", "x" }, new String[] { "b", "c", "y" } );
+
+    // "b" is replaced by "c" after "a" became "b", so only "b" and "x" can share a pass
+    assertNull( data.matchers[ 0 ] );
+    assertNotNull( data.matchers[ 1 ] );
+    assertEquals( "ccc", replaceString.getRow()[ 0 ] );
+  }
+}
@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.scriptvalues_mod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+public class ScriptValuesModCacheTest {
+
+  private Context cx;
+
+  @Before
+  public void setUp() {
+    cx = Context.enter();
+  }
+
+  @After
+  public void tearDown() {
+    Context.exit();
+  }
+
+  @Test
+  public void testSameScriptIsCompiledOnce() {
+    Script script = ScriptValuesModCache.compileString( cx, "1 + 2", "script" );
+
+    assertSame( script, ScriptValuesModCache.compileString( cx, "1 + 2", "script" ) );
+    Scriptable scope = cx.initStandardObjects();
+    assertEquals( 3, ( (Number) script.exec( cx, scope ) ).intValue() );
+  }
+
+  @Test
+  public void testOptimizationLevelIsPartOfTheKey() {
+    Script script = ScriptValuesModCache.compileString( cx, "3 + 4", "script" );
+    cx.setOptimizationLevel( cx.getOptimizationLevel() == -1 ? 0 : -1 );
+
+    assertNotSame( script, ScriptValuesModCache.compileString( cx, "3 + 4", "script" ) );
+  }
+
+  @Test( expected = EvaluatorException.class )
+  public void testSyntaxErrorIsThrown() {
+    ScriptValuesModCache.compileString( cx, "1 +", "script" );
+  }
+}
@@ -16,10 +16,12 @@ package org.pentaho.di.trans.steps.scriptvalues_mod;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.trans.TransTestingUtil;
@@ -27,6 +29,7 @@ import org.pentaho.di.trans.steps.StepMockUtil;
 
 import java.math.BigDecimal;
 
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
@@ -103,4 +106,54 @@ public class ScriptValuesModTest {
     Object[] row = TransTestingUtil.execute( step, meta, data, 1, false ).get( 0 );
     TransTestingUtil.assertResult( expectedRow, row );
   }
+
+  private Object[] describeInteger( boolean primitiveValues, ScriptValuesModData data ) throws Exception {
+    ScriptValuesMod step = StepMockUtil.getStep( ScriptValuesMod.class, ScriptValuesMetaMod.class, "test" );
+
+    RowMeta input = new RowMeta();
+    input.addValueMeta( new ValueMetaInteger( "num" ) );
+    input.addValueMeta( new ValueMetaString( "str" ) );
+    step.setInputRowMeta( input );
+    step.setVariable( Const.KETTLE_JAVASCRIPT_PRIMITIVE_VALUES, primitiveValues ? "Y" : "N" );
+
+    step = spy( step );
+    doReturn( new Object[] { 2L, "" } ).when( step ).getRow();
+
+    ScriptValuesMetaMod meta = new ScriptValuesMetaMod();
+    meta.setCompatible( false );
+    meta.allocate( 1 );
+    meta.setFieldname( new String[] { "str" } );
+    meta.setType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    meta.setReplace( new boolean[] { true } );
+
+    meta.setJSScripts( new ScriptValuesScript[] {
+      new ScriptValuesScript( ScriptValuesScript.TRANSFORM_SCRIPT, "script",
+        "str = typeof num + ':' + ( num + 1 );" )
+    } );
+
+    step.init( meta, data );
+    return TransTestingUtil.execute( step, meta, data, 1, false ).get( 0 );
+  }
+
+  @Test
+  public void fieldsAreObjectsByDefault() throws Exception {
+    Object[] row = describeInteger( false, new ScriptValuesModData() );
+    TransTestingUtil.assertResult( new Object[] { 2L, "object:3" }, row );
+  }
+
+  @Test
+  public void fieldsArePrimitivesWhenAsked() throws Exception {
+    Object[] row = describeInteger( true, new ScriptValuesModData() );
+    TransTestingUtil.assertResult( new Object[] { 2L, "number:3" }, row );
+  }
+
+  @Test
+  public void compiledScriptIsShared() throws Exception {
+    ScriptValuesModData one = new ScriptValuesModData();
+    ScriptValuesModData two = new ScriptValuesModData();
+    describeInteger( false, one );
+    describeInteger( false, two );
+
+    assertSame( one.script, two.script );
+  }
 }
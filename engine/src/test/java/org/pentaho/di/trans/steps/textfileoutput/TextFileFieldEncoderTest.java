@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class TextFileFieldEncoderTest {
+
+  private static String encode( TextFileFieldEncoder encoder, Object value ) {
+    byte[] buffer = new byte[ encoder.getMaxLength() ];
+    int length = encoder.encode( value, buffer );
+    return length < 0 ? null : new String( buffer, 0, length );
+  }
+
+  @Test
+  public void testIntegerMatchesValueMeta() throws Exception {
+    ValueMetaInterface v = new ValueMetaInteger( "int" );
+    TextFileFieldEncoder encoder = TextFileFieldEncoder.create( v );
+    assertNotNull( encoder );
+
+    long[] values = { 0L, 1L, -1L, 9L, 10L, -10L, 123456789L, Long.MAX_VALUE, Long.MIN_VALUE + 1 };
+    for ( long value : values ) {
+      assertEquals( v.getString( value ), encode( encoder, value ) );
+    }
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 1000; i++ ) {
+      long value = random.nextLong();
+      assertEquals( v.getString( value ), encode( encoder, value ) );
+    }
+    // Falls back to the regular conversion
+    assertNull( encode( encoder, Long.MIN_VALUE ) );
+  }
+
+  @Test
+  public void testUnsupportedFormats() {
+    ValueMetaInterface grouped = new ValueMetaInteger( "int" );
+    grouped.setConversionMask( "#,##0" );
+    assertNull( TextFileFieldEncoder.create( grouped ) );
+
+    ValueMetaInterface padded = new ValueMetaInteger( "int" );
+    padded.setConversionMask( "00000" );
+    assertNull( TextFileFieldEncoder.create( padded ) );
+
+    ValueMetaInterface monthName = new ValueMetaDate( "date" );
+    monthName.setConversionMask( "dd MMM yyyy" );
+    assertNull( TextFileFieldEncoder.create( monthName ) );
+
+    assertNull( TextFileFieldEncoder.create( new ValueMetaNumber( "number" ) ) );
+    assertNull( TextFileFieldEncoder.create( new ValueMetaString( "string" ) ) );
+
+    ValueMetaInterface binaryString = new ValueMetaInteger( "int" );
+    binaryString.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertNull( TextFileFieldEncoder.create( binaryString ) );
+
+    ValueMetaInterface utf16 = new ValueMetaInteger( "int" );
+    utf16.setStringEncoding( "UTF-16" );
+    assertNull( TextFileFieldEncoder.create( utf16 ) );
+  }
+
+  @Test
+  public void testDateMatchesValueMeta() throws Exception {
+    String[] masks = { null, "yyyy-MM-dd", "yyyyMMdd", "dd/MM/yy HH:mm", "yyyy-MM-dd'T'HH:mm:ss.SSS", "y-M-d H:m:s.S",
+      "yyyy-MM-dd''HH" };
+    String[] timeZones = { "UTC", "Europe/Brussels", "America/New_York", "Asia/Kolkata" };
+    Random random = new Random( 42 );
+
+    for ( String mask : masks ) {
+      for ( String timeZone : timeZones ) {
+        ValueMetaInterface v = new ValueMetaDate( "date" );
+        v.setConversionMask( mask );
+        v.setDateFormatTimeZone( TimeZone.getTimeZone( timeZone ) );
+        TextFileFieldEncoder encoder = TextFileFieldEncoder.create( v );
+        assertNotNull( mask, encoder );
+
+        for ( int i = 0; i < 500; i++ ) {
+          // 1600 - 2400
+          Date date = new Date( -11676096000000L + (long) ( random.nextDouble() * 25245000000000L ) );
+          assertEquals( mask + " " + timeZone, v.getString( date ), encode( encoder, date ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDateBeforeGregorianCutoverFallsBack() {
+    ValueMetaInterface v = new ValueMetaDate( "date" );
+    TextFileFieldEncoder encoder = TextFileFieldEncoder.create( v );
+    assertNull( encode( encoder, new Date( -13000000000000L ) ) );
+  }
+
+  @Test
+  public void testMightContain() {
+    ValueMetaInterface v = new ValueMetaDate( "date" );
+    v.setConversionMask( "yyyy/MM/dd HH:mm" );
+    TextFileFieldEncoder encoder = TextFileFieldEncoder.create( v );
+    assertTrue( encoder.mightContain( "/".getBytes() ) );
+    assertTrue( encoder.mightContain( ":".getBytes() ) );
+    assertTrue( encoder.mightContain( "-".getBytes() ) );
+    assertFalse( encoder.mightContain( ";".getBytes(), "\"".getBytes() ) );
+    assertFalse( encoder.mightContain( new byte[0] ) );
+  }
+
+  @Test
+  public void testAsyncFlushOutputStreamKeepsOrder() throws Exception {
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    Random random = new Random( 42 );
+    try ( AsyncFlushOutputStream out = new AsyncFlushOutputStream( target, 64, "test" ) ) {
+      for ( int i = 0; i < 2000; i++ ) {
+        byte[] chunk = new byte[ random.nextInt( 100 ) ];
+        random.nextBytes( chunk );
+        out.write( chunk );
+        out.write( i );
+        expected.write( chunk );
+        expected.write( i );
+      }
+    }
+    assertArrayEquals( expected.toByteArray(), target.toByteArray() );
+    assertEquals( expected.size(), target.size() );
+  }
+
+  @Test
+  public void testAsciiCompatible() {
+    assertTrue( TextFileFieldEncoder.isAsciiCompatible( "UTF-8" ) );
+    assertTrue( TextFileFieldEncoder.isAsciiCompatible( "ISO-8859-1" ) );
+    assertFalse( TextFileFieldEncoder.isAsciiCompatible( "UTF-16" ) );
+    assertFalse( TextFileFieldEncoder.isAsciiCompatible( "no-such-charset" ) );
+  }
+}
@@ -78,6 +78,7 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
@@ -464,6 +465,40 @@ public class TextFileOutputTest {
     assertEquals( "this is the end", baos.toString( StandardCharsets.UTF_8.name() ) );
   }
 
+  @Test
+  public void testFieldEncodersAreDroppedWhenTheValueMightNeedEscaping() {
+    // A negative integer contains the enclosure
+    //
+    assertFalse( hasFieldEncoder( "-", true, true ) );
+    assertFalse( hasFieldEncoder( "-", true, false ) );
+    assertFalse( hasFieldEncoder( "-", false, false ) );
+    assertTrue( hasFieldEncoder( "-", false, true ) );
+    assertTrue( hasFieldEncoder( "\"", true, true ) );
+  }
+
+  private boolean hasFieldEncoder( String enclosure, boolean enclosureForced, boolean enclosureFixDisabled ) {
+    TextFileOutput step =
+      spy( new TextFileOutput( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 0,
+        stepMockHelper.transMeta, stepMockHelper.trans ) );
+    doReturn( true ).when( step ).isFastEncoding();
+
+    ValueMetaInteger number = new ValueMetaInteger( "number" );
+    number.setConversionMask( "#0" );
+    TextFileOutputMeta meta = mock( TextFileOutputMeta.class );
+    when( meta.getMetaWithFieldOptions() ).thenReturn( new ValueMetaInterface[] { number } );
+    when( meta.isEnclosureForced() ).thenReturn( enclosureForced );
+    when( meta.isEnclosureFixDisabled() ).thenReturn( enclosureFixDisabled );
+    step.meta = meta;
+
+    TextFileOutputData data = new TextFileOutputData();
+    data.binarySeparator = ";".getBytes();
+    data.binaryEnclosure = enclosure.getBytes();
+    step.data = data;
+
+    step.initFieldEncoders();
+    return data.fieldEncoders != null && data.fieldEncoders[ 0 ] != null;
+  }
+
   private void assertNotInvokedTwice( TextFileField field ) {
     TextFileOutput step =
         new TextFileOutput( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 1, stepMockHelper.transMeta,
@@ -13,8 +13,10 @@
 
 package org.pentaho.di.trans.steps.transexecutor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -25,6 +27,7 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
@@ -39,28 +42,34 @@ import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.parameters.UnknownParamException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.job.JobMeta;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.getvariable.GetVariableMeta;
+import org.pentaho.di.trans.steps.rowstoresult.RowsToResultMeta;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -341,6 +350,100 @@ public class TransExecutorUnitTest {
     assertEquals( 0, data.groupBuffer.size() );
   }
 
+  @Test
+  public void shouldRunGroupsConcurrentlyWithTheirOwnParameters() throws KettleException {
+    prepareMultipleRowsForExecutor();
+    doAnswer( invocation -> createParameterTransMeta() ).when( executor ).loadExecutorTransMeta();
+    List<Trans> executorTranses = new ArrayList<>();
+    doAnswer( invocation -> {
+      Trans executorTrans = (Trans) invocation.callRealMethod();
+      executorTranses.add( executorTrans );
+      return executorTrans;
+    } ).when( executor ).createInternalTrans();
+
+    meta.setGroupField( "groupField" );
+    meta.getParameters().setVariable( new String[] { "P" } );
+    meta.getParameters().setField( new String[] { "groupField" } );
+    meta.getParameters().setInput( new String[] { null } );
+    executor.setVariable( Const.KETTLE_TRANS_EXECUTOR_CONCURRENT_GROUPS, "2" );
+
+    Trans parent = new Trans();
+    parent.setLog( new LogChannel( this ) );
+    Mockito.when( executor.getTrans() ).thenReturn( parent );
+    Mockito.when( executor.getLogLevel() ).thenReturn( LogLevel.NOTHING );
+    executor.init( meta, data );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "groupField" ) );
+    executor.setInputRowMeta( rowMeta );
+
+    while ( executor.processRow( meta, data ) ) {
+      // process all rows
+    }
+
+    assertEquals( 0, data.executions.size() );
+    assertEquals( 2, executorTranses.size() );
+    assertNotSame( executorTranses.get( 0 ).getTransMeta(), executorTranses.get( 1 ).getTransMeta() );
+    assertEquals( "value1", executorTranses.get( 0 ).getResultRows().get( 0 ).getString( "p", null ) );
+    assertEquals( "value12", executorTranses.get( 1 ).getResultRows().get( 0 ).getString( "p", null ) );
+  }
+
+  @Test
+  public void shouldStopTheGroupThatIsWaitedFor() throws Exception {
+    prepareOneRowForExecutor();
+    Trans parent = new Trans();
+    Mockito.when( executor.getTrans() ).thenReturn( parent );
+    executor.init( meta, data );
+    executor.setInputRowMeta( new RowMeta() );
+
+    // The step is stopped while it waits for the group to finish
+    doAnswer( invocation -> {
+      executor.getData().setExecutorTrans( null );
+      executor.stopRunning( meta, data );
+      return null;
+    } ).when( internalTrans ).waitUntilFinished();
+
+    executor.processRow( meta, data );
+    executor.processRow( meta, data );
+
+    verify( internalTrans ).stopAll();
+    assertEquals( 0, data.executions.size() );
+  }
+
+  @Test
+  public void shouldRunGroupsOneAtATimeWithUniqueConnections() throws KettleException {
+    TransMeta internalTransMeta = mock( TransMeta.class );
+    when( internalTransMeta.isUsingUniqueConnections() ).thenReturn( true );
+    doReturn( internalTransMeta ).when( executor ).loadExecutorTransMeta();
+    executor.setVariable( Const.KETTLE_TRANS_EXECUTOR_CONCURRENT_GROUPS, "2" );
+
+    executor.init( meta, data );
+
+    assertEquals( 1, data.maxConcurrentExecutions );
+    verify( executor, times( 1 ) ).loadExecutorTransMeta();
+  }
+
+  /**
+   * A transformation that returns the value of its parameter P in field p
+   */
+  private TransMeta createParameterTransMeta() throws KettleException {
+    TransMeta transMeta = new TransMeta();
+    transMeta.addParameterDefinition( "P", "", "" );
+
+    GetVariableMeta getVariableMeta = new GetVariableMeta();
+    getVariableMeta.allocate( 1 );
+    getVariableMeta.getFieldDefinitions()[ 0 ].setFieldName( "p" );
+    getVariableMeta.getFieldDefinitions()[ 0 ].setVariableString( "${P}" );
+    getVariableMeta.getFieldDefinitions()[ 0 ].setFieldType( ValueMetaInterface.TYPE_STRING );
+    StepMeta getVariable = new StepMeta( "Get P", getVariableMeta );
+    transMeta.addStep( getVariable );
+
+    StepMeta rowsToResult = new StepMeta( "Rows to result", new RowsToResultMeta() );
+    transMeta.addStep( rowsToResult );
+    transMeta.addTransHop( new TransHopMeta( getVariable, rowsToResult ) );
+    return transMeta;
+  }
+
   @Test
   public void testCollectTransResultsDisabledHop() throws KettleException {
     StepMeta outputRowsSourceStepMeta = mock( StepMeta.class );
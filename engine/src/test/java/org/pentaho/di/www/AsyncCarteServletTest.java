@@ -0,0 +1,171 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Servlet;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.logging.KettleLogStore;
+
+public class AsyncCarteServletTest {
+
+  private CarteRequestExecutor executor;
+  private Servlet servlet;
+  private AsyncCarteServlet asyncServlet;
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+    executor = new CarteRequestExecutor( "/kettle/test", 1, 1 );
+    servlet = mock( Servlet.class );
+    asyncServlet = new AsyncCarteServlet( servlet, executor );
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  private static AsyncContext startAsync( HttpServletRequest request, HttpServletResponse response ) {
+    AsyncContext context = mock( AsyncContext.class );
+    when( request.startAsync() ).thenReturn( context );
+    when( context.getRequest() ).thenReturn( request );
+    when( context.getResponse() ).thenReturn( response );
+    return context;
+  }
+
+  @Test
+  public void testRequestIsExecutedAsynchronously() throws Exception {
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    HttpServletResponse response = mock( HttpServletResponse.class );
+    AsyncContext context = startAsync( request, response );
+
+    asyncServlet.service( request, response );
+
+    verify( context, timeout( 5000 ) ).complete();
+    verify( servlet ).service( request, response );
+    verify( response, never() ).sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+  }
+
+  @Test
+  public void testRequestsAreRefusedWhenTheQueueIsFull() throws Exception {
+    CountDownLatch started = new CountDownLatch( 1 );
+    CountDownLatch release = new CountDownLatch( 1 );
+    doAnswer( invocation -> {
+      started.countDown();
+      release.await( 10, TimeUnit.SECONDS );
+      return null;
+    } ).when( servlet ).service( any( ServletRequest.class ), any( ServletResponse.class ) );
+
+    HttpServletRequest[] requests = new HttpServletRequest[ 3 ];
+    HttpServletResponse[] responses = new HttpServletResponse[ 3 ];
+    AsyncContext[] contexts = new AsyncContext[ 3 ];
+    for ( int i = 0; i < 3; i++ ) {
+      requests[ i ] = mock( HttpServletRequest.class );
+      responses[ i ] = mock( HttpServletResponse.class );
+      contexts[ i ] = startAsync( requests[ i ], responses[ i ] );
+      asyncServlet.service( requests[ i ], responses[ i ] );
+      if ( i == 0 ) {
+        assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+      }
+    }
+
+    // One request runs, one waits and the last one doesn't fit
+    SlaveServerRequestQueueStatus status = executor.getStatus();
+    assertEquals( 1, status.getActive() );
+    assertEquals( 1, status.getQueued() );
+    assertEquals( 1, status.getRejected() );
+    verify( responses[ 2 ] ).setHeader( "Retry-After", "1" );
+    verify( responses[ 2 ] ).sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+    verify( contexts[ 2 ] ).complete();
+
+    release.countDown();
+    verify( contexts[ 0 ], timeout( 5000 ) ).complete();
+    verify( contexts[ 1 ], timeout( 5000 ) ).complete();
+    verify( responses[ 1 ], never() ).sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+  }
+
+  @Test
+  public void testQueueStatusInServerStatus() throws Exception {
+    SlaveServerStatus serverStatus = new SlaveServerStatus( "Online" );
+    serverStatus.getRequestQueueList().addAll( CarteRequestExecutor.getStatusList( Arrays.asList( executor ) ) );
+
+    SlaveServerStatus parsed = SlaveServerStatus.fromXML( serverStatus.getXML() );
+    assertEquals( 1, parsed.getRequestQueueList().size() );
+    assertEquals( "/kettle/test", parsed.getRequestQueueList().get( 0 ).getContextPath() );
+    assertEquals( 1, parsed.getRequestQueueList().get( 0 ).getThreads() );
+  }
+
+  @Test
+  public void testServersInTheSameJvmKeepTheirQueueStatusApart() throws Exception {
+    CarteRequestExecutor otherExecutor = new CarteRequestExecutor( "/kettle/test", 3, 1 );
+    try {
+      List<SlaveServerRequestQueueStatus> statusList = CarteRequestExecutor.getStatusList( Arrays.asList( executor ) );
+      List<SlaveServerRequestQueueStatus> otherStatusList =
+        CarteRequestExecutor.getStatusList( Arrays.asList( otherExecutor ) );
+
+      assertEquals( 1, statusList.size() );
+      assertEquals( 1, statusList.get( 0 ).getThreads() );
+      assertEquals( 1, otherStatusList.size() );
+      assertEquals( 3, otherStatusList.get( 0 ).getThreads() );
+    } finally {
+      otherExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testStatusServletShowsTheExecutorsOfItsServer() throws Exception {
+    GetStatusServlet statusServlet = new GetStatusServlet( new TransformationMap(), new JobMap() );
+    statusServlet.setRequestExecutors( Arrays.asList( executor ) );
+    GetStatusServlet otherStatusServlet = new GetStatusServlet( new TransformationMap(), new JobMap() );
+
+    assertEquals( 1, SlaveServerStatus.fromXML( getStatusXML( statusServlet ) ).getRequestQueueList().size() );
+    assertTrue( SlaveServerStatus.fromXML( getStatusXML( otherStatusServlet ) ).getRequestQueueList().isEmpty() );
+  }
+
+  private static String getStatusXML( GetStatusServlet statusServlet ) throws Exception {
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    when( request.getContextPath() ).thenReturn( GetStatusServlet.CONTEXT_PATH );
+    when( request.getParameter( "xml" ) ).thenReturn( "Y" );
+    HttpServletResponse response = mock( HttpServletResponse.class );
+    StringWriter out = new StringWriter();
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+    statusServlet.doGet( request, response );
+    return out.toString();
+  }
+}
@@ -14,6 +14,7 @@
 package org.pentaho.di.www;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -30,6 +31,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.gui.Point;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
@@ -144,6 +146,33 @@ public class GetStatusServletTest {
   }
 
 
+  @Test
+  public void testServersInTheSameJvmDontShareTheirStatus() throws ServletException, IOException {
+    System.setProperty( Const.KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL, "60000" );
+    try {
+      HttpServletRequest mockHttpServletRequest = mock( HttpServletRequest.class );
+      HttpServletResponse mockHttpServletResponse = mock( HttpServletResponse.class );
+      StringWriter out = new StringWriter();
+      setupForJobDroppedFromMap( mockHttpServletRequest, mockHttpServletResponse, out );
+      when( mockHttpServletRequest.getParameter( "xml" ) ).thenReturn( "Y" );
+      getStatusServlet.doGet( mockHttpServletRequest, mockHttpServletResponse );
+      assertTrue( out.toString().contains( "testJobId2" ) );
+
+      // A second server without jobs
+      //
+      JobMap otherJobMap = mock( JobMap.class );
+      GetStatusServlet otherServlet = new GetStatusServlet( mock( TransformationMap.class ), otherJobMap );
+      StringWriter otherOut = new StringWriter();
+      HttpServletResponse otherResponse = mock( HttpServletResponse.class );
+      when( otherResponse.getWriter() ).thenReturn( new PrintWriter( otherOut ) );
+      otherServlet.doGet( mockHttpServletRequest, otherResponse );
+      assertTrue( otherOut.toString().contains( "serverstatus" ) );
+      assertFalse( otherOut.toString().contains( "testJobId2" ) );
+    } finally {
+      System.clearProperty( Const.KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL );
+    }
+  }
+
   private void setupForJobDroppedFromMap( HttpServletRequest mockHttpServletRequest,
                                           HttpServletResponse mockHttpServletResponse, StringWriter out )
     throws IOException {
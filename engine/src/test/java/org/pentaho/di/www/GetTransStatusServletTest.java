@@ -15,6 +15,7 @@ package org.pentaho.di.www;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.owasp.encoder.Encode;
 import org.pentaho.di.core.gui.Point;
 import org.pentaho.di.core.logging.KettleLogStore;
@@ -32,10 +33,12 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import static junit.framework.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -136,4 +139,33 @@ public class GetTransStatusServletTest {
 
   }
 
+  @Test
+  public void testNotModifiedWhenTheETagMatches() throws ServletException, IOException {
+    KettleLogStore.init();
+    HttpServletRequest mockHttpServletRequest = mock( HttpServletRequest.class );
+    HttpServletResponse mockHttpServletResponse = mock( HttpServletResponse.class );
+    Trans mockTrans = mock( Trans.class );
+    LogChannelInterface mockChannelInterface = mock( LogChannelInterface.class );
+    ServletOutputStream outMock = mock( ServletOutputStream.class );
+
+    when( mockHttpServletRequest.getContextPath() ).thenReturn( GetTransStatusServlet.CONTEXT_PATH );
+    when( mockHttpServletRequest.getParameter( "id" ) ).thenReturn( "123" );
+    when( mockHttpServletRequest.getParameter( "xml" ) ).thenReturn( "Y" );
+    when( mockHttpServletResponse.getOutputStream() ).thenReturn( outMock );
+    when( mockTransformationMap.getTransformation( any( CarteObjectEntry.class ) ) ).thenReturn( mockTrans );
+    when( mockTrans.getLogChannel() ).thenReturn( mockChannelInterface );
+    when( mockTrans.getStatus() ).thenReturn( "Running" );
+
+    getTransStatusServlet.doGet( mockHttpServletRequest, mockHttpServletResponse );
+    ArgumentCaptor<String> eTag = ArgumentCaptor.forClass( String.class );
+    verify( mockHttpServletResponse ).setHeader( eq( "ETag" ), eTag.capture() );
+
+    HttpServletResponse notModifiedResponse = mock( HttpServletResponse.class );
+    when( mockHttpServletRequest.getHeader( "If-None-Match" ) ).thenReturn( eTag.getValue() );
+    getTransStatusServlet.doGet( mockHttpServletRequest, notModifiedResponse );
+
+    verify( notModifiedResponse ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+    verify( notModifiedResponse, never() ).getOutputStream();
+    verify( notModifiedResponse, never() ).setContentLength( anyInt() );
+  }
 }
@@ -0,0 +1,301 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.rowgenerator.RowGeneratorMeta;
+
+public class PreparedTransPoolTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private File file;
+  private PreparedTransPool pool;
+  private AtomicInteger loads;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile( "prepared", ".ktr" );
+    writeTransformation( "3" );
+    pool = new PreparedTransPool( "/kettle/test", Collections.singleton( file.getAbsolutePath() ), 1 );
+    loads = new AtomicInteger();
+  }
+
+  @After
+  public void tearDown() {
+    pool.clear();
+    file.delete();
+  }
+
+  private void writeTransformation( String limit ) throws Exception {
+    writeTransformation( limit, false );
+  }
+
+  private void writeTransformation( String limit, boolean logTable ) throws Exception {
+    PluginRegistry registry = PluginRegistry.getInstance();
+
+    RowGeneratorMeta generatorMeta = new RowGeneratorMeta();
+    generatorMeta.setDefault();
+    generatorMeta.allocate( 0 );
+    generatorMeta.setRowLimit( limit );
+    StepMeta generator =
+      new StepMeta( registry.getPluginId( StepPluginType.class, generatorMeta ), "Generate", generatorMeta );
+    DummyTransMeta dummyMeta = new DummyTransMeta();
+    StepMeta dummy = new StepMeta( registry.getPluginId( StepPluginType.class, dummyMeta ), "Dummy", dummyMeta );
+
+    TransMeta transMeta = new TransMeta();
+    transMeta.setName( "prepared" );
+    transMeta.addStep( generator );
+    transMeta.addStep( dummy );
+    transMeta.addTransHop( new TransHopMeta( generator, dummy ) );
+    if ( logTable ) {
+      DatabaseMeta logConnection = new DatabaseMeta( "log", "H2", "JDBC", null, "mem:log", null, null, null );
+      transMeta.addDatabase( logConnection );
+      transMeta.getTransLogTable().setConnectionName( "log" );
+      transMeta.getTransLogTable().setTableName( "trans_log" );
+    }
+
+    long lastModified = file.lastModified();
+    Files.write( file.toPath(), transMeta.getXML().getBytes( StandardCharsets.UTF_8 ) );
+    // Make sure the change is visible with a coarse file system clock
+    file.setLastModified( Math.max( System.currentTimeMillis(), lastModified + 2000L ) );
+  }
+
+  private TransMeta load() throws KettleException {
+    loads.incrementAndGet();
+    return new TransMeta( file.getAbsolutePath() );
+  }
+
+  private Trans take() throws KettleException {
+    return pool.take( file.getAbsolutePath(), null, this::load, Trans::new, new StringWriter() );
+  }
+
+  private void waitUntilPrepared() throws InterruptedException {
+    for ( int i = 0; i < 500 && pool.getPreparedCount( file.getAbsolutePath() ) == 0; i++ ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( 1, pool.getPreparedCount( file.getAbsolutePath() ) );
+  }
+
+  @Test
+  public void testOnlyDesignatedTransformations() {
+    assertTrue( pool.isDesignated( file.getAbsolutePath() ) );
+    assertFalse( pool.isDesignated( "other.ktr" ) );
+    assertFalse( pool.isDesignated( null ) );
+  }
+
+  @Test
+  public void testMetadataIsParsedOnce() throws Exception {
+    TransMeta one = pool.getTransMeta( file.getAbsolutePath(), null, this::load );
+    TransMeta two = pool.getTransMeta( file.getAbsolutePath(), null, this::load );
+
+    assertEquals( 1, loads.get() );
+    assertNotSame( one, two );
+    assertEquals( 2, two.nrSteps() );
+    assertEquals( "prepared", two.getName() );
+  }
+
+  @Test
+  public void testPreparedTransformationIsTakenAndReplaced() throws Exception {
+    // Nothing is prepared before the first request
+    assertNull( take() );
+    waitUntilPrepared();
+
+    Trans trans = take();
+    assertNotNull( trans );
+    assertTrue( trans.isReadyToStart() );
+    trans.startThreads();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+    assertEquals( 3, trans.findRunThread( "Dummy" ).getLinesWritten() );
+
+    // The next one is prepared from the same metadata
+    waitUntilPrepared();
+    assertNotSame( trans, take() );
+    assertEquals( 1, loads.get() );
+  }
+
+  @Test
+  public void testModifiedTransformationIsLoadedAgain() throws Exception {
+    assertNull( take() );
+    waitUntilPrepared();
+
+    writeTransformation( "5" );
+
+    // The transformation prepared from the old version is thrown away
+    assertNull( take() );
+    assertEquals( 2, loads.get() );
+    waitUntilPrepared();
+
+    Trans trans = take();
+    trans.startThreads();
+    trans.waitUntilFinished();
+    assertEquals( 5, trans.findRunThread( "Dummy" ).getLinesWritten() );
+  }
+
+  @Test
+  public void testDatesAreCalculatedWhenTaken() throws Exception {
+    assertNull( take() );
+    waitUntilPrepared();
+    Thread.sleep( 50 );
+
+    long taken = System.currentTimeMillis();
+    Trans trans = take();
+    assertNotNull( trans );
+    assertTrue( trans.getCurrentDate().getTime() >= taken );
+    assertEquals( trans.getCurrentDate(), trans.getEndDate() );
+  }
+
+  @Test
+  public void testTransformationWithLogTableIsNotPrepared() throws Exception {
+    writeTransformation( "3", true );
+
+    assertNull( take() );
+    Thread.sleep( 200 );
+    assertEquals( 0, pool.getPreparedCount( file.getAbsolutePath() ) );
+    assertNull( take() );
+
+    // The metadata is still cached
+    assertEquals( "log", pool.getTransMeta( file.getAbsolutePath(), null, this::load )
+      .getTransLogTable().getConnectionName() );
+    assertEquals( 1, loads.get() );
+  }
+
+  @Test
+  public void testIdleTransformationIsCleanedUp() throws Exception {
+    pool.clear();
+    pool = new PreparedTransPool( "/kettle/test", Collections.singleton( file.getAbsolutePath() ), 1, 1 );
+
+    assertNull( take() );
+    waitUntilPrepared();
+    for ( int i = 0; i < 500 && pool.getPreparedCount( file.getAbsolutePath() ) > 0; i++ ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( 0, pool.getPreparedCount( file.getAbsolutePath() ) );
+  }
+
+  @Test
+  public void testTransformationBeingPreparedIsCleanedUpWhenCleared() throws Exception {
+    CountDownLatch preparing = new CountDownLatch( 1 );
+    AtomicInteger cleanups = new AtomicInteger();
+    PreparedTransPool.TransFactory factory = transMeta -> {
+      preparing.countDown();
+      try {
+        Thread.sleep( 200 );
+      } catch ( InterruptedException e ) {
+        throw new KettleException( e );
+      }
+      return new Trans( transMeta ) {
+        @Override
+        public void cleanup() {
+          cleanups.incrementAndGet();
+          super.cleanup();
+        }
+      };
+    };
+
+    assertNull( pool.take( file.getAbsolutePath(), null, this::load, factory, new StringWriter() ) );
+    assertTrue( preparing.await( 5, TimeUnit.SECONDS ) );
+    pool.clear();
+
+    assertEquals( 1, cleanups.get() );
+    assertEquals( 0, pool.getPreparedCount( file.getAbsolutePath() ) );
+  }
+
+  @Test
+  public void testClearWhileTakingDoesNotBlock() throws Exception {
+    PreparedTransPool.TransFactory factory = transMeta -> {
+      try {
+        Thread.sleep( 300 );
+      } catch ( InterruptedException e ) {
+        throw new KettleException( e );
+      }
+      return new Trans( transMeta );
+    };
+    assertNull( pool.take( file.getAbsolutePath(), null, this::load, factory, new StringWriter() ) );
+
+    // The next request loads the modified transformation while the pool is cleared
+    writeTransformation( "5" );
+    CountDownLatch loading = new CountDownLatch( 1 );
+    Thread request = new Thread( () -> {
+      try {
+        pool.take( file.getAbsolutePath(), null, () -> {
+          loading.countDown();
+          try {
+            Thread.sleep( 100 );
+          } catch ( InterruptedException e ) {
+            throw new KettleException( e );
+          }
+          return load();
+        }, factory, new StringWriter() );
+      } catch ( Exception e ) {
+        // The pool is cleared, what it returns doesn't matter
+      }
+    } );
+    request.start();
+    assertTrue( loading.await( 5, TimeUnit.SECONDS ) );
+    pool.clear();
+
+    request.join( TimeUnit.SECONDS.toMillis( 20 ) );
+    assertFalse( request.isAlive() );
+  }
+
+  @Test
+  public void testOnlyRequestsWithoutVariablesCanUsePreparedTransformations() {
+    String[] knownOptions = new String[] { "trans", "level" };
+    HttpServletRequest request = mock( HttpServletRequest.class );
+
+    when( request.getParameterNames() ).thenReturn( Collections.enumeration( Arrays.asList( "trans" ) ) );
+    assertTrue( PreparedTransPool.canUse( request, null, knownOptions ) );
+
+    when( request.getParameterNames() ).thenReturn( Collections.enumeration( Arrays.asList( "trans", "level" ) ) );
+    assertFalse( PreparedTransPool.canUse( request, "Debug", knownOptions ) );
+
+    when( request.getParameterNames() ).thenReturn( Collections.enumeration( Arrays.asList( "trans", "var" ) ) );
+    assertFalse( PreparedTransPool.canUse( request, null, knownOptions ) );
+  }
+}
@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.BufferLine;
+import org.pentaho.di.core.logging.KettleLogLayout;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.KettleLoggingEvent;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.logging.LogMessage;
+import org.pentaho.di.core.logging.LoggingBuffer;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepStatus;
+
+public class CarteStatusSnapshotsTest {
+
+  private CarteStatusSnapshots snapshots;
+  private Trans trans;
+  private StepInterface first;
+  private StepInterface second;
+  private LogChannelInterface log;
+
+  private static StepInterface step( String name ) {
+    StepInterface step = mock( StepInterface.class );
+    when( step.getStepname() ).thenReturn( name );
+    when( step.isRunning() ).thenReturn( true );
+    when( step.getStatus() ).thenReturn( StepExecutionStatus.STATUS_RUNNING );
+    return step;
+  }
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+    snapshots = new CarteStatusSnapshots();
+    log = new LogChannel( "status snapshot test" );
+    first = step( "first" );
+    second = step( "second" );
+
+    trans = mock( Trans.class );
+    when( trans.getLogChannel() ).thenReturn( log );
+    when( trans.getStatus() ).thenReturn( Trans.STRING_RUNNING );
+    when( trans.nrSteps() ).thenReturn( 2 );
+    when( trans.getRunThread( 0 ) ).thenReturn( first );
+    when( trans.getRunThread( 1 ) ).thenReturn( second );
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty( Const.KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL );
+  }
+
+  @Test
+  public void testSequenceOnlyChangesWithTheStatus() {
+    TransStatusSnapshot snapshot = snapshots.getTransStatus( trans );
+    assertEquals( snapshot.getSequence(), snapshots.getTransStatus( trans ).getSequence() );
+
+    when( trans.isPaused() ).thenReturn( true );
+    TransStatusSnapshot paused = snapshots.getTransStatus( trans );
+    assertTrue( paused.getSequence() > snapshot.getSequence() );
+    assertTrue( paused.isPaused() );
+  }
+
+  @Test
+  public void testOnlyChangedStepsSince() {
+    TransStatusSnapshot snapshot = snapshots.getTransStatus( trans );
+    assertEquals( 2, snapshot.getStepStatusList( -1L ).size() );
+    assertTrue( snapshot.getStepStatusList( snapshot.getSequence() ).isEmpty() );
+
+    when( second.getLinesWritten() ).thenReturn( 100L );
+    TransStatusSnapshot changed = snapshots.getTransStatus( trans );
+    assertNotEquals( snapshot.getSequence(), changed.getSequence() );
+
+    List<StepStatus> steps = changed.getStepStatusList( snapshot.getSequence() );
+    assertEquals( 1, steps.size() );
+    assertEquals( "second", steps.get( 0 ).getStepname() );
+    assertEquals( 100L, steps.get( 0 ).getLinesWritten() );
+    assertEquals( 2, changed.getStepStatusList().size() );
+  }
+
+  @Test
+  public void testNewLogLines() {
+    log.logMinimal( "first message" );
+    TransStatusSnapshot snapshot = snapshots.getTransStatus( trans );
+    assertTrue( snapshot.getLogText( 0 ).contains( "first message" ) );
+
+    log.logMinimal( "second message" );
+    TransStatusSnapshot logged = snapshots.getTransStatus( trans );
+    assertTrue( logged.getSequence() > snapshot.getSequence() );
+
+    String newLines = logged.getLogText( snapshot.getLastLogLineNr() + 1 );
+    assertFalse( newLines.contains( "first message" ) );
+    assertTrue( newLines.contains( "second message" ) );
+    assertEquals( KettleLogStore.getAppender().getBuffer( log.getLogChannelId(), false ).toString(),
+      logged.getLogText( 0 ) );
+  }
+
+  @Test
+  public void testLineAddedAfterALaterLineIsNotLost() {
+    BufferLine first = line( "first message" );
+    BufferLine early = line( "early message" );
+    BufferLine late = line( "late message" );
+
+    // The third line number is put in the buffer before the second one
+    NavigableMap<Integer, BufferLine> lines = new TreeMap<>();
+    lines.put( first.getNr(), first );
+    lines.put( late.getNr(), late );
+    LoggingBuffer buffer = mock( LoggingBuffer.class );
+    when( buffer.getLayout() ).thenReturn( new KettleLogLayout( false ) );
+    when( buffer.getFirstBufferLineNr() ).thenAnswer( invocation -> lines.firstKey() );
+    when( buffer.getBufferLinesFromTo( any(), anyBoolean(), anyInt(), anyInt() ) ).thenAnswer( invocation -> {
+      int from = invocation.getArgument( 2 );
+      int to = invocation.getArgument( 3 );
+      return new ArrayList<>( lines.subMap( from, true, to, true ).values() );
+    } );
+
+    TransLogLines logLines = new TransLogLines();
+    assertEquals( 2, logLines.update( buffer, log.getLogChannelId(), late.getNr() ) );
+
+    lines.put( early.getNr(), early );
+    assertEquals( 1, logLines.update( buffer, log.getLogChannelId(), late.getNr() ) );
+    String text = logLines.getText( 0, late.getNr() );
+    assertTrue( text.indexOf( "early message" ) >= 0 );
+    assertTrue( text.indexOf( "early message" ) < text.indexOf( "late message" ) );
+    assertEquals( 0, logLines.update( buffer, log.getLogChannelId(), late.getNr() ) );
+  }
+
+  private BufferLine line( String message ) {
+    return new BufferLine( new KettleLoggingEvent( new LogMessage( message, log.getLogChannelId(), LogLevel.BASIC ),
+      System.currentTimeMillis(), LogLevel.BASIC ) );
+  }
+
+  @Test
+  public void testSnapshotIsSharedDuringTheInterval() {
+    System.setProperty( Const.KETTLE_CARTE_STATUS_SNAPSHOT_INTERVAL, "60000" );
+    TransStatusSnapshot snapshot = snapshots.getTransStatus( trans );
+    when( first.getLinesRead() ).thenReturn( 10L );
+    assertSame( snapshot, snapshots.getTransStatus( trans ) );
+
+    snapshots.putServerStatus( "<serverstatus/>" );
+    assertEquals( "<serverstatus/>", snapshots.getServerStatus() );
+  }
+}
@@ -56,6 +56,7 @@ import org.pentaho.di.trans.step.errorhandling.CompositeFileErrorHandler;
 import org.pentaho.di.trans.step.errorhandling.FileErrorHandler;
 import org.pentaho.di.trans.step.errorhandling.FileErrorHandlerContentLineNumber;
 import org.pentaho.di.trans.step.errorhandling.FileErrorHandlerMissingFiles;
+import org.pentaho.di.trans.steps.excelinput.staxpoi.StaxPoiWorkbook;
 import org.pentaho.di.trans.steps.utils.CommonExcelUtils;
 import org.springframework.util.CollectionUtils;
 
@@ -548,6 +549,9 @@ public class ExcelInput extends BaseStep implements StepInterface {
         }
 
         data.workbook = WorkbookFactory.getWorkbook( meta.getSpreadSheetType(), data.filename, meta.getEncoding(), meta.getPassword() );
+        if ( data.workbook instanceof StaxPoiWorkbook ) {
+          ( (StaxPoiWorkbook) data.workbook ).setStreamingOptions( data.parallelSheets, data.sharedStringsMemory );
+        }
 
         data.errorHandler.handleFile( data.file );
         // Start at the first sheet again...
@@ -564,6 +568,16 @@ public class ExcelInput extends BaseStep implements StepInterface {
             data.startRow[i] = data.defaultStartRow;
           }
         }
+
+        if ( data.workbook instanceof StaxPoiWorkbook && data.parallelSheets ) {
+          List<String> sheetNames = new ArrayList<>();
+          for ( int i = 0; i < data.sheetNames.length; i++ ) {
+            if ( isSheetOfThisCopy( i ) ) {
+              sheetNames.add( data.sheetNames[i] );
+            }
+          }
+          ( (StaxPoiWorkbook) data.workbook ).readAhead( sheetNames.toArray( new String[sheetNames.size()] ) );
+        }
       }
 
       boolean nextsheet = false;
@@ -575,7 +589,7 @@ public class ExcelInput extends BaseStep implements StepInterface {
       }
 
       String sheetName = data.sheetNames[data.sheetnr];
-      KSheet sheet = data.workbook.getSheet( sheetName );
+      KSheet sheet = isSheetOfThisCopy( data.sheetnr ) ? data.workbook.getSheet( sheetName ) : null;
       if ( sheet != null ) {
         // at what row do we continue reading?
         if ( data.rownr < 0 ) {
@@ -642,6 +656,11 @@ public class ExcelInput extends BaseStep implements StepInterface {
       }
 
       if ( nextsheet ) {
+        // The rest of the sheet isn't read: stop decoding it
+        if ( data.workbook instanceof StaxPoiWorkbook && data.parallelSheets ) {
+          ( (StaxPoiWorkbook) data.workbook ).stopReadAhead( sheetName );
+        }
+
         // Go to the next sheet
         data.sheetnr++;
 
@@ -669,6 +688,18 @@ public class ExcelInput extends BaseStep implements StepInterface {
     return retval;
   }
 
+  /**
+   * When the sheets of the streaming engine are read in parallel, the copies of the step divide the sheets of a
+   * workbook between them. Otherwise every copy reads all of the sheets.
+   */
+  private boolean isSheetOfThisCopy( int sheetnr ) {
+    if ( !( data.workbook instanceof StaxPoiWorkbook ) || !data.parallelSheets ) {
+      return true;
+    }
+    int copies = getUniqueStepCountAcrossSlaves();
+    return copies <= 1 || sheetnr % copies == getUniqueStepNrAcrossSlaves();
+  }
+
   private boolean isLineEmpty( KCell[] line ) {
     if ( line.length == 0 ) {
       return true;
@@ -741,6 +772,8 @@ public class ExcelInput extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       initErrorHandling();
       initReplayFactory();
+      data.parallelSheets = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_EXCEL_STREAMING_PARALLEL_SHEETS, "N" ) );
+      data.sharedStringsMemory = Const.toLong( getVariable( Const.KETTLE_EXCEL_STREAMING_SHARED_STRINGS_MEMORY ), -1L );
       data.files = meta.getFileList( this );
       if ( data.files.nrOfFiles() == 0 && data.files.nrOfMissingFiles() > 0 && !meta.isAcceptingFilenames() ) {
 
@@ -69,6 +69,16 @@ public class ExcelInputData extends BaseStepData implements StepDataInterface {
    */
   public KWorkbook workbook;
 
+  /**
+   * True if the streaming engine decodes the sheets on worker threads and the copies split the sheets
+   */
+  public boolean parallelSheets;
+
+  /**
+   * The number of bytes of shared strings the streaming engine keeps in memory, -1 for the table of POI
+   */
+  public long sharedStringsMemory = -1L;
+
   /**
    * The sheet number that's being processed...
    */
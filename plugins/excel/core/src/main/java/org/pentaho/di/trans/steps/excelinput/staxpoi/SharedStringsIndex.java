@@ -0,0 +1,272 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.excelinput.staxpoi;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.pentaho.di.core.xml.XMLParserFactoryProducer;
+
+/**
+ * Compact replacement for the shared strings table of POI: the plain text of the strings is stored UTF-8 encoded in a
+ * single byte array with an offset per string, instead of an XMLBeans object tree per string. Once the text grows
+ * beyond the configured size it's moved to a temporary file and read back with positional reads.<br>
+ * <br>
+ * The strings are decoded like {@link StaxPoiSheet} decodes the strings of the POI table. Lookups are thread-safe, so
+ * one index can be shared by all of the sheets of a workbook.
+ */
+public class SharedStringsIndex implements Closeable {
+
+  private static final String TAG_SI = "si";
+  private static final String TAG_R = "r";
+  private static final String TAG_T = "t";
+  private static final String TAG_RPH = "rPh";
+
+  // _xHHHH_ escapes, decoded like XSSFRichTextString does
+  private static final Pattern UTF_PATTERN = Pattern.compile( "_x([0-9A-Fa-f]{4})_" );
+
+  private final long maxMemory;
+
+  private int count;
+  private int[] offsets = new int[ 1024 ];
+  private byte[] data = new byte[ 64 * 1024 ];
+  private int size;
+
+  private File file;
+  private OutputStream fileOutput;
+  private FileChannel fileChannel;
+
+  private SharedStringsIndex( long maxMemory ) {
+    this.maxMemory = maxMemory;
+  }
+
+  /**
+   * Reads the shared strings part of a workbook.
+   *
+   * @param sharedStringsData the shared strings part, null if the workbook has none
+   * @param maxMemory the number of bytes of text to keep in memory before moving it to a temporary file, -1 to keep
+   *          everything in memory
+   */
+  public static SharedStringsIndex read( InputStream sharedStringsData, long maxMemory )
+    throws IOException, XMLStreamException {
+    SharedStringsIndex index = new SharedStringsIndex( maxMemory );
+    try {
+      if ( sharedStringsData != null ) {
+        index.parse( sharedStringsData );
+      }
+      index.finish();
+    } catch ( IOException | XMLStreamException | RuntimeException e ) {
+      index.close();
+      throw e;
+    }
+    return index;
+  }
+
+  private void parse( InputStream sharedStringsData ) throws IOException, XMLStreamException {
+    XMLInputFactory factory = XMLParserFactoryProducer.createSecureXMLInputFactory();
+    XMLStreamReader reader = factory.createXMLStreamReader( sharedStringsData );
+    try {
+      StringBuilder plainText = new StringBuilder();
+      StringBuilder runText = new StringBuilder();
+      boolean inString = false;
+      boolean hasRuns = false;
+      int runDepth = 0;
+      int phoneticDepth = 0;
+      int textDepth = 0;
+      while ( reader.hasNext() ) {
+        int event = reader.next();
+        if ( event == XMLStreamConstants.START_ELEMENT ) {
+          String name = reader.getLocalName();
+          if ( name.equals( TAG_SI ) ) {
+            inString = true;
+            hasRuns = false;
+            plainText.setLength( 0 );
+            runText.setLength( 0 );
+          } else if ( inString ) {
+            if ( name.equals( TAG_R ) ) {
+              hasRuns = true;
+              runDepth++;
+            } else if ( name.equals( TAG_RPH ) ) {
+              phoneticDepth++;
+            } else if ( name.equals( TAG_T ) ) {
+              textDepth++;
+            }
+          }
+        } else if ( event == XMLStreamConstants.END_ELEMENT ) {
+          String name = reader.getLocalName();
+          if ( name.equals( TAG_SI ) ) {
+            inString = false;
+            add( decode( decode( hasRuns ? runText.toString() : plainText.toString() ) ) );
+          } else if ( name.equals( TAG_R ) ) {
+            runDepth--;
+          } else if ( name.equals( TAG_RPH ) ) {
+            phoneticDepth--;
+          } else if ( name.equals( TAG_T ) ) {
+            textDepth--;
+          }
+        } else if ( textDepth > 0 && phoneticDepth == 0 && ( event == XMLStreamConstants.CHARACTERS
+          || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE ) ) {
+          ( runDepth > 0 ? runText : plainText )
+            .append( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Decodes the _xHHHH_ escapes of the text.
+   */
+  static String decode( String text ) {
+    if ( !text.contains( "_x" ) ) {
+      return text;
+    }
+    Matcher matcher = UTF_PATTERN.matcher( text );
+    StringBuilder decoded = new StringBuilder( text.length() );
+    int index = 0;
+    while ( matcher.find() ) {
+      decoded.append( text, index, matcher.start() );
+      decoded.append( (char) Integer.parseInt( matcher.group( 1 ), 16 ) );
+      index = matcher.end();
+    }
+    if ( index == 0 ) {
+      return text;
+    }
+    decoded.append( text, index, text.length() );
+    return decoded.toString();
+  }
+
+  private void add( String string ) throws IOException {
+    byte[] bytes = string.getBytes( StandardCharsets.UTF_8 );
+    if ( (long) size + bytes.length > Integer.MAX_VALUE ) {
+      throw new IOException( "The shared strings of the workbook exceed 2GB" );
+    }
+    if ( count + 1 >= offsets.length ) {
+      offsets = Arrays.copyOf( offsets, offsets.length * 2 );
+    }
+    if ( fileOutput == null && maxMemory >= 0 && size + bytes.length > maxMemory ) {
+      spill();
+    }
+    if ( fileOutput != null ) {
+      fileOutput.write( bytes );
+    } else {
+      if ( size + bytes.length > data.length ) {
+        data = Arrays.copyOf( data, (int) Math.min( Integer.MAX_VALUE - 8,
+          Math.max( (long) data.length * 2, (long) size + bytes.length ) ) );
+      }
+      System.arraycopy( bytes, 0, data, size, bytes.length );
+    }
+    size += bytes.length;
+    count++;
+    offsets[ count ] = size;
+  }
+
+  private void spill() throws IOException {
+    file = File.createTempFile( "kettle-shared-strings-", ".tmp" );
+    file.deleteOnExit();
+    fileOutput = new BufferedOutputStream( new FileOutputStream( file ), 64 * 1024 );
+    fileOutput.write( data, 0, size );
+    data = null;
+  }
+
+  private void finish() throws IOException {
+    if ( fileOutput != null ) {
+      fileOutput.close();
+      fileOutput = null;
+      fileChannel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+    } else {
+      data = Arrays.copyOf( data, size );
+    }
+    offsets = Arrays.copyOf( offsets, count + 1 );
+  }
+
+  /**
+   * @return the number of strings
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return true if the text was moved to a temporary file
+   */
+  boolean isOnDisk() {
+    return fileChannel != null;
+  }
+
+  /**
+   * @param idx the 0-based index of the string
+   * @return the string
+   */
+  public String getString( int idx ) {
+    if ( idx < 0 || idx >= count ) {
+      throw new IndexOutOfBoundsException( "Shared string " + idx + " of " + count );
+    }
+    int start = offsets[ idx ];
+    int length = offsets[ idx + 1 ] - start;
+    if ( fileChannel == null ) {
+      return new String( data, start, length, StandardCharsets.UTF_8 );
+    }
+    ByteBuffer buffer = ByteBuffer.allocate( length );
+    try {
+      while ( buffer.hasRemaining() ) {
+        if ( fileChannel.read( buffer, (long) start + buffer.position() ) < 0 ) {
+          throw new IOException( "Unexpected end of " + file );
+        }
+      }
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e );
+    }
+    return new String( buffer.array(), 0, length, StandardCharsets.UTF_8 );
+  }
+
+  @Override
+  public void close() {
+    try {
+      if ( fileOutput != null ) {
+        fileOutput.close();
+      }
+      if ( fileChannel != null ) {
+        fileChannel.close();
+      }
+    } catch ( IOException e ) {
+      // Ignore close errors
+    } finally {
+      fileOutput = null;
+      fileChannel = null;
+      if ( file != null ) {
+        file.delete();
+        file = null;
+      }
+    }
+  }
+}
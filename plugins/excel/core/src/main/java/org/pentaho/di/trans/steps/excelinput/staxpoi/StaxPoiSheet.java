@@ -22,6 +22,10 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -79,17 +83,35 @@ public class StaxPoiSheet implements KSheet {
 
   // full shared strings table
   private SharedStrings sst;
+  // compact shared strings of the workbook, used instead of the table when set
+  private SharedStringsIndex sharedStrings;
   // custom styles
   private StylesTable styles;
 
+  // decodes the rows ahead on a worker thread when set
+  private RowDecoder rowDecoder;
+
   public StaxPoiSheet( XSSFReader reader, String sheetName, String sheetID )
       throws InvalidFormatException, IOException, XMLStreamException {
+    this( reader, sheetName, sheetID, null );
+  }
+
+  /**
+   * @param sharedStrings the shared strings of the workbook, null to read the shared strings table of POI
+   */
+  public StaxPoiSheet( XSSFReader reader, String sheetName, String sheetID, SharedStringsIndex sharedStrings )
+      throws InvalidFormatException, IOException, XMLStreamException {
     this.sheetName = sheetName;
     xssfReader = reader;
     sheetId = sheetID;
-    sst = reader.getSharedStringsTable();
-    styles = reader.getStylesTable();
-    sheetStream = reader.getSheet( sheetID );
+    this.sharedStrings = sharedStrings;
+    synchronized ( reader ) {
+      if ( sharedStrings == null ) {
+        sst = reader.getSharedStringsTable();
+      }
+      styles = reader.getStylesTable();
+      sheetStream = reader.getSheet( sheetID );
+    }
     XMLInputFactory factory = XMLParserFactoryProducer.createSecureXMLInputFactory();
     sheetReader = factory.createXMLStreamReader( sheetStream );
     headerRow = new ArrayList<>();
@@ -128,8 +150,8 @@ public class StaxPoiSheet implements KSheet {
                     event = sheetReader.next();
                     if ( event == XMLStreamConstants.START_ELEMENT && sheetReader.getLocalName().equals( TAG_V ) ) {
                       int idx = Integer.parseInt( sheetReader.getElementText() );
-                      if (sst != null && sst.getCount() > 0) {
-                        String content = new XSSFRichTextString(sst.getItemAt(idx).getString()).toString();
+                      String content = getSharedString( idx );
+                      if ( content != null ) {
                         headerRow.add( content );
                       }
                       break;
@@ -188,6 +210,19 @@ public class StaxPoiSheet implements KSheet {
     return maxColsNumberDefined;
   }
 
+  /**
+   * @return the shared string or null if there are no shared strings
+   */
+  private String getSharedString( int idx ) {
+    if ( sharedStrings != null ) {
+      return sharedStrings.getCount() > 0 ? sharedStrings.getString( idx ) : null;
+    }
+    if ( sst != null && sst.getCount() > 0 ) {
+      return new XSSFRichTextString( sst.getItemAt( idx ).getString() ).toString();
+    }
+    return null;
+  }
+
   @Override
   public KCell[] getRow( int rownr ) {
     // xlsx raw row numbers are 1-based index, KSheet is 0-based
@@ -211,11 +246,21 @@ public class StaxPoiSheet implements KSheet {
       return new KCell[0];
     }
     try {
-      if ( currentRow >= rownr + 1 ) {
+      if ( rowDecoder != null && rowDecoder.lastRow >= rownr + 1 ) {
+        // the rows ahead are of no use for random access
+        stopReadAhead();
+      }
+      if ( rowDecoder != null ) {
+        KCell[] cells = rowDecoder.nextRow( rownr + 1 );
+        if ( cells != null ) {
+          currentRowCells = cells;
+          return currentRowCells;
+        }
+      } else if ( currentRow >= rownr + 1 ) {
         // allow random access per api despite performance hit
         resetSheetReader();
       }
-      while ( sheetReader.hasNext() ) {
+      while ( rowDecoder == null && sheetReader.hasNext() ) {
         int event = sheetReader.next();
         if ( event == XMLStreamConstants.START_ELEMENT && sheetReader.getLocalName().equals( TAG_ROW ) ) {
           String rowIndicator = sheetReader.getAttributeValue( null, "r" );
@@ -223,7 +268,7 @@ public class StaxPoiSheet implements KSheet {
           if ( currentRow < rownr + 1 ) {
             continue;
           }
-          currentRowCells = parseRow();
+          currentRowCells = parseRow( sheetReader, currentRow );
           return currentRowCells;
         }
         if ( event == XMLStreamConstants.END_ELEMENT && sheetReader.getLocalName().equals( TAG_SHEET_DATA ) ) {
@@ -242,7 +287,7 @@ public class StaxPoiSheet implements KSheet {
     throw new ArrayIndexOutOfBoundsException( rownr );
   }
 
-  private KCell[] parseRow() throws XMLStreamException {
+  private KCell[] parseRow( XMLStreamReader reader, int rowNumber ) throws XMLStreamException {
     List<StaxPoiCell> cells;
     if ( isMaxColsNumberDefined() ) {
       cells = new ArrayList<>( numCols );
@@ -253,52 +298,50 @@ public class StaxPoiSheet implements KSheet {
     int undefinedColIndex = 0;
     for ( int i = 0; i < numCols; i++ ) {
       // go to the "c" cell tag
-      while ( sheetReader.hasNext() ) {
-        int event = sheetReader.next();
-        if ( event == XMLStreamConstants.START_ELEMENT && sheetReader.getLocalName().equals( TAG_C ) ) {
+      while ( reader.hasNext() ) {
+        int event = reader.next();
+        if ( event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals( TAG_C ) ) {
           break;
         }
-        if ( event == XMLStreamConstants.END_ELEMENT && sheetReader.getLocalName().equals( TAG_ROW ) ) {
+        if ( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals( TAG_ROW ) ) {
           // premature end of row, returning what we have
           return cells.toArray( new StaxPoiCell[cells.size()] );
         }
       }
       // We're on the "c" cell tag
-      String cellLocation = sheetReader.getAttributeValue( null, "r" );
+      String cellLocation = reader.getAttributeValue( null, "r" );
       int columnIndex = StaxUtil.extractColumnNumber( cellLocation ) - 1;
 
-      String cellType = sheetReader.getAttributeValue( null, ATTRIBUTE_T );
-      String cellStyle = sheetReader.getAttributeValue( null, "s" );
+      String cellType = reader.getAttributeValue( null, ATTRIBUTE_T );
+      String cellStyle = reader.getAttributeValue( null, "s" );
 
       boolean isFormula = false;
       String content = null;
       // get value tag
-      while ( sheetReader.hasNext() ) {
-        int event = sheetReader.next();
+      while ( reader.hasNext() ) {
+        int event = reader.next();
         if ( event == XMLStreamConstants.START_ELEMENT ) {
-          if ( sheetReader.getLocalName().equals( TAG_V ) ) {
+          if ( reader.getLocalName().equals( TAG_V ) ) {
             // read content as string
             if ( cellType != null && cellType.equals( "s" ) ) {
-              int idx = Integer.parseInt( sheetReader.getElementText() );
-              if (sst != null && sst.getCount() > 0) {
-                content = new XSSFRichTextString(sst.getItemAt(idx).getString()).toString();
-              }
+              int idx = Integer.parseInt( reader.getElementText() );
+              content = getSharedString( idx );
             } else {
-              content = sheetReader.getElementText();
+              content = reader.getElementText();
             }
-          } else if ( sheetReader.getLocalName().equals( TAG_IS ) ) {
-            while ( sheetReader.hasNext() ) {
-              event = sheetReader.next();
+          } else if ( reader.getLocalName().equals( TAG_IS ) ) {
+            while ( reader.hasNext() ) {
+              event = reader.next();
               if ( event == XMLStreamConstants.CHARACTERS ) {
-                content = new XSSFRichTextString( sheetReader.getText() ).toString();
+                content = new XSSFRichTextString( reader.getText() ).toString();
                 break;
               }
               if ( event == XMLStreamConstants.END_ELEMENT ) {
-                if ( sheetReader.getLocalName().equals( TAG_T ) ) {
+                if ( reader.getLocalName().equals( TAG_T ) ) {
                   // If "t" ended, this is a 'blank' cell
                   content = "";
                   break;
-                } else if ( sheetReader.getLocalName().equals( TAG_IS ) ) {
+                } else if ( reader.getLocalName().equals( TAG_IS ) ) {
                   // If "is" ended, this is a 'null' cell
 
                   content = null;
@@ -306,17 +349,17 @@ public class StaxPoiSheet implements KSheet {
                 }
               }
             }
-          } else if ( sheetReader.getLocalName().equals( "f" ) ) {
+          } else if ( reader.getLocalName().equals( "f" ) ) {
             isFormula = true;
           }
         }
-        if ( event == XMLStreamConstants.END_ELEMENT && sheetReader.getLocalName().equals( TAG_C ) ) {
+        if ( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals( TAG_C ) ) {
           break;
         }
       }
       if ( content != null ) {
         KCellType kcType = getCellType( cellType, cellStyle, isFormula );
-        setCells( cells, undefinedColIndex, columnIndex, new StaxPoiCell( parseValue( kcType, content ), kcType, currentRow ) );
+        setCells( cells, undefinedColIndex, columnIndex, new StaxPoiCell( parseValue( kcType, content ), kcType, rowNumber ) );
       } else {
         // else let cell be null
         setCells( cells, undefinedColIndex, columnIndex, null );
@@ -427,13 +470,135 @@ public class StaxPoiSheet implements KSheet {
   private void resetSheetReader() throws IOException, XMLStreamException, InvalidFormatException {
     sheetReader.close();
     sheetStream.close();
-    sheetStream = xssfReader.getSheet( sheetId );
+    synchronized ( xssfReader ) {
+      sheetStream = xssfReader.getSheet( sheetId );
+    }
     XMLInputFactory factory = XMLParserFactoryProducer.createSecureXMLInputFactory();
     sheetReader = factory.createXMLStreamReader( sheetStream );
   }
 
+  /**
+   * Starts decoding the rows of the sheet on a worker thread, so that sequential calls to
+   * {@link #getRow(int)} only have to pick up the decoded rows. Random access stops the worker.
+   *
+   * @param executor runs the worker
+   * @param maxRows the maximum number of rows to decode ahead
+   */
+  void startReadAhead( ExecutorService executor, int maxRows ) {
+    if ( rowDecoder == null ) {
+      rowDecoder = new RowDecoder( maxRows );
+      rowDecoder.future = executor.submit( rowDecoder );
+    }
+  }
+
+  void stopReadAhead() {
+    if ( rowDecoder != null ) {
+      rowDecoder.stop();
+      rowDecoder = null;
+    }
+  }
+
   public void close() throws IOException, XMLStreamException {
+    stopReadAhead();
     sheetReader.close();
     sheetStream.close();
   }
+
+  /**
+   * Decodes the rows from a stream of its own, in the same way as {@link #getRow(int)}.
+   */
+  private class RowDecoder implements Runnable {
+    private final BlockingQueue<Object> rows;
+    private volatile boolean stopped;
+    // the number of the last row taken from the queue
+    private int lastRow;
+    private Future<?> future;
+    private boolean finished;
+
+    RowDecoder( int maxRows ) {
+      // The queue only takes memory for the rows in it: the sheets waiting for a worker don't hold a buffer
+      rows = new LinkedBlockingQueue<>( Math.max( 1, maxRows ) );
+    }
+
+    @Override
+    public void run() {
+      InputStream stream = null;
+      XMLStreamReader reader = null;
+      try {
+        synchronized ( xssfReader ) {
+          stream = xssfReader.getSheet( sheetId );
+        }
+        reader = XMLParserFactoryProducer.createSecureXMLInputFactory().createXMLStreamReader( stream );
+        while ( !stopped && reader.hasNext() ) {
+          int event = reader.next();
+          if ( event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals( TAG_ROW ) ) {
+            int rowNumber = Integer.parseInt( reader.getAttributeValue( null, "r" ) );
+            rows.put( new DecodedRow( rowNumber, parseRow( reader, rowNumber ) ) );
+          } else if ( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals( TAG_SHEET_DATA ) ) {
+            break;
+          }
+        }
+        rows.put( Boolean.FALSE );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      } catch ( Exception e ) {
+        rows.clear();
+        rows.offer( e );
+      } finally {
+        try {
+          if ( reader != null ) {
+            reader.close();
+          }
+          if ( stream != null ) {
+            stream.close();
+          }
+        } catch ( Exception e ) {
+          // Ignore close errors
+        }
+      }
+    }
+
+    /**
+     * @param minRow the 1-based row number to read up to
+     * @return the cells of the first row with at least the given row number or null after the last row
+     */
+    KCell[] nextRow( int minRow ) throws Exception {
+      while ( !finished ) {
+        Object row = rows.take();
+        if ( row instanceof Exception ) {
+          finished = true;
+          throw (Exception) row;
+        }
+        if ( !( row instanceof DecodedRow ) ) {
+          finished = true;
+          break;
+        }
+        DecodedRow decodedRow = (DecodedRow) row;
+        lastRow = decodedRow.rowNumber;
+        currentRow = lastRow;
+        if ( currentRow >= minRow ) {
+          return decodedRow.cells;
+        }
+      }
+      return null;
+    }
+
+    void stop() {
+      stopped = true;
+      if ( future != null ) {
+        future.cancel( true );
+      }
+      rows.clear();
+    }
+  }
+
+  private static class DecodedRow {
+    private final int rowNumber;
+    private final KCell[] cells;
+
+    DecodedRow( int rowNumber, KCell[] cells ) {
+      this.rowNumber = rowNumber;
+      this.cells = cells;
+    }
+  }
 }
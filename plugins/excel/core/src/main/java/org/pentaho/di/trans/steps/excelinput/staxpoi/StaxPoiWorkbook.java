@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -30,6 +32,7 @@ import javax.xml.stream.XMLStreamReader;
 
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
@@ -45,6 +48,9 @@ public class StaxPoiWorkbook implements KWorkbook {
 
   private static final String RELATION_NS_URI = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
 
+  // the number of rows a sheet decodes ahead of the step
+  private static final int READ_AHEAD_ROWS = 1000;
+
   private LogChannelInterface log;
 
   private XSSFReader reader;
@@ -59,6 +65,17 @@ public class StaxPoiWorkbook implements KWorkbook {
 
   private OPCPackage opcpkg;
 
+  // compact shared strings, null to use the shared strings table of POI
+  private SharedStringsIndex sharedStrings;
+
+  // decodes the sheets ahead of the step
+  private ExecutorService readAheadExecutor;
+
+  // the options of the step reading the workbook, see setStreamingOptions()
+  private boolean parallelSheets;
+  private long sharedStringsMemory = -1L;
+  private boolean sharedStringsRead;
+
   protected StaxPoiWorkbook() {
     openSheetsMap = new HashMap<String, StaxPoiSheet>();
     this.log = KettleLogStore.getLogChannelInterfaceFactory().create( this );
@@ -126,6 +143,89 @@ public class StaxPoiWorkbook implements KWorkbook {
     }
   }
 
+  /**
+   * Sets the options of the step reading the workbook, before the first sheet is opened.
+   *
+   * @param parallelSheets      true if the sheets are to be decoded on worker threads, see
+   *                            {@link Const#KETTLE_EXCEL_STREAMING_PARALLEL_SHEETS}
+   * @param sharedStringsMemory the number of bytes of shared strings kept in memory, -1 to use the shared strings table
+   *                            of POI, see {@link Const#KETTLE_EXCEL_STREAMING_SHARED_STRINGS_MEMORY}
+   */
+  public void setStreamingOptions( boolean parallelSheets, long sharedStringsMemory ) {
+    this.parallelSheets = parallelSheets;
+    this.sharedStringsMemory = sharedStringsMemory;
+  }
+
+  /**
+   * @return true if the sheets are to be decoded on worker threads
+   */
+  public boolean isParallelSheets() {
+    return parallelSheets;
+  }
+
+  /**
+   * Indexes the shared strings once, when they are going to be read from several threads or moved out of memory.
+   */
+  private void readSharedStrings() throws IOException, XMLStreamException {
+    if ( sharedStringsRead ) {
+      return;
+    }
+    sharedStringsRead = true;
+    if ( parallelSheets || sharedStringsMemory >= 0 ) {
+      sharedStrings = SharedStringsIndex.read( getSharedStringsData(), sharedStringsMemory );
+    }
+  }
+
+  /**
+   * @return the shared strings part or null if the workbook has no shared strings
+   */
+  private InputStream getSharedStringsData() {
+    try {
+      return reader.getSharedStringsData();
+    } catch ( Exception e ) {
+      // no shared strings part
+      return null;
+    }
+  }
+
+  /**
+   * Starts decoding the given sheets on worker threads, each one a limited number of rows ahead of the step. There are
+   * no more workers than processors: the sheets are queued in the order the step reads them, and a worker takes the
+   * next sheet once the step is done with its current one, so the sheet the step waits for is always being decoded.
+   *
+   * @param sheetNames the names of the sheets that are going to be read, in the order they are read
+   */
+  public void readAhead( String[] sheetNames ) {
+    if ( readAheadExecutor != null || sheetNames.length == 0 ) {
+      return;
+    }
+    int threads = Math.min( sheetNames.length, Runtime.getRuntime().availableProcessors() );
+    readAheadExecutor = Executors.newFixedThreadPool( threads, runnable -> {
+      Thread thread = new Thread( runnable, "Excel sheet reader" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    for ( String sheetName : sheetNames ) {
+      StaxPoiSheet sheet = (StaxPoiSheet) getSheet( sheetName );
+      if ( sheet != null ) {
+        sheet.startReadAhead( readAheadExecutor, READ_AHEAD_ROWS );
+      }
+    }
+  }
+
+  /**
+   * Stops decoding a sheet ahead of the step, when the step doesn't read the rest of the sheet.
+   *
+   * @param sheetName the name of the sheet
+   */
+  public void stopReadAhead( String sheetName ) {
+    String sheetID = sheetNameIDMap.get( sheetName );
+    StaxPoiSheet sheet = sheetID == null ? null : openSheetsMap.get( sheetID );
+    if ( sheet != null ) {
+      sheet.stopReadAhead();
+    }
+  }
+
   @Override
   /**
    * return the same sheet if it already is created otherwise instantiate a new one
@@ -138,7 +238,8 @@ public class StaxPoiWorkbook implements KWorkbook {
     StaxPoiSheet sheet = openSheetsMap.get( sheetID );
     if ( sheet == null ) {
       try {
-        sheet = new StaxPoiSheet( reader, sheetName, sheetID );
+        readSharedStrings();
+        sheet = new StaxPoiSheet( reader, sheetName, sheetID, sharedStrings );
         openSheetsMap.put( sheetID, sheet );
       } catch ( Exception e ) {
         log.logError( sheetName, e );
@@ -165,6 +266,14 @@ public class StaxPoiWorkbook implements KWorkbook {
         log.logError( "Could not close xmlstream", e );
       }
     }
+    if ( readAheadExecutor != null ) {
+      readAheadExecutor.shutdownNow();
+      readAheadExecutor = null;
+    }
+    if ( sharedStrings != null ) {
+      sharedStrings.close();
+      sharedStrings = null;
+    }
     if ( opcpkg != null ) {
       //We should not save change in xlsx because it is input step.
       opcpkg.revert();
@@ -14,21 +14,31 @@
 package org.pentaho.di.trans.steps.excelinput;
 
 import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.ClassRule;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ExcelInputContentParsingTest extends BaseExcelParsingTest {
   public static final String XLSX_FILE_WITH_SHARED_STRINGS = "file_with_shared_strings.xlsx";
   public static final String XLSX_FILE_WITH_INLINED_STRINGS = "file_with_inlined_strings.xlsx";
   @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private static final String[] CNST_3_SHEET_NAME_ARRAY = { "Sheet1", "Sheet2", "Sheet3" };
   private static final String[] CNST_1_SHEET_NAME_ARRAY = { "Sheet1" };
   private static final int[] CNST_3_SHEET_START_ROW_ARRAY = { 23, 3, 7 };
@@ -82,6 +92,78 @@ public class ExcelInputContentParsingTest extends BaseExcelParsingTest {
     check( new Object[][] { { "test", null }, { "test", "test" } } );
   }
 
+  @Test
+  public void testXLSXStreamParallelSheets() throws Exception {
+    meta.setSpreadSheetType( SpreadSheetType.SAX_POI );
+    meta.setFileName( new String[] { getFile( "sample.xlsx" ).getURL().getFile() } );
+    meta.setFileMask( new String[] { "" } );
+    meta.setExcludeFileMask( new String[] { "" }  );
+    meta.setFileRequired( new String[] { "Y" } );
+    meta.setIncludeSubFolders( new String[] { "N" } );
+
+    // The options are variables of the transformation, not of the JVM
+    //
+    step = new ExcelInput( stepMeta, null, 1, transMeta, trans );
+    step.setVariable( Const.KETTLE_EXCEL_STREAMING_PARALLEL_SHEETS, "Y" );
+    step.setVariable( Const.KETTLE_EXCEL_STREAMING_SHARED_STRINGS_MEMORY, "0" );
+    step.init( meta, data );
+    step.addRowListener( rowListener );
+    assertTrue( data.parallelSheets );
+    assertEquals( 0L, data.sharedStringsMemory );
+
+    setFields( new ExcelInputField( "f1", -1, -1 ), new ExcelInputField( "f2", -1, -1 ) );
+
+    process();
+
+    check( new Object[][] { { "test", null }, { "test", "test" } } );
+  }
+
+  @Test( timeout = 60000 )
+  public void testXLSXStreamParallelSheetsStopOnEmpty() throws Exception {
+    // More sheets than processors, the rest of every sheet is more than the rows decoded ahead
+    //
+    int sheets = Runtime.getRuntime().availableProcessors() + 2;
+    File file = temporaryFolder.newFile( "stop-on-empty.xlsx" );
+    try ( XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = new FileOutputStream( file ) ) {
+      for ( int i = 0; i < sheets; i++ ) {
+        Sheet sheet = workbook.createSheet( "Sheet" + i );
+        sheet.createRow( 0 ).createCell( 0 ).setCellValue( "a" + i );
+        sheet.createRow( 1 ).createCell( 0 ).setCellValue( "b" + i );
+        sheet.createRow( 2 ).createCell( 0 ).setCellValue( "" );
+        for ( int r = 3; r < 2000; r++ ) {
+          sheet.createRow( r ).createCell( 0 ).setCellValue( "x" );
+        }
+      }
+      workbook.write( out );
+    }
+
+    meta.setSpreadSheetType( SpreadSheetType.SAX_POI );
+    meta.setFileName( new String[] { file.getAbsolutePath() } );
+    meta.setFileMask( new String[] { "" } );
+    meta.setExcludeFileMask( new String[] { "" }  );
+    meta.setFileRequired( new String[] { "Y" } );
+    meta.setIncludeSubFolders( new String[] { "N" } );
+    meta.setStartsWithHeader( false );
+    meta.setIgnoreEmptyRows( true );
+    meta.setStopOnEmpty( true );
+
+    step = new ExcelInput( stepMeta, null, 1, transMeta, trans );
+    step.setVariable( Const.KETTLE_EXCEL_STREAMING_PARALLEL_SHEETS, "Y" );
+    step.init( meta, data );
+    step.addRowListener( rowListener );
+
+    setFields( new ExcelInputField( "f1", -1, -1 ) );
+
+    process();
+
+    Object[][] expected = new Object[sheets * 2][];
+    for ( int i = 0; i < sheets; i++ ) {
+      expected[i * 2] = new Object[] { "a" + i };
+      expected[i * 2 + 1] = new Object[] { "b" + i };
+    }
+    check( expected );
+  }
+
   @Test
   public void testODS24() throws Exception {
     meta.setSpreadSheetType( SpreadSheetType.ODS );
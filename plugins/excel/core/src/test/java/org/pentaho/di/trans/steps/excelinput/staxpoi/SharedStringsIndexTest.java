@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.excelinput.staxpoi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.junit.Test;
+
+public class SharedStringsIndexTest {
+
+  private static final String SHARED_STRINGS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+    + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"7\" uniqueCount=\"7\">"
+    + "<si><t>plain</t></si>"
+    + "<si><r><rPr><b/></rPr><t>rich </t></r><r><t xml:space=\"preserve\">text </t></r></si>"
+    + "<si><t>line_x000D_break</t></si>"
+    + "<si><t>escaped _x005F_x0041_</t></si>"
+    + "<si><t>東京</t><rPh sb=\"0\" eb=\"2\"><t>トウキョウ</t></rPh></si>"
+    + "<si><t/></si>"
+    + "<si><t>&lt;tag&gt; &amp; é</t></si>"
+    + "</sst>";
+
+  private static SharedStringsTable poiTable( String xml ) throws Exception {
+    SharedStringsTable table = new SharedStringsTable();
+    table.readFrom( new ByteArrayInputStream( xml.getBytes( StandardCharsets.UTF_8 ) ) );
+    return table;
+  }
+
+  private static void assertSameStrings( SharedStringsTable expected, SharedStringsIndex actual ) {
+    assertEquals( expected.getCount(), actual.getCount() );
+    for ( int i = 0; i < expected.getCount(); i++ ) {
+      assertEquals( "string " + i, new XSSFRichTextString( expected.getItemAt( i ).getString() ).toString(),
+        actual.getString( i ) );
+    }
+  }
+
+  @Test
+  public void testSameStringsAsPoi() throws Exception {
+    SharedStringsTable expected = poiTable( SHARED_STRINGS );
+    try ( SharedStringsIndex index = SharedStringsIndex.read( IOUtils.toInputStream( SHARED_STRINGS, "UTF-8" ), -1 ) ) {
+      assertFalse( index.isOnDisk() );
+      assertSameStrings( expected, index );
+    }
+  }
+
+  @Test
+  public void testStringsOnDisk() throws Exception {
+    SharedStringsTable table = new SharedStringsTable();
+    for ( int i = 0; i < 5000; i++ ) {
+      table.addSharedStringItem( new XSSFRichTextString( "value " + i + " éè" ) );
+    }
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    table.writeTo( data );
+    String xml = new String( data.toByteArray(), StandardCharsets.UTF_8 );
+
+    try ( SharedStringsIndex index = SharedStringsIndex.read( new ByteArrayInputStream( data.toByteArray() ), 1024 ) ) {
+      assertTrue( index.isOnDisk() );
+      assertSameStrings( poiTable( xml ), index );
+    }
+  }
+
+  @Test
+  public void testNoSharedStrings() throws Exception {
+    try ( SharedStringsIndex index = SharedStringsIndex.read( null, 0 ) ) {
+      assertEquals( 0, index.getCount() );
+    }
+  }
+
+  @Test( expected = IndexOutOfBoundsException.class )
+  public void testUnknownString() throws Exception {
+    try ( SharedStringsIndex index = SharedStringsIndex.read( IOUtils.toInputStream( SHARED_STRINGS, "UTF-8" ), -1 ) ) {
+      index.getString( 7 );
+    }
+  }
+}
@@ -23,10 +23,14 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
@@ -274,6 +278,53 @@ public class StaxPoiSheetTest {
     }
   }
 
+  @Test
+  public void testReadAhead() throws Exception {
+    SharedStringsTable sst = mockSharedStringsTable(
+      "Col1Label", "Col2Date", "Col3Number", "Col4Boolean", "Col5NumFormula", "One", "Two", "Three" );
+    ByteArrayOutputStream sstData = new ByteArrayOutputStream();
+    sst.writeTo( sstData );
+    XSSFReader reader = mockXSSFReader( "sheet1", SHEET_1, sst,
+      mockStylesTable( Collections.singletonMap( 1, 14 ), Collections.<Integer, String>emptyMap() ) );
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try ( SharedStringsIndex sharedStrings =
+            SharedStringsIndex.read( new ByteArrayInputStream( sstData.toByteArray() ), -1 ) ) {
+      StaxPoiSheet expected = getSampleSheet();
+      StaxPoiSheet sheet = new StaxPoiSheet( reader, "Sheet 1", "sheet1", sharedStrings );
+      sheet.startReadAhead( executor, 2 );
+      for ( int i = 0; i < 5; i++ ) {
+        assertSameCells( expected.getRow( i ), sheet.getRow( i ) );
+      }
+      try {
+        sheet.getRow( 5 );
+        fail( "No out of bounds exception thrown when expected" );
+      } catch ( ArrayIndexOutOfBoundsException e ) {
+        // OK!
+      }
+      assertEquals( expected.getRows(), sheet.getRows() );
+
+      // Random access stops reading ahead
+      assertSameCells( expected.getRow( 2 ), sheet.getRow( 2 ) );
+      assertSameCells( expected.getRow( 4 ), sheet.getRow( 4 ) );
+      sheet.close();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void assertSameCells( KCell[] expected, KCell[] actual ) {
+    assertEquals( expected.length, actual.length );
+    for ( int i = 0; i < expected.length; i++ ) {
+      if ( expected[ i ] == null ) {
+        assertNull( actual[ i ] );
+      } else {
+        assertEquals( expected[ i ].getType(), actual[ i ].getType() );
+        assertEquals( expected[ i ].getValue(), actual[ i ].getValue() );
+        assertEquals( expected[ i ].getRow(), actual[ i ].getRow() );
+      }
+    }
+  }
+
   private StaxPoiSheet getSampleSheet() throws Exception {
     String sheetId = "sheet1";
     XSSFReader reader = mockXSSFReader( sheetId, SHEET_1,
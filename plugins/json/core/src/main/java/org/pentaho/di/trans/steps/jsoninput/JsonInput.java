@@ -31,6 +31,7 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.bowl.DefaultBowl;
@@ -58,6 +59,7 @@ import org.pentaho.di.trans.steps.jsoninput.json.node.ValueNode;
 import org.pentaho.di.trans.steps.jsoninput.reader.FastJsonReader;
 import org.pentaho.di.trans.steps.jsoninput.reader.InputsReader;
 import org.pentaho.di.trans.steps.jsoninput.reader.RowOutputConverter;
+import org.pentaho.di.trans.steps.jsoninput.reader.StreamingJsonReader;
 
 /**
  * Read Json files, parse them and convert them to rows and writes these to one or more output streams.
@@ -94,9 +96,19 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
     }
     try {
       // Init a new JSON reader
-      data.reader =
-        new FastJsonReader( this, meta.getInputFields(), meta.isDefaultPathLeafToNull(), meta.isIgnoreMissingPath(),
-          meta.isIncludeNulls(), log );
+      if ( "Y".equalsIgnoreCase( getVariable( Const.KETTLE_JSON_INPUT_STREAMING, "N" ) ) ) {
+        data.reader =
+          StreamingJsonReader.create( this, meta.getInputFields(), meta.isDefaultPathLeafToNull(),
+            meta.isIgnoreMissingPath(), meta.isIncludeNulls(), log );
+        if ( data.reader == null ) {
+          logBasic( BaseMessages.getString( PKG, "JsonInput.Log.StreamingNotSupported" ) );
+        }
+      }
+      if ( data.reader == null ) {
+        data.reader =
+          new FastJsonReader( this, meta.getInputFields(), meta.isDefaultPathLeafToNull(), meta.isIgnoreMissingPath(),
+            meta.isIncludeNulls(), log );
+      }
     } catch ( KettleException e ) {
       logError( e.getMessage() );
       return false;
@@ -382,7 +394,9 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
   private void parseNextInputToRowSet( InputStream input ) throws KettleException {
     try {
       data.readerRowSet = data.reader.parse( input );
-      input.close();
+      if ( !data.reader.isStreaming() ) {
+        input.close();
+      }
     } catch ( KettleException ke ) {
       logInputError( ke );
       throw new JsonInputException( ke );
@@ -447,19 +461,21 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
       return null;
     }
     Object[] rawReaderRow;
-    while ( ( rawReaderRow = data.readerRowSet.getRow() ) == null ) {
+    while ( ( rawReaderRow = getReaderRow() ) == null ) {
       if ( data.inputs.hasNext() && data.readerRowSet.isDone() ) {
-        try ( InputStream nextIn = data.inputs.next() ) {
-
+        InputStream nextIn = data.inputs.next();
+        try {
           if ( nextIn != null ) {
             parseNextInputToRowSet( nextIn );
           } else {
             parseNextInputToRowSet( new ByteArrayInputStream( EMPTY_JSON ) );
           }
-
-        } catch ( IOException e ) {
-          logError( BaseMessages.getString( PKG, "JsonInput.Log.UnexpectedError", e.toString() ), e );
-          incrementErrors();
+        } finally {
+          // A streaming reader closes the input itself once it's done with it
+          //
+          if ( nextIn != null && !data.reader.isStreaming() ) {
+            closeInput( nextIn );
+          }
         }
       } else {
         if ( isDetailed() ) {
@@ -473,6 +489,30 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
     return outputRow;
   }
 
+  private Object[] getReaderRow() throws KettleException {
+    try {
+      return data.readerRowSet.getRow();
+    } catch ( StreamingJsonReader.StreamingException e ) {
+      // Parsing errors of a streaming reader only show up while reading the rows
+      //
+      if ( e.getCause() instanceof KettleException ) {
+        logInputError( (KettleException) e.getCause() );
+      } else {
+        logInputError( (Exception) e.getCause() );
+      }
+      throw new JsonInputException( e.getCause() );
+    }
+  }
+
+  private void closeInput( InputStream input ) {
+    try {
+      input.close();
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "JsonInput.Log.UnexpectedError", e.toString() ), e );
+      incrementErrors();
+    }
+  }
+
   private void sendErrorRow( String errorMsg ) {
     try {
       // same error as before
@@ -605,6 +645,11 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
     }
     data.inputs = null;
     data.reader = null;
+    if ( data.readerRowSet != null ) {
+      // Closes the input of a streaming reader that was stopped halfway
+      //
+      data.readerRowSet.clear();
+    }
     data.readerRowSet = null;
     data.repeatedFields = null;
     super.dispose( smi, sdi );
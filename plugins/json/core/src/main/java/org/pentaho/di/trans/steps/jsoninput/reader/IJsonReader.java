@@ -24,4 +24,12 @@ public interface IJsonReader {
    * Parse compiled Json Paths into a rowset
    */
   RowSet parse( InputStream in ) throws KettleException;
+
+  /**
+   * @return true if the row set returned by {@link #parse(InputStream)} keeps on reading from the input stream. The
+   *         stream is then closed by the row set once all of its rows have been read or it's cleared.
+   */
+  default boolean isStreaming() {
+    return false;
+  }
 }
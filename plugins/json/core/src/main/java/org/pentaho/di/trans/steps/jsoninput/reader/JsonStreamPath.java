@@ -0,0 +1,401 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.jsoninput.reader;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The subset of JsonPath that can be evaluated while streaming through a document: a path to a single array or
+ * object, one wildcard or filter that selects the records in there and a path to the value inside of each record.
+ * <br>
+ * <br>
+ * For example <code>$.data.items[?(@.type == 'book')].price</code> or <code>$['data'][*].name</code>. Deep scans,
+ * unions, slices, functions, scripts and multiple wildcards aren't supported.
+ *
+ * @see StreamingJsonReader
+ */
+public class JsonStreamPath {
+
+  /**
+   * Marks a value that isn't there, as opposed to a JSON null.
+   */
+  static final Object MISSING = new Object();
+
+  private final List<Object> recordPath;
+  private final Filter filter;
+  private final List<Object> valuePath;
+
+  private JsonStreamPath( List<Object> recordPath, Filter filter, List<Object> valuePath ) {
+    this.recordPath = recordPath;
+    this.filter = filter;
+    this.valuePath = valuePath;
+  }
+
+  /**
+   * Compiles the given path.
+   *
+   * @param path the JsonPath expression
+   * @return the compiled path or null if the path is outside of the supported subset
+   */
+  public static JsonStreamPath compile( String path ) {
+    if ( path == null ) {
+      return null;
+    }
+    PathParser parser = new PathParser( path.trim() );
+    if ( !parser.consume( '$' ) ) {
+      return null;
+    }
+
+    List<Object> recordPath = new ArrayList<>();
+    List<Object> valuePath = new ArrayList<>();
+    Filter filter = null;
+    boolean selected = false;
+
+    while ( !parser.atEnd() ) {
+      Object segment = parser.segment( true );
+      if ( segment == null ) {
+        return null;
+      }
+      boolean selector = segment == Wildcard.INSTANCE || segment instanceof Filter;
+      if ( selector ) {
+        if ( selected ) {
+          return null;
+        }
+        selected = true;
+        filter = segment instanceof Filter ? (Filter) segment : null;
+      } else if ( selected ) {
+        valuePath.add( segment );
+      } else {
+        recordPath.add( segment );
+      }
+    }
+    if ( !selected ) {
+      return null;
+    }
+    return new JsonStreamPath( Collections.unmodifiableList( recordPath ), filter,
+      Collections.unmodifiableList( valuePath ) );
+  }
+
+  /**
+   * @return the names (String) and indexes (Integer) leading to the array or object that holds the records
+   */
+  List<Object> getRecordPath() {
+    return recordPath;
+  }
+
+  /**
+   * @return true if the records are selected with the same wildcard or filter
+   */
+  boolean hasSameRecords( JsonStreamPath other ) {
+    return recordPath.equals( other.recordPath )
+      && ( filter == null ? other.filter == null : filter.equals( other.filter ) );
+  }
+
+  /**
+   * @return true if the records are selected by a filter rather than a wildcard. Applied to an object, a filter
+   *         selects the object itself where a wildcard selects its values.
+   */
+  boolean isFiltered() {
+    return filter != null;
+  }
+
+  /**
+   * @param record the record (materialized as json-smart objects)
+   * @return true if the record passes the filter
+   */
+  boolean accept( Object record ) {
+    return filter == null || filter.accept( record );
+  }
+
+  /**
+   * @param record the record (materialized as json-smart objects)
+   * @return the value or {@link #MISSING}
+   */
+  Object getValue( Object record ) {
+    return navigate( record, valuePath );
+  }
+
+  static Object navigate( Object value, List<Object> path ) {
+    Object current = value;
+    for ( Object segment : path ) {
+      if ( segment instanceof String ) {
+        if ( !( current instanceof Map ) || !( (Map<?, ?>) current ).containsKey( segment ) ) {
+          return MISSING;
+        }
+        current = ( (Map<?, ?>) current ).get( segment );
+      } else {
+        int index = (Integer) segment;
+        if ( !( current instanceof List ) || index >= ( (List<?>) current ).size() ) {
+          return MISSING;
+        }
+        current = ( (List<?>) current ).get( index );
+      }
+    }
+    return current;
+  }
+
+  private enum Wildcard {
+    INSTANCE
+  }
+
+  /**
+   * A filter like <code>[?(@.a.b &gt;= 10)]</code> or <code>[?(@.name)]</code> (exists).
+   */
+  static final class Filter {
+    private final List<Object> path;
+    private final String operator;
+    private final Object literal;
+
+    Filter( List<Object> path, String operator, Object literal ) {
+      this.path = path;
+      this.operator = operator;
+      this.literal = literal;
+    }
+
+    boolean accept( Object record ) {
+      Object value = navigate( record, path );
+      if ( operator == null ) {
+        return value != MISSING;
+      }
+      if ( "==".equals( operator ) ) {
+        return isEqual( value );
+      }
+      if ( "!=".equals( operator ) ) {
+        return !isEqual( value );
+      }
+      int comparison;
+      if ( value instanceof Number && literal instanceof BigDecimal ) {
+        comparison = new BigDecimal( value.toString() ).compareTo( (BigDecimal) literal );
+      } else if ( value instanceof String && literal instanceof String ) {
+        comparison = ( (String) value ).compareTo( (String) literal );
+      } else {
+        return false;
+      }
+      switch ( operator ) {
+        case "<":
+          return comparison < 0;
+        case "<=":
+          return comparison <= 0;
+        case ">":
+          return comparison > 0;
+        default:
+          return comparison >= 0;
+      }
+    }
+
+    private boolean isEqual( Object value ) {
+      if ( value == MISSING ) {
+        return false;
+      }
+      if ( value == null || literal == null ) {
+        return value == literal;
+      }
+      if ( value instanceof Number && literal instanceof BigDecimal ) {
+        return new BigDecimal( value.toString() ).compareTo( (BigDecimal) literal ) == 0;
+      }
+      return value.equals( literal );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( !( o instanceof Filter ) ) {
+        return false;
+      }
+      Filter other = (Filter) o;
+      return path.equals( other.path ) && String.valueOf( operator ).equals( String.valueOf( other.operator ) )
+        && String.valueOf( literal ).equals( String.valueOf( other.literal ) );
+    }
+
+    @Override
+    public int hashCode() {
+      return path.hashCode();
+    }
+  }
+
+  /**
+   * Recursive descent parser for the supported subset.
+   */
+  private static final class PathParser {
+    private final String path;
+    private int pos;
+
+    PathParser( String path ) {
+      this.path = path;
+    }
+
+    boolean atEnd() {
+      return pos >= path.length();
+    }
+
+    boolean consume( char c ) {
+      if ( pos < path.length() && path.charAt( pos ) == c ) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    void skipSpaces() {
+      while ( pos < path.length() && path.charAt( pos ) == ' ' ) {
+        pos++;
+      }
+    }
+
+    /**
+     * @return a name (String), index (Integer), {@link Wildcard} or {@link Filter}, null if not supported
+     */
+    Object segment( boolean selectorsAllowed ) {
+      if ( consume( '.' ) ) {
+        if ( consume( '.' ) ) {
+          return null; // deep scan
+        }
+        if ( consume( '*' ) ) {
+          return selectorsAllowed ? Wildcard.INSTANCE : null;
+        }
+        String name = name();
+        return name.isEmpty() ? null : name;
+      }
+      if ( consume( '[' ) ) {
+        skipSpaces();
+        Object segment;
+        if ( consume( '*' ) ) {
+          segment = selectorsAllowed ? Wildcard.INSTANCE : null;
+        } else if ( consume( '?' ) ) {
+          segment = selectorsAllowed ? filter() : null;
+        } else if ( pos < path.length() && ( path.charAt( pos ) == '\'' || path.charAt( pos ) == '"' ) ) {
+          segment = quoted();
+        } else {
+          segment = index();
+        }
+        skipSpaces();
+        return segment != null && consume( ']' ) ? segment : null;
+      }
+      return null;
+    }
+
+    private String name() {
+      int start = pos;
+      while ( pos < path.length() && path.charAt( pos ) != '.' && path.charAt( pos ) != '['
+        && path.charAt( pos ) != ' ' && path.charAt( pos ) != ')' && "=!<>".indexOf( path.charAt( pos ) ) < 0 ) {
+        pos++;
+      }
+      return path.substring( start, pos );
+    }
+
+    private String quoted() {
+      char quote = path.charAt( pos++ );
+      StringBuilder text = new StringBuilder();
+      while ( pos < path.length() ) {
+        char c = path.charAt( pos++ );
+        if ( c == '\\' && pos < path.length() ) {
+          text.append( path.charAt( pos++ ) );
+        } else if ( c == quote ) {
+          return text.toString();
+        } else {
+          text.append( c );
+        }
+      }
+      return null;
+    }
+
+    private Integer index() {
+      int start = pos;
+      while ( pos < path.length() && Character.isDigit( path.charAt( pos ) ) ) {
+        pos++;
+      }
+      if ( start == pos || pos - start > 9 ) {
+        return null;
+      }
+      return Integer.valueOf( path.substring( start, pos ) );
+    }
+
+    private Filter filter() {
+      if ( !consume( '(' ) ) {
+        return null;
+      }
+      skipSpaces();
+      if ( !consume( '@' ) ) {
+        return null;
+      }
+      List<Object> filterPath = new ArrayList<>();
+      while ( pos < path.length() && ( path.charAt( pos ) == '.' || path.charAt( pos ) == '[' ) ) {
+        Object segment = segment( false );
+        if ( segment == null ) {
+          return null;
+        }
+        filterPath.add( segment );
+      }
+      if ( filterPath.isEmpty() ) {
+        return null;
+      }
+      skipSpaces();
+      if ( consume( ')' ) ) {
+        return new Filter( filterPath, null, null );
+      }
+      String operator = operator();
+      if ( operator == null ) {
+        return null;
+      }
+      skipSpaces();
+      Object literal = literal();
+      skipSpaces();
+      if ( literal == null || !consume( ')' ) ) {
+        return null;
+      }
+      return new Filter( filterPath, operator, literal == JsonStreamPath.MISSING ? null : literal );
+    }
+
+    private String operator() {
+      for ( String operator : new String[] { "==", "!=", "<=", ">=", "<", ">" } ) {
+        if ( path.startsWith( operator, pos ) ) {
+          pos += operator.length();
+          return operator;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * @return a String, BigDecimal, Boolean, {@link JsonStreamPath#MISSING} for null or null if not supported
+     */
+    private Object literal() {
+      if ( pos >= path.length() ) {
+        return null;
+      }
+      char c = path.charAt( pos );
+      if ( c == '\'' || c == '"' ) {
+        return quoted();
+      }
+      for ( String keyword : new String[] { "true", "false", "null" } ) {
+        if ( path.startsWith( keyword, pos ) ) {
+          pos += keyword.length();
+          return "null".equals( keyword ) ? JsonStreamPath.MISSING : Boolean.valueOf( keyword );
+        }
+      }
+      int start = pos;
+      while ( pos < path.length() && "-+.eE0123456789".indexOf( path.charAt( pos ) ) >= 0 ) {
+        pos++;
+      }
+      try {
+        return new BigDecimal( path.substring( start, pos ) );
+      } catch ( NumberFormatException e ) {
+        return null;
+      }
+    }
+  }
+}
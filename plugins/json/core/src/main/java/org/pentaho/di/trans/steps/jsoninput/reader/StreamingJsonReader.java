@@ -0,0 +1,345 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.jsoninput.reader;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.SingleRowRowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.steps.jsoninput.JsonInputField;
+import org.pentaho.di.trans.steps.jsoninput.JsonInputMeta;
+import org.pentaho.di.trans.steps.jsoninput.exception.JsonInputException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+
+/**
+ * Reads JSON with a pull parser and emits a row per record as soon as the record has been read, instead of
+ * materializing the whole document and evaluating the JsonPath expressions on it like {@link FastJsonReader} does.
+ * Memory usage is bounded by the size of a single record.<br>
+ * <br>
+ * Only paths that select the same records are supported, see {@link JsonStreamPath}. The values of a record are kept
+ * together: a value that is missing from a record is returned as null, like {@link FastJsonReader} does when missing
+ * leaves default to null, and records where all of the values are null are skipped unless nulls are included. When
+ * paths aren't to be ignored, a missing path is only reported once the whole input has been read.
+ */
+public class StreamingJsonReader implements IJsonReader {
+  private static Class<?> PKG = JsonInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory()
+    .enable( JsonParser.Feature.ALLOW_COMMENTS )
+    .enable( JsonParser.Feature.ALLOW_SINGLE_QUOTES )
+    .enable( JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES );
+
+  /**
+   * Like json-smart, decimals with more characters than this are read as BigDecimal.
+   */
+  private static final int MAX_DOUBLE_LENGTH = 18;
+
+  private final JsonInputField[] inputFields;
+  private final JsonStreamPath[] paths;
+  private final boolean ignoreMissingPath;
+  private final boolean includeNulls;
+  private final LogChannelInterface log;
+
+  private StreamingJsonReader( JsonInputField[] inputFields, JsonStreamPath[] paths, boolean ignoreMissingPath,
+                               boolean includeNulls, LogChannelInterface log ) {
+    this.inputFields = inputFields;
+    this.paths = paths;
+    this.ignoreMissingPath = ignoreMissingPath;
+    this.includeNulls = includeNulls;
+    this.log = log;
+  }
+
+  /**
+   * Creates a streaming reader for the given fields.
+   *
+   * @param defaultPathLeafToNull false if the values missing from some records are left out rather than null, which
+   *                              shifts the values of the following records and can't be done while streaming
+   * @return the reader or null if the paths of the fields can't be evaluated while streaming
+   */
+  public static StreamingJsonReader create( VariableSpace space, JsonInputField[] inputFields,
+                                            boolean defaultPathLeafToNull, boolean ignoreMissingPath,
+                                            boolean includeNulls, LogChannelInterface log ) {
+    if ( inputFields == null || inputFields.length == 0 || !defaultPathLeafToNull ) {
+      return null;
+    }
+    boolean legacyMode = System.getProperty( Const.KETTLE_COMPATIBILITY_JSON_INPUT_LEGACY_MODE, "N" ).equals( "Y" );
+    JsonStreamPath[] paths = new JsonStreamPath[ inputFields.length ];
+    for ( int i = 0; i < inputFields.length; i++ ) {
+      String path = legacyMode
+        ? space.environmentSubstitute( inputFields[ i ].getPath(), false ).trim()
+        : space.environmentSubstitute( inputFields[ i ].getPath(), true );
+      paths[ i ] = JsonStreamPath.compile( path );
+      if ( paths[ i ] == null || !paths[ i ].hasSameRecords( paths[ 0 ] ) ) {
+        return null;
+      }
+    }
+    return new StreamingJsonReader( inputFields, paths, ignoreMissingPath, includeNulls, log );
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return true;
+  }
+
+  @Override
+  public RowSet parse( InputStream in ) throws KettleException {
+    try {
+      return new StreamingRowSet( JSON_FACTORY.createParser( in ) );
+    } catch ( IOException e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * Thrown from {@link RowSet#getRow()} when the input can't be read or parsed.
+   */
+  public static class StreamingException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public StreamingException( Throwable cause ) {
+      super( cause.getMessage(), cause );
+    }
+  }
+
+  private class StreamingRowSet extends SingleRowRowSet {
+    private final JsonParser parser;
+    private boolean started;
+    private boolean finished;
+    private boolean objectRecords;
+    private boolean singleRecord;
+
+    private long records;
+    private long rows;
+    private final boolean[] found = new boolean[ paths.length ];
+
+    StreamingRowSet( JsonParser parser ) {
+      this.parser = parser;
+    }
+
+    @Override
+    public Object[] getRow() {
+      if ( finished ) {
+        return null;
+      }
+      try {
+        Object[] row = nextRow();
+        return row != null ? row : finish();
+      } catch ( IOException | KettleException e ) {
+        clear();
+        throw new StreamingException( e );
+      }
+    }
+
+    private Object[] nextRow() throws IOException {
+      if ( !started ) {
+        started = true;
+        if ( !moveToRecords() ) {
+          return null;
+        }
+        if ( paths[ 0 ].isFiltered() && parser.currentToken() == JsonToken.START_OBJECT ) {
+          // A filter on an object applies to the object itself
+          //
+          singleRecord = true;
+          records++;
+          Object record = readValue( parser );
+          return paths[ 0 ].accept( record ) ? toRow( record ) : null;
+        }
+        objectRecords = parser.currentToken() == JsonToken.START_OBJECT;
+      }
+      if ( singleRecord ) {
+        return null;
+      }
+      while ( true ) {
+        JsonToken token = parser.nextToken();
+        if ( token == null || token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT ) {
+          return null;
+        }
+        if ( objectRecords ) {
+          parser.nextToken();
+        }
+        Object record = readValue( parser );
+        records++;
+        if ( !paths[ 0 ].accept( record ) ) {
+          continue;
+        }
+        Object[] row = toRow( record );
+        if ( row != null ) {
+          return row;
+        }
+      }
+    }
+
+    /**
+     * Skips to the array or object that holds the records.
+     *
+     * @return false if there is no such array or object
+     */
+    private boolean moveToRecords() throws IOException {
+      if ( parser.nextToken() == null ) {
+        return false;
+      }
+      for ( Object segment : paths[ 0 ].getRecordPath() ) {
+        if ( !moveTo( segment ) ) {
+          return false;
+        }
+      }
+      JsonToken token = parser.currentToken();
+      return token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT;
+    }
+
+    private boolean moveTo( Object segment ) throws IOException {
+      if ( segment instanceof String ) {
+        if ( parser.currentToken() != JsonToken.START_OBJECT ) {
+          return false;
+        }
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          boolean match = segment.equals( parser.getCurrentName() );
+          parser.nextToken();
+          if ( match ) {
+            return true;
+          }
+          parser.skipChildren();
+        }
+        return false;
+      }
+      if ( parser.currentToken() != JsonToken.START_ARRAY ) {
+        return false;
+      }
+      int index = (Integer) segment;
+      for ( int i = 0; ; i++ ) {
+        JsonToken token = parser.nextToken();
+        if ( token == null || token == JsonToken.END_ARRAY ) {
+          return false;
+        }
+        if ( i == index ) {
+          return true;
+        }
+        parser.skipChildren();
+      }
+    }
+
+    /**
+     * @return the row or null if it only contains nulls and is to be skipped
+     */
+    private Object[] toRow( Object record ) {
+      Object[] row = new Object[ paths.length ];
+      boolean allNulls = true;
+      for ( int i = 0; i < paths.length; i++ ) {
+        Object value = paths[ i ].getValue( record );
+        if ( value != JsonStreamPath.MISSING ) {
+          row[ i ] = value;
+        }
+        if ( row[ i ] != null ) {
+          found[ i ] = true;
+          allNulls = false;
+        }
+      }
+      if ( allNulls && !includeNulls ) {
+        return null;
+      }
+      rows++;
+      return row;
+    }
+
+    /**
+     * @return the last row: a row of nulls if there were no records or a single record with nothing but nulls, just
+     *         like {@link FastJsonReader}
+     */
+    private Object[] finish() throws KettleException {
+      finished = true;
+      clear();
+      if ( log.isDetailed() ) {
+        log.logDetailed( BaseMessages.getString( PKG, "JsonInput.Log.NrRecords", records ) );
+      }
+      if ( !ignoreMissingPath ) {
+        for ( int i = 0; i < paths.length; i++ ) {
+          if ( !found[ i ] ) {
+            throw new JsonInputException(
+              BaseMessages.getString( PKG, "JsonReader.Error.CanNotFindPath", inputFields[ i ].getPath() ) );
+          }
+        }
+      }
+      return rows == 0 && records <= 1 ? new Object[ paths.length ] : null;
+    }
+
+    @Override
+    public int size() {
+      return 0;
+    }
+
+    @Override
+    public boolean isDone() {
+      return true;
+    }
+
+    @Override
+    public void clear() {
+      try {
+        parser.close();
+      } catch ( IOException e ) {
+        // Ignore, the input is closed as well
+      }
+    }
+  }
+
+  /**
+   * Reads the value at the current token the way json-smart would materialize it.
+   */
+  static Object readValue( JsonParser parser ) throws IOException {
+    JsonToken token = parser.currentToken();
+    if ( token == null ) {
+      return null;
+    }
+    switch ( token ) {
+      case START_OBJECT:
+        JSONObject object = new JSONObject();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          object.put( name, readValue( parser ) );
+        }
+        return object;
+      case START_ARRAY:
+        JSONArray array = new JSONArray();
+        while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+          array.add( readValue( parser ) );
+        }
+        return array;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        return parser.getNumberValue();
+      case VALUE_NUMBER_FLOAT:
+        String text = parser.getText();
+        return text.length() > MAX_DOUBLE_LENGTH ? new BigDecimal( text ) : (Object) Double.valueOf( text );
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      default:
+        return null;
+    }
+  }
+}
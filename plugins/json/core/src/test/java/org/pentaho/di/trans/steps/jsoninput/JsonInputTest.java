@@ -1230,6 +1230,28 @@ public class JsonInputTest {
     }
   }
 
+  @Test
+  public void testStreamingIsEnabledPerTransformation() {
+    assertTrue( isStreaming( "Y", true ) );
+    Assert.assertFalse( isStreaming( "N", true ) );
+    Assert.assertFalse( isStreaming( "Y", false ) );
+  }
+
+  private boolean isStreaming( String streaming, boolean defaultPathLeafToNull ) {
+    JsonInputField name = new JsonInputField( "name" );
+    name.setPath( "$.data[*].name" );
+    JsonInputMeta meta = createSimpleMeta( "json", name );
+    meta.setDefaultPathLeafToNull( defaultPathLeafToNull );
+    VariableSpace variables = new Variables();
+    variables.setVariable( Const.KETTLE_JSON_INPUT_STREAMING, streaming );
+
+    JsonInputData data = new JsonInputData();
+    JsonInput jsonInput = new JsonInput( helper.stepMeta, helper.stepDataInterface, 0, helper.transMeta, helper.trans );
+    jsonInput.initializeVariablesFrom( variables );
+    assertTrue( jsonInput.init( meta, data ) );
+    return data.reader.isStreaming();
+  }
+
   protected JsonInputMeta createSimpleMeta( String inputColumn, JsonInputField... jsonPathFields ) {
     JsonInputMeta jsonInputMeta = new JsonInputMeta();
     jsonInputMeta.setDefault();
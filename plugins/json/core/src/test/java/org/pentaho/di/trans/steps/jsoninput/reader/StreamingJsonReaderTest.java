@@ -0,0 +1,150 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.jsoninput.reader;
+
+import org.junit.Test;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.trans.steps.jsoninput.JsonInput;
+import org.pentaho.di.trans.steps.jsoninput.JsonInputField;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingJsonReaderTest {
+  private static final String BOOKS = "{ 'store': { 'book': ["
+    + "{ 'category': 'reference', 'author': 'Nigel Rees', 'title': 'Sayings of the Century', 'price': 8.95 },"
+    + "{ 'category': 'fiction', 'author': 'Evelyn Waugh', 'title': 'Sword of Honour', 'price': 12.99 },"
+    + "{ 'category': 'fiction', 'author': 'Herman Melville', 'title': 'Moby Dick', 'isbn': '0-553-21311-3',"
+    + "  'price': 8.99, 'tags': [ 'sea', 'whale' ] },"
+    + "{ 'category': 'fiction', 'author': 'J. R. R. Tolkien', 'title': 'The Lord of the Rings', 'price': 22 }"
+    + "], 'bicycle': { 'color': 'red', 'price': 19.95 } } }";
+
+  private final LogChannelInterface log = mock( LogChannelInterface.class );
+
+  private static JsonInputField[] fields( String... paths ) {
+    JsonInputField[] fields = new JsonInputField[ paths.length ];
+    for ( int i = 0; i < paths.length; i++ ) {
+      fields[ i ] = new JsonInputField( "field" + i );
+      fields[ i ].setPath( paths[ i ] );
+    }
+    return fields;
+  }
+
+  private static List<Object[]> read( IJsonReader reader, String json ) throws Exception {
+    RowSet rowSet = reader.parse( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( Object[] row = rowSet.getRow(); row != null; row = rowSet.getRow() ) {
+      rows.add( row );
+    }
+    return rows;
+  }
+
+  private StreamingJsonReader streaming( boolean ignoreMissingPath, boolean includeNulls, String... paths ) {
+    StreamingJsonReader reader =
+      StreamingJsonReader.create( new Variables(), fields( paths ), true, ignoreMissingPath, includeNulls, log );
+    assertNotNull( Arrays.toString( paths ), reader );
+    return reader;
+  }
+
+  private FastJsonReader fast( boolean ignoreMissingPath, boolean includeNulls, String... paths ) throws Exception {
+    JsonInput step = mock( JsonInput.class );
+    when( step.environmentSubstitute( anyString(), anyBoolean() ) ).thenAnswer( i -> i.getArguments()[ 0 ] );
+    return new FastJsonReader( step, fields( paths ), true, ignoreMissingPath, includeNulls, log );
+  }
+
+  private void assertSameRows( String json, String... paths ) throws Exception {
+    for ( boolean includeNulls : new boolean[] { false, true } ) {
+      List<Object[]> expected = read( fast( true, includeNulls, paths ), json );
+      List<Object[]> actual = read( streaming( true, includeNulls, paths ), json );
+      assertEquals( Arrays.toString( paths ), expected.size(), actual.size() );
+      for ( int i = 0; i < expected.size(); i++ ) {
+        assertArrayEquals( Arrays.toString( paths ), expected.get( i ), actual.get( i ) );
+      }
+    }
+  }
+
+  @Test
+  public void testSameRowsAsFastJsonReader() throws Exception {
+    assertSameRows( BOOKS, "$.store.book[*].author", "$.store.book[*].title", "$['store']['book'][*]['price']" );
+    assertSameRows( BOOKS, "$.store.book[*].tags" );
+    assertSameRows( "[ { 'p': [ 1, 2 ] }, { 'p': [ 3, 4 ] } ]", "$[*].p[1]" );
+    assertSameRows( BOOKS, "$.store.book[?(@.category == 'fiction')].title",
+      "$.store.book[?(@.category == 'fiction')].price" );
+    assertSameRows( BOOKS, "$.store.book[?(@.price < 10)].title" );
+    assertSameRows( BOOKS, "$.store.book[?(@.isbn)].author" );
+    assertSameRows( BOOKS, "$.store.bicycle.*" );
+    assertSameRows( BOOKS, "$.store.nothing[*].title" );
+    assertSameRows( "[ { 'a': 1, 'b': null }, { 'a': null }, { 'a': 3, 'b': 'x' } ]", "$[*].a", "$[*].b" );
+    assertSameRows( "[ 1, 2.5, 'three', true, null, 12345678901234567890 ]", "$.*" );
+    assertSameRows( "[]", "$[*].a" );
+  }
+
+  @Test
+  public void testMissingValuesAreNull() throws Exception {
+    List<Object[]> rows = read( streaming( true, false, "$.store.book[*].title", "$.store.book[*].isbn" ), BOOKS );
+    assertEquals( 4, rows.size() );
+    assertArrayEquals( new Object[] { "Sayings of the Century", null }, rows.get( 0 ) );
+    assertArrayEquals( new Object[] { "Moby Dick", "0-553-21311-3" }, rows.get( 2 ) );
+  }
+
+  @Test
+  public void testMissingValuesLeftOutAreNotStreamed() {
+    assertNull( StreamingJsonReader.create( new Variables(), fields( "$.store.book[*].title" ), false, true, false,
+      log ) );
+  }
+
+  @Test
+  public void testMissingPath() throws Exception {
+    try {
+      read( streaming( false, false, "$.store.book[*].title", "$.store.book[*].publisher" ), BOOKS );
+      fail( "missing path not reported" );
+    } catch ( RuntimeException e ) {
+      assertTrue( e.getMessage(), e.getMessage().contains( "$.store.book[*].publisher" ) );
+    }
+  }
+
+  @Test( expected = StreamingJsonReader.StreamingException.class )
+  public void testInvalidJson() throws Exception {
+    read( streaming( true, false, "$[*].a" ), "[ { 'a': 1 }, { 'a': " );
+  }
+
+  @Test
+  public void testUnsupportedPaths() {
+    String[][] unsupported = {
+      { "$..author" }, { "$.store.book[0,1].title" }, { "$.store.book[0:2].title" }, { "$.store.book.length()" },
+      { "$.store.book[*].tags[*]" }, { "$.store.book[0].title" }, { "store.book[*].title" },
+      { "$.store.book[*].title", "$.store.bicycle.*" },
+      { "$.store.book[?(@.price < 10)].title", "$.store.book[*].title" } };
+    for ( String[] paths : unsupported ) {
+      assertNull( Arrays.toString( paths ),
+        StreamingJsonReader.create( new Variables(), fields( paths ), true, true, false, log ) );
+    }
+  }
+}
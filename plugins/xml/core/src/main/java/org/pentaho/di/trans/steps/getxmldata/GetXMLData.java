@@ -20,6 +20,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -591,6 +593,17 @@ public class GetXMLData extends BaseStep implements StepInterface {
           logDetailed( BaseMessages.getString( PKG, "GetXMLData.Log.OpeningFile", data.file.toString() ) );
         }
 
+        if ( data.streamingXPath != null ) {
+          // The rows are read one by one in getStreamedXMLRow()
+          openStreamingXPath( data.file );
+          addFileToResultFilesname( data.file );
+
+          if ( log.isDetailed() ) {
+            logDetailed( BaseMessages.getString( PKG, "GetXMLData.Log.FileOpened", data.file.toString() ) );
+          }
+          return true;
+        }
+
         // Open the XML document
         if ( !setDocument( null, data.file, false, false ) ) {
           if ( data.stopPruning ) {
@@ -624,6 +637,26 @@ public class GetXMLData extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Starts reading the file with the compiled streaming XPath, no document is built.
+   */
+  private void openStreamingXPath( FileObject file ) throws Exception {
+    this.prevRow = buildEmptyRow(); // pre-allocate previous row
+
+    // get encoding. By default UTF-8
+    String encoding = "UTF-8";
+    if ( !Utils.isEmpty( meta.getEncoding() ) ) {
+      encoding = meta.getEncoding();
+    }
+    InputStream is = KettleVFS.getInputStream( file );
+    try {
+      data.streamingXPath.open( is, encoding );
+    } catch ( XMLStreamException e ) {
+      BaseStep.closeQuietly( is );
+      throw e;
+    }
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     if ( first && !meta.isInFields() ) {
       first = false;
@@ -680,6 +713,9 @@ public class GetXMLData extends BaseStep implements StepInterface {
   private Object[] getXMLRow() throws KettleException {
 
     if ( !meta.isInFields() ) {
+      if ( data.streamingXPath != null ) {
+        return getStreamedXMLRow();
+      }
       while ( ( data.nodenr >= data.nodesize || data.file == null ) ) {
         if ( !openNextFile() ) {
           data.errorInRowButContinue = false; // stop in all cases
@@ -690,6 +726,26 @@ public class GetXMLData extends BaseStep implements StepInterface {
     return getXMLRowPutRowWithErrorhandling();
   }
 
+  /**
+   * Reads the next row from the current file, or the next files, when the XPaths are evaluated while streaming.
+   */
+  private Object[] getStreamedXMLRow() throws KettleException {
+    data.errorInRowButContinue = false;
+    String[] nodeValues;
+    try {
+      nodeValues = data.file != null ? data.streamingXPath.next() : null;
+      while ( nodeValues == null ) {
+        if ( !openNextFile() ) {
+          return null;
+        }
+        nodeValues = data.streamingXPath.next();
+      }
+    } catch ( XMLStreamException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "GetXMLData.Error.UnableReadFile" ), e );
+    }
+    return processPutRow( null, nodeValues );
+  }
+
   private Object[] getXMLRowPutRowWithErrorhandling() throws KettleException {
     // Build an empty row based on the meta-data
     Object[] r;
@@ -706,7 +762,7 @@ public class GetXMLData extends BaseStep implements StepInterface {
         }
       }
 
-      r = processPutRow( data.an.get( data.nodenr ) );
+      r = processPutRow( data.an.get( data.nodenr ), null );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString( PKG, "GetXMLData.Error.UnableReadFile" ), e );
     }
@@ -714,7 +770,11 @@ public class GetXMLData extends BaseStep implements StepInterface {
     return r;
   }
 
-  private Object[] processPutRow( Node node ) throws KettleException {
+  /**
+   * @param node the loop node to evaluate the field XPaths on, null when streaming
+   * @param nodeValues the values of the fields read while streaming (null if missing), null when not streaming
+   */
+  private Object[] processPutRow( Node node, String[] nodeValues ) throws KettleException {
     // Create new row...
     Object[] outputRowData = buildEmptyRow();
 
@@ -749,8 +809,10 @@ public class GetXMLData extends BaseStep implements StepInterface {
         Boolean xmlMissingTagYieldsNullValue = convertStringToBoolean(
           Const.NVL( System.getProperty( Const.KETTLE_XML_MISSING_TAG_YIELDS_NULL_VALUE, "N" ), "N" ) );
 
-        // Handle namespaces
-        if ( meta.isNamespaceAware() ) {
+        if ( nodeValues != null ) {
+          nodevalue = nodeValues[i] != null || xmlMissingTagYieldsNullValue ? nodeValues[i] : "";
+        } else if ( meta.isNamespaceAware() ) {
+          // Handle namespaces
           XPath xpathField = node.createXPath( addNSPrefix( XPathValue, data.PathValue ) );
           xpathField.setNamespaceURIs( data.NAMESPACE );
           if ( xmlDataField.getResultType() == GetXMLDataField.RESULT_TYPE_VALUE_OF ) {
@@ -982,11 +1044,31 @@ public class GetXMLData extends BaseStep implements StepInterface {
         }
       }
 
+      if ( convertStringToBoolean( Const.NVL( getVariable( Const.KETTLE_GET_XML_DATA_STREAMING, "N" ), "N" ) ) ) {
+        initStreamingXPath();
+      }
+
       return true;
     }
     return false;
   }
 
+  /**
+   * Compiles the loop and field XPaths to be evaluated while streaming through the files, if possible.
+   */
+  private void initStreamingXPath() {
+    if ( meta.isInFields() || meta.isValidating() || meta.isNamespaceAware() || meta.isuseToken() ) {
+      data.streamingXPath = null;
+    } else {
+      data.streamingXPath = StreamingXPathReader.compile( data.PathValue, meta.getInputFields() );
+    }
+    if ( data.streamingXPath == null ) {
+      logBasic( BaseMessages.getString( PKG, "GetXMLData.Log.StreamingXPath.NotSupported" ) );
+    } else if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "GetXMLData.Log.StreamingXPath.Activated" ) );
+    }
+  }
+
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (GetXMLDataMeta) smi;
     data = (GetXMLDataData) sdi;
@@ -997,6 +1079,9 @@ public class GetXMLData extends BaseStep implements StepInterface {
         // Ignore close errors
       }
     }
+    if ( data.streamingXPath != null ) {
+      data.streamingXPath.close();
+    }
     if ( data.an != null ) {
       data.an.clear();
       data.an = null;
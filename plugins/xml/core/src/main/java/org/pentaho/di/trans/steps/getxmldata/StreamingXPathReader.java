@@ -0,0 +1,357 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.getxmldata;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLParserFactoryProducer;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Evaluates the loop XPath and the field XPaths of the Get XML Data step while pulling the document through a StAX
+ * parser, without building a DOM. The paths are compiled into a small state machine that tracks how much of each path
+ * matches the elements that are currently open, so memory usage doesn't depend on the size of the document.<br>
+ * <br>
+ * Only the paths that can be decided on the way through the document are supported:
+ * <ul>
+ * <li>the loop path is an absolute path of element names, e.g. <code>/orders/order</code></li>
+ * <li>a field path is <code>.</code> or a relative path of element names, optionally ending with an attribute, e.g.
+ * <code>customer/name</code> or <code>line/@id</code></li>
+ * <li>a field path can also be the attribute of an ancestor of the loop element, e.g. <code>../@batch</code></li>
+ * </ul>
+ * Only "value of" results without namespaces are supported. Like XPath, a field gets the string value of the first
+ * match in document order. A field without a match gets null.<br>
+ * <br>
+ * {@link #compile(String, GetXMLDataField[])} returns null for anything else, in which case the document has to be
+ * read in memory.
+ */
+public class StreamingXPathReader {
+
+  private final String[] loopPath;
+  private final FieldPath[] fields;
+  private final XMLInputFactory factory;
+
+  private InputStream inputStream;
+  private XMLStreamReader reader;
+
+  // The depth of the current element and the number of loop path elements that it (and its parents) match
+  //
+  private int depth;
+  private int matched;
+
+  private final String[] ancestorValues;
+  private final String[] values;
+  private final boolean[] found;
+  private final int[] fieldMatched;
+  private final StringBuilder[] captures;
+  private int activeCaptures;
+
+  private StreamingXPathReader( String[] loopPath, FieldPath[] fields ) {
+    this.loopPath = loopPath;
+    this.fields = fields;
+    this.ancestorValues = new String[ fields.length ];
+    this.values = new String[ fields.length ];
+    this.found = new boolean[ fields.length ];
+    this.fieldMatched = new int[ fields.length ];
+    this.captures = new StringBuilder[ fields.length ];
+
+    factory = XMLParserFactoryProducer.createSecureXMLInputFactory();
+    factory.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE );
+    factory.setProperty( XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE );
+    // Ignore external DTDs, like the IgnoreDTDEntityResolver
+    factory.setXMLResolver( ( publicID, systemID, baseURI, namespace ) -> new ByteArrayInputStream( new byte[ 0 ] ) );
+  }
+
+  /**
+   * Compiles the loop path and the (resolved) field paths.
+   *
+   * @param loopPath the absolute loop XPath
+   * @param inputFields the fields with their resolved XPath
+   * @return the reader or null if one of the paths can't be evaluated while streaming
+   */
+  public static StreamingXPathReader compile( String loopPath, GetXMLDataField[] inputFields ) {
+    if ( Utils.isEmpty( loopPath ) || !loopPath.startsWith( GetXMLDataMeta.N0DE_SEPARATOR ) ) {
+      return null;
+    }
+    String[] loopSteps = loopPath.substring( 1 ).split( GetXMLDataMeta.N0DE_SEPARATOR, -1 );
+    for ( String step : loopSteps ) {
+      if ( !isName( step ) ) {
+        return null;
+      }
+    }
+    FieldPath[] fields = new FieldPath[ inputFields.length ];
+    for ( int i = 0; i < inputFields.length; i++ ) {
+      if ( inputFields[ i ].getResultType() != GetXMLDataField.RESULT_TYPE_VALUE_OF ) {
+        return null;
+      }
+      fields[ i ] = FieldPath.compile( inputFields[ i ].getResolvedXPath(), loopSteps.length );
+      if ( fields[ i ] == null ) {
+        return null;
+      }
+    }
+    return new StreamingXPathReader( loopSteps, fields );
+  }
+
+  private static boolean isName( String step ) {
+    if ( step.isEmpty() || !Character.isLetter( step.charAt( 0 ) ) && step.charAt( 0 ) != '_' ) {
+      return false;
+    }
+    for ( int i = 1; i < step.length(); i++ ) {
+      char c = step.charAt( i );
+      if ( !Character.isLetterOrDigit( c ) && c != '_' && c != '-' && c != '.' ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Starts reading a document, closing the previous one.
+   *
+   * @param inputStream the document, closed by this reader
+   * @param encoding the encoding of the document
+   */
+  public void open( InputStream inputStream, String encoding ) throws XMLStreamException {
+    close();
+    this.inputStream = inputStream;
+    this.reader = factory.createXMLStreamReader( inputStream, encoding );
+    depth = 0;
+    matched = 0;
+    Arrays.fill( ancestorValues, null );
+  }
+
+  /**
+   * Reads up to the end of the next element matching the loop path.
+   *
+   * @return the values of the fields for the element or null at the end of the document
+   */
+  public String[] next() throws XMLStreamException {
+    if ( reader == null ) {
+      return null;
+    }
+    while ( reader.hasNext() ) {
+      switch ( reader.next() ) {
+        case XMLStreamConstants.START_ELEMENT:
+          startElement();
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          if ( matched == loopPath.length && depth >= loopPath.length - 1 ) {
+            int level = depth - loopPath.length + 1;
+            endRecordElement( level );
+            if ( level == 0 ) {
+              matched--;
+              return recordValues();
+            }
+          } else if ( matched > depth ) {
+            matched = depth;
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if ( activeCaptures > 0 ) {
+            for ( StringBuilder capture : captures ) {
+              if ( capture != null ) {
+                capture.append( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+              }
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    close();
+    return null;
+  }
+
+  private void startElement() {
+    int level = depth - loopPath.length;
+    depth++;
+    if ( matched == loopPath.length ) {
+      // Inside of a record
+      //
+      matchFields( level + 1 );
+      return;
+    }
+    if ( matched != depth - 1 || !isElement( loopPath[ matched ] ) ) {
+      return;
+    }
+    matched++;
+    if ( matched < loopPath.length ) {
+      for ( int i = 0; i < fields.length; i++ ) {
+        if ( fields[ i ].ancestorDepth == matched ) {
+          ancestorValues[ i ] = getAttribute( fields[ i ].attribute );
+        }
+      }
+    } else {
+      // The start of a record
+      //
+      Arrays.fill( values, null );
+      Arrays.fill( found, false );
+      Arrays.fill( fieldMatched, 0 );
+      matchFields( 0 );
+    }
+  }
+
+  /**
+   * @param level the level of the element below the record, 0 for the record itself
+   */
+  private void matchFields( int level ) {
+    for ( int i = 0; i < fields.length; i++ ) {
+      FieldPath field = fields[ i ];
+      if ( field.ancestorDepth >= 0 ) {
+        continue;
+      }
+      if ( level > 0 ) {
+        if ( fieldMatched[ i ] != level - 1 || level > field.elements.length
+          || !isElement( field.elements[ level - 1 ] ) ) {
+          continue;
+        }
+        fieldMatched[ i ] = level;
+      }
+      if ( found[ i ] || level != field.elements.length ) {
+        continue;
+      }
+      if ( field.attribute != null ) {
+        values[ i ] = getAttribute( field.attribute );
+        found[ i ] = values[ i ] != null;
+      } else {
+        found[ i ] = true;
+        captures[ i ] = new StringBuilder();
+        activeCaptures++;
+      }
+    }
+  }
+
+  private void endRecordElement( int level ) {
+    for ( int i = 0; i < fields.length; i++ ) {
+      if ( captures[ i ] != null && fieldMatched[ i ] == level && fields[ i ].elements.length == level ) {
+        values[ i ] = captures[ i ].toString();
+        captures[ i ] = null;
+        activeCaptures--;
+      }
+      if ( fieldMatched[ i ] >= level ) {
+        fieldMatched[ i ] = level - 1;
+      }
+    }
+  }
+
+  private String[] recordValues() {
+    String[] row = new String[ fields.length ];
+    for ( int i = 0; i < fields.length; i++ ) {
+      row[ i ] = fields[ i ].ancestorDepth >= 0 ? ancestorValues[ i ] : values[ i ];
+    }
+    return row;
+  }
+
+  private boolean isElement( String name ) {
+    return name.equals( reader.getLocalName() ) && Utils.isEmpty( reader.getNamespaceURI() );
+  }
+
+  private String getAttribute( String name ) {
+    for ( int i = 0; i < reader.getAttributeCount(); i++ ) {
+      if ( name.equals( reader.getAttributeLocalName( i ) ) && Utils.isEmpty( reader.getAttributeNamespace( i ) ) ) {
+        return reader.getAttributeValue( i );
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Closes the document that is being read.
+   */
+  public void close() {
+    if ( reader != null ) {
+      try {
+        reader.close();
+      } catch ( XMLStreamException e ) {
+        // Ignore close errors
+      }
+      reader = null;
+    }
+    if ( inputStream != null ) {
+      BaseStep.closeQuietly( inputStream );
+      inputStream = null;
+    }
+    Arrays.fill( captures, null );
+    activeCaptures = 0;
+  }
+
+  /**
+   * A compiled field path: element names below the record and an optional attribute, or the attribute of an ancestor.
+   */
+  private static final class FieldPath {
+    private final String[] elements;
+    private final String attribute;
+    private final int ancestorDepth;
+
+    private FieldPath( String[] elements, String attribute, int ancestorDepth ) {
+      this.elements = elements;
+      this.attribute = attribute;
+      this.ancestorDepth = ancestorDepth;
+    }
+
+    /**
+     * @param path the field XPath
+     * @param loopDepth the number of elements in the loop path
+     * @return the field path or null if not supported
+     */
+    static FieldPath compile( String path, int loopDepth ) {
+      if ( Utils.isEmpty( path ) || path.startsWith( GetXMLDataMeta.N0DE_SEPARATOR ) ) {
+        return null;
+      }
+      List<String> elements = new ArrayList<>();
+      String attribute = null;
+      int up = 0;
+      String[] steps = path.split( GetXMLDataMeta.N0DE_SEPARATOR, -1 );
+      for ( int i = 0; i < steps.length; i++ ) {
+        String step = steps[ i ];
+        boolean last = i == steps.length - 1;
+        if ( step.equals( "." ) && elements.isEmpty() && up == 0 ) {
+          continue;
+        }
+        if ( step.equals( ".." ) && elements.isEmpty() ) {
+          up++;
+        } else if ( last && step.startsWith( GetXMLDataMeta.AT ) && isName( step.substring( 1 ) ) ) {
+          attribute = step.substring( 1 );
+        } else if ( isName( step ) && up == 0 ) {
+          elements.add( step );
+        } else {
+          return null;
+        }
+      }
+      if ( up > 0 ) {
+        // Only the attributes of the ancestors are known when a record is read
+        //
+        if ( attribute == null || up >= loopDepth ) {
+          return null;
+        }
+        return new FieldPath( new String[ 0 ], attribute, loopDepth - up );
+      }
+      return new FieldPath( elements.toArray( new String[ 0 ] ), attribute, -1 );
+    }
+  }
+}
@@ -39,6 +39,7 @@ import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.pentaho.di.trans.steps.injector.InjectorMeta;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -497,4 +498,29 @@ public class GetXMLDataTest {
     assertEquals( "${xml_path}", gxdm.getInputFields()[0].getXPath() );
     assertEquals( "data/owner", gxdm.getInputFields()[0].getResolvedXPath() );
   }
+
+  @Test
+  public void testStreamingIsEnabledPerTransformation() throws Exception {
+    KettleEnvironment.init();
+
+    GetXMLDataField customer = new GetXMLDataField( "customer" );
+    customer.setXPath( "customer/name" );
+    GetXMLDataMeta gxdm = new GetXMLDataMeta();
+    gxdm.setDefault();
+    gxdm.setLoopXPath( "/orders/order" );
+    gxdm.setInputFields( new GetXMLDataField[] { customer } );
+
+    TransMeta transMeta = new TransMeta();
+    StepMeta getXMLDataStep = new StepMeta( "get xml data step", gxdm );
+    transMeta.addStep( getXMLDataStep );
+    Trans trans = new Trans( transMeta );
+
+    for ( String streaming : new String[] { "Y", "N" } ) {
+      GetXMLDataData getXMLDataData = new GetXMLDataData();
+      GetXMLData getXmlData = new GetXMLData( getXMLDataStep, getXMLDataData, 0, transMeta, trans );
+      getXmlData.setVariable( Const.KETTLE_GET_XML_DATA_STREAMING, streaming );
+      assertTrue( getXmlData.init( gxdm, getXMLDataData ) );
+      assertEquals( streaming, "Y".equals( streaming ), getXMLDataData.streamingXPath != null );
+    }
+  }
 }
@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.getxmldata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.dom4j.Document;
+import org.dom4j.Node;
+import org.dom4j.io.SAXReader;
+import org.junit.Test;
+import org.pentaho.di.core.xml.XMLParserFactoryProducer;
+
+public class StreamingXPathReaderTest {
+
+  private static final String ORDERS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+    + "<!DOCTYPE orders SYSTEM \"orders.dtd\">\n"
+    + "<orders batch=\"42\">\n"
+    + "  <!-- first -->\n"
+    + "  <order id=\"1\">\n"
+    + "    <customer><name>Acme &amp; Co</name><city>Ghent</city></customer>\n"
+    + "    <line nr=\"1\"><product>bolt</product><qty>10</qty></line>\n"
+    + "    <line nr=\"2\"><product>nut</product><qty>20</qty></line>\n"
+    + "    <note><![CDATA[<urgent>]]> please</note>\n"
+    + "  </order>\n"
+    + "  <order id=\"2\">\n"
+    + "    <customer><name>Initech</name></customer>\n"
+    + "    <line><product>washer</product><qty/></line>\n"
+    + "    <line nr=\"7\"><product>screw</product></line>\n"
+    + "    <order id=\"nested\"><customer><name>Inner</name></customer></order>\n"
+    + "  </order>\n"
+    + "  <other><order id=\"3\"/></other>\n"
+    + "  <order/>\n"
+    + "</orders>";
+
+  private static GetXMLDataField[] fields( String... paths ) {
+    GetXMLDataField[] fields = new GetXMLDataField[ paths.length ];
+    for ( int i = 0; i < paths.length; i++ ) {
+      fields[ i ] = new GetXMLDataField( "field" + i );
+      fields[ i ].setResolvedXPath( paths[ i ] );
+    }
+    return fields;
+  }
+
+  private static List<String[]> stream( String xml, String loopPath, String... paths ) throws XMLStreamException {
+    StreamingXPathReader reader = StreamingXPathReader.compile( loopPath, fields( paths ) );
+    assertNotNull( loopPath, reader );
+    reader.open( new ByteArrayInputStream( xml.getBytes( StandardCharsets.UTF_8 ) ), "UTF-8" );
+    List<String[]> rows = new ArrayList<>();
+    for ( String[] row = reader.next(); row != null; row = reader.next() ) {
+      rows.add( row );
+    }
+    assertNull( reader.next() );
+    return rows;
+  }
+
+  /**
+   * Evaluates the paths like the step does on a document.
+   */
+  @SuppressWarnings( "unchecked" )
+  private static List<String[]> evaluate( String xml, String loopPath, String... paths ) throws Exception {
+    SAXReader saxReader = XMLParserFactoryProducer.getSAXReader( new IgnoreDTDEntityResolver() );
+    Document document = saxReader.read( new StringReader( xml ) );
+    List<String[]> rows = new ArrayList<>();
+    for ( Node node : (List<Node>) document.createXPath( loopPath ).selectNodes( document ) ) {
+      String[] row = new String[ paths.length ];
+      for ( int i = 0; i < paths.length; i++ ) {
+        row[ i ] = node.selectSingleNode( paths[ i ] ) != null ? node.valueOf( paths[ i ] ) : null;
+      }
+      rows.add( row );
+    }
+    return rows;
+  }
+
+  private static void assertSameValues( String xml, String loopPath, String... paths ) throws Exception {
+    List<String[]> expected = evaluate( xml, loopPath, paths );
+    List<String[]> actual = stream( xml, loopPath, paths );
+    assertEquals( loopPath, expected.size(), actual.size() );
+    for ( int i = 0; i < expected.size(); i++ ) {
+      assertArrayEquals( loopPath + " " + i, expected.get( i ), actual.get( i ) );
+    }
+  }
+
+  @Test
+  public void testSameValuesAsDocument() throws Exception {
+    assertSameValues( ORDERS, "/orders/order", "@id", "customer/name", "./customer/city", "line/product",
+      "line/@nr", "line/qty", "note", "../@batch", "missing", "@missing", "../@missing" );
+    assertSameValues( ORDERS, "/orders/order", "." );
+    assertSameValues( ORDERS, "/orders/order/line", "product", "qty", "@nr", "../@id", "../../@batch" );
+    assertSameValues( ORDERS, "/orders/order/customer/name", "." );
+    assertSameValues( ORDERS, "/orders", "order/@id", "other/order/@id" );
+    assertSameValues( ORDERS, "/nothing/here", "." );
+  }
+
+  @Test
+  public void testNamespacedElementsDontMatch() throws Exception {
+    String xml = "<a xmlns:x=\"urn:x\"><x:b><c>1</c></x:b><b><c>2</c><x:c>3</x:c></b></a>";
+    assertSameValues( xml, "/a/b", "c" );
+    assertEquals( 1, stream( xml, "/a/b", "c" ).size() );
+  }
+
+  @Test
+  public void testMultipleDocuments() throws Exception {
+    StreamingXPathReader reader = StreamingXPathReader.compile( "/a/b", fields( "." ) );
+    reader.open( new ByteArrayInputStream( "<a><b>1</b><b>2</b></a>".getBytes( StandardCharsets.UTF_8 ) ), "UTF-8" );
+    assertArrayEquals( new String[] { "1" }, reader.next() );
+
+    // Opening the next document drops the rest of the first one
+    //
+    reader.open( new ByteArrayInputStream( "<a><b>3</b></a>".getBytes( StandardCharsets.UTF_8 ) ), "UTF-8" );
+    assertArrayEquals( new String[] { "3" }, reader.next() );
+    assertNull( reader.next() );
+  }
+
+  @Test( expected = XMLStreamException.class )
+  public void testMalformedDocument() throws Exception {
+    stream( "<a><b>1</b><b>2</a>", "/a/b", "." );
+  }
+
+  @Test
+  public void testUnsupportedPaths() {
+    assertNull( StreamingXPathReader.compile( "//order", fields( "." ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order[1]", fields( "." ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/*", fields( "." ) ) );
+    assertNull( StreamingXPathReader.compile( "/ns:orders/order", fields( "." ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "/orders/@batch" ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "line[2]/product" ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "line/text()" ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "../other" ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "../../@x" ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "count(line)" ) ) );
+    assertNull( StreamingXPathReader.compile( "/orders/order", fields( "" ) ) );
+
+    GetXMLDataField[] singleNode = fields( "customer" );
+    singleNode[ 0 ].setResultType( GetXMLDataField.RESULT_TYPE_TYPE_SINGLE_NODE );
+    assertNull( StreamingXPathReader.compile( "/orders/order", singleNode ) );
+  }
+}